@@ -7,21 +7,44 @@ import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.io.ClosedIORuntimeException;
 import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.NanoSampler;
 import net.openhft.chronicle.jlbh.JLBH;
 import net.openhft.chronicle.jlbh.JLBHOptions;
+import net.openhft.chronicle.jlbh.JLBHResult;
 import net.openhft.chronicle.jlbh.JLBHTask;
 import net.openhft.chronicle.queue.channel.PipeHandler;
 import net.openhft.chronicle.wire.channel.ChronicleContext;
 import net.openhft.chronicle.wire.channel.impl.internal.Handler;
 import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.MetricsOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.domain.AccountStore;
+import run.chronicle.account.dto.BatchTransfer;
+import run.chronicle.account.dto.CheckPoint;
+import run.chronicle.account.dto.FixedTransfer;
+import run.chronicle.account.dto.OnBatchTransfer;
+import run.chronicle.account.dto.OnCreateAccount;
+import run.chronicle.account.dto.OnFixedTransfer;
 import run.chronicle.account.dto.OnTransfer;
+import run.chronicle.account.dto.ReplicaStatus;
 import run.chronicle.account.dto.Transfer;
+import run.chronicle.account.impl.ShardedAccountManager;
 import run.chronicle.account.util.LogsAccountManagerOut;
 
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.MalformedURLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static net.openhft.chronicle.core.time.SystemTimeProvider.CLOCK;
 
@@ -32,6 +55,24 @@ public class AccountManagerBenchmarkMain {
     public static final boolean BUFFERED = Jvm.getBoolean("buffered");
     public static final String URL = System.getProperty("url", "tcp://:1248");
     public static final boolean ACCOUNT_FOR_COORDINATED_OMISSION = Jvm.getBoolean("accountForCoordinatedOmission");
+    // The shards the service partitions the accounts across, see AccountManagerServiceMain
+    public static final int SHARDS = Integer.getInteger("shards", 1);
+    // The accounts the transfers are between
+    public static final int ACCOUNTS = Integer.getInteger("accounts", 64);
+    // The fraction of transfers between accounts in different shards, when there is more than one
+    public static final double CROSS_SHARD = Double.parseDouble(System.getProperty("crossShard", "0.1"));
+    // Request a checkpoint every this many transfers, or never if 0, see -DincrementalCheckpoints
+    public static final int CHECKPOINT_EVERY = Integer.getInteger("checkpointEvery", 0);
+    // Send FixedTransfers of units, to a service holding fixed-point balances, see -DfixedPoint
+    public static final boolean FIXED_POINT = AccountStore.FIXED_POINT;
+    // Send this many transfers per batchTransfer, with each sample the latency of a batch, or single transfers if 0
+    public static final int BATCH_SIZE = Integer.getInteger("batchSize", 0);
+    // Run a follower of the service too, sampling how long after sending each message the follower has applied it
+    public static final boolean FOLLOWER = Jvm.getBoolean("follower");
+    // Compare these pausers of the service, or all of them if empty, at each of the -Drates, rather than one benchmark
+    public static final String PAUSER_MATRIX = System.getProperty("pauserMatrix");
+    // The throughputs to compare the pausers at, in messages/s
+    public static final String RATES = System.getProperty("rates", "10000,100000,1000000");
 
     static {
         if (!OS.isLinux())
@@ -43,25 +84,39 @@ public class AccountManagerBenchmarkMain {
 
     @SuppressWarnings("try")
     public static void main(String[] args) throws InterruptedException, MalformedURLException {
+        if (ACCOUNTS < 2)
+            throw new IllegalArgumentException("-Daccounts must be at least 2, as each transfer is between two accounts, not " + ACCOUNTS);
+
         // Delete existing queues if any before starting. This is typically done to clean up any leftover data from previous runs.
         deleteQueues();
 
         // Print out system properties used to configure this benchmark
         printProperties();
 
+        if (PAUSER_MATRIX != null) {
+            runPauserMatrix();
+            return;
+        }
+
         // Create a new ExecutorService with a custom thread factory named 'test'.
         // This ExecutorService is used for running the client/gateway/service in the current process
         ExecutorService es = Executors.newCachedThreadPool(new AffinityThreadFactory("test"));
 
         // Initialise a new instance of AccountManagerServiceMain. This is the main service for managing accounts.
         AccountManagerServiceMain service = null;
+        AccountManagerServiceMain follower = null;
 
         // Check if the host part of the URL is empty. If it is, that means we are running the service locally.
         if (net.openhft.chronicle.wire.channel.ChronicleContext.urlFor(URL).getHost().isEmpty()) {
-            service = new AccountManagerServiceMain();
+            service = FOLLOWER ? new AccountManagerServiceMain("leader", 0) : new AccountManagerServiceMain();
             // Submit the service to run in the ExecutorService.
             // The 'wrap' method is used to ensure any Throwable are logged instead of added to the discarded Future silently
             es.submit(wrap(service));
+            if (FOLLOWER) {
+                // it never takes over during the benchmark
+                follower = new AccountManagerServiceMain("follower", Long.MAX_VALUE);
+                es.submit(wrap(follower));
+            }
         } else {
             // If the URL is not empty, inform the user to start the Gateway and Service in another process.
             Jvm.startup().on(AccountManagerBenchmarkMain.class,
@@ -82,8 +137,8 @@ public class AccountManagerBenchmarkMain {
             final AccountManagerIn accountManagerIn = channel.methodWriter(AccountManagerIn.class);
 
             // Create some accounts.
-            AccountManagerClientMain.createAccount(accountManagerIn, CLOCK.currentTimeNanos(), 1);
-            AccountManagerClientMain.createAccount(accountManagerIn, CLOCK.currentTimeNanos(), 2);
+            for (int i = 1; i <= ACCOUNTS; i++)
+                AccountManagerClientMain.createAccount(accountManagerIn, CLOCK.currentTimeNanos(), i, ACCOUNTS <= 16);
 
             // Prepare JLBH for benchmarking.
             JLBH jlbh = new JLBH(new JLBHOptions()
@@ -94,16 +149,79 @@ public class AccountManagerBenchmarkMain {
                     .accountForCoordinatedOmission(ACCOUNT_FOR_COORDINATED_OMISSION)
                     .jlbhTask(new MyJLBHTask(accountManagerIn)));
 
+            // How long after sending each message the follower applied it, if there is one
+            NanoSampler replication = FOLLOWER ? jlbh.addProbe("replication") : null;
+
+            // The transfers completed, and when the first and last completed, for the throughput
+            AtomicLongArray completed = new AtomicLongArray(3);
+
             // Submit a new task to the executor service. This task reads from the channel and records benchmarks.
             es.submit(wrap(() -> {
                 MethodReader reader = channel.methodReader(new LogsAccountManagerOut() {
+                    @Override
+                    public void startCheckpoint(CheckPoint checkPoint) {
+                    }
+
+                    @Override
+                    public void onCreateAccount(OnCreateAccount onCreateAccount) {
+                        // the accounts in a checkpoint
+                    }
+
+                    @Override
+                    public void endCheckpoint(CheckPoint checkPoint) {
+                    }
+
                     @Override
                     public void onTransfer(OnTransfer onTransfer) {
+                        sample(onTransfer.transfer().sendingTime());
+                    }
+
+                    @Override
+                    public void onFixedTransfer(OnFixedTransfer onFixedTransfer) {
+                        sample(onFixedTransfer.transfer().sendingTime());
+                    }
+
+                    @Override
+                    public void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+                        sample(onBatchTransfer.batchSendingTime(), onBatchTransfer.count());
+                    }
+
+                    private void sample(long sendingTime) {
+                        sample(sendingTime, 1);
+                    }
+
+                    private void sample(long sendingTime, int transfers) {
                         // startTimeNS is in nanoTime()
-                        long durationNs = System.nanoTime() - onTransfer.transfer().sendingTime();
+                        long now = System.nanoTime();
+                        long durationNs = now - sendingTime;
                         jlbh.sample(durationNs);
+                        // only this thread writes, so a lazySet is enough
+                        long count = completed.get(0);
+                        if (count == 0)
+                            completed.lazySet(1, now);
+                        completed.lazySet(2, now);
+                        completed.lazySet(0, count + transfers);
                     }
-                });
+                }, (ReplicationOut) new ReplicationOut() {
+                    private long appliedIndex;
+
+                    @Override
+                    public void replicaStatus(ReplicaStatus replicaStatus) {
+                        // the follower's, ignoring the heartbeats which repeat its last status
+                        if (replicaStatus.leader() || replicaStatus.appliedIndex() == appliedIndex)
+                            return;
+                        appliedIndex = replicaStatus.appliedIndex();
+                        // the sendingTime of the transfers is in nanoTime(), while the accounts were created in wall clock time
+                        long lagNs = System.nanoTime() - replicaStatus.appliedSendingTime();
+                        if (lagNs >= 0)
+                            replication.sampleNanos(lagNs);
+                    }
+                }, (MetricsOut) metrics ->
+                        // as published by the service every -DmetricsIntervalMs
+                        System.out.printf("service %s: %,d, delay us 50/99/99.99/max %.1f / %.1f / %.1f / %.1f, handler us %.2f / %.2f / %.2f / %.2f%n",
+                                metrics.eventType(), metrics.count(),
+                                metrics.delay50(), metrics.delay99(), metrics.delay9999(), metrics.delayMax(),
+                                metrics.handler50(), metrics.handler99(), metrics.handler9999(), metrics.handlerMax()));
 
                 // Keep reading until interrupted.
                 while (!Thread.interrupted()) {
@@ -114,8 +232,13 @@ public class AccountManagerBenchmarkMain {
             // Start the benchmark.
             jlbh.start();
 
+            // Allow the last results to arrive
+            Jvm.pause(100);
+            System.out.printf("shards: %d, cross-shard: %.0f%%, fixed point: %s, batch size: %d, throughput: %,.0f transfers/s%n",
+                    SHARDS, CROSS_SHARD * 100, FIXED_POINT, BATCH_SIZE, (completed.get(0) - 1) * 1e9 / (completed.get(2) - completed.get(1)));
+
             // Cleanup: Close the service and shutdown the ExecutorService.
-            Closeable.closeQuietly(service);
+            Closeable.closeQuietly(service, follower);
             Jvm.pause(100);
             es.shutdownNow();
             es.awaitTermination(1, TimeUnit.SECONDS);
@@ -125,6 +248,92 @@ public class AccountManagerBenchmarkMain {
         deleteQueues();
     }
 
+    /**
+     * Runs the benchmark for each pauser of the service at each rate, reporting the end to end latencies
+     * of the last run, and the CPU the service's thread used over the runs.
+     */
+    private static void runPauserMatrix() throws InterruptedException, MalformedURLException {
+        String[] pausers = PAUSER_MATRIX.isEmpty()
+                ? new String[]{"busy", "yielding", "balanced", "sleepy", "adaptive"}
+                : PAUSER_MATRIX.split(",");
+        List<String> rows = new ArrayList<>();
+        for (String pauser : pausers) {
+            for (String rate : RATES.split(",")) {
+                rows.add(runPauser(pauser.trim(), Integer.parseInt(rate.trim())));
+                // as each completes, in case it takes a while
+                System.out.println(rows.get(rows.size() - 1));
+            }
+        }
+        System.out.println("pauser       rate/s        50%        99%      99.9%     99.99%      worst us   service CPU");
+        rows.forEach(System.out::println);
+    }
+
+    private static String runPauser(String pauser, int rate) throws InterruptedException, MalformedURLException {
+        deleteQueues();
+        AccountManagerServiceMain service = new AccountManagerServiceMain().pauser(pauser);
+        Thread serviceThread = new Thread(wrap(service), "service-" + pauser);
+        serviceThread.start();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        AtomicReference<JLBHResult> result = new AtomicReference<>();
+        long cpuNs, wallNs;
+        try (ChronicleContext context = net.openhft.chronicle.wire.channel.ChronicleContext.newContext(URL)) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            AccountManagerIn accountManagerIn = channel.methodWriter(AccountManagerIn.class);
+            for (int i = 1; i <= ACCOUNTS; i++)
+                AccountManagerClientMain.createAccount(accountManagerIn, CLOCK.currentTimeNanos(), i, false);
+
+            // only the summary is reported
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            });
+            JLBH jlbh = new JLBH(new JLBHOptions()
+                    .throughput(rate)
+                    .iterations(rate * RUN_TIME)
+                    .runs(2)
+                    .recordOSJitter(false)
+                    .accountForCoordinatedOmission(ACCOUNT_FOR_COORDINATED_OMISSION)
+                    .jlbhTask(new MyJLBHTask(accountManagerIn)), quiet, result::set);
+            Thread reader = new Thread(wrap(() -> {
+                MethodReader methodReader = channel.methodReader(new LogsAccountManagerOut() {
+                    @Override
+                    public void onCreateAccount(OnCreateAccount onCreateAccount) {
+                    }
+
+                    @Override
+                    public void onTransfer(OnTransfer onTransfer) {
+                        jlbh.sample(System.nanoTime() - onTransfer.transfer().sendingTime());
+                    }
+                });
+                while (!Thread.interrupted())
+                    methodReader.readOne();
+            }), "reader");
+            reader.start();
+
+            long cpuStart = threads.getThreadCpuTime(serviceThread.getId());
+            long wallStart = System.nanoTime();
+            jlbh.start();
+            cpuNs = threads.getThreadCpuTime(serviceThread.getId()) - cpuStart;
+            wallNs = System.nanoTime() - wallStart;
+            reader.interrupt();
+            reader.join();
+        } finally {
+            service.close();
+            serviceThread.join();
+        }
+        JLBHResult.RunResult run = result.get().endToEnd().summaryOfLastRun();
+        return String.format("%-10s %,10d %10.1f %10.1f %10.1f %10.1f %10.1f   %9.0f%%",
+                pauser, rate, micros(run.get50thPercentile()), micros(run.get99thPercentile()), micros(run.get999thPercentile()),
+                micros(run.get9999thPercentile()), micros(run.getWorst()), 100.0 * cpuNs / wallNs);
+    }
+
+    // or NaN if there weren't enough samples for the percentile
+    private static double micros(Duration duration) {
+        return duration == null ? Double.NaN : duration.toNanos() / 1e3;
+    }
+
     static Runnable wrap(Runnable runnable) {
         return () -> {
             try {
@@ -139,6 +348,7 @@ public class AccountManagerBenchmarkMain {
     private static void deleteQueues() {
         IOTools.deleteDirWithFiles("account-in");
         IOTools.deleteDirWithFiles("account-out");
+        IOTools.deleteDirWithFiles("account-shards");
     }
 
     private static void printProperties() {
@@ -148,13 +358,26 @@ public class AccountManagerBenchmarkMain {
                 "-DrunTime=" + RUN_TIME + " " +
                 "-Dbuffered=" + BUFFERED + " " +
                 "-Durl=" + URL + " " +
-                "-DaccountForCoordinatedOmission=" + ACCOUNT_FOR_COORDINATED_OMISSION);
+                "-DaccountForCoordinatedOmission=" + ACCOUNT_FOR_COORDINATED_OMISSION + " " +
+                "-Dshards=" + SHARDS + " " +
+                "-Daccounts=" + ACCOUNTS + " " +
+                "-DcrossShard=" + CROSS_SHARD + " " +
+                "-DcheckpointEvery=" + CHECKPOINT_EVERY + " " +
+                "-DfixedPoint=" + FIXED_POINT + " " +
+                "-DbatchSize=" + BATCH_SIZE + " " +
+                "-Dfollower=" + FOLLOWER +
+                (PAUSER_MATRIX == null ? "" : " -DpauserMatrix=" + PAUSER_MATRIX + " -Drates=" + RATES));
     }
 
     private static class MyJLBHTask implements JLBHTask {
         private final AccountManagerIn input;
         private JLBH jlbh;
         private Transfer transfer = new Transfer();
+        private final FixedTransfer fixedTransfer = new FixedTransfer();
+        private final BatchTransfer batchTransfer = new BatchTransfer();
+        private final Random random = new Random(1);
+        private final CheckPoint checkPoint = new CheckPoint();
+        private long transfers;
 
         public MyJLBHTask(AccountManagerIn input) {
             this.input = input;
@@ -167,7 +390,32 @@ public class AccountManagerBenchmarkMain {
 
         @Override
         public void run(long startTimeNS) {
-            AccountManagerClientMain.transfer(input, startTimeNS, transfer, false);
+            if (BATCH_SIZE > 0) {
+                batchTransfer.clear();
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    int from = 1 + random.nextInt(ACCOUNTS);
+                    int to = 1 + (from + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    batchTransfer.add(10 + from, 10 + to, 0.01, "batch");
+                }
+                AccountManagerClientMain.batchTransfer(input, startTimeNS, batchTransfer);
+                return;
+            }
+            int from = 1 + random.nextInt(ACCOUNTS);
+            boolean crossShard = random.nextDouble() < CROSS_SHARD;
+            int to = from;
+            // look for an account in the same, or another, shard, settling for any other account after a few tries
+            for (int tries = 0; tries < 64; tries++) {
+                to = 1 + random.nextInt(ACCOUNTS);
+                boolean sameShard = ShardedAccountManager.shardOf(10 + from, SHARDS) == ShardedAccountManager.shardOf(10 + to, SHARDS);
+                if (to != from && sameShard != crossShard)
+                    break;
+            }
+            if (FIXED_POINT)
+                AccountManagerClientMain.fixedTransfer(input, startTimeNS, fixedTransfer, from, to, false);
+            else
+                AccountManagerClientMain.transfer(input, startTimeNS, transfer, from, to, false);
+            if (CHECKPOINT_EVERY > 0 && ++transfers % CHECKPOINT_EVERY == 0)
+                AccountManagerClientMain.checkPoint(input, startTimeNS, checkPoint);
         }
     }
 }
@@ -4,7 +4,6 @@ import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.MethodReader;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.time.SystemTimeProvider;
-import net.openhft.chronicle.queue.channel.PipeHandler;
 import net.openhft.chronicle.wire.ShortTextLongConverter;
 import net.openhft.chronicle.wire.LongConverter;
 import net.openhft.chronicle.wire.channel.ChronicleContext;
@@ -12,6 +11,7 @@ import net.openhft.chronicle.wire.channel.ChronicleGatewayMain;
 import run.chronicle.account.api.AccountManagerIn;
 import run.chronicle.account.dto.*;
 import run.chronicle.account.util.LogsAccountManagerOut;
+import run.chronicle.account.util.TargetedPipeHandler;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -38,9 +38,10 @@ public class AccountManagerClientMain {
     public static void main(String[] args) {
 
         // Create a new ChronicleContext using a URL and client name...
-        // Obtain a ChronicleChannel...
+        // Obtain a ChronicleChannel, which a gateway sends only the events addressed to this client...
         try (ChronicleContext context = ChronicleContext.newContext(URL).name(CLIENT)) {
-            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new TargetedPipeHandler().publish("account-in").subscribe("account-out").target(SENDER)).get();
 
             // Log the hostname and port of the connected channel...
             Jvm.startup().on(AccountManagerClientMain.class, "Channel connected to: " + channel.channelCfg().hostPorts());
@@ -103,6 +104,18 @@ public class AccountManagerClientMain {
      * @param num              The account number.
      */
     static void createAccount(AccountManagerIn accountManagerIn, long sendingTime, int num) {
+        createAccount(accountManagerIn, sendingTime, num, true);
+    }
+
+    /**
+     * Creates an account.
+     *
+     * @param accountManagerIn An instance of AccountManagerIn.
+     * @param sendingTime      The sending timestamp.
+     * @param num              The account number.
+     * @param log              A boolean indicating whether to log the account.
+     */
+    static void createAccount(AccountManagerIn accountManagerIn, long sendingTime, int num, boolean log) {
         CreateAccount createAccount = new CreateAccount()
                 .sender(SENDER)
                 .target(TARGET)
@@ -111,10 +124,25 @@ public class AccountManagerClientMain {
                 .balance(1e9)
                 .currency(EUR)
                 .sendingTime(sendingTime);
-        Jvm.startup().on(AccountManagerClientMain.class, "Create: " + createAccount);
+        if (log)
+            Jvm.startup().on(AccountManagerClientMain.class, "Create: " + createAccount);
         accountManagerIn.createAccount(createAccount);
     }
 
+    /**
+     * Requests a checkpoint of the accounts.
+     *
+     * @param accountManagerIn An instance of AccountManagerIn.
+     * @param sendingTime      The sending timestamp.
+     * @param checkPoint       An instance of CheckPoint.
+     */
+    static void checkPoint(AccountManagerIn accountManagerIn, long sendingTime, CheckPoint checkPoint) {
+        accountManagerIn.checkPoint(checkPoint
+                .sender(SENDER)
+                .target(TARGET)
+                .sendingTime(sendingTime));
+    }
+
     /**
      * Performs a transfer.
      *
@@ -124,11 +152,25 @@ public class AccountManagerClientMain {
      * @param log              A boolean indicating whether to log the transfer.
      */
     static void transfer(AccountManagerIn accountManagerIn, long sendingTime, Transfer transfer, boolean log) {
+        transfer(accountManagerIn, sendingTime, transfer, 1, 2, log);
+    }
+
+    /**
+     * Performs a transfer between two of the accounts created by {@link #createAccount(AccountManagerIn, long, int)}.
+     *
+     * @param accountManagerIn An instance of AccountManagerIn.
+     * @param sendingTime      The sending timestamp.
+     * @param transfer         An instance of Transfer.
+     * @param fromNum          The account number to transfer from.
+     * @param toNum            The account number to transfer to.
+     * @param log              A boolean indicating whether to log the transfer.
+     */
+    static void transfer(AccountManagerIn accountManagerIn, long sendingTime, Transfer transfer, int fromNum, int toNum, boolean log) {
         transfer
                 .sender(SENDER)
                 .target(TARGET)
-                .from(11)
-                .to(12)
+                .from(10 + fromNum)
+                .to(10 + toNum)
                 .amount(0.01)
                 .currency(EUR)
                 .sendingTime(sendingTime)
@@ -137,4 +179,35 @@ public class AccountManagerClientMain {
             Jvm.startup().on(AccountManagerClientMain.class, "Transfer: " + transfer);
         accountManagerIn.transfer(transfer);
     }
+
+    /**
+     * Performs the same transfer as {@link #transfer(AccountManagerIn, long, Transfer, int, int, boolean)},
+     * as a whole number of cents.
+     */
+    static void fixedTransfer(AccountManagerIn accountManagerIn, long sendingTime, FixedTransfer transfer, int fromNum, int toNum, boolean log) {
+        transfer
+                .sender(SENDER)
+                .target(TARGET)
+                .from(10 + fromNum)
+                .to(10 + toNum)
+                .amount(1)
+                .currency(EUR)
+                .sendingTime(sendingTime)
+                .reference(REFERENCE);
+        if (log)
+            Jvm.startup().on(AccountManagerClientMain.class, "FixedTransfer: " + transfer);
+        accountManagerIn.fixedTransfer(transfer);
+    }
+
+    /**
+     * Sends a batch of transfers between the accounts created by {@link #createAccount(AccountManagerIn, long, int)},
+     * as added to {@code batchTransfer}.
+     */
+    static void batchTransfer(AccountManagerIn accountManagerIn, long sendingTime, BatchTransfer batchTransfer) {
+        accountManagerIn.batchTransfer(batchTransfer
+                .sender(SENDER)
+                .target(TARGET)
+                .currency(EUR)
+                .sendingTime(sendingTime));
+    }
 }
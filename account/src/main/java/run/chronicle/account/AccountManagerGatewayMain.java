@@ -2,12 +2,16 @@ package run.chronicle.account;
 
 import net.openhft.chronicle.core.io.InvalidMarshallableException;
 import net.openhft.chronicle.wire.channel.ChronicleGatewayMain;
+import run.chronicle.account.util.TargetedPipeHandler;
 
 import java.io.IOException;
 
 /**
  * This class acts as the main entry point for the AccountManagerGateway,
  * which extends the ChronicleGatewayMain class.
+ *
+ * <p>A client connecting with a {@link TargetedPipeHandler} is sent only the events addressed to it, read from
+ * {@code account-out} once for all such clients, while one connecting with a {@code PipeHandler} is sent them all.
  */
 public class AccountManagerGatewayMain extends ChronicleGatewayMain {
 
@@ -1,22 +1,117 @@
 package run.chronicle.account;
 
+import net.openhft.affinity.AffinityLock;
 import net.openhft.chronicle.bytes.MethodReader;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.SimpleCloseable;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
 import net.openhft.chronicle.queue.channel.PipeHandler;
 import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.DocumentContext;
 import net.openhft.chronicle.wire.ShortTextLongConverter;
 import net.openhft.chronicle.wire.channel.ChronicleContext;
+import run.chronicle.account.api.AccountManagerIn;
 import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.api.MetricsOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.domain.AccountLedger;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.domain.AccountStore;
+import run.chronicle.account.dto.ReplicaStatus;
 import run.chronicle.account.impl.AccountManagerImpl;
+import run.chronicle.account.impl.LastLeaderStatus;
+import run.chronicle.account.impl.MeasuredAccountManager;
+import run.chronicle.account.impl.ReplicaInput;
+import run.chronicle.account.impl.ShardVotes;
+import run.chronicle.account.impl.ShardedAccountManager;
+import run.chronicle.account.util.AdaptivePauser;
+
+import static net.openhft.chronicle.core.time.SystemTimeProvider.CLOCK;
 
 /**
  * The main service class for the Account Manager application.
+ *
+ * <p>With {@code -Dledger=<file>} the accounts are kept in an {@link AccountLedger}. The service reads the
+ * {@code account-in} and writes the {@code account-out} queues in this process, as the default {@code internal://}
+ * channel does, and on restart resumes from the accounts in the ledger, replaying only the messages after
+ * the last one applied to it. A message the service was killed part way through is rolled back by the ledger first.
+ *
+ * <p>With {@code -Dshards=N}, more than one, the accounts are partitioned across N service threads, each pinned
+ * to a CPU if one is available, see {@link ShardedAccountManager}. These also read and write the queues directly,
+ * coordinating transfers between shards through vote queues under {@code account-shards}.
+ * The shards don't support {@code -Dledger}, so on restart they replay {@code account-in} from the start.
+ *
+ * <p>With {@code -Drole=leader} the service publishes a {@link ReplicaStatus} after the results of each message,
+ * and a service with {@code -Drole=follower} subscribes to the same {@code account-in} as a hot standby.
+ * The replicas share the queues on one host, each in a process of its own, over {@code internal://}.
+ * The follower applies a message to its own accounts only once the leader's status shows it has, without writing
+ * the results, and publishes its own status. If, having heard from the leader, it then hears nothing for
+ * {@code -DfailoverMs}, default 1000, it applies the rest of the messages the leader answered, and carries on from
+ * there as the leader. Each transfer is applied once, and answered once, unless the leader stopped between writing
+ * the results of a message and its status, in which case the follower answers that message again.
+ *
+ * <p>Each leader has a term, one more than the highest in {@code account-terms} when it started or took over,
+ * which it announces there and puts in its statuses. A leader tails only {@code account-terms}, not its own results,
+ * and a follower reads {@code account-out} from the leader's latest status, so neither reads the history of
+ * {@code account-out}. A leader which sees the status of a leader with a higher term, e.g. having stalled for
+ * longer than the failover time, stops answering and shuts down, as its accounts may no longer match the new leader's.
+ * Results after that status may still be from the old leader until it has read it, so a reader of
+ * {@code account-out} should take only the results of the highest term it has seen.
+ *
+ * <p>Every {@code -DmetricsIntervalMs}, default 10000, the service publishes the percentiles of the delay before
+ * dispatching, and the time to process, each type of message in that interval as {@code metrics} events to
+ * {@code account-out}, see {@link MeasuredAccountManager}. {@code -DmetricsIntervalMs=0} turns this off.
+ *
+ * <p>How the event loop waits for the next message is set with {@code -Dpauser}: {@code busy} spins on a CPU of
+ * its own if one is available, {@code yielding} spins then yields, {@code balanced}, the default, backs off from
+ * spinning to sleeping, {@code sleepy} sleeps sooner, and {@code adaptive} spins or parks depending on how often
+ * messages are arriving, see {@link AdaptivePauser}.
  */
-@SuppressWarnings("deprecation")
+@SuppressWarnings({"deprecation", "try"})
 public class AccountManagerServiceMain extends SimpleCloseable implements Runnable {
     private static final ShortTextLongConverter BASE85 = ShortTextLongConverter.INSTANCE;
     private static final String SERVICE_URL = System.getProperty("serviceUrl", "internal://");
+    // The file to keep the accounts in between restarts, or null to start with no accounts
+    private static final String LEDGER = System.getProperty("ledger");
+    // The number of threads to partition the accounts across
+    private static final int SHARDS = Integer.getInteger("shards", 1);
+    // Where the shards' votes on cross-shard transfers and checkpoints are queued
+    private static final String SHARD_VOTES = "account-shards";
+    // "leader" to publish how far through account-in this service is, or "follower" to replicate a leader
+    private static final String ROLE = System.getProperty("role");
+    // How long a follower waits to hear from the leader before taking over
+    private static final long FAILOVER_MS = Long.getLong("failoverMs", 1_000);
+    // How often an idle replica repeats its status, so a follower knows the leader is still there
+    private static final long HEARTBEAT_MS = Long.getLong("heartbeatMs", 100);
+    // How often the latencies of the messages processed are published, or 0 not to measure them
+    private static final long METRICS_INTERVAL_MS = Long.getLong("metricsIntervalMs", 10_000);
+    // How the event loop waits for messages: busy, yielding, balanced, sleepy or adaptive
+    private static final String PAUSER = System.getProperty("pauser", "balanced");
+
+    private final String role;
+    private final long failoverMs;
+    private volatile boolean leader;
+    // The term of this replica as leader, or of the leader it follows
+    private long term;
+    private String pauser = PAUSER;
+
+    public AccountManagerServiceMain() {
+        this(ROLE, FAILOVER_MS);
+    }
+
+    /**
+     * @param role       "leader", "follower", or null for a service which isn't replicated
+     * @param failoverMs how long a follower waits to hear from the leader before taking over
+     */
+    public AccountManagerServiceMain(String role, long failoverMs) {
+        if (role != null && !role.equals("leader") && !role.equals("follower"))
+            throw new IllegalArgumentException("-Drole must be leader or follower, not " + role);
+        this.role = role;
+        this.failoverMs = failoverMs;
+        this.leader = !"follower".equals(role);
+    }
 
     /**
      * Main method to start the service.
@@ -33,7 +128,22 @@ public class AccountManagerServiceMain extends SimpleCloseable implements Runnab
      * @return The created AccountManagerImpl instance.
      */
     private static AccountManagerImpl createService(String serviceId, AccountManagerOut out) {
-        return new AccountManagerImpl(out)
+        return createService(serviceId, out, new AccountService());
+    }
+
+    private static AccountManagerImpl createService(String serviceId, AccountManagerOut out, AccountService accountService) {
+        return new AccountManagerImpl(out, accountService)
+                .id(BASE85.parse(serviceId));
+    }
+
+    /**
+     * @return the account manager measured by a {@link MeasuredAccountManager} publishing to {@code out},
+     * or null if {@link #METRICS_INTERVAL_MS} is 0
+     */
+    private static MeasuredAccountManager measure(String serviceId, AccountManagerIn accountManager, MetricsOut out) {
+        if (METRICS_INTERVAL_MS <= 0)
+            return null;
+        return new MeasuredAccountManager(accountManager, out, METRICS_INTERVAL_MS)
                 .id(BASE85.parse(serviceId));
     }
 
@@ -46,14 +156,34 @@ public class AccountManagerServiceMain extends SimpleCloseable implements Runnab
         // Logging startup information
         Jvm.startup().on(getClass(), "starting serviceId: " + serviceId);
 
-        // Pauser for rate-limiting event processing
-        Pauser pauser = Pauser.balanced();
+        if (LEDGER != null && AccountStore.FIXED_POINT)
+            throw new IllegalArgumentException("-Dledger is not supported with -DfixedPoint");
+        if (role != null) {
+            if (LEDGER != null || SHARDS > 1)
+                throw new IllegalArgumentException("-Drole is not supported with -Dledger or -Dshards");
+            // a replica polls several subscriptions in turn, while a tcp:// channel blocks reading until it has a message
+            if (!SERVICE_URL.startsWith("internal:"))
+                throw new IllegalArgumentException("-Drole is only supported with -DserviceUrl=internal://, not " + SERVICE_URL);
+            runReplica(serviceId);
+            return;
+        }
+        if (SHARDS > 1) {
+            if (LEDGER != null)
+                throw new IllegalArgumentException("-Dledger is not supported with -Dshards");
+            runSharded(serviceId);
+            return;
+        }
+        if (LEDGER != null) {
+            runWithLedger(serviceId);
+            return;
+        }
 
         // Handler for publishing and subscribing to queues
         PipeHandler handler = new PipeHandler().publish("account-out").subscribe("account-in");
 
         // Context for interaction with the Chronicle system
-        try (ChronicleContext context = ChronicleContext.newContext(SERVICE_URL)) {
+        try (ChronicleContext context = ChronicleContext.newContext(SERVICE_URL);
+             AffinityLock lock = acquireLockIfBusy()) {
             // Channel for sending and receiving messages
             net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(handler).get();
 
@@ -61,27 +191,354 @@ public class AccountManagerServiceMain extends SimpleCloseable implements Runnab
             AccountManagerOut out = channel.methodWriter(AccountManagerOut.class);
 
             // Create the account manager service
-            Object accountManager = createService(serviceId, out);
+            AccountManagerImpl accountManager = createService(serviceId, out);
+
+            // Measures the latencies of the events, if enabled
+            MeasuredAccountManager metrics = measure(serviceId, accountManager, channel.methodWriter(MetricsOut.class));
 
             // Method reader for receiving events
-            MethodReader reader = channel.methodReader(accountManager);
+            MethodReader reader = channel.methodReader(metrics == null ? accountManager : metrics);
 
             // Logging account manager startup information
             Jvm.startup().on(getClass(), "starting accountManager: " + accountManager);
 
-            // Main event processing loop
+            processEvents(reader, out, accountManager, metrics, null, null);
+        }
+    }
+
+    /**
+     * Sets how the event loop waits for messages, one of busy, yielding, balanced, sleepy or adaptive.
+     *
+     * @return this object for method chaining
+     */
+    public AccountManagerServiceMain pauser(String pauser) {
+        newPauser(pauser);
+        this.pauser = pauser;
+        return this;
+    }
+
+    static Pauser newPauser(String pauser) {
+        switch (pauser) {
+            case "busy":
+                return Pauser.busy();
+            case "yielding":
+                return Pauser.yielding();
+            case "balanced":
+                return Pauser.balanced();
+            case "sleepy":
+                return Pauser.sleepy();
+            case "adaptive":
+                return new AdaptivePauser();
+            default:
+                throw new IllegalArgumentException("-Dpauser must be busy, yielding, balanced, sleepy or adaptive, not " + pauser);
+        }
+    }
+
+    /**
+     * @return a lock on a CPU of its own for a busy-spinning event loop, or null if it doesn't spin
+     */
+    private AffinityLock acquireLockIfBusy() {
+        return pauser.equals("busy") ? AffinityLock.acquireLock() : null;
+    }
+
+    /**
+     * @return {@code true} if this service writes the results, i.e. it isn't a follower which has yet to take over
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Run the account manager service as a leader or follower, see {@link #role}.
+     */
+    private void runReplica(String serviceId) {
+        long replicaId = BASE85.parse(role);
+        try (ChronicleContext context = ChronicleContext.newContext(SERVICE_URL);
+             AffinityLock lock = acquireLockIfBusy()) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-out").subscribe("account-in")).get();
+            AccountManagerOut out = channel.methodWriter(AccountManagerOut.class);
+            ReplicationOut replicationOut = channel.methodWriter(ReplicationOut.class);
+
+            // a follower applies the messages without answering them, until it takes over
+            AccountManagerImpl accountManager = createService(serviceId, leader ? out : Mocker.ignored(AccountManagerOut.class));
+            MeasuredAccountManager metrics = measure(serviceId, accountManager, channel.methodWriter(MetricsOut.class));
+            ReplicaInput input = new ReplicaInput(channel);
+            MethodReader reader = input.methodReader(metrics == null ? accountManager : metrics);
+
+            // each leader announces its term in account-terms when it starts or takes over, which is read in full
+            // as it holds one status per term, and then tailed so a leader sees any leader after it
+            LeaderStatus leaderStatus = new LeaderStatus(replicaId);
+            net.openhft.chronicle.wire.channel.ChronicleChannel termsChannel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-terms").subscribe("account-terms")).get();
+            ReplicationOut termsOut = termsChannel.methodWriter(ReplicationOut.class);
+            MethodReader termsReader = termsChannel.methodReader((ReplicationOut) leaderStatus::announced);
+            while (termsReader.readOne()) {
+                // read the terms so far
+            }
+            ReplicaStatus status = new ReplicaStatus()
+                    .sender(replicaId)
+                    .target(BASE85.parse(serviceId));
+            net.openhft.chronicle.wire.channel.ChronicleChannel statusChannel = null;
+            MethodReader statusReader = null;
+            if (leader) {
+                // start a term after any leader before this one
+                term = leaderStatus.term + 1;
+                announce(termsOut, status);
+            } else {
+                // a follower reads the statuses of the leader from account-out, from the last one published,
+                // until it takes over, as a leader doesn't read its own results back
+                statusChannel = context.newChannelSupplier(new PipeHandler().publish("account-out").subscribe("account-out")
+                        .subscriptionIndexController(new LastLeaderStatus())).get();
+                statusReader = statusChannel.methodReader(leaderStatus);
+                input.limit(0);
+            }
+            Jvm.startup().on(getClass(), "starting " + role + " accountManager: " + accountManager);
+
+            Pauser pauser = newPauser(this.pauser);
+            long statusMs = 0;
             while (!isClosed()) {
                 try {
-                    // If an event was processed, reset the pauser. If not, pause briefly to avoid busy-waiting.
-                    if (reader.readOne())
+                    boolean busy = termsReader.readOne();
+                    if (leader) {
+                        if (leaderStatus.term > term) {
+                            stepDown(accountManager, leaderStatus.term);
+                            break;
+                        }
+                    } else {
+                        while (statusReader.readOne())
+                            busy = true;
+                        input.limit(leaderStatus.appliedIndex);
+                        // the failover clock only starts once a leader has been heard from
+                        if (leaderStatus.heardMs != 0 && CLOCK.currentTimeMillis() - leaderStatus.heardMs > failoverMs) {
+                            takeOver(reader, accountManager, out, input, leaderStatus.term + 1);
+                            announce(termsOut, status);
+                            statusChannel.close();
+                            statusMs = sendStatus(replicationOut, status, input);
+                        }
+                    }
+                    if (reader.readOne()) {
+                        busy = true;
+                        statusMs = sendStatus(replicationOut, status, input);
+                    }
+                    if (metrics != null)
+                        metrics.publishIfDue();
+                    if (accountManager.continueCheckpoint())
+                        busy = true;
+                    else if (!busy && CLOCK.currentTimeMillis() - statusMs >= HEARTBEAT_MS)
+                        statusMs = sendStatus(replicationOut, status, input);
+                    if (busy) {
                         pauser.reset();
-                    else
+                    } else {
                         pauser.pause();
+                    }
                 } catch (Throwable t) {
-                    // On any exception, log the error and continue
-                    out.jvmError(t.toString());
+                    // only the leader writes to account-out
+                    if (leader)
+                        out.jvmError(t.toString());
+                    else
+                        Jvm.warn().on(getClass(), t);
                 }
             }
         }
     }
+
+    /**
+     * Applies the messages the leader answered which this follower hasn't, finishes any checkpoint without writing it,
+     * as the leader did, and answers the messages after them as the leader of {@code term}.
+     */
+    private void takeOver(MethodReader reader, AccountManagerImpl accountManager, AccountManagerOut out, ReplicaInput input, long term) {
+        while (reader.readOne()) {
+            // only up to the last index the leader applied
+        }
+        while (accountManager.continueCheckpoint()) {
+            // the leader wrote what it had of this checkpoint
+        }
+        accountManager.out(out);
+        input.limit(Long.MAX_VALUE);
+        this.term = term;
+        leader = true;
+        Jvm.startup().on(getClass(), "taking over as leader of term " + term + " after index " + Long.toHexString(input.lastIndex()));
+    }
+
+    /**
+     * Stops answering messages, and shuts down, as a leader of a later term has taken over.
+     */
+    private void stepDown(AccountManagerImpl accountManager, long newTerm) {
+        accountManager.out(Mocker.ignored(AccountManagerOut.class));
+        leader = false;
+        Jvm.warn().on(getClass(), "stepping down as leader of term " + term + " as a leader of term " + newTerm + " has taken over");
+        close();
+    }
+
+    /**
+     * Publishes the term this replica now leads to {@code account-terms}.
+     */
+    private void announce(ReplicationOut termsOut, ReplicaStatus status) {
+        termsOut.replicaStatus(status
+                .sendingTime(CLOCK.currentTimeNanos())
+                .leader(true)
+                .term(term)
+                .appliedIndex(0)
+                .appliedSendingTime(0));
+    }
+
+    private long sendStatus(ReplicationOut replicationOut, ReplicaStatus status, ReplicaInput input) {
+        replicationOut.replicaStatus(status
+                .sendingTime(CLOCK.currentTimeNanos())
+                .leader(leader)
+                .term(term)
+                .appliedIndex(input.lastIndex())
+                .appliedSendingTime(input.lastSendingTime()));
+        return CLOCK.currentTimeMillis();
+    }
+
+    /**
+     * Run the account manager service from the accounts in the ledger, processing the messages not yet applied to it.
+     */
+    private void runWithLedger(String serviceId) {
+        try (AccountLedger ledger = new AccountLedger(LEDGER);
+             ChronicleQueue in = ChronicleQueue.single("account-in");
+             ChronicleQueue outQueue = ChronicleQueue.single("account-out");
+             AffinityLock lock = acquireLockIfBusy()) {
+            long start = System.nanoTime();
+            AccountStore store = new AccountStore(ledger);
+            ExcerptTailer tailer = in.createTailer();
+            // the balances each message writes can be rolled back until its index is recorded as applied
+            ledger.inputIndex(tailer::lastReadIndex);
+            long applied = ledger.appliedIndex();
+            if (applied != AccountLedger.NO_INDEX) {
+                if (!tailer.moveToIndex(applied))
+                    throw new IllegalStateException("account-in doesn't have the index " + Long.toHexString(applied) + " last applied to " + ledger);
+                // step past the last message applied
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    assert dc.isPresent();
+                }
+            }
+            Jvm.startup().on(getClass(), "resumed " + store.size() + " accounts from " + ledger + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            AccountManagerOut out = outQueue.methodWriter(AccountManagerOut.class);
+            AccountManagerImpl accountManager = createService(serviceId, out, new AccountService(store));
+            MeasuredAccountManager metrics = measure(serviceId, accountManager, outQueue.methodWriter(MetricsOut.class));
+            MethodReader reader = tailer.methodReader(metrics == null ? accountManager : metrics);
+            Jvm.startup().on(getClass(), "starting accountManager: " + accountManager);
+
+            processEvents(reader, out, accountManager, metrics, tailer, ledger);
+        }
+    }
+
+    /**
+     * Run the account manager service as {@link #SHARDS} shards, each on its own thread, until closed.
+     */
+    private void runSharded(String serviceId) {
+        // the shards hold their accounts in memory only, so like the default service, each run rebuilds them
+        // by replaying account-in from the start, rewriting the results to account-out, and the votes of a previous
+        // run, which may have stopped part way through a message, are discarded
+        ShardVotes.deleteVotes(SHARD_VOTES);
+        AccountService[] accountServices = new AccountService[SHARDS];
+        for (int i = 0; i < SHARDS; i++)
+            accountServices[i] = new AccountService();
+
+        try (ChronicleQueue in = ChronicleQueue.single("account-in");
+             ChronicleQueue outQueue = ChronicleQueue.single("account-out")) {
+            Thread[] threads = new Thread[SHARDS];
+            for (int i = 0; i < SHARDS; i++) {
+                final int shard = i;
+                threads[i] = new Thread(() -> runShard(serviceId, shard, accountServices, in, outQueue), "shard-" + i);
+                threads[i].start();
+            }
+            try {
+                for (Thread thread : threads)
+                    thread.join();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runShard(String serviceId, int shard, AccountService[] accountServices, ChronicleQueue in, ChronicleQueue outQueue) {
+        try (AffinityLock lock = AffinityLock.acquireLock();
+             ShardVotes votes = new ShardVotes(SHARD_VOTES, shard, SHARDS, this)) {
+            // each thread has its own appender
+            AccountManagerOut out = outQueue.methodWriter(AccountManagerOut.class);
+            ExcerptTailer tailer = in.createTailer();
+            ShardedAccountManager accountManager = new ShardedAccountManager(shard, accountServices, out, votes, tailer::lastReadIndex)
+                    .id(BASE85.parse(serviceId));
+            MeasuredAccountManager metrics = measure(serviceId, accountManager, outQueue.methodWriter(MetricsOut.class));
+            MethodReader reader = tailer.methodReader(metrics == null ? accountManager : metrics);
+            Jvm.startup().on(getClass(), "starting accountManager: " + accountManager + " on " + lock.cpuId());
+
+            processEvents(reader, out, null, metrics, null, null);
+        }
+    }
+
+    /**
+     * Main event processing loop, recording the index of each message read in the ledger, if there is one.
+     * Between messages, the next chunk of an incremental checkpoint is written, if the account manager has one in progress,
+     * and the metrics are published when due.
+     */
+    private void processEvents(MethodReader reader, AccountManagerOut out, AccountManagerImpl accountManager, MeasuredAccountManager metrics, ExcerptTailer tailer, AccountLedger ledger) {
+        // Pauser for rate-limiting event processing
+        Pauser pauser = newPauser(this.pauser);
+
+        while (!isClosed()) {
+            try {
+                // If an event was processed, reset the pauser. If not, pause briefly to avoid busy-waiting.
+                boolean busy = false;
+                if (reader.readOne()) {
+                    if (ledger != null)
+                        ledger.appliedIndex(tailer.lastReadIndex());
+                    busy = true;
+                }
+                if (accountManager != null && accountManager.continueCheckpoint())
+                    busy = true;
+                if (metrics != null)
+                    metrics.publishIfDue();
+                if (busy) {
+                    pauser.reset();
+                } else {
+                    pauser.pause();
+                }
+            } catch (Throwable t) {
+                // On any exception, log the error and continue
+                out.jvmError(t.toString());
+            }
+        }
+    }
+
+    /**
+     * The last status of another replica which is the leader of the highest term seen, as read by a follower,
+     * or by a leader watching for a leader after it.
+     */
+    private static final class LeaderStatus implements ReplicationOut {
+        private final long replicaId;
+        private long term;
+        private long appliedIndex;
+        // when the leader was last heard from, or 0 until it has been
+        private long heardMs;
+
+        LeaderStatus(long replicaId) {
+            this.replicaId = replicaId;
+        }
+
+        @Override
+        public void replicaStatus(ReplicaStatus replicaStatus) {
+            if (!replicaStatus.leader() || replicaStatus.sender() == replicaId)
+                return;
+            // a leader which has been replaced is ignored
+            if (replicaStatus.term() < term)
+                return;
+            term = replicaStatus.term();
+            appliedIndex = replicaStatus.appliedIndex();
+            heardMs = CLOCK.currentTimeMillis();
+        }
+
+        /**
+         * Takes the term a leader announced in {@code account-terms}, including this replica's own from a previous run.
+         */
+        void announced(ReplicaStatus replicaStatus) {
+            term = Math.max(term, replicaStatus.term());
+        }
+    }
 }
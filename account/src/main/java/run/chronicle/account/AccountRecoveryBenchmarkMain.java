@@ -0,0 +1,130 @@
+package run.chronicle.account;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.domain.AccountLedger;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.domain.AccountStore;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.Transfer;
+import run.chronicle.account.impl.AccountManagerImpl;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+
+/**
+ * Compares restarting the account service from an {@link AccountLedger} with replaying every message from the start
+ * of its input queue.
+ *
+ * <p>{@code -Daccounts} accounts are created, default 50,000,000, followed by {@code -Dtransfers} transfers between them,
+ * default 10,000,000. These are processed once, writing through to a ledger, as the service would. The time to
+ * rebuild the accounts by replaying the queue into an empty store is then reported against the time to load them
+ * from the ledger and position the tailer after the last message applied. Fifty million accounts need a heap
+ * of around 10 GB, e.g. {@code -Xmx12g}.
+ */
+public class AccountRecoveryBenchmarkMain {
+    static final int ACCOUNTS = Integer.getInteger("accounts", 50_000_000);
+    static final int TRANSFERS = Integer.getInteger("transfers", 10_000_000);
+    static final String PATH = System.getProperty("path", OS.getTarget() + "/recovery-" + System.nanoTime());
+
+    private static final long VAULT = ShortTextLongConverter.INSTANCE.parse("vault");
+    private static final long GATEWAY = ShortTextLongConverter.INSTANCE.parse("gw");
+    private static final int EUR = (int) ShortTextLongConverter.INSTANCE.parse("EUR");
+
+    @SuppressWarnings("try")
+    public static void main(String[] args) {
+        System.out.printf("-Daccounts=%,d -Dtransfers=%,d -Dpath=%s%n", ACCOUNTS, TRANSFERS, PATH);
+        try (ChronicleQueue queue = ChronicleQueue.single(PATH + "/account-in")) {
+            write(queue);
+
+            long start = System.nanoTime();
+            try (AccountLedger ledger = new AccountLedger(PATH + "/account.ledger")) {
+                ExcerptTailer tailer = queue.createTailer();
+                MethodReader reader = tailer.methodReader(service(new AccountStore(ledger)));
+                while (reader.readOne())
+                    ledger.appliedIndex(tailer.lastReadIndex());
+            }
+            report("processed with a ledger", start);
+
+            start = System.nanoTime();
+            AccountStore replayed = new AccountStore(ACCOUNTS);
+            MethodReader reader = queue.createTailer().methodReader(service(replayed));
+            while (reader.readOne()) {
+                // replay every message
+            }
+            report("recovered by full replay", start);
+            check(replayed);
+            replayed = null;
+
+            start = System.nanoTime();
+            try (AccountLedger ledger = new AccountLedger(PATH + "/account.ledger")) {
+                AccountStore recovered = new AccountStore(ledger);
+                ExcerptTailer tailer = queue.createTailer();
+                tailer.moveToIndex(ledger.appliedIndex());
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    // step past the last message applied
+                }
+                report("recovered from the ledger", start);
+                check(recovered);
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    if (dc.isPresent())
+                        throw new AssertionError("A message was not applied");
+                }
+            }
+        } finally {
+            IOTools.deleteDirWithFiles(PATH);
+        }
+    }
+
+    private static void write(ChronicleQueue queue) {
+        long start = System.nanoTime();
+        AccountManagerIn in = queue.methodWriter(AccountManagerIn.class);
+        CreateAccount createAccount = new CreateAccount()
+                .sender(GATEWAY)
+                .target(VAULT)
+                .currency(EUR)
+                .balance(1_000_000)
+                .overdraft(0);
+        for (int i = 1; i <= ACCOUNTS; i++)
+            in.createAccount(createAccount.sendingTime(start + i).name("account " + i).account(i));
+
+        Transfer transfer = new Transfer()
+                .sender(GATEWAY)
+                .target(VAULT)
+                .currency(EUR)
+                .amount(1)
+                .reference(from("benchmark"));
+        for (int i = 0; i < TRANSFERS; i++) {
+            int from = i % ACCOUNTS + 1;
+            in.transfer(transfer.sendingTime(start + ACCOUNTS + i).from(from).to(from % ACCOUNTS + 1));
+        }
+        report("written", start);
+    }
+
+    private static AccountManagerImpl service(AccountStore store) {
+        return new AccountManagerImpl(Mocker.ignored(AccountManagerOut.class), new AccountService(store))
+                .id(VAULT);
+    }
+
+    private static void check(AccountStore store) {
+        if (store.size() != ACCOUNTS)
+            throw new AssertionError("Expected " + ACCOUNTS + " accounts but was " + store.size());
+        double total = 0;
+        for (int i = 0; i < store.size(); i++)
+            total += store.balance(i);
+        if (total != ACCOUNTS * 1e6)
+            throw new AssertionError("Expected a total balance of " + ACCOUNTS * 1e6 + " but was " + total);
+    }
+
+    private static void report(String what, long start) {
+        System.out.printf("%-26s %,d accounts and %,d transfers in %,.3f seconds%n",
+                what, ACCOUNTS, TRANSFERS, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,136 @@
+package run.chronicle.account;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.domain.AccountStore;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.FixedTransfer;
+import run.chronicle.account.dto.Transfer;
+
+import java.util.Random;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+
+/**
+ * Compares the transfer path of an {@link AccountService} holding {@code double} balances with one holding fixed-point
+ * balances, see {@code -DfixedPoint}.
+ *
+ * <p>{@code -Dtransfers} transfers, default 50,000,000, are made between {@code -Daccounts} accounts, default 1,000,
+ * as {@link Transfer}s to a {@code double} store, as {@link Transfer}s to a fixed-point store, which converts each
+ * amount to units, and as {@link FixedTransfer}s to a fixed-point store, which is integer arithmetic throughout.
+ * Each is run {@code -Druns} times, default 5, and the time per transfer reported, along with how far the
+ * {@code double} balances drifted from the exact ones. The size of each message, as written to a queue, is reported too.
+ */
+public class FixedPointBenchmarkMain {
+    static final int ACCOUNTS = Integer.getInteger("accounts", 1_000);
+    static final int TRANSFERS = Integer.getInteger("transfers", 50_000_000);
+    static final int RUNS = Integer.getInteger("runs", 5);
+
+    private static final long VAULT = ShortTextLongConverter.INSTANCE.parse("vault");
+    private static final long GATEWAY = ShortTextLongConverter.INSTANCE.parse("gw");
+    private static final int EUR = (int) ShortTextLongConverter.INSTANCE.parse("EUR");
+
+    public static void main(String[] args) {
+        System.out.printf("-Daccounts=%,d -Dtransfers=%,d -Druns=%d%n", ACCOUNTS, TRANSFERS, RUNS);
+        Transfer transfer = new Transfer()
+                .sender(GATEWAY)
+                .target(VAULT)
+                .sendingTime(System.currentTimeMillis() * 1_000_000L)
+                .currency(EUR)
+                .amount(0.01)
+                .reference(from("benchmark"));
+        FixedTransfer fixedTransfer = new FixedTransfer()
+                .sender(GATEWAY)
+                .target(VAULT)
+                .sendingTime(transfer.sendingTime())
+                .currency(EUR)
+                .amount(1)
+                .reference(from("benchmark"));
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        transfer.from(11).to(12).writeMarshallable(bytes);
+        System.out.printf("Transfer is %d bytes, FixedTransfer is %d bytes%n",
+                bytes.readRemaining(), size(fixedTransfer.from(11).to(12), bytes));
+
+        for (int run = 1; run <= RUNS; run++) {
+            AccountService doubles = service(false);
+            Random random = new Random(run);
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++) {
+                if (doubles.tryTransfer(pair(transfer, random), VAULT) != null)
+                    throw new AssertionError();
+            }
+            report(run, "Transfer, double store", start);
+
+            AccountService converted = service(true);
+            random = new Random(run);
+            start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++) {
+                if (converted.tryTransfer(pair(transfer, random), VAULT) != null)
+                    throw new AssertionError();
+            }
+            report(run, "Transfer, fixed-point store", start);
+
+            AccountService fixed = service(true);
+            random = new Random(run);
+            start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++) {
+                if (fixed.tryTransfer(pair(fixedTransfer, random), VAULT) != null)
+                    throw new AssertionError();
+            }
+            report(run, "FixedTransfer, fixed-point store", start);
+            check(doubles, converted, fixed);
+        }
+    }
+
+    private static AccountService service(boolean fixedPoint) {
+        AccountService service = new AccountService(new AccountStore(ACCOUNTS, fixedPoint));
+        CreateAccount createAccount = new CreateAccount()
+                .sender(GATEWAY)
+                .target(VAULT)
+                .currency(EUR)
+                .balance(1_000_000)
+                .overdraft(0);
+        for (int i = 1; i <= ACCOUNTS; i++)
+            service.tryCreateAccount(createAccount.sendingTime(i).name("account " + i).account(10 + i), VAULT);
+        return service;
+    }
+
+    // between two different accounts, in the same sequence for each mode
+    private static Transfer pair(Transfer transfer, Random random) {
+        final int from = random.nextInt(ACCOUNTS);
+        return transfer.from(11 + from).to(11 + (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS);
+    }
+
+    private static FixedTransfer pair(FixedTransfer transfer, Random random) {
+        final int from = random.nextInt(ACCOUNTS);
+        return transfer.from(11 + from).to(11 + (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS);
+    }
+
+    private static long size(FixedTransfer fixedTransfer, Bytes<?> bytes) {
+        bytes.clear();
+        fixedTransfer.writeMarshallable(bytes);
+        return bytes.readRemaining();
+    }
+
+    // the fixed-point stores agree to the cent, while the double balances may have drifted
+    private static void check(AccountService doubles, AccountService converted, AccountService fixed) {
+        int drifted = 0;
+        double most = 0;
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            final double expected = fixed.balance(10 + i);
+            if (converted.balance(10 + i) != expected)
+                throw new AssertionError("Account " + (10 + i) + " was " + converted.balance(10 + i) + " not " + expected);
+            final double drift = Math.abs(doubles.balance(10 + i) - expected);
+            if (drift > 0) {
+                drifted++;
+                most = Math.max(most, drift);
+            }
+        }
+        System.out.printf("double balances drifted in %,d of %,d accounts, by at most %.3g%n", drifted, ACCOUNTS, most);
+    }
+
+    private static void report(int run, String what, long start) {
+        System.out.printf("run %d: %-33s %,.1f ns/transfer%n", run, what, (System.nanoTime() - start) / (double) TRANSFERS);
+    }
+}
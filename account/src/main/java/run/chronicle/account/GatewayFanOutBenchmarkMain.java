@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.queue.channel.PipeHandler;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import net.openhft.chronicle.wire.channel.ChannelHandler;
+import net.openhft.chronicle.wire.channel.ChronicleContext;
+import net.openhft.chronicle.wire.channel.impl.internal.Handler;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.dto.*;
+import run.chronicle.account.util.LogsAccountManagerOut;
+import run.chronicle.account.util.TargetedPipeHandler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares sending the answers of the service to many clients of a gateway, each subscribing to all of
+ * {@code account-out} with a {@link PipeHandler} and keeping only its own, with each being sent only its own by a
+ * {@link TargetedPipeHandler}.
+ *
+ * <p>For each number of clients in {@code -Dclients}, default 1, 16 and 256, and each handler, every client keeps
+ * {@code -Dwindow} transfers in flight, default 8, sending another as each is answered, for {@code -DrunTime}
+ * seconds, default 10, after a second to warm up. It reports the transfers answered per second, the percentiles of
+ * the time to answer them, the events the clients were sent per transfer, and the CPU time of this process,
+ * which runs the service and the gateway as well as the clients, per transfer.
+ */
+@SuppressWarnings("deprecation")
+public class GatewayFanOutBenchmarkMain {
+    static final String CLIENTS = System.getProperty("clients", "1,16,256");
+    static final int WINDOW = Integer.getInteger("window", 8);
+    static final int RUN_TIME = Integer.getInteger("runTime", 10);
+    static final int PORT = Integer.getInteger("port", 1249);
+    static final int ACCOUNTS = 64;
+
+    private static final long SERVICE = ShortTextLongConverter.INSTANCE.parse("service");
+    private static final int EUR = (int) ShortTextLongConverter.INSTANCE.parse("EUR");
+    private static final Bytes<byte[]> REFERENCE = Bytes.from("fan-out");
+
+    static {
+        System.setProperty("disable.single.threaded.check", "true");
+        Handler.init();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("-Dclients=" + CLIENTS + " -Dwindow=" + WINDOW + " -DrunTime=" + RUN_TIME + " -Dport=" + PORT);
+        List<String> rows = new ArrayList<>();
+        for (String clients : CLIENTS.split(",")) {
+            for (boolean targeted : new boolean[]{false, true}) {
+                rows.add(run(Integer.parseInt(clients.trim()), targeted));
+                // as each completes, in case it takes a while
+                System.out.println(rows.get(rows.size() - 1));
+            }
+        }
+        System.out.println("handler  clients  transfers/s     50% us     99% us  events/transfer  CPU us/transfer");
+        rows.forEach(System.out::println);
+    }
+
+    private static String run(int count, boolean targeted) throws IOException, InterruptedException {
+        deleteQueues();
+        AccountManagerServiceMain service = new AccountManagerServiceMain();
+        Thread serviceThread = new Thread(service, "service");
+        serviceThread.start();
+        List<Client> clients = new ArrayList<>();
+        long answered = 0, received = 0;
+        Histogram latencies = new Histogram();
+        double seconds, cpuNs;
+        try (AccountManagerGatewayMain gateway = new AccountManagerGatewayMain("tcp://:" + PORT);
+             ChronicleContext context = ChronicleContext.newContext("tcp://localhost:" + PORT)) {
+            gateway.start();
+            for (int i = 0; i < count; i++)
+                clients.add(new Client(context, "c" + i, targeted));
+            clients.get(0).createAccounts();
+            for (Client client : clients)
+                client.thread.start();
+
+            Jvm.pause(1_000);
+            for (Client client : clients)
+                client.measuring = true;
+            long cpuStart = processCpuTime();
+            long start = System.nanoTime();
+            Jvm.pause(RUN_TIME * 1_000L);
+            for (Client client : clients)
+                client.measuring = false;
+            seconds = (System.nanoTime() - start) / 1e9;
+            cpuNs = processCpuTime() - cpuStart;
+            for (Client client : clients)
+                client.running = false;
+            // allow the transfers in flight to be answered
+            Jvm.pause(500);
+        } finally {
+            service.close();
+            serviceThread.join();
+        }
+        for (Client client : clients) {
+            client.thread.join();
+            answered += client.answered;
+            received += client.received;
+            latencies.add(client.latencies);
+        }
+        deleteQueues();
+        return String.format("%-8s %7d %12.0f %10.1f %10.1f %16.1f %16.1f",
+                targeted ? "targeted" : "pipe", count, answered / seconds,
+                latencies.percentile(0.5) / 1e3, latencies.percentile(0.99) / 1e3,
+                (double) received / answered, cpuNs / 1e3 / answered);
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static void deleteQueues() {
+        IOTools.deleteDirWithFiles("account-in");
+        IOTools.deleteDirWithFiles("account-out");
+    }
+
+    /**
+     * A client keeping {@link #WINDOW} transfers in flight, on its own thread, counting the events it is sent.
+     */
+    static final class Client extends LogsAccountManagerOut {
+        final net.openhft.chronicle.wire.channel.ChronicleChannel channel;
+        final AccountManagerIn in;
+        final long id;
+        final Thread thread;
+        final Histogram latencies = new Histogram();
+        final Transfer transfer = new Transfer();
+        final Random random;
+        volatile boolean running = true;
+        volatile boolean measuring;
+        long answered;
+        long received;
+
+        Client(ChronicleContext context, String name, boolean targeted) {
+            id = ShortTextLongConverter.INSTANCE.parse(name);
+            random = new Random(id);
+            ChannelHandler handler = targeted
+                    ? new TargetedPipeHandler().publish("account-in").subscribe("account-out").target(id)
+                    : new PipeHandler().publish("account-in").subscribe("account-out");
+            channel = context.newChannelSupplier(handler).get();
+            in = channel.methodWriter(AccountManagerIn.class);
+            thread = new Thread(AccountManagerBenchmarkMain.wrap(this::run), name);
+            thread.setDaemon(true);
+        }
+
+        void createAccounts() {
+            for (int i = 1; i <= ACCOUNTS; i++)
+                AccountManagerClientMain.createAccount(in, System.nanoTime(), i, false);
+        }
+
+        void run() {
+            for (int i = 0; i < WINDOW; i++)
+                send();
+            MethodReader reader = channel.methodReader(this);
+            // until the channel is closed
+            while (!Thread.currentThread().isInterrupted())
+                reader.readOne();
+        }
+
+        private void send() {
+            // between the accounts created by AccountManagerClientMain, numbered from 11
+            int from = random.nextInt(ACCOUNTS);
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            in.transfer(transfer
+                    .sender(id)
+                    .target(SERVICE)
+                    .sendingTime(System.nanoTime())
+                    .from(11 + from)
+                    .to(11 + to)
+                    .amount(0.01)
+                    .currency(EUR)
+                    .reference(REFERENCE));
+        }
+
+        @Override
+        public void onTransfer(OnTransfer onTransfer) {
+            count();
+            if (onTransfer.target() == id)
+                answer(onTransfer.transfer().sendingTime());
+        }
+
+        @Override
+        public void transferFailed(TransferFailed transferFailed) {
+            count();
+            if (transferFailed.target() == id)
+                answer(transferFailed.transfer().sendingTime());
+        }
+
+        @Override
+        public void onCreateAccount(OnCreateAccount onCreateAccount) {
+            count();
+        }
+
+        @Override
+        public void createAccountFailed(CreateAccountFailed createAccountFailed) {
+            count();
+        }
+
+        private void count() {
+            if (measuring)
+                received++;
+        }
+
+        private void answer(long sendingTime) {
+            if (measuring) {
+                latencies.sampleNanos(System.nanoTime() - sendingTime);
+                answered++;
+            }
+            if (running)
+                send();
+        }
+    }
+}
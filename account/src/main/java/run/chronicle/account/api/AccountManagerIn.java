@@ -17,8 +17,10 @@ package run.chronicle.account.api;
 
 import net.openhft.chronicle.bytes.MethodId;
 import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import run.chronicle.account.dto.BatchTransfer;
 import run.chronicle.account.dto.CheckPoint;
 import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.FixedTransfer;
 import run.chronicle.account.dto.Transfer;
 
 /**
@@ -46,6 +48,25 @@ public interface AccountManagerIn {
     @MethodId('t')
     void transfer(Transfer transfer) throws InvalidMarshallableException;
 
+    /**
+     * This method is used to transfer money from one account to another, as a whole number of the currency's units
+     * Its 'MethodId' is 'f'
+     *
+     * @param fixedTransfer between accounts
+     */
+    @MethodId('f')
+    void fixedTransfer(FixedTransfer fixedTransfer) throws InvalidMarshallableException;
+
+    /**
+     * This method is used to make many transfers in one message, e.g. a payroll run
+     * The outcome of every transfer is reported by one 'onBatchTransfer'
+     * Its 'MethodId' is 'b'
+     *
+     * @param batchTransfer the transfers to make
+     */
+    @MethodId('b')
+    void batchTransfer(BatchTransfer batchTransfer);
+
     /**
      * This method is used to create a checkpoint in the system
      * A checkpoint in this context could represent a state of the system at a certain point in time
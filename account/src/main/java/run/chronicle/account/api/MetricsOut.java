@@ -0,0 +1,23 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.api;
+
+import net.openhft.chronicle.bytes.MethodId;
+import run.chronicle.account.dto.Metrics;
+
+/**
+ * This interface is used by the service to publish a periodic summary of its latencies to {@code account-out},
+ * so they can be monitored without attaching a profiler.
+ */
+public interface MetricsOut {
+
+    /**
+     * Method to publish the latencies of one type of message over the last interval.
+     *
+     * @param metrics an object of type Metrics which encapsulates the percentiles of the delay
+     *                and handler time of the messages.
+     */
+    @MethodId('M')
+    void metrics(Metrics metrics);
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.api;
+
+import net.openhft.chronicle.bytes.MethodId;
+import run.chronicle.account.dto.ReplicaStatus;
+
+/**
+ * This interface is used by the replicas of the service, with {@code -Drole=leader} or {@code -Drole=follower},
+ * to publish how far through {@code account-in} they are, alongside the results in {@code account-out}.
+ */
+public interface ReplicationOut {
+
+    /**
+     * Method to publish the last message a replica applied.
+     *
+     * @param replicaStatus an object of type ReplicaStatus which encapsulates the index of the message
+     *                      and the role of the replica.
+     */
+    @MethodId('R')
+    void replicaStatus(ReplicaStatus replicaStatus);
+}
@@ -16,6 +16,9 @@
 package run.chronicle.account.api;
 
 import net.openhft.chronicle.bytes.MethodId;
+import run.chronicle.account.dto.FixedTransferFailed;
+import run.chronicle.account.dto.OnBatchTransfer;
+import run.chronicle.account.dto.OnFixedTransfer;
 import run.chronicle.account.dto.OnTransfer;
 import run.chronicle.account.dto.TransferFailed;
 import run.chronicle.account.util.ErrorListener;
@@ -43,4 +46,30 @@ public interface TransferOut extends ErrorListener {
      *                       the transfer failure.
      */
     void transferFailed(TransferFailed transferFailed);
+
+    /**
+     * Method to notify about a successful transfer of units.
+     *
+     * @param onFixedTransfer an object of type OnFixedTransfer which encapsulates the details of the
+     *                        successful transfer.
+     */
+    @MethodId('F')
+    void onFixedTransfer(OnFixedTransfer onFixedTransfer);
+
+    /**
+     * Method to handle failures during a transfer of units.
+     *
+     * @param fixedTransferFailed an object of type FixedTransferFailed which encapsulates the details of
+     *                            the transfer failure.
+     */
+    void fixedTransferFailed(FixedTransferFailed fixedTransferFailed);
+
+    /**
+     * Method to notify about the outcome of a batch of transfers.
+     *
+     * @param onBatchTransfer an object of type OnBatchTransfer which records which of the transfers
+     *                        were applied.
+     */
+    @MethodId('B')
+    void onBatchTransfer(OnBatchTransfer onBatchTransfer);
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.bytes.MappedBytes;
+import net.openhft.chronicle.core.io.Closeable;
+import run.chronicle.account.dto.CreateAccount;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+
+/**
+ * A persistent copy of an {@link AccountStore} in a memory-mapped file, so a restarted service can resume from the
+ * accounts as they were, rather than replaying every message it has ever processed.
+ *
+ * <p>The file is a 64-byte header followed by one fixed-size slot of {@value #SLOT_SIZE} bytes per account,
+ * in the order the accounts were created. The header holds the number of accounts, and the index of the last
+ * queue message applied to them. A transfer updates two balances in place, so writing through to the ledger
+ * is a couple of stores to memory, which the operating system writes to the file in the background.
+ * The ledger survives the process being killed, but not the machine losing power, unless {@link #sync()} is called.
+ *
+ * <p>A message is only applied once the header records its index, so a service killed part way through one,
+ * e.g. between the debit and the credit of a transfer, must not keep the balances it wrote. Each slot holds the index
+ * of the message which last wrote it, see {@link #inputIndex(LongSupplier)}, and its balance from before that message.
+ * When the ledger is opened, any slot written by a message after the applied index gets its previous balance back,
+ * and any account created by one is dropped, so replaying from the applied index applies each message exactly once.
+ *
+ * <p>A slot holds the name as at most {@value #MAX_NAME_LENGTH} bytes of UTF-8, see {@link #nameFits(String)}.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe, and only one process should have the file open.
+ */
+public final class AccountLedger implements Closeable {
+    // The appliedIndex of a ledger which has not applied any message
+    public static final long NO_INDEX = -1;
+
+    static final int SLOT_SIZE = 128;
+    static final int MAX_NAME_LENGTH = 56;
+
+    // "ACCLDG02", identifies the layout of the file
+    private static final long MAGIC = 0x3230474c44434341L;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_AT = 0;
+    private static final int SIZE_AT = 8;
+    private static final int APPLIED_INDEX_AT = 16;
+
+    // Offsets within a slot
+    private static final int ACCOUNT = 0;
+    private static final int BALANCE = 8;
+    private static final int OVERDRAFT = 16;
+    private static final int SENDER = 24;
+    private static final int TARGET = 32;
+    private static final int SENDING_TIME = 40;
+    private static final int CURRENCY = 48;
+    private static final int NAME_LENGTH = 52;
+    // the index of the message which last wrote the slot
+    private static final int WRITTEN_BY = 56;
+    // the balance before that message, or CREATED if it created the account
+    private static final int PREVIOUS_BALANCE = 64;
+    private static final int NAME = 72;
+
+    private static final double CREATED = Double.NaN;
+
+    // The file is mapped in chunks of this size as it grows, which overlap by at least a slot
+    private static final long CHUNK_SIZE = 64 << 20;
+
+    private final String path;
+    private final MappedBytes bytes;
+    private int size;
+    private boolean closed;
+    // the index of the message being applied
+    private LongSupplier inputIndex = () -> NO_INDEX;
+
+    /**
+     * Opens the ledger in this file, creating an empty one if it does not exist.
+     *
+     * @throws IllegalStateException if the file is not a ledger
+     */
+    public AccountLedger(String path) {
+        this.path = path;
+        try {
+            bytes = MappedBytes.mappedBytes(new File(path), CHUNK_SIZE, SLOT_SIZE);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+        final long magic = bytes.readLong(MAGIC_AT);
+        if (magic == 0) {
+            bytes.writeLong(APPLIED_INDEX_AT, NO_INDEX);
+            bytes.writeLong(SIZE_AT, 0);
+            bytes.writeLong(MAGIC_AT, MAGIC);
+        } else if (magic != MAGIC) {
+            bytes.releaseLast();
+            throw new IllegalStateException(path + " is not an account ledger");
+        }
+        size = (int) bytes.readLong(SIZE_AT);
+        rollBack();
+    }
+
+    /**
+     * @return the number of accounts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the last queue message applied to the accounts, or {@link #NO_INDEX}
+     */
+    public long appliedIndex() {
+        return bytes.readLong(APPLIED_INDEX_AT);
+    }
+
+    /**
+     * Records that the accounts include every message up to and including this queue index.
+     */
+    public void appliedIndex(long index) {
+        bytes.writeOrderedLong(APPLIED_INDEX_AT, index);
+    }
+
+    /**
+     * Sets where the index of the message being applied is read from, e.g. {@code tailer::lastReadIndex},
+     * so the balances it writes can be rolled back if it is not recorded as applied.
+     * Without one, a message killed part way through is not rolled back.
+     */
+    public AccountLedger inputIndex(LongSupplier inputIndex) {
+        this.inputIndex = inputIndex;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if this name fits in a slot
+     */
+    public static boolean nameFits(String name) {
+        return name.length() * 3 <= MAX_NAME_LENGTH
+                || name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_LENGTH;
+    }
+
+    /**
+     * Writes a new account to the next slot, which must be {@code index}.
+     */
+    void add(int index, CreateAccount ca, byte[] name) {
+        if (index != size)
+            throw new IllegalStateException("Expected account " + size + " but was " + index + " in " + path);
+        if (name.length > MAX_NAME_LENGTH)
+            throw new IllegalArgumentException("name is longer than " + MAX_NAME_LENGTH + " bytes");
+        final long slot = slot(index);
+        bytes.writeLong(slot + ACCOUNT, ca.account());
+        bytes.writeDouble(slot + BALANCE, ca.balance());
+        bytes.writeDouble(slot + OVERDRAFT, ca.overdraft());
+        bytes.writeLong(slot + SENDER, ca.sender());
+        bytes.writeLong(slot + TARGET, ca.target());
+        bytes.writeLong(slot + SENDING_TIME, ca.sendingTime());
+        bytes.writeInt(slot + CURRENCY, ca.currency());
+        bytes.writeInt(slot + NAME_LENGTH, name.length);
+        bytes.write(slot + NAME, name, 0, name.length);
+        bytes.writeDouble(slot + PREVIOUS_BALANCE, CREATED);
+        bytes.writeLong(slot + WRITTEN_BY, inputIndex.getAsLong());
+        // the account is only counted once its slot is complete
+        bytes.writeOrderedLong(SIZE_AT, ++size);
+    }
+
+    void balance(int index, double balance) {
+        final long slot = slot(index);
+        final long message = inputIndex.getAsLong();
+        // only the first write by a message keeps the balance from before it
+        if (bytes.readLong(slot + WRITTEN_BY) != message) {
+            bytes.writeDouble(slot + PREVIOUS_BALANCE, bytes.readDouble(slot + BALANCE));
+            bytes.writeOrderedLong(slot + WRITTEN_BY, message);
+        }
+        bytes.writeDouble(slot + BALANCE, balance);
+    }
+
+    long account(int index) {
+        return bytes.readLong(slot(index) + ACCOUNT);
+    }
+
+    double balance(int index) {
+        return bytes.readDouble(slot(index) + BALANCE);
+    }
+
+    double overdraft(int index) {
+        return bytes.readDouble(slot(index) + OVERDRAFT);
+    }
+
+    long sender(int index) {
+        return bytes.readLong(slot(index) + SENDER);
+    }
+
+    long target(int index) {
+        return bytes.readLong(slot(index) + TARGET);
+    }
+
+    long sendingTime(int index) {
+        return bytes.readLong(slot(index) + SENDING_TIME);
+    }
+
+    int currency(int index) {
+        return bytes.readInt(slot(index) + CURRENCY);
+    }
+
+    /**
+     * Copies the UTF-8 of the name into {@code to} at {@code offset}, which must have room for {@value #MAX_NAME_LENGTH} bytes.
+     *
+     * @return the length of the name in bytes
+     */
+    int name(int index, byte[] to, int offset) {
+        final long slot = slot(index);
+        final int length = bytes.readInt(slot + NAME_LENGTH);
+        for (int i = 0; i < length; i++)
+            to[offset + i] = bytes.readByte(slot + NAME + i);
+        return length;
+    }
+
+    /**
+     * Forces the ledger to disk.
+     */
+    public void sync() {
+        bytes.sync();
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        bytes.releaseLast();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountLedger{" + path + ", size=" + size + ", appliedIndex=" + Long.toHexString(appliedIndex()) + '}';
+    }
+
+    // undoes the writes of a message which was not recorded as applied
+    private void rollBack() {
+        final long applied = appliedIndex();
+        for (int i = 0; i < size; i++) {
+            final long slot = slot(i);
+            if (bytes.readLong(slot + WRITTEN_BY) <= applied)
+                continue;
+            final double previous = bytes.readDouble(slot + PREVIOUS_BALANCE);
+            if (Double.isNaN(previous)) {
+                // accounts are added in order, so every later one was created by the same message
+                size = i;
+                bytes.writeOrderedLong(SIZE_AT, size);
+                return;
+            }
+            bytes.writeDouble(slot + BALANCE, previous);
+            bytes.writeOrderedLong(slot + WRITTEN_BY, applied);
+        }
+    }
+
+    private static long slot(int index) {
+        return HEADER_SIZE + (long) index * SLOT_SIZE;
+    }
+}
@@ -2,22 +2,48 @@ package run.chronicle.account.domain;
 
 import net.openhft.chronicle.core.io.InvalidMarshallableException;
 import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.FixedTransfer;
 import run.chronicle.account.dto.Transfer;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Encapsulates all domain logic related to account creation, validation, and funds transfers.
  * This service is responsible for:
- * - Managing the in-memory store of accounts.
+ * - Managing the in-memory store of accounts, see {@link AccountStore}.
  * - Validating currency, balances, and overdraft limits.
  * - Updating account balances upon successful transfers.
+ *
+ * <p>A {@link Transfer} has a {@code double} amount, and a {@link FixedTransfer} a {@code long} number of the currency's
+ * units. Either is applied to a store of either kind, converting the amount if need be, see {@link Money}.
+ * A {@link FixedTransfer} to a fixed-point {@link AccountStore} is checked and applied without floating point,
+ * and a balance which would overflow a {@code long} fails the transfer rather than wrapping.
+ *
+ * <p>Between {@link #startBatch()} and {@link #endBatch()}, the balance of each account debited or credited is saved
+ * before it changes, so {@link #rollbackBatch()} can restore them exactly, for a batch of transfers applied atomically.
  */
 public class AccountService {
 
     // In-memory account store
-    private final Map<Long, CreateAccount> accountsMap = new LinkedHashMap<>();
+    private final AccountStore accounts;
+
+    // The accounts found by the last checkDebit and checkCredit, so a transfer looks each account up once
+    private int checkedFrom = AccountStore.NO_ACCOUNT;
+    private int checkedTo = AccountStore.NO_ACCOUNT;
+
+    // The balances to restore on rollback, as raw double bits or units, and the accounts they are of
+    private boolean batching;
+    private int undoCount;
+    private int[] undoAccounts = new int[16];
+    private long[] undoBalances = new long[16];
+
+    public AccountService() {
+        this(new AccountStore());
+    }
+
+    public AccountService(AccountStore accounts) {
+        this.accounts = accounts;
+    }
 
     /**
      * Attempts to create a new account. Throws an InvalidMarshallableException if invalid,
@@ -35,13 +61,20 @@ public class AccountService {
             return "invalid balance";
         }
 
-        Long accountNumber = createAccount.account();
-        if (accountsMap.containsKey(accountNumber)) {
+        if (accounts.find(createAccount.account()) != AccountStore.NO_ACCOUNT) {
             return "account already exists";
         }
 
+        if (!accounts.nameFits(createAccount.name())) {
+            return "name too long";
+        }
+
+        if (!accounts.fits(createAccount)) {
+            return "not a whole number of units";
+        }
+
         // If valid, store the account
-        accountsMap.put(accountNumber, createAccount.deepCopy());
+        accounts.add(createAccount);
         return null; // Indicates success
     }
 
@@ -50,6 +83,41 @@ public class AccountService {
      * or null if the transfer is successful.
      */
     public String tryTransfer(Transfer transfer, long expectedTargetId) throws InvalidMarshallableException {
+        String reason = checkDebit(transfer, expectedTargetId);
+        if (reason == null)
+            reason = checkCredit(transfer);
+        if (reason != null)
+            return reason;
+
+        // Perform the transfer
+        debit(checkedFrom, transfer);
+        credit(checkedTo, transfer);
+
+        return null; // Indicates success
+    }
+
+    /**
+     * Attempts to perform a transfer of units, as for {@link #tryTransfer(Transfer, long)}.
+     */
+    public String tryTransfer(FixedTransfer transfer, long expectedTargetId) throws InvalidMarshallableException {
+        String reason = checkDebit(transfer, expectedTargetId);
+        if (reason == null)
+            reason = checkCredit(transfer);
+        if (reason != null)
+            return reason;
+
+        debit(checkedFrom, transfer);
+        credit(checkedTo, transfer);
+        return null;
+    }
+
+    /**
+     * Checks the transfer, and the {@code from} side of it, in this service.
+     * Where the accounts are held by different services, see {@link #checkCredit(Transfer)}.
+     *
+     * @return the reason the transfer would fail, or null if the {@code from} account can be debited
+     */
+    public String checkDebit(Transfer transfer, long expectedTargetId) throws InvalidMarshallableException {
         // Validate DTO properties
         transfer.validate();
 
@@ -57,38 +125,271 @@ public class AccountService {
             return "target mismatch";
         }
 
-        CreateAccount fromAccount = accountsMap.get(transfer.from());
-        if (fromAccount == null) {
+        int from = checkedFrom = accounts.find(transfer.from());
+        if (from == AccountStore.NO_ACCOUNT) {
             return "from account doesn't exist";
         }
-        if (fromAccount.currency() != transfer.currency()) {
+        if (accounts.currency(from) != transfer.currency()) {
             return "from account currency doesn't match";
         }
+        if (accounts.fixedPoint()) {
+            if (!Money.fits(transfer.amount(), transfer.currency()))
+                return "not a whole number of units";
+            return checkFunds(from, Money.toUnits(transfer.amount(), transfer.currency()));
+        }
+        if (accounts.balance(from) + accounts.overdraft(from) < transfer.amount()) {
+            return "insufficient funds";
+        }
+        return null;
+    }
+
+    /**
+     * Checks the transfer of units, and the {@code from} side of it, as for {@link #checkDebit(Transfer, long)}.
+     */
+    public String checkDebit(FixedTransfer transfer, long expectedTargetId) throws InvalidMarshallableException {
+        transfer.validate();
+
+        if (transfer.target() != expectedTargetId) {
+            return "target mismatch";
+        }
 
-        double amount = transfer.amount();
-        if (fromAccount.balance() + fromAccount.overdraft() < amount) {
+        int from = checkedFrom = accounts.find(transfer.from());
+        if (from == AccountStore.NO_ACCOUNT) {
+            return "from account doesn't exist";
+        }
+        if (accounts.currency(from) != transfer.currency()) {
+            return "from account currency doesn't match";
+        }
+        if (accounts.fixedPoint()) {
+            return checkFunds(from, transfer.amount());
+        }
+        if (accounts.balance(from) + accounts.overdraft(from) < Money.toDouble(transfer.amount(), transfer.currency())) {
             return "insufficient funds";
         }
+        return null;
+    }
 
-        CreateAccount toAccount = accountsMap.get(transfer.to());
-        if (toAccount == null) {
+    /**
+     * Checks the {@code to} side of a transfer, which is only reached if {@link #checkDebit(Transfer, long)} passed.
+     *
+     * @return the reason the transfer would fail, or null if the {@code to} account can be credited
+     */
+    public String checkCredit(Transfer transfer) {
+        int to = checkedTo = accounts.find(transfer.to());
+        if (to == AccountStore.NO_ACCOUNT) {
             return "to account doesn't exist";
         }
-        if (toAccount.currency() != transfer.currency()) {
+        if (accounts.currency(to) != transfer.currency()) {
             return "to account currency doesn't match";
         }
+        if (accounts.fixedPoint())
+            return checkRoom(to, Money.toUnits(transfer.amount(), transfer.currency()));
+        return null;
+    }
 
-        // Perform the transfer
-        fromAccount.balance(fromAccount.balance() - amount);
-        toAccount.balance(toAccount.balance() + amount);
+    /**
+     * Checks the {@code to} side of a transfer of units, as for {@link #checkCredit(Transfer)}.
+     */
+    public String checkCredit(FixedTransfer transfer) {
+        int to = checkedTo = accounts.find(transfer.to());
+        if (to == AccountStore.NO_ACCOUNT) {
+            return "to account doesn't exist";
+        }
+        if (accounts.currency(to) != transfer.currency()) {
+            return "to account currency doesn't match";
+        }
+        if (accounts.fixedPoint())
+            return checkRoom(to, transfer.amount());
+        return null;
+    }
 
-        return null; // Indicates success
+    /**
+     * Takes the amount from the {@code from} account, once both sides have been checked,
+     * e.g. by services holding one side each, so the account is looked up again.
+     */
+    public void debit(Transfer transfer) {
+        debit(accounts.find(transfer.from()), transfer);
+    }
+
+    private void debit(int from, Transfer transfer) {
+        save(from);
+        if (accounts.fixedPoint())
+            accounts.units(from, Math.subtractExact(accounts.units(from), Money.toUnits(transfer.amount(), transfer.currency())));
+        else
+            accounts.balance(from, accounts.balance(from) - transfer.amount());
+    }
+
+    /**
+     * Adds the amount to the {@code to} account, once both sides have been checked.
+     */
+    public void credit(Transfer transfer) {
+        credit(accounts.find(transfer.to()), transfer);
+    }
+
+    private void credit(int to, Transfer transfer) {
+        save(to);
+        if (accounts.fixedPoint())
+            accounts.units(to, Math.addExact(accounts.units(to), Money.toUnits(transfer.amount(), transfer.currency())));
+        else
+            accounts.balance(to, accounts.balance(to) + transfer.amount());
+    }
+
+    /**
+     * Takes the units from the {@code from} account, once both sides have been checked.
+     */
+    public void debit(FixedTransfer transfer) {
+        debit(accounts.find(transfer.from()), transfer);
+    }
+
+    private void debit(int from, FixedTransfer transfer) {
+        save(from);
+        if (accounts.fixedPoint())
+            accounts.units(from, Math.subtractExact(accounts.units(from), transfer.amount()));
+        else
+            accounts.balance(from, accounts.balance(from) - Money.toDouble(transfer.amount(), transfer.currency()));
+    }
+
+    /**
+     * Adds the units to the {@code to} account, once both sides have been checked.
+     */
+    public void credit(FixedTransfer transfer) {
+        credit(accounts.find(transfer.to()), transfer);
+    }
+
+    private void credit(int to, FixedTransfer transfer) {
+        save(to);
+        if (accounts.fixedPoint())
+            accounts.units(to, Math.addExact(accounts.units(to), transfer.amount()));
+        else
+            accounts.balance(to, accounts.balance(to) + Money.toDouble(transfer.amount(), transfer.currency()));
+    }
+
+    /**
+     * Starts saving the balances changed by transfers, until {@link #endBatch()}, so they can be rolled back.
+     */
+    public void startBatch() {
+        batching = true;
+        undoCount = 0;
+    }
+
+    /**
+     * Restores the balances changed since {@link #startBatch()}, as they were, and carries on saving any further changes.
+     */
+    public void rollbackBatch() {
+        while (undoCount > 0) {
+            final int index = undoAccounts[--undoCount];
+            final long balance = undoBalances[undoCount];
+            if (accounts.fixedPoint())
+                accounts.units(index, balance);
+            else
+                accounts.balance(index, Double.longBitsToDouble(balance));
+        }
+    }
+
+    /**
+     * Stops saving balances, keeping the changes made since {@link #startBatch()}.
+     */
+    public void endBatch() {
+        batching = false;
+        undoCount = 0;
+    }
+
+    // saves the balance of the account before it changes, if in a batch
+    private void save(int index) {
+        if (!batching)
+            return;
+        if (undoCount == undoAccounts.length) {
+            undoAccounts = Arrays.copyOf(undoAccounts, undoCount * 2);
+            undoBalances = Arrays.copyOf(undoBalances, undoCount * 2);
+        }
+        undoAccounts[undoCount] = index;
+        undoBalances[undoCount++] = accounts.fixedPoint()
+                ? accounts.units(index)
+                : Double.doubleToRawLongBits(accounts.balance(index));
+    }
+
+    // whether the balance and overdraft of a fixed-point account cover the units, which can then be debited without overflow
+    private String checkFunds(int from, long units) {
+        long available;
+        try {
+            available = Math.addExact(accounts.units(from), accounts.overdraftUnits(from));
+        } catch (ArithmeticException e) {
+            // more, or less, than any amount
+            available = accounts.overdraftUnits(from) > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return available < units ? "insufficient funds" : null;
+    }
+
+    // whether the units can be credited to a fixed-point account without its balance overflowing
+    private String checkRoom(int to, long units) {
+        return accounts.units(to) > Long.MAX_VALUE - units ? "to account balance would overflow" : null;
+    }
+
+    /**
+     * @return the number of accounts, for checkpoint operations
+     */
+    public int accountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Copies an account, in the order they were created, into a reusable {@link CreateAccount} for checkpoint operations.
+     *
+     * @return {@code using}
+     */
+    public CreateAccount account(int index, CreateAccount using) {
+        return accounts.copyTo(index, using);
+    }
+
+    /**
+     * Starts an incremental checkpoint of the accounts changed since the last checkpoint started,
+     * see {@link #nextCheckpointAccount(int)}.
+     */
+    public void startIncrementalCheckpoint() {
+        accounts.startCheckpoint();
+    }
+
+    /**
+     * Starts a checkpoint of every account, which is written in one go.
+     */
+    public void startFullCheckpoint() {
+        accounts.startFullCheckpoint();
+    }
+
+    /**
+     * Takes the next account the incremental checkpoint is still to write, at or after {@code from}.
+     *
+     * @return its index, or -1 if there are none
+     */
+    public int nextCheckpointAccount(int from) {
+        final int index = accounts.nextPending(from);
+        if (index != AccountStore.NO_ACCOUNT)
+            accounts.clearPending(index);
+        return index;
+    }
+
+    /**
+     * Takes this account, if the incremental checkpoint is still to write it, so it can be written before it changes.
+     *
+     * @return its index, or -1 if it isn't pending
+     */
+    public int takeCheckpointAccount(long account) {
+        final int index = accounts.find(account);
+        return index != AccountStore.NO_ACCOUNT && accounts.clearPending(index) ? index : AccountStore.NO_ACCOUNT;
+    }
+
+    /**
+     * @return the balance of the account, or {@code NaN} if it doesn't exist
+     */
+    public double balance(long account) {
+        int index = accounts.find(account);
+        return index == AccountStore.NO_ACCOUNT ? Double.NaN : accounts.balance(index);
     }
 
     /**
-     * Provides access to all accounts for checkpoint operations.
+     * @return {@code true} if the account exists
      */
-    public Map<Long, CreateAccount> getAllAccounts() {
-        return accountsMap;
+    public boolean hasAccount(long account) {
+        return accounts.find(account) != AccountStore.NO_ACCOUNT;
     }
 }
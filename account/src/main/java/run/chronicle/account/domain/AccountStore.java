@@ -0,0 +1,395 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.core.Jvm;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.common.LongIdInterner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Holds the accounts of an {@link AccountService} as columns of primitive arrays, indexed by the order
+ * the accounts were created in, rather than as a {@code Map<Long, CreateAccount>}.
+ *
+ * <p>Account numbers are found through a {@link LongIdInterner} of the store's own, whose ids are the indexes,
+ * as both are given in the order the accounts are added, so a lookup does not box or allocate.
+ * The balance, overdraft and currency used by a transfer are each one array element,
+ * and the rest of the {@link CreateAccount}, needed only for a checkpoint, is held in further columns,
+ * with the names UTF-8 encoded in one shared byte array. Tens of millions of accounts are a few dozen
+ * arrays to the garbage collector, rather than several objects each.
+ *
+ * <p>The columns, and the index, double in size as they fill. Account number 0 is not valid.
+ *
+ * <p>Each account added, or balance updated, is marked as changed in a bitset, so an incremental checkpoint can list
+ * only the accounts changed since the last one started, see {@link #startCheckpoint()}.
+ *
+ * <p>With {@code -DfixedPoint}, or a store constructed as fixed point, the balances and overdrafts are held as
+ * {@code long}s of the currency's minor unit, see {@link Money}, in place of the {@code double} columns,
+ * so a transfer of units is integer arithmetic, see {@link #units(int)}. An account is converted to units
+ * when it is added, and back when it is copied for a checkpoint.
+ *
+ * <p>A store constructed with an {@link AccountLedger} loads the accounts in it, and writes each new account and
+ * balance through to it, so the columns and the index are rebuilt from the file on restart.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+public final class AccountStore {
+    // Returned by find for an account number which is not in the store
+    public static final int NO_ACCOUNT = -1;
+
+    // The accounts the store has room for before it first grows
+    static final int DEFAULT_CAPACITY = Integer.getInteger("accountCapacity", 1024);
+    // Hold balances as fixed-point units of each currency, rather than doubles
+    public static final boolean FIXED_POINT = Jvm.getBoolean("fixedPoint");
+
+    // The most accounts the index can hold
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    // Account number to index
+    private LongIdInterner accountIndex;
+
+    // Columns by index
+    private long[] account;
+    private int[] currency;
+    private double[] balance;
+    private double[] overdraft;
+    // or, if fixed point, in units of the currency
+    private long[] balanceUnits;
+    private long[] overdraftUnits;
+    private long[] sender;
+    private long[] target;
+    private long[] sendingTime;
+    private int[] nameAt;
+    private int[] nameLength;
+
+    // UTF-8 of every name, end to end
+    private byte[] names;
+    private int namesLength;
+
+    private int size;
+
+    // A bit per index, for the accounts changed since the last checkpoint started
+    private long[] changed;
+    // A bit per index, for the accounts the checkpoint in progress is still to write
+    private long[] pending;
+
+    // Where accounts and balances are persisted, or null
+    private final AccountLedger ledger;
+    private final boolean fixedPoint;
+
+    /**
+     * Constructs an empty store with room for {@code -DaccountCapacity} accounts, default 1024.
+     */
+    public AccountStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store with room for {@code capacity} accounts before it grows.
+     */
+    public AccountStore(int capacity) {
+        this(capacity, FIXED_POINT);
+    }
+
+    /**
+     * Constructs an empty store with room for {@code capacity} accounts, holding balances as units if {@code fixedPoint}.
+     */
+    public AccountStore(int capacity, boolean fixedPoint) {
+        this(capacity, fixedPoint, null);
+    }
+
+    /**
+     * Constructs a store holding the accounts in the ledger, which it then keeps up to date.
+     * The ledger holds {@code double} balances, so the store is not fixed point.
+     */
+    public AccountStore(AccountLedger ledger) {
+        this(Math.max(DEFAULT_CAPACITY, ledger.size()), false, ledger);
+        load();
+    }
+
+    private AccountStore(int capacity, boolean fixedPoint, AccountLedger ledger) {
+        this.ledger = ledger;
+        this.fixedPoint = fixedPoint;
+        final int length = Math.max(16, capacity);
+        account = new long[length];
+        currency = new int[length];
+        if (fixedPoint) {
+            balanceUnits = new long[length];
+            overdraftUnits = new long[length];
+        } else {
+            balance = new double[length];
+            overdraft = new double[length];
+        }
+        sender = new long[length];
+        target = new long[length];
+        sendingTime = new long[length];
+        nameAt = new int[length];
+        nameLength = new int[length];
+        names = new byte[length * 16];
+        changed = new long[words(length)];
+        pending = new long[words(length)];
+        accountIndex = new LongIdInterner("accounts", Math.min(length, MAX_CAPACITY));
+    }
+
+    /**
+     * @return the index of the account, or {@link #NO_ACCOUNT} if there is none with this number
+     */
+    public int find(long accountNumber) {
+        return accountNumber == 0 ? NO_ACCOUNT : accountIndex.find(accountNumber);
+    }
+
+    /**
+     * Adds an account, which must not be in the store already.
+     *
+     * @return the index of the new account
+     */
+    public int add(CreateAccount ca) {
+        final long accountNumber = ca.account();
+        if (accountNumber == 0)
+            throw new IllegalArgumentException("account must be set");
+        if (!fits(ca))
+            throw new ArithmeticException("balance or overdraft is not a whole number of units");
+        if (size == account.length)
+            growColumns();
+        if (size == accountIndex.capacity())
+            growIndex();
+
+        final byte[] utf8 = ca.name().getBytes(StandardCharsets.UTF_8);
+        // the ledger is written first, so it can reject the account before the columns change
+        if (ledger != null)
+            ledger.add(size, ca, utf8);
+
+        final int index = size++;
+        account[index] = accountNumber;
+        currency[index] = ca.currency();
+        if (fixedPoint) {
+            balanceUnits[index] = Money.toUnits(ca.balance(), ca.currency());
+            overdraftUnits[index] = Money.toUnits(ca.overdraft(), ca.currency());
+        } else {
+            balance[index] = ca.balance();
+            overdraft[index] = ca.overdraft();
+        }
+        sender[index] = ca.sender();
+        target[index] = ca.target();
+        sendingTime[index] = ca.sendingTime();
+        ensureNames(utf8.length);
+        System.arraycopy(utf8, 0, names, namesLength, utf8.length);
+        storeName(index, utf8.length);
+        accountIndex.intern(accountNumber);
+        markChanged(index);
+        return index;
+    }
+
+    /**
+     * @return {@code true} if a store can hold an account with this name, which may be limited by its ledger
+     */
+    public boolean nameFits(String name) {
+        return ledger == null || AccountLedger.nameFits(name);
+    }
+
+    /**
+     * @return {@code true} if the balance and overdraft of the account can be held by this store,
+     * which for a fixed-point store, means they are whole numbers of the currency's units
+     */
+    public boolean fits(CreateAccount ca) {
+        return !fixedPoint || (Money.fits(ca.balance(), ca.currency()) && Money.fits(ca.overdraft(), ca.currency()));
+    }
+
+    /**
+     * @return {@code true} if balances are held as units of the currency
+     */
+    public boolean fixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * @return the number of accounts
+     */
+    public int size() {
+        return size;
+    }
+
+    public long account(int index) {
+        return account[index];
+    }
+
+    public int currency(int index) {
+        return currency[index];
+    }
+
+    public double balance(int index) {
+        return fixedPoint ? Money.toDouble(balanceUnits[index], currency[index]) : balance[index];
+    }
+
+    public void balance(int index, double balance) {
+        if (fixedPoint) {
+            units(index, Money.toUnits(balance, currency[index]));
+            return;
+        }
+        this.balance[index] = balance;
+        markChanged(index);
+        if (ledger != null)
+            ledger.balance(index, balance);
+    }
+
+    public double overdraft(int index) {
+        return fixedPoint ? Money.toDouble(overdraftUnits[index], currency[index]) : overdraft[index];
+    }
+
+    /**
+     * @return the balance in units of the currency, of a fixed-point store
+     */
+    public long units(int index) {
+        return balanceUnits[index];
+    }
+
+    /**
+     * Sets the balance in units of the currency, of a fixed-point store.
+     */
+    public void units(int index, long units) {
+        balanceUnits[index] = units;
+        markChanged(index);
+    }
+
+    /**
+     * @return the overdraft in units of the currency, of a fixed-point store
+     */
+    public long overdraftUnits(int index) {
+        return overdraftUnits[index];
+    }
+
+    /**
+     * Starts a checkpoint of the accounts changed since the last one started. These become pending, and later changes
+     * are tracked for the next checkpoint. Any accounts still pending from the last checkpoint are dropped from it.
+     */
+    public void startCheckpoint() {
+        final long[] cleared = pending;
+        Arrays.fill(cleared, 0L);
+        pending = changed;
+        changed = cleared;
+    }
+
+    /**
+     * Starts a checkpoint of every account, so none are pending, and later changes are tracked for the next checkpoint.
+     */
+    public void startFullCheckpoint() {
+        Arrays.fill(pending, 0L);
+        Arrays.fill(changed, 0L);
+    }
+
+    /**
+     * @return the first index at or after {@code from} still pending in the checkpoint, or {@link #NO_ACCOUNT} if there are none
+     */
+    public int nextPending(int from) {
+        int word = from >>> 6;
+        if (word >= pending.length)
+            return NO_ACCOUNT;
+        long bits = pending[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == pending.length)
+                return NO_ACCOUNT;
+            bits = pending[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Clears the account as pending, once the checkpoint has written it.
+     *
+     * @return {@code true} if it was pending
+     */
+    public boolean clearPending(int index) {
+        final long bit = 1L << index;
+        final long word = pending[index >>> 6];
+        pending[index >>> 6] = word & ~bit;
+        return (word & bit) != 0;
+    }
+
+    /**
+     * Copies an account into a {@link CreateAccount}, as it was created but with its current balance.
+     * The name is decoded into a new {@code String}, so this is for checkpoints, not the transfer path.
+     *
+     * @return {@code using}
+     */
+    public CreateAccount copyTo(int index, CreateAccount using) {
+        using.reset();
+        return using
+                .sender(sender[index])
+                .target(target[index])
+                .sendingTime(sendingTime[index])
+                .name(new String(names, nameAt[index], nameLength[index], StandardCharsets.UTF_8))
+                .account(account[index])
+                .currency(currency[index])
+                .balance(balance(index))
+                .overdraft(overdraft(index));
+    }
+
+    // reads every account in the ledger into the empty columns
+    private void load() {
+        for (int i = 0, count = ledger.size(); i < count; i++) {
+            account[i] = ledger.account(i);
+            currency[i] = ledger.currency(i);
+            balance[i] = ledger.balance(i);
+            overdraft[i] = ledger.overdraft(i);
+            sender[i] = ledger.sender(i);
+            target[i] = ledger.target(i);
+            sendingTime[i] = ledger.sendingTime(i);
+            ensureNames(AccountLedger.MAX_NAME_LENGTH);
+            storeName(i, ledger.name(i, names, namesLength));
+            accountIndex.intern(account[i]);
+            // the first checkpoint after a restart lists every account
+            markChanged(i);
+        }
+        size = ledger.size();
+    }
+
+    private void ensureNames(int length) {
+        if (namesLength + length > names.length)
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + length));
+    }
+
+    // the name has been copied to the end of names
+    private void storeName(int index, int length) {
+        nameAt[index] = namesLength;
+        nameLength[index] = length;
+        namesLength += length;
+    }
+
+    private void growColumns() {
+        final int length = account.length * 2;
+        account = Arrays.copyOf(account, length);
+        currency = Arrays.copyOf(currency, length);
+        if (fixedPoint) {
+            balanceUnits = Arrays.copyOf(balanceUnits, length);
+            overdraftUnits = Arrays.copyOf(overdraftUnits, length);
+        } else {
+            balance = Arrays.copyOf(balance, length);
+            overdraft = Arrays.copyOf(overdraft, length);
+        }
+        sender = Arrays.copyOf(sender, length);
+        target = Arrays.copyOf(target, length);
+        sendingTime = Arrays.copyOf(sendingTime, length);
+        nameAt = Arrays.copyOf(nameAt, length);
+        nameLength = Arrays.copyOf(nameLength, length);
+        changed = Arrays.copyOf(changed, words(length));
+        pending = Arrays.copyOf(pending, words(length));
+    }
+
+    private void markChanged(int index) {
+        changed[index >>> 6] |= 1L << index;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private void growIndex() {
+        if (accountIndex.capacity() == MAX_CAPACITY)
+            throw new IllegalStateException("Cannot hold more than " + MAX_CAPACITY + " accounts");
+        // the accounts keep their ids, which are their indexes
+        accountIndex = accountIndex.withCapacity((int) Math.min(MAX_CAPACITY, 2L * accountIndex.capacity()));
+    }
+}
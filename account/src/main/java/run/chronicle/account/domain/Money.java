@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.wire.converter.ShortText;
+
+import java.util.Arrays;
+
+/**
+ * Converts amounts of money between {@code double}s and fixed-point {@code long}s of the currency's minor unit,
+ * e.g. cents for EUR, or yen for JPY, see {@link #scale(int)}.
+ *
+ * <p>An amount converts to units only if it is a whole number of them, within the range of a {@code long},
+ * so money is never rounded on its way into a fixed-point {@link AccountStore}.
+ * Sums of units are checked with {@link Math#addExact(long, long)} and {@link Math#subtractExact(long, long)}.
+ *
+ * <p>The number of decimal places of a currency can be set with {@code -DmoneyScales=JPY:0,BTC:8},
+ * and is otherwise {@value #DEFAULT_SCALE}, or that of the ISO 4217 currencies listed below with a different one.
+ */
+public final class Money {
+    // The decimal places of a currency which has no scale of its own
+    public static final int DEFAULT_SCALE = 2;
+
+    // The decimal places of currencies other than DEFAULT_SCALE, as currency:places
+    private static final String SCALES = "JPY:0,KRW:0,CLP:0,ISK:0,BHD:3,KWD:3,OMR:3,JOD:3,TND:3," +
+            System.getProperty("moneyScales", "");
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    // currencies and their scales, searched in order, which is short enough not to need a map
+    private static final int[] CURRENCIES;
+    private static final int[] PLACES;
+
+    static {
+        final String[] entries = SCALES.split(",");
+        int count = 0;
+        final int[] currencies = new int[entries.length];
+        final int[] places = new int[entries.length];
+        for (String entry : entries) {
+            final String[] parts = entry.trim().split(":");
+            if (parts.length != 2)
+                continue;
+            final int scale = Integer.parseInt(parts[1].trim());
+            if (scale < 0 || scale >= POWERS_OF_TEN.length)
+                throw new IllegalArgumentException("Unsupported scale " + scale + " for " + parts[0]);
+            final int currency = (int) ShortText.INSTANCE.parse(parts[0].trim());
+            // a later entry, e.g. from -DmoneyScales, replaces an earlier one
+            int i = indexOf(currencies, count, currency);
+            if (i < 0)
+                i = count++;
+            currencies[i] = currency;
+            places[i] = scale;
+        }
+        CURRENCIES = Arrays.copyOf(currencies, count);
+        PLACES = Arrays.copyOf(places, count);
+    }
+
+    private Money() {
+    }
+
+    /**
+     * @return the number of decimal places of the currency
+     */
+    public static int scale(int currency) {
+        final int i = indexOf(CURRENCIES, CURRENCIES.length, currency);
+        return i < 0 ? DEFAULT_SCALE : PLACES[i];
+    }
+
+    /**
+     * @return the number of units in one of the currency, e.g. 100 for two decimal places
+     */
+    public static long factor(int currency) {
+        return POWERS_OF_TEN[scale(currency)];
+    }
+
+    /**
+     * @return {@code true} if the amount is a whole number of the currency's units, and they fit in a {@code long}
+     */
+    public static boolean fits(double amount, int currency) {
+        final long factor = factor(currency);
+        final double scaled = amount * factor;
+        // also false for NaN, and outside the range of a long
+        if (!(scaled >= -0x1p63 && scaled < 0x1p63))
+            return false;
+        return Math.round(scaled) / (double) factor == amount;
+    }
+
+    /**
+     * Converts an amount to units of the currency.
+     *
+     * @throws ArithmeticException if it doesn't {@link #fits(double, int) fit}
+     */
+    public static long toUnits(double amount, int currency) {
+        if (!fits(amount, currency))
+            throw new ArithmeticException(amount + " is not a whole number of " + ShortText.INSTANCE.asString(currency) + " units");
+        return Math.round(amount * factor(currency));
+    }
+
+    /**
+     * Converts units of the currency to an amount, which is exact for up to 2^53 units.
+     */
+    public static double toDouble(long units, int currency) {
+        return units / (double) factor(currency);
+    }
+
+    private static int indexOf(int[] currencies, int count, int currency) {
+        for (int i = 0; i < count; i++)
+            if (currencies[i] == currency)
+                return i;
+        return -1;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import net.openhft.chronicle.wire.converter.ShortText;
+
+/**
+ * Many transfers in one currency, sent as one message, e.g. a payroll run.
+ * The transfers are packed end to end as records of {@code from}, {@code to}, {@code amount} and {@code reference},
+ * see {@link #add(long, long, double, CharSequence)}, and read back into a reusable {@link Transfer}
+ * with {@link #transfer(long, Transfer)}.
+ *
+ * <p>If {@code atomic}, either every transfer is applied, or none are. Otherwise each is applied if it can be.
+ * The outcome is reported as one {@link OnBatchTransfer}, rather than an event per transfer.
+ *
+ * <pre>{@code
+ * BatchTransfer batch = new BatchTransfer()
+ *     .sender(gatewayId)
+ *     .target(vaultId)
+ *     .sendingTime(SystemTimeProvider.CLOCK.currentTimeNanos())
+ *     .currency(EUR_CODE)
+ *     .atomic(true)
+ *     .add(101013L, 101025L, 10.0, "Salary")
+ *     .add(101013L, 101037L, 20.0, "Salary");
+ * }</pre>
+ */
+public class BatchTransfer extends AbstractEvent<BatchTransfer> {
+    // The longest reference of a transfer in a batch, in bytes
+    public static final int MAX_REFERENCE_LENGTH = 255;
+
+    // Offsets within a record, which is followed by the reference
+    private static final int FROM = 0;
+    private static final int TO = 8;
+    private static final int AMOUNT = 16;
+    private static final int REFERENCE_LENGTH = 24;
+    private static final int REFERENCE = 25;
+
+    @ShortText
+    private int currency;
+    private boolean atomic;
+    private int count;
+    private final Bytes<?> records = Bytes.allocateElasticOnHeap();
+
+    public int currency() {
+        return currency;
+    }
+
+    public BatchTransfer currency(int currency) {
+        this.currency = currency;
+        return this;
+    }
+
+    /**
+     * @return {@code true} if either every transfer is applied, or none are
+     */
+    public boolean atomic() {
+        return atomic;
+    }
+
+    public BatchTransfer atomic(boolean atomic) {
+        this.atomic = atomic;
+        return this;
+    }
+
+    /**
+     * @return the number of transfers in the batch
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Removes every transfer, so the batch can be reused.
+     *
+     * @return this object for method chaining
+     */
+    public BatchTransfer clear() {
+        count = 0;
+        records.clear();
+        return this;
+    }
+
+    /**
+     * Adds a transfer to the end of the batch.
+     *
+     * @param reference of at most {@value #MAX_REFERENCE_LENGTH} ISO-8859-1 characters
+     * @return this object for method chaining
+     */
+    public BatchTransfer add(long from, long to, double amount, CharSequence reference) {
+        if (reference.length() > MAX_REFERENCE_LENGTH)
+            throw new IllegalArgumentException("reference longer than " + MAX_REFERENCE_LENGTH);
+        records.writeLong(from);
+        records.writeLong(to);
+        records.writeDouble(amount);
+        records.writeUnsignedByte(reference.length());
+        records.append8bit(reference);
+        count++;
+        return this;
+    }
+
+    /**
+     * Reads the transfer recorded at {@code offset}, starting from 0, into {@code using}, along with the sender, target,
+     * sendingTime and currency of the batch.
+     *
+     * @return the offset of the next transfer
+     */
+    public long transfer(long offset, Transfer using) {
+        final int length = records.readUnsignedByte(offset + REFERENCE_LENGTH);
+        using.sender(sender())
+                .target(target())
+                .sendingTime(sendingTime())
+                .currency(currency)
+                .from(records.readLong(offset + FROM))
+                .to(records.readLong(offset + TO))
+                .amount(records.readDouble(offset + AMOUNT))
+                .reference()
+                .clear()
+                .write(records, offset + REFERENCE, length);
+        return offset + REFERENCE + length;
+    }
+
+    @Override
+    public void validate() throws InvalidMarshallableException {
+        super.validate();
+        if (currency == 0)
+            throw new InvalidMarshallableException("currency must be set");
+        if (count <= 0)
+            throw new InvalidMarshallableException("a batch must have at least one transfer");
+    }
+
+    @Override
+    public boolean usesSelfDescribingMessage() {
+        // Use a lower-level binary format, not a self-describing message
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesIn;
+import net.openhft.chronicle.bytes.BytesOut;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import net.openhft.chronicle.wire.converter.ShortText;
+
+/**
+ * A {@link Transfer} whose amount is a fixed-point {@code long} of the currency's minor unit,
+ * e.g. {@code amount: 1050} is 10.50 EUR, see {@code run.chronicle.account.domain.Money}.
+ *
+ * <p>A fixed-point account service applies it with integer arithmetic only. In a queue it is written compactly,
+ * with the account numbers and amount as stop-bit encoded numbers, rather than a field at a time.
+ *
+ * <pre>{@code
+ * FixedTransfer tx = new FixedTransfer()
+ *     .sender(gatewayId)
+ *     .target(vaultId)
+ *     .sendingTime(SystemTimeProvider.CLOCK.currentTimeNanos())
+ *     .from(101013L)
+ *     .to(101025L)
+ *     .currency(EUR_CODE)
+ *     .amount(1050)
+ *     .reference(Bytes.from("Payment for services"));
+ * }</pre>
+ */
+public class FixedTransfer extends AbstractEvent<FixedTransfer> {
+    static final int MARSHALLABLE_VERSION = 1;
+
+    private long from, to;
+    @ShortText
+    private int currency;
+    private long amount;
+    private final Bytes<?> reference = Bytes.allocateElasticOnHeap();
+
+    public long from() {
+        return from;
+    }
+
+    public FixedTransfer from(long from) {
+        this.from = from;
+        return this;
+    }
+
+    public long to() {
+        return to;
+    }
+
+    public FixedTransfer to(long to) {
+        this.to = to;
+        return this;
+    }
+
+    public int currency() {
+        return currency;
+    }
+
+    public FixedTransfer currency(int currency) {
+        this.currency = currency;
+        return this;
+    }
+
+    /**
+     * @return the amount in units of the currency
+     */
+    public long amount() {
+        return amount;
+    }
+
+    /**
+     * Sets the amount in units of the currency.
+     *
+     * @return this object for method chaining
+     */
+    public FixedTransfer amount(long amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    public Bytes<?> reference() {
+        return reference;
+    }
+
+    public FixedTransfer reference(Bytes<?> reference) {
+        this.reference.clear().append(reference);
+        return this;
+    }
+
+    /**
+     * Validates the transfer as for a {@link Transfer}, with a positive number of units.
+     *
+     * @throws InvalidMarshallableException if any validation check fails
+     */
+    @Override
+    public void validate() throws InvalidMarshallableException {
+        super.validate();
+        if (from == 0)
+            throw new InvalidMarshallableException("from must be set");
+        if (to == 0)
+            throw new InvalidMarshallableException("to must be set");
+        if (currency == 0)
+            throw new InvalidMarshallableException("currency must be set");
+        if (amount <= 0)
+            throw new InvalidMarshallableException("amount must be positive");
+        if (reference.isEmpty())
+            throw new InvalidMarshallableException("reference must be set");
+    }
+
+    @Override
+    public void writeMarshallable(BytesOut<?> out) {
+        out.writeStopBit(MARSHALLABLE_VERSION);
+        out.writeLong(sender());
+        out.writeLong(target());
+        out.writeLong(sendingTime());
+        out.writeStopBit(from);
+        out.writeStopBit(to);
+        out.writeInt(currency);
+        out.writeStopBit(amount);
+        out.write8bit(reference);
+    }
+
+    @Override
+    public void readMarshallable(BytesIn<?> in) {
+        final int version = (int) in.readStopBit();
+        if (version != MARSHALLABLE_VERSION)
+            throw new IORuntimeException("Unsupported version " + version);
+        sender(in.readLong());
+        target(in.readLong());
+        sendingTime(in.readLong());
+        from = in.readStopBit();
+        to = in.readStopBit();
+        currency = in.readInt();
+        amount = in.readStopBit();
+        in.read8bit(reference);
+    }
+
+    @Override
+    public boolean usesSelfDescribingMessage() {
+        // Use a lower-level binary format, not a self-describing message
+        return false;
+    }
+}
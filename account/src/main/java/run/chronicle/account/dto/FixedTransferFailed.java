@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+
+/**
+ * An event indicating that a {@link FixedTransfer} failed, and why, as {@link TransferFailed} does for a {@link Transfer}.
+ * Failures are rare, so this is written as a self-describing message.
+ */
+public class FixedTransferFailed extends AbstractEvent<FixedTransferFailed> {
+    private FixedTransfer transfer;
+    private String reason;
+
+    public FixedTransfer transfer() {
+        return transfer;
+    }
+
+    public FixedTransferFailed transfer(FixedTransfer transfer) {
+        this.transfer = transfer;
+        return this;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public FixedTransferFailed reason(String reason) {
+        this.reason = reason;
+        return this;
+    }
+
+    @Override
+    public void validate() throws InvalidMarshallableException {
+        super.validate();
+        if (transfer == null) {
+            throw new InvalidMarshallableException("Invalid FixedTransferFailed: 'transfer' must not be null.");
+        }
+        transfer.validate();
+        if (reason == null) {
+            throw new InvalidMarshallableException("Invalid FixedTransferFailed: 'reason' must not be null.");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+/**
+ * A summary of the latencies of one type of message a service processed over an interval,
+ * in microseconds, e.g. every 10 seconds by default, see {@code -DmetricsIntervalMs}.
+ *
+ * <p>The {@code delay} is from the {@code sendingTime} of a message to the service dispatching it, i.e. the time
+ * spent in queues and the network, and the {@code handler} time is how long the service took to process it.
+ *
+ * <pre>{@code
+ * metrics: {
+ *   sender: vault,
+ *   target: metrics,
+ *   sendingTime: 2023-01-20T10:00:10,
+ *   eventType: transfer,
+ *   count: 982310,
+ *   delay50: 2.1, delay99: 8.4, delay9999: 41.0, delayMax: 96.3,
+ *   handler50: 0.2, handler99: 0.6, handler9999: 4.2, handlerMax: 12.1
+ * }
+ * }</pre>
+ */
+public class Metrics extends AbstractEvent<Metrics> {
+    private String eventType;
+    private long count;
+    private double delay50;
+    private double delay99;
+    private double delay9999;
+    private double delayMax;
+    private double handler50;
+    private double handler99;
+    private double handler9999;
+    private double handlerMax;
+
+    /**
+     * @return the method of the messages, e.g. transfer
+     */
+    public String eventType() {
+        return eventType;
+    }
+
+    public Metrics eventType(String eventType) {
+        this.eventType = eventType;
+        return this;
+    }
+
+    /**
+     * @return the number of messages processed in the interval
+     */
+    public long count() {
+        return count;
+    }
+
+    public Metrics count(long count) {
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * Sets the 50th, 99th and 99.99th percentiles and the maximum of the delay, in microseconds.
+     *
+     * @return this object for method chaining
+     */
+    public Metrics delays(double delay50, double delay99, double delay9999, double delayMax) {
+        this.delay50 = delay50;
+        this.delay99 = delay99;
+        this.delay9999 = delay9999;
+        this.delayMax = delayMax;
+        return this;
+    }
+
+    /**
+     * Sets the 50th, 99th and 99.99th percentiles and the maximum of the handler time, in microseconds.
+     *
+     * @return this object for method chaining
+     */
+    public Metrics handlerTimes(double handler50, double handler99, double handler9999, double handlerMax) {
+        this.handler50 = handler50;
+        this.handler99 = handler99;
+        this.handler9999 = handler9999;
+        this.handlerMax = handlerMax;
+        return this;
+    }
+
+    public double delay50() {
+        return delay50;
+    }
+
+    public double delay99() {
+        return delay99;
+    }
+
+    public double delay9999() {
+        return delay9999;
+    }
+
+    public double delayMax() {
+        return delayMax;
+    }
+
+    public double handler50() {
+        return handler50;
+    }
+
+    public double handler99() {
+        return handler99;
+    }
+
+    public double handler9999() {
+        return handler9999;
+    }
+
+    public double handlerMax() {
+        return handlerMax;
+    }
+}
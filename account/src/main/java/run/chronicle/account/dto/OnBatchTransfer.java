@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import net.openhft.chronicle.wire.converter.NanoTime;
+
+/**
+ * The outcome of a {@link BatchTransfer}, as a bitmap of the transfers which were applied, rather than an event for each.
+ *
+ * <p>The batch is identified by its {@code sendingTime}. The {@code reason} is set if the batch as a whole failed,
+ * e.g. the first transfer of an atomic batch which couldn't be applied, in which case none were.
+ */
+public class OnBatchTransfer extends AbstractEvent<OnBatchTransfer> {
+    @NanoTime
+    private long batchSendingTime;
+    private int count;
+    private int transferred;
+    // a bit per transfer, in the order of the batch, set if it was applied
+    private final Bytes<?> results = Bytes.allocateElasticOnHeap();
+    private String reason;
+
+    /**
+     * @return the sendingTime of the batch
+     */
+    public long batchSendingTime() {
+        return batchSendingTime;
+    }
+
+    public OnBatchTransfer batchSendingTime(long batchSendingTime) {
+        this.batchSendingTime = batchSendingTime;
+        return this;
+    }
+
+    /**
+     * @return the number of transfers in the batch
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the number of transfers which were applied
+     */
+    public int transferred() {
+        return transferred;
+    }
+
+    /**
+     * @return {@code true} if the transfer at {@code index} in the batch was applied
+     */
+    public boolean transferred(int index) {
+        return (results.readUnsignedByte(index >>> 3) & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * Starts the results of a batch of {@code count} transfers, none of which have been applied.
+     *
+     * @return this object for method chaining
+     */
+    public OnBatchTransfer start(int count) {
+        this.count = count;
+        transferred = 0;
+        reason = null;
+        results.clear();
+        for (int i = 0; i < count; i += 8)
+            results.writeUnsignedByte(0);
+        return this;
+    }
+
+    /**
+     * Marks the transfer at {@code index} in the batch as applied.
+     */
+    public void markTransferred(int index) {
+        final long offset = index >>> 3;
+        results.writeUnsignedByte(offset, results.readUnsignedByte(offset) | (1 << (index & 7)));
+        transferred++;
+    }
+
+    /**
+     * The reason the batch as a whole failed, or null.
+     */
+    public String reason() {
+        return reason;
+    }
+
+    /**
+     * Fails the batch as a whole, so none of its transfers are marked as applied.
+     *
+     * @return this object for method chaining
+     */
+    public OnBatchTransfer reason(String reason) {
+        start(count);
+        this.reason = reason;
+        return this;
+    }
+
+    @Override
+    public void validate() throws InvalidMarshallableException {
+        super.validate();
+        if (batchSendingTime == 0)
+            throw new InvalidMarshallableException("batchSendingTime must be set");
+    }
+
+    @Override
+    public boolean usesSelfDescribingMessage() {
+        // use a lower level binary format, not a self-describing message
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.bytes.BytesIn;
+import net.openhft.chronicle.bytes.BytesOut;
+import net.openhft.chronicle.core.io.IORuntimeException;
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+
+/**
+ * An event indicating that a {@link FixedTransfer} has taken place, as {@link OnTransfer} does for a {@link Transfer}.
+ */
+public class OnFixedTransfer extends AbstractEvent<OnFixedTransfer> {
+    static final int MARSHALLABLE_VERSION = 1;
+
+    private FixedTransfer transfer;
+
+    public FixedTransfer transfer() {
+        return transfer;
+    }
+
+    public OnFixedTransfer transfer(FixedTransfer transfer) {
+        this.transfer = transfer;
+        return this;
+    }
+
+    @Override
+    public void validate() throws InvalidMarshallableException {
+        super.validate();
+        if (transfer == null) {
+            throw new InvalidMarshallableException("Invalid OnFixedTransfer event: 'transfer' must not be null.");
+        }
+        transfer.validate();
+    }
+
+    @Override
+    public void writeMarshallable(BytesOut<?> out) {
+        out.writeStopBit(MARSHALLABLE_VERSION);
+        out.writeLong(sender());
+        out.writeLong(target());
+        out.writeLong(sendingTime());
+        transfer.writeMarshallable(out);
+    }
+
+    @Override
+    public void readMarshallable(BytesIn<?> in) {
+        final int version = (int) in.readStopBit();
+        if (version != MARSHALLABLE_VERSION)
+            throw new IORuntimeException("Unsupported version " + version);
+        sender(in.readLong());
+        target(in.readLong());
+        sendingTime(in.readLong());
+        if (transfer == null)
+            transfer = new FixedTransfer();
+        transfer.readMarshallable(in);
+    }
+
+    @Override
+    public boolean usesSelfDescribingMessage() {
+        // use a lower level binary format, not a self-describing message
+        return false;
+    }
+}
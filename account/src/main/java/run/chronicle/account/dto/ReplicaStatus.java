@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.wire.converter.NanoTime;
+
+/**
+ * The index of the last {@code account-in} message a replica of the service applied, published after its results.
+ *
+ * <p>The {@code sender} is the replica, and {@code leader} is set by the replica answering the messages.
+ * A follower applies a message only once the leader's status shows it was applied, and takes over as leader
+ * if it stops hearing from it, see {@code AccountManagerServiceMain}. An idle replica repeats its last status
+ * as a heartbeat.
+ *
+ * <p>Each leader has a {@code term}, higher than that of any leader before it, so the results in {@code account-out}
+ * after a status of a higher term are from the new leader, and an old leader which sees one stops answering.
+ */
+public class ReplicaStatus extends AbstractEvent<ReplicaStatus> {
+    private boolean leader;
+    private long term;
+    private long appliedIndex;
+    @NanoTime
+    private long appliedSendingTime;
+
+    /**
+     * @return {@code true} if the replica writes the results of the messages it applies
+     */
+    public boolean leader() {
+        return leader;
+    }
+
+    public ReplicaStatus leader(boolean leader) {
+        this.leader = leader;
+        return this;
+    }
+
+    /**
+     * @return the term of the leader this replica is, or last followed, 0 if none
+     */
+    public long term() {
+        return term;
+    }
+
+    public ReplicaStatus term(long term) {
+        this.term = term;
+        return this;
+    }
+
+    /**
+     * @return the index of the last message applied, or 0 if none were
+     */
+    public long appliedIndex() {
+        return appliedIndex;
+    }
+
+    public ReplicaStatus appliedIndex(long appliedIndex) {
+        this.appliedIndex = appliedIndex;
+        return this;
+    }
+
+    /**
+     * @return the sendingTime of the last message applied
+     */
+    public long appliedSendingTime() {
+        return appliedSendingTime;
+    }
+
+    public ReplicaStatus appliedSendingTime(long appliedSendingTime) {
+        this.appliedSendingTime = appliedSendingTime;
+        return this;
+    }
+}
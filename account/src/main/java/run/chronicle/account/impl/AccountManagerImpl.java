@@ -15,6 +15,7 @@
  */
 package run.chronicle.account.impl;
 
+import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.InvalidMarshallableException;
 import net.openhft.chronicle.wire.SelfDescribingMarshallable;
 import run.chronicle.account.api.AccountManagerIn;
@@ -28,9 +29,31 @@ import static net.openhft.chronicle.core.time.SystemTimeProvider.CLOCK;
  * This class now primarily orchestrates the handling of events, delegating all
  * domain logic (account validation, fund transfers, currency checks) to the
  * AccountService.
+ *
+ * <p>By default a checkpoint writes every account before the next message is processed.
+ * With {@code -DincrementalCheckpoints} a checkpoint writes only the accounts changed since the last one started,
+ * {@code -DcheckpointChunk} at a time, default 100, each time {@link #continueCheckpoint()} is called between messages.
+ * A transfer to or from an account the checkpoint is still to write has the account written first,
+ * so the checkpoint holds every account as it was when the checkpoint was requested.
+ *
+ * <p>A {@link BatchTransfer} applies each of its transfers as {@link #transfer(Transfer)} would, and reports them
+ * with one {@link OnBatchTransfer}. An atomic batch rolls back the transfers already applied once one fails.
+ *
+ * <p>With {@code -DdedupSeconds=N} a {@link Transfer} or {@link FixedTransfer} with the same sender, sendingTime
+ * and reference as one in the last N seconds is answered as that one was, without applying it again,
+ * see {@link DedupWindow}. {@code -DdedupRate}, default 1,000,000, is the most transfers a second it remembers.
  */
 public class AccountManagerImpl extends SelfDescribingMarshallable implements AccountManagerIn {
-    private final AccountManagerOut out;
+    // Write only the accounts changed since the last checkpoint, over several turns of the event loop
+    static final boolean INCREMENTAL_CHECKPOINTS = Jvm.getBoolean("incrementalCheckpoints");
+    // The most accounts an incremental checkpoint writes per turn
+    static final int CHECKPOINT_CHUNK = Integer.getInteger("checkpointChunk", 100);
+    // How many seconds transfers are remembered for, to answer any sent again, or 0 to apply every transfer
+    static final int DEDUP_SECONDS = Integer.getInteger("dedupSeconds", 0);
+    // The most transfers a second remembered
+    static final int DEDUP_RATE = Integer.getInteger("dedupRate", 1_000_000);
+
+    private AccountManagerOut out;
     private final AccountService accountService;
 
     // Reusable event objects
@@ -38,8 +61,22 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
     private final CreateAccountFailed createAccountFailed = new CreateAccountFailed();
     private final OnTransfer onTransfer = new OnTransfer();
     private final TransferFailed transferFailed = new TransferFailed();
+    private final OnFixedTransfer onFixedTransfer = new OnFixedTransfer();
+    private final FixedTransferFailed fixedTransferFailed = new FixedTransferFailed();
+    private final OnBatchTransfer onBatchTransfer = new OnBatchTransfer();
+    // Each transfer of a batch in turn
+    private final Transfer batchItem = new Transfer();
+    private final CreateAccount checkPointAccount = new CreateAccount();
+    // The incremental checkpoint in progress, if checkpointing
+    private final CheckPoint checkPointInProgress = new CheckPoint();
 
     private long id;
+    private transient DedupWindow dedupWindow = DEDUP_SECONDS > 0 ? new DedupWindow(DEDUP_SECONDS, DEDUP_RATE) : null;
+    private boolean incrementalCheckpoints = INCREMENTAL_CHECKPOINTS;
+    private int checkpointChunk = CHECKPOINT_CHUNK;
+    private boolean checkpointing;
+    // the index to look for the next pending account from
+    private int checkpointFrom;
 
     public AccountManagerImpl(AccountManagerOut out) {
         this(out, new AccountService());
@@ -55,6 +92,33 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
         return this;
     }
 
+    /**
+     * Sets where the results are written, e.g. when a follower which applied messages without answering them
+     * takes over as leader.
+     */
+    public AccountManagerImpl out(AccountManagerOut out) {
+        this.out = out;
+        return this;
+    }
+
+    /**
+     * Sets the window of transfers to answer again rather than apply twice, or null to apply every transfer.
+     */
+    public AccountManagerImpl dedupWindow(DedupWindow dedupWindow) {
+        this.dedupWindow = dedupWindow;
+        return this;
+    }
+
+    public AccountManagerImpl incrementalCheckpoints(boolean incrementalCheckpoints) {
+        this.incrementalCheckpoints = incrementalCheckpoints;
+        return this;
+    }
+
+    public AccountManagerImpl checkpointChunk(int checkpointChunk) {
+        this.checkpointChunk = checkpointChunk;
+        return this;
+    }
+
     @Override
     public void createAccount(CreateAccount createAccount) throws InvalidMarshallableException {
         String failureReason = accountService.tryCreateAccount(createAccount, id);
@@ -67,18 +131,106 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
 
     @Override
     public void transfer(Transfer transfer) {
+        if (dedupWindow != null && dedupWindow.seen(transfer.sender(), transfer.sendingTime(), transfer.reference())) {
+            // sent again, so answered as before, leaving the balances as they are
+            if (dedupWindow.reason() == null) {
+                sendOnTransfer(transfer);
+            } else {
+                sendTransferFailed(transfer, dedupWindow.reason());
+            }
+            return;
+        }
+        if (checkpointing) {
+            // write the accounts as they were before this transfer, if the checkpoint is still to write them
+            sendCheckpointAccount(accountService.takeCheckpointAccount(transfer.from()));
+            sendCheckpointAccount(accountService.takeCheckpointAccount(transfer.to()));
+        }
         try {
             String failureReason = accountService.tryTransfer(transfer, id);
+            record(failureReason);
             if (failureReason == null) {
                 sendOnTransfer(transfer);
             } else {
                 sendTransferFailed(transfer, failureReason);
             }
         } catch (InvalidMarshallableException e) {
+            record(e.getMessage());
             sendTransferFailed(transfer, e.getMessage());
         }
     }
 
+    @Override
+    public void fixedTransfer(FixedTransfer fixedTransfer) {
+        if (dedupWindow != null && dedupWindow.seen(fixedTransfer.sender(), fixedTransfer.sendingTime(), fixedTransfer.reference())) {
+            if (dedupWindow.reason() == null) {
+                sendOnFixedTransfer(fixedTransfer);
+            } else {
+                sendFixedTransferFailed(fixedTransfer, dedupWindow.reason());
+            }
+            return;
+        }
+        if (checkpointing) {
+            sendCheckpointAccount(accountService.takeCheckpointAccount(fixedTransfer.from()));
+            sendCheckpointAccount(accountService.takeCheckpointAccount(fixedTransfer.to()));
+        }
+        try {
+            String failureReason = accountService.tryTransfer(fixedTransfer, id);
+            record(failureReason);
+            if (failureReason == null) {
+                sendOnFixedTransfer(fixedTransfer);
+            } else {
+                sendFixedTransferFailed(fixedTransfer, failureReason);
+            }
+        } catch (InvalidMarshallableException e) {
+            record(e.getMessage());
+            sendFixedTransferFailed(fixedTransfer, e.getMessage());
+        }
+    }
+
+    @Override
+    public void batchTransfer(BatchTransfer batchTransfer) {
+        onBatchTransfer.start(batchTransfer.count());
+        try {
+            batchTransfer.validate();
+        } catch (InvalidMarshallableException e) {
+            sendOnBatchTransfer(batchTransfer, e.getMessage());
+            return;
+        }
+        if (batchTransfer.target() != id) {
+            sendOnBatchTransfer(batchTransfer, "target mismatch");
+            return;
+        }
+
+        final boolean atomic = batchTransfer.atomic();
+        if (atomic)
+            accountService.startBatch();
+        String batchFailed = null;
+        long offset = 0;
+        for (int i = 0, count = batchTransfer.count(); i < count; i++) {
+            offset = batchTransfer.transfer(offset, batchItem);
+            if (checkpointing) {
+                sendCheckpointAccount(accountService.takeCheckpointAccount(batchItem.from()));
+                sendCheckpointAccount(accountService.takeCheckpointAccount(batchItem.to()));
+            }
+            String reason;
+            try {
+                reason = accountService.tryTransfer(batchItem, id);
+            } catch (InvalidMarshallableException e) {
+                reason = e.getMessage();
+            }
+            if (reason == null) {
+                onBatchTransfer.markTransferred(i);
+            } else if (atomic) {
+                accountService.rollbackBatch();
+                batchFailed = "transfer " + i + ": " + reason;
+                break;
+            }
+        }
+        if (atomic)
+            accountService.endBatch();
+        sendOnBatchTransfer(batchTransfer, batchFailed);
+    }
+
     @Override
     public void checkPoint(CheckPoint checkPoint) {
         if (checkPoint.target() != id) {
@@ -86,13 +238,60 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
             return;
         }
 
+        // only one checkpoint is in progress at a time
+        while (continueCheckpoint()) {
+            // finish the last one
+        }
+
         out.startCheckpoint(checkPoint);
-        for (CreateAccount ca : accountService.getAllAccounts().values()) {
-            sendOnCreateAccount(ca);
+        if (incrementalCheckpoints) {
+            accountService.startIncrementalCheckpoint();
+            checkPoint.copyTo(checkPointInProgress);
+            checkpointing = true;
+            checkpointFrom = 0;
+            return;
+        }
+
+        accountService.startFullCheckpoint();
+        for (int i = 0, count = accountService.accountCount(); i < count; i++) {
+            sendOnCreateAccount(accountService.account(i, checkPointAccount));
         }
         out.endCheckpoint(checkPoint);
     }
 
+    /**
+     * Writes the next chunk of the incremental checkpoint in progress, if there is one,
+     * and ends the checkpoint once every account is written. Called by the event loop between messages.
+     *
+     * @return {@code true} if there was a checkpoint in progress
+     */
+    public boolean continueCheckpoint() {
+        if (!checkpointing)
+            return false;
+        for (int i = 0; i < checkpointChunk; i++) {
+            final int index = accountService.nextCheckpointAccount(checkpointFrom);
+            if (index < 0) {
+                checkpointing = false;
+                out.endCheckpoint(checkPointInProgress);
+                break;
+            }
+            sendCheckpointAccount(index);
+            checkpointFrom = index + 1;
+        }
+        return true;
+    }
+
+    // remembers the outcome of the transfer just looked for in the dedup window, if there is one
+    private void record(String failureReason) {
+        if (dedupWindow != null)
+            dedupWindow.record(failureReason);
+    }
+
+    private void sendCheckpointAccount(int index) {
+        if (index >= 0)
+            sendOnCreateAccount(accountService.account(index, checkPointAccount));
+    }
+
     private void sendCreateAccountFailed(CreateAccount createAccount, String reason) {
         out.createAccountFailed(createAccountFailed
                 .sender(id)
@@ -102,7 +301,7 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
                 .reason(reason));
     }
 
-    private void sendOnCreateAccount(CreateAccount createAccount) {
+    void sendOnCreateAccount(CreateAccount createAccount) {
         out.onCreateAccount(onCreateAccount
                 .sender(id)
                 .target(createAccount.sender())
@@ -110,7 +309,7 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
                 .createAccount(createAccount));
     }
 
-    private void sendTransferFailed(Transfer transfer, String reason) {
+    void sendTransferFailed(Transfer transfer, String reason) {
         out.transferFailed(transferFailed
                 .sender(id)
                 .target(transfer.sender())
@@ -119,11 +318,39 @@ public class AccountManagerImpl extends SelfDescribingMarshallable implements Ac
                 .reason(reason));
     }
 
-    private void sendOnTransfer(Transfer transfer) {
+    void sendOnTransfer(Transfer transfer) {
         out.onTransfer(onTransfer
                 .sender(id)
                 .target(transfer.sender())
                 .sendingTime(CLOCK.currentTimeNanos())
                 .transfer(transfer));
     }
+
+    void sendFixedTransferFailed(FixedTransfer transfer, String reason) {
+        out.fixedTransferFailed(fixedTransferFailed
+                .sender(id)
+                .target(transfer.sender())
+                .sendingTime(CLOCK.currentTimeNanos())
+                .transfer(transfer)
+                .reason(reason));
+    }
+
+    void sendOnFixedTransfer(FixedTransfer transfer) {
+        out.onFixedTransfer(onFixedTransfer
+                .sender(id)
+                .target(transfer.sender())
+                .sendingTime(CLOCK.currentTimeNanos())
+                .transfer(transfer));
+    }
+
+    // the results are in onBatchTransfer, unless the batch failed as a whole
+    void sendOnBatchTransfer(BatchTransfer batchTransfer, String reason) {
+        if (reason != null)
+            onBatchTransfer.start(batchTransfer.count()).reason(reason);
+        out.onBatchTransfer(onBatchTransfer
+                .sender(id)
+                .target(batchTransfer.sender())
+                .sendingTime(CLOCK.currentTimeNanos())
+                .batchSendingTime(batchTransfer.sendingTime()));
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Maths;
+import run.chronicle.common.Hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the outcome of each transfer for a window of seconds, keyed on its sender, sendingTime and reference,
+ * so one sent again, e.g. by a client after its gateway reconnects, is answered as before rather than applied twice.
+ *
+ * <p>There is a hash table for each second of sendingTime in the window, plus one, held in {@code long} and
+ * {@code byte} arrays allocated up front, so recording a transfer creates no garbage. A transfer is looked up only
+ * in the table of its own second, and a table is cleared when a transfer from a second one window later arrives,
+ * so anything sent again within the window of the original is found. Each table holds up to {@code perSecond}
+ * transfers, which for 10 seconds at 1M transfers/s is about 200 MB. A second with more transfers than that has
+ * the rest applied without being remembered.
+ *
+ * <p>A transfer is identified by a 64-bit hash of its key, so two different transfers are taken for the same one
+ * only if their hashes collide, which is unlikely with the ten million or so a window might hold.
+ */
+public final class DedupWindow {
+    private static final long SECOND_NANOS = 1_000_000_000L;
+    // the outcomes, of which a failure is FAILED plus the index of its reason
+    private static final byte EMPTY = 0;
+    private static final byte APPLIED = 1;
+    private static final int FAILED = 2;
+    private static final int MAX_REASONS = 256 - FAILED;
+    // the slot of a transfer not to be recorded, as its table is full
+    private static final int FULL = -2;
+
+    private final int tables;
+    private final int slots;
+    private final int maxEntries;
+    private final long[] keys;
+    private final byte[] outcomes;
+    // the second each table holds, and how many transfers it holds
+    private final long[] seconds;
+    private final int[] sizes;
+    private final List<String> reasons = new ArrayList<>();
+
+    // where the last transfer not seen before is to be recorded, if anywhere
+    private int slot = -1;
+    private int table;
+    private long key;
+    // the failure reason of the last transfer seen before, or null if it was applied
+    private String reason;
+    private long unrecorded;
+
+    /**
+     * @param windowSeconds how many seconds after its sendingTime a transfer is remembered for at least
+     * @param perSecond     the most transfers per second of sendingTime to remember
+     */
+    public DedupWindow(int windowSeconds, int perSecond) {
+        if (windowSeconds <= 0 || perSecond <= 0)
+            throw new IllegalArgumentException("windowSeconds and perSecond must be positive");
+        tables = windowSeconds + 1;
+        // no more than three quarters full
+        slots = Maths.nextPower2(perSecond + (perSecond + 2) / 3, 16);
+        maxEntries = slots - slots / 4;
+        if ((long) tables * slots > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("A window of " + windowSeconds + " s at " + perSecond + "/s is too large");
+        keys = new long[tables * slots];
+        outcomes = new byte[tables * slots];
+        seconds = new long[tables];
+        Arrays.fill(seconds, Long.MIN_VALUE);
+        sizes = new int[tables];
+    }
+
+    /**
+     * Looks for a transfer in the window. If it isn't there, the next {@link #record(String)} records it.
+     *
+     * @return {@code true} if the transfer was recorded before, with its outcome in {@link #reason()}
+     */
+    public boolean seen(long sender, long sendingTime, Bytes<?> reference) {
+        slot = -1;
+        final long second = Math.floorDiv(sendingTime, SECOND_NANOS);
+        final int t = (int) Math.floorMod(second, (long) tables);
+        if (seconds[t] != second) {
+            // sent before the window, which isn't remembered
+            if (seconds[t] > second)
+                return false;
+            clear(t, second);
+        }
+        final long hash = hash(sender, sendingTime, reference);
+        final int base = t * slots;
+        final int mask = slots - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            final byte outcome = outcomes[base + i];
+            if (outcome == EMPTY) {
+                if (sizes[t] < maxEntries) {
+                    slot = base + i;
+                    table = t;
+                    key = hash;
+                } else {
+                    slot = FULL;
+                }
+                return false;
+            }
+            if (keys[base + i] == hash) {
+                reason = outcome == APPLIED ? null : reasons.get((outcome & 0xFF) - FAILED);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the failure reason of the transfer last {@link #seen}, or null if it was applied
+     */
+    public String reason() {
+        return reason;
+    }
+
+    /**
+     * Records the outcome of the transfer last looked for, if it wasn't {@link #seen} before.
+     *
+     * @param failureReason why it failed, or null if it was applied
+     */
+    public void record(String failureReason) {
+        if (slot < 0) {
+            if (slot == FULL)
+                unrecorded++;
+            slot = -1;
+            return;
+        }
+        byte outcome = APPLIED;
+        if (failureReason != null) {
+            int i = reasons.indexOf(failureReason);
+            if (i < 0) {
+                // the reasons are a handful of constants, but in case they aren't
+                if (reasons.size() >= MAX_REASONS) {
+                    slot = -1;
+                    unrecorded++;
+                    return;
+                }
+                i = reasons.size();
+                reasons.add(failureReason);
+            }
+            outcome = (byte) (FAILED + i);
+        }
+        keys[slot] = key;
+        outcomes[slot] = outcome;
+        sizes[table]++;
+        slot = -1;
+    }
+
+    /**
+     * @return the number of transfers which weren't recorded, as their second was full
+     */
+    public long unrecorded() {
+        return unrecorded;
+    }
+
+    private void clear(int t, long second) {
+        Arrays.fill(outcomes, t * slots, (t + 1) * slots, EMPTY);
+        sizes[t] = 0;
+        seconds[t] = second;
+    }
+
+    static long hash(long sender, long sendingTime, Bytes<?> reference) {
+        long h = Hashing.mix(sender * 0x9E3779B97F4A7C15L + sendingTime);
+        final long start = reference.readPosition();
+        final long end = reference.readLimit();
+        long i = start;
+        for (; i + Long.BYTES <= end; i += Long.BYTES)
+            h = Hashing.mix(h ^ reference.readLong(i));
+        long tail = 0;
+        for (; i < end; i++)
+            tail = tail << 8 | reference.readUnsignedByte(i);
+        return Hashing.mix(h ^ tail ^ (end - start) << 56);
+    }
+}
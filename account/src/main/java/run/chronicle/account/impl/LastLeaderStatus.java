@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.wire.SelfDescribingMarshallable;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.api.MetricsOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.dto.ReplicaStatus;
+
+import java.util.function.Consumer;
+
+/**
+ * Moves a tailer of {@code account-out} to the last status a leader published, searching back from the end,
+ * so a follower starts from the leader's latest status without reading the history before it.
+ *
+ * <p>A leader publishes a status after the results of each message, and a heartbeat when idle, so only the results
+ * since then are read. If no leader has published a status, the tailer is left at the end.
+ *
+ * <p>This is passed to {@code PipeHandler.subscriptionIndexController}, so it is marshalled to wherever the channel
+ * is served, and has no state.
+ */
+public final class LastLeaderStatus extends SelfDescribingMarshallable implements Consumer<ExcerptTailer> {
+
+    @Override
+    public void accept(ExcerptTailer tailer) {
+        Found found = new Found();
+        MethodReader reader = tailer.direction(TailerDirection.BACKWARD).toEnd()
+                .methodReader(found, Mocker.ignored(AccountManagerOut.class), Mocker.ignored(MetricsOut.class));
+        long index = -1;
+        while (reader.readOne()) {
+            if (found.leader) {
+                index = tailer.lastReadIndex();
+                break;
+            }
+        }
+        tailer.direction(TailerDirection.FORWARD);
+        if (index == -1 || !tailer.moveToIndex(index))
+            tailer.toEnd();
+    }
+
+    private static final class Found implements ReplicationOut {
+        boolean leader;
+
+        @Override
+        public void replicaStatus(ReplicaStatus replicaStatus) {
+            leader |= replicaStatus.leader();
+        }
+    }
+}
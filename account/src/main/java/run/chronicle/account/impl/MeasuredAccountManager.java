@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.MetricsOut;
+import run.chronicle.account.dto.*;
+
+import static net.openhft.chronicle.core.time.SystemTimeProvider.CLOCK;
+
+/**
+ * Records how long each message waited to be dispatched, and how long the account manager took to process it,
+ * in a histogram per type of message, and publishes their percentiles as {@link Metrics} every interval.
+ *
+ * <p>The histograms are allocated up front, and sampling one creates no garbage, so this is always on in the service.
+ * The delay is from the {@code sendingTime} of the message, as a wall clock time, or as a {@link System#nanoTime()}
+ * if it is too small to be a wall clock time, as the benchmark sends.
+ */
+public class MeasuredAccountManager implements AccountManagerIn {
+    private static final long METRICS_ID = ShortTextLongConverter.INSTANCE.parse("metrics");
+    // a sendingTime before this, 1973, is taken to be a System.nanoTime()
+    private static final long WALL_CLOCK_START = 100_000_000_000_000_000L;
+
+    private static final int CREATE_ACCOUNT = 0;
+    private static final int TRANSFER = 1;
+    private static final int FIXED_TRANSFER = 2;
+    private static final int BATCH_TRANSFER = 3;
+    private static final int CHECK_POINT = 4;
+    private static final String[] EVENT_TYPES = {"createAccount", "transfer", "fixedTransfer", "batchTransfer", "checkPoint"};
+
+    private final AccountManagerIn accountManager;
+    private final MetricsOut out;
+    private final long intervalMs;
+    private final Histogram[] delays = new Histogram[EVENT_TYPES.length];
+    private final Histogram[] handlerTimes = new Histogram[EVENT_TYPES.length];
+    private final Metrics metrics = new Metrics();
+    private long id;
+    private long nextPublishMs;
+
+    /**
+     * @param accountManager the account manager the messages are passed to
+     * @param out            where to publish the metrics
+     * @param intervalMs     how often to publish them
+     */
+    public MeasuredAccountManager(AccountManagerIn accountManager, MetricsOut out, long intervalMs) {
+        this.accountManager = accountManager;
+        this.out = out;
+        this.intervalMs = intervalMs;
+        for (int i = 0; i < EVENT_TYPES.length; i++) {
+            delays[i] = new Histogram();
+            handlerTimes[i] = new Histogram();
+        }
+        nextPublishMs = System.currentTimeMillis() + intervalMs;
+    }
+
+    public MeasuredAccountManager id(long id) {
+        this.id = id;
+        return this;
+    }
+
+    @Override
+    public void createAccount(CreateAccount createAccount) throws InvalidMarshallableException {
+        final long start = start(CREATE_ACCOUNT, createAccount.sendingTime());
+        try {
+            accountManager.createAccount(createAccount);
+        } finally {
+            end(CREATE_ACCOUNT, start);
+        }
+    }
+
+    @Override
+    public void transfer(Transfer transfer) throws InvalidMarshallableException {
+        final long start = start(TRANSFER, transfer.sendingTime());
+        try {
+            accountManager.transfer(transfer);
+        } finally {
+            end(TRANSFER, start);
+        }
+    }
+
+    @Override
+    public void fixedTransfer(FixedTransfer fixedTransfer) throws InvalidMarshallableException {
+        final long start = start(FIXED_TRANSFER, fixedTransfer.sendingTime());
+        try {
+            accountManager.fixedTransfer(fixedTransfer);
+        } finally {
+            end(FIXED_TRANSFER, start);
+        }
+    }
+
+    @Override
+    public void batchTransfer(BatchTransfer batchTransfer) {
+        final long start = start(BATCH_TRANSFER, batchTransfer.sendingTime());
+        try {
+            accountManager.batchTransfer(batchTransfer);
+        } finally {
+            end(BATCH_TRANSFER, start);
+        }
+    }
+
+    @Override
+    public void checkPoint(CheckPoint checkPoint) {
+        final long start = start(CHECK_POINT, checkPoint.sendingTime());
+        try {
+            accountManager.checkPoint(checkPoint);
+        } finally {
+            end(CHECK_POINT, start);
+        }
+    }
+
+    /**
+     * Publishes the metrics of each type of message processed since they were last published, if the interval is up,
+     * and starts the next interval.
+     *
+     * @return {@code true} if they were published
+     */
+    public boolean publishIfDue() {
+        final long nowMs = System.currentTimeMillis();
+        if (nowMs < nextPublishMs)
+            return false;
+        nextPublishMs = nowMs + intervalMs;
+        for (int i = 0; i < EVENT_TYPES.length; i++) {
+            final Histogram delay = delays[i];
+            final Histogram handlerTime = handlerTimes[i];
+            if (handlerTime.totalCount() == 0)
+                continue;
+            out.metrics(metrics
+                    .sender(id)
+                    .target(METRICS_ID)
+                    .sendingTime(CLOCK.currentTimeNanos())
+                    .eventType(EVENT_TYPES[i])
+                    .count(handlerTime.totalCount())
+                    .delays(micros(delay, 0.5), micros(delay, 0.99), micros(delay, 0.9999), delay.totalCount() == 0 ? 0 : delay.max() / 1e3)
+                    .handlerTimes(micros(handlerTime, 0.5), micros(handlerTime, 0.99), micros(handlerTime, 0.9999), handlerTime.max() / 1e3));
+            delay.reset();
+            handlerTime.reset();
+        }
+        return true;
+    }
+
+    private long start(int type, long sendingTime) {
+        final long now = System.nanoTime();
+        final long delayNs = sendingTime < WALL_CLOCK_START
+                ? now - sendingTime
+                : CLOCK.currentTimeNanos() - sendingTime;
+        // a clock behind the sender's isn't a delay
+        if (delayNs >= 0)
+            delays[type].sampleNanos(delayNs);
+        return now;
+    }
+
+    private void end(int type, long start) {
+        handlerTimes[type].sampleNanos(System.nanoTime() - start);
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.totalCount() == 0 ? 0 : histogram.percentile(percentile) / 1e3;
+    }
+}
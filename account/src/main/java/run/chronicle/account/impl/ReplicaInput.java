@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.Invocation;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.MarshallableIn;
+import net.openhft.chronicle.wire.NoDocumentContext;
+import net.openhft.chronicle.wire.VanillaMethodReaderBuilder;
+import run.chronicle.account.dto.AbstractEvent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reads the messages of a channel no further than a limit, recording the index and sendingTime of the last one read.
+ *
+ * <p>A follower sets the limit to the last index the leader applied, so it only applies messages the leader has
+ * already answered. A message past the limit is left to be read again once the limit moves on.
+ */
+public class ReplicaInput implements MarshallableIn {
+    private final MarshallableIn in;
+    private long limit = Long.MAX_VALUE;
+    private long lastIndex;
+    private long lastSendingTime;
+
+    public ReplicaInput(MarshallableIn in) {
+        this.in = in;
+    }
+
+    /**
+     * Sets the index of the last message which can be read.
+     *
+     * @return this object for method chaining
+     */
+    public ReplicaInput limit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @return the index of the last message read, or 0 if none were
+     */
+    public long lastIndex() {
+        return lastIndex;
+    }
+
+    /**
+     * @return the sendingTime of the last message read
+     */
+    public long lastSendingTime() {
+        return lastSendingTime;
+    }
+
+    @Override
+    public DocumentContext readingDocument() {
+        final DocumentContext dc = in.readingDocument();
+        if (dc.isPresent()) {
+            final long index = dc.index();
+            if (index > limit) {
+                // leave it to be read once the limit has moved on
+                dc.rollbackOnClose();
+                dc.close();
+                return NoDocumentContext.INSTANCE;
+            }
+            lastIndex = index;
+        }
+        return dc;
+    }
+
+    @Override
+    public VanillaMethodReaderBuilder methodReaderBuilder() {
+        return new VanillaMethodReaderBuilder(this)
+                .methodReaderInterceptorReturns(this::intercept);
+    }
+
+    private Object intercept(Method method, Object o, Object[] args, Invocation invocation) throws InvocationTargetException {
+        if (args.length > 0 && args[0] instanceof AbstractEvent)
+            lastSendingTime = ((AbstractEvent<?>) args[0]).sendingTime();
+        return invocation.invoke(method, o, args);
+    }
+}
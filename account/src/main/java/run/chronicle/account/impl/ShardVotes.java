@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.io.ClosedIllegalStateException;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.io.QueryCloseable;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.DocumentContext;
+
+/**
+ * The votes each shard of a {@link ShardedAccountManager} casts on the input messages which involve other shards,
+ * so they reach the same outcome as a single service would.
+ *
+ * <p>Each shard appends its votes to its own queue, as the index of the input message and the reason it failed,
+ * if it did, and reads the votes of the other shards from theirs. As every shard reads the input in the same order,
+ * each queue holds votes in increasing input index, and a vote another shard is not waiting for is skipped.
+ *
+ * <p>The votes only coordinate one run over the input, so the queues are deleted by {@link #deleteVotes(String)}
+ * before the shards start.
+ *
+ * <p><strong>Note:</strong> An instance is used by one shard's thread.
+ */
+public final class ShardVotes implements Closeable {
+    private final int shard;
+    private final QueryCloseable service;
+    private final ChronicleQueue[] queues;
+    private final ExcerptAppender appender;
+    private final ExcerptTailer[] tailers;
+    private final Pauser pauser = Pauser.balanced();
+    private final Bytes<?> reason = Bytes.allocateElasticOnHeap(64);
+    private boolean closed;
+
+    /**
+     * Opens the vote queues of {@code shards} shards under {@code path}, to cast the votes of {@code shard}.
+     *
+     * @param service stops a shard waiting for a vote once it is closed
+     */
+    public ShardVotes(String path, int shard, int shards, QueryCloseable service) {
+        this.shard = shard;
+        this.service = service;
+        queues = new ChronicleQueue[shards];
+        tailers = new ExcerptTailer[shards];
+        for (int i = 0; i < shards; i++) {
+            queues[i] = ChronicleQueue.single(path + "/shard-" + i);
+            if (i != shard)
+                tailers[i] = queues[i].createTailer();
+        }
+        appender = queues[shard].createAppender();
+    }
+
+    /**
+     * Deletes the vote queues under {@code path}, before the shards start.
+     */
+    public static void deleteVotes(String path) {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    /**
+     * Casts this shard's vote on the input message at {@code index}.
+     *
+     * @param reason the reason the message failed on this shard, or null if it succeeded
+     */
+    public void vote(long index, String reason) {
+        try (DocumentContext dc = appender.writingDocument()) {
+            Bytes<?> bytes = dc.wire().bytes();
+            bytes.writeLong(index);
+            bytes.writeBoolean(reason == null);
+            if (reason != null)
+                bytes.writeUtf8(reason);
+        }
+    }
+
+    /**
+     * Waits for the vote of another shard on the input message at {@code index}.
+     *
+     * @return the reason the message failed on that shard, or null if it succeeded
+     * @throws ClosedIllegalStateException if the service is closed while waiting
+     */
+    public String await(int from, long index) {
+        final ExcerptTailer tailer = tailers[from];
+        while (true) {
+            if (service.isClosed())
+                throw new ClosedIllegalStateException("Closed while waiting for shard " + from);
+            try (DocumentContext dc = tailer.readingDocument()) {
+                if (!dc.isPresent()) {
+                    pauser.pause();
+                    continue;
+                }
+                pauser.reset();
+                Bytes<?> bytes = dc.wire().bytes();
+                final long voted = bytes.readLong();
+                if (voted < index)
+                    continue;
+                if (voted > index)
+                    throw new IllegalStateException("shard " + from + " didn't vote on " + Long.toHexString(index) + " for shard " + shard);
+                if (bytes.readBoolean())
+                    return null;
+                // only failures are decoded, and they are rare
+                bytes.readUtf8(reason);
+                return reason.toString();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        Closeable.closeQuietly((Object[]) queues);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+}
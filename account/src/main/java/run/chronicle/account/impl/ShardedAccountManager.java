@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.core.io.InvalidMarshallableException;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.dto.BatchTransfer;
+import run.chronicle.account.dto.CheckPoint;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.FixedTransfer;
+import run.chronicle.account.dto.Transfer;
+import run.chronicle.common.Hashing;
+
+import java.util.function.LongSupplier;
+
+/**
+ * One shard of an account manager whose accounts are partitioned by account number, see {@link #shardOf(long, int)}.
+ * Every shard reads all the input, on its own thread, and acts on the messages for its accounts.
+ *
+ * <p>A transfer between two accounts of the same shard completes locally, as in {@link AccountManagerImpl}.
+ * A transfer between shards is decided by both, using {@link ShardVotes}:
+ * <ol>
+ *     <li>the {@code from} shard checks the transfer and the {@code from} account, and votes on the outcome,</li>
+ *     <li>the {@code to} shard waits for that vote and, if it passed, checks the {@code to} account and votes,</li>
+ *     <li>each shard applies its half, the debit or the credit, only if both passed,
+ *     and the {@code from} shard reports the outcome.</li>
+ * </ol>
+ * Neither shard moves on until the outcome is known, so each decides every message on the same balances
+ * a single service would, and the accounts end up the same as a single-threaded replay of the input.
+ *
+ * <p>A {@link BatchTransfer} is not split across shards, so shard 0 fails it as a whole.
+ *
+ * <p>A checkpoint lists the accounts shard by shard, each shard writing its own on its own thread, in turn.
+ * Every other shard votes once it reaches the checkpoint message, having answered the messages before it,
+ * and shard 0 waits for them all before starting it. Each later shard waits for the vote of the one before that its
+ * accounts are written, and the last shard ends it. No shard moves on until the checkpoint has ended, so it holds
+ * every account as it was at the checkpoint message, and no other results are written between its start and end.
+ *
+ * <p>The votes are keyed by the index of the input message being processed, e.g. {@code tailer::lastReadIndex}.
+ */
+public class ShardedAccountManager implements AccountManagerIn {
+    private final int shard;
+    private final AccountService[] accountServices;
+    private final AccountService accountService;
+    private final AccountManagerImpl local;
+    private final AccountManagerOut out;
+    private final ShardVotes votes;
+    private final LongSupplier inputIndex;
+    private final CreateAccount checkPointAccount = new CreateAccount();
+
+    private long id;
+
+    /**
+     * @param shard           this shard
+     * @param accountServices the accounts of every shard, of which this shard only uses its own
+     * @param out             where this shard's results are written
+     * @param votes           the votes of this shard, and those of the other shards
+     * @param inputIndex      the index of the input message being processed
+     */
+    public ShardedAccountManager(int shard, AccountService[] accountServices, AccountManagerOut out, ShardVotes votes, LongSupplier inputIndex) {
+        this.shard = shard;
+        this.accountServices = accountServices;
+        this.accountService = accountServices[shard];
+        this.local = new AccountManagerImpl(out, accountService);
+        this.out = out;
+        this.votes = votes;
+        this.inputIndex = inputIndex;
+    }
+
+    /**
+     * @return the shard which holds this account, out of {@code shards}
+     */
+    public static int shardOf(long account, int shards) {
+        return (int) ((Hashing.mix(account) & Long.MAX_VALUE) % shards);
+    }
+
+    public ShardedAccountManager id(long id) {
+        this.id = id;
+        local.id(id);
+        return this;
+    }
+
+    @Override
+    public void createAccount(CreateAccount createAccount) throws InvalidMarshallableException {
+        if (shardOf(createAccount.account()) == shard)
+            local.createAccount(createAccount);
+    }
+
+    @Override
+    public void transfer(Transfer transfer) {
+        final int from = shardOf(transfer.from());
+        final int to = shardOf(transfer.to());
+        if (from == shard && to == shard)
+            local.transfer(transfer);
+        else if (from == shard)
+            debit(transfer, to);
+        else if (to == shard)
+            credit(transfer, from);
+    }
+
+    @Override
+    public void fixedTransfer(FixedTransfer fixedTransfer) {
+        final int from = shardOf(fixedTransfer.from());
+        final int to = shardOf(fixedTransfer.to());
+        if (from == shard && to == shard)
+            local.fixedTransfer(fixedTransfer);
+        else if (from == shard)
+            debit(fixedTransfer, to);
+        else if (to == shard)
+            credit(fixedTransfer, from);
+    }
+
+    @Override
+    public void batchTransfer(BatchTransfer batchTransfer) {
+        if (shard == 0)
+            local.sendOnBatchTransfer(batchTransfer, "batch transfers are not supported with shards");
+    }
+
+    @Override
+    public void checkPoint(CheckPoint checkPoint) {
+        if (checkPoint.target() != id) {
+            // Ignoring checkpoint as target does not match
+            return;
+        }
+        final long index = inputIndex.getAsLong();
+        final int last = accountServices.length - 1;
+        if (shard == 0) {
+            // every other shard has answered the messages before the checkpoint
+            for (int i = 1; i <= last; i++)
+                votes.await(i, index);
+            out.startCheckpoint(checkPoint);
+        } else {
+            votes.vote(index, null);
+            // the shard before has written its accounts, after its vote on reaching the checkpoint if it cast one
+            awaitVotes(shard - 1, index, shard - 1 == 0 ? 1 : 2);
+        }
+        for (int i = 0, count = accountService.accountCount(); i < count; i++)
+            local.sendOnCreateAccount(accountService.account(i, checkPointAccount));
+        if (shard == last)
+            out.endCheckpoint(checkPoint);
+        votes.vote(index, null);
+        // hold until the checkpoint has ended, shard 0 having already read the last shard's first vote
+        if (shard != last)
+            awaitVotes(last, index, shard == 0 ? 1 : 2);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedAccountManager{shard=" + shard + " of " + accountServices.length + ", accounts=" + accountService.accountCount() + '}';
+    }
+
+    // the from side of a transfer between shards, which reports the outcome
+    private void debit(Transfer transfer, int to) {
+        String reason;
+        try {
+            reason = accountService.checkDebit(transfer, id);
+        } catch (InvalidMarshallableException e) {
+            reason = String.valueOf(e.getMessage());
+        }
+        final long index = inputIndex.getAsLong();
+        votes.vote(index, reason);
+        if (reason == null)
+            reason = votes.await(to, index);
+
+        if (reason == null) {
+            accountService.debit(transfer);
+            local.sendOnTransfer(transfer);
+        } else {
+            local.sendTransferFailed(transfer, reason);
+        }
+    }
+
+    // the to side of a transfer between shards, which only votes if the from side passed
+    private void credit(Transfer transfer, int from) {
+        final long index = inputIndex.getAsLong();
+        if (votes.await(from, index) != null)
+            return;
+        final String reason = accountService.checkCredit(transfer);
+        votes.vote(index, reason);
+        if (reason == null)
+            accountService.credit(transfer);
+    }
+
+    // the from side of a transfer of units between shards
+    private void debit(FixedTransfer transfer, int to) {
+        String reason;
+        try {
+            reason = accountService.checkDebit(transfer, id);
+        } catch (InvalidMarshallableException e) {
+            reason = String.valueOf(e.getMessage());
+        }
+        final long index = inputIndex.getAsLong();
+        votes.vote(index, reason);
+        if (reason == null)
+            reason = votes.await(to, index);
+
+        if (reason == null) {
+            accountService.debit(transfer);
+            local.sendOnFixedTransfer(transfer);
+        } else {
+            local.sendFixedTransferFailed(transfer, reason);
+        }
+    }
+
+    // the to side of a transfer of units between shards
+    private void credit(FixedTransfer transfer, int from) {
+        final long index = inputIndex.getAsLong();
+        if (votes.await(from, index) != null)
+            return;
+        final String reason = accountService.checkCredit(transfer);
+        votes.vote(index, reason);
+        if (reason == null)
+            accountService.credit(transfer);
+    }
+
+    // the last of the votes another shard casts on the input message at index
+    private void awaitVotes(int from, long index, int count) {
+        for (int i = 0; i < count; i++)
+            votes.await(from, index);
+    }
+
+    private int shardOf(long account) {
+        return shardOf(account, accountServices.length);
+    }
+}
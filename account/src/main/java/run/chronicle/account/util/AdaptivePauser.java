@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.util;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.threads.Pauser;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Pauser} which spins while messages are arriving often enough for the next one to be worth waiting for,
+ * and parks otherwise, trading CPU for latency as the rate of messages changes.
+ *
+ * <p>It keeps a moving average of the time between calls to {@link #reset()}, i.e. between the messages processed.
+ * If that is no more than {@code -DadaptiveSpinUs}, default 100 us, it spins for twice the average, or a quarter of
+ * that limit if longer, before parking. Otherwise it parks straight away. Parking starts at {@value #MIN_PARK_NS} ns,
+ * and grows with the time idle up to {@code -DadaptiveParkUs}, default 1000 us, which bounds the delay before
+ * a message after a quiet spell.
+ */
+public class AdaptivePauser implements Pauser {
+    // The longest gap between messages worth spinning for
+    static final long SPIN_NS = Long.getLong("adaptiveSpinUs", 100) * 1_000;
+    // The longest to park for at a time
+    static final long PARK_NS = Long.getLong("adaptiveParkUs", 1_000) * 1_000;
+    static final long MIN_PARK_NS = 10_000;
+
+    private final long spinNs;
+    private final long parkNs;
+    private long lastWorkNs = System.nanoTime();
+    // a moving average of the time between messages, which starts as if they are infrequent
+    private long meanGapNs;
+    private long pausedSinceNs;
+    private long timePausedNs;
+    private long countPaused;
+    private volatile Thread pausing;
+
+    public AdaptivePauser() {
+        this(SPIN_NS, PARK_NS);
+    }
+
+    /**
+     * @param spinNs the longest gap between messages worth spinning for
+     * @param parkNs the longest to park for at a time
+     */
+    public AdaptivePauser(long spinNs, long parkNs) {
+        this.spinNs = spinNs;
+        this.parkNs = Math.max(MIN_PARK_NS, parkNs);
+        this.meanGapNs = this.parkNs;
+    }
+
+    @Override
+    public void reset() {
+        reset(System.nanoTime());
+    }
+
+    void reset(long nowNs) {
+        if (pausedSinceNs != 0) {
+            timePausedNs += nowNs - pausedSinceNs;
+            pausedSinceNs = 0;
+        }
+        // an average over the last eight or so messages
+        meanGapNs += (nowNs - lastWorkNs - meanGapNs) >> 3;
+        lastWorkNs = nowNs;
+    }
+
+    @Override
+    public void pause() {
+        final long nowNs = System.nanoTime();
+        if (pausedSinceNs == 0) {
+            pausedSinceNs = nowNs;
+            countPaused++;
+        }
+        final long park = parkNanos(nowNs);
+        if (park == 0) {
+            Jvm.nanoPause();
+            return;
+        }
+        pausing = Thread.currentThread();
+        LockSupport.parkNanos(this, park);
+        pausing = null;
+    }
+
+    /**
+     * @return how long to park for, having been idle since the last message until {@code nowNs}, or 0 to spin
+     */
+    long parkNanos(long nowNs) {
+        final long idleNs = nowNs - lastWorkNs;
+        // at least a quarter of the spin time, as after a backlog the gaps were the time to process each message
+        final long spin = meanGapNs <= spinNs ? Math.max(2 * meanGapNs, spinNs >> 2) : 0;
+        if (idleNs < spin)
+            return 0;
+        // a quarter of the time idle, so the longer it is quiet, the less CPU it uses
+        return Math.min(parkNs, Math.max(MIN_PARK_NS, (idleNs - spin) >> 2));
+    }
+
+    @Override
+    public void unpause() {
+        final Thread thread = pausing;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return the time spent pausing, in milliseconds
+     */
+    @Override
+    public long timePaused() {
+        return timePausedNs / 1_000_000;
+    }
+
+    @Override
+    public long countPaused() {
+        return countPaused;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptivePauser{spinNs=" + spinNs + ", parkNs=" + parkNs + ", meanGapNs=" + meanGapNs + '}';
+    }
+}
@@ -91,6 +91,36 @@ public class LogsAccountManagerOut implements AccountManagerOut {
         Jvm.warn().on(getClass(), "transferFailed " + transferFailed);
     }
 
+    /**
+     * Logs a successful transfer of units.
+     *
+     * @param onFixedTransfer The event confirming that a transfer of units has completed successfully.
+     */
+    @Override
+    public void onFixedTransfer(OnFixedTransfer onFixedTransfer) {
+        Jvm.debug().on(getClass(), "onFixedTransfer " + onFixedTransfer);
+    }
+
+    /**
+     * Logs a failed transfer of units.
+     *
+     * @param fixedTransferFailed The event detailing why a transfer of units failed.
+     */
+    @Override
+    public void fixedTransferFailed(FixedTransferFailed fixedTransferFailed) {
+        Jvm.warn().on(getClass(), "fixedTransferFailed " + fixedTransferFailed);
+    }
+
+    /**
+     * Logs the outcome of a batch of transfers.
+     *
+     * @param onBatchTransfer The event recording which transfers of a batch were applied.
+     */
+    @Override
+    public void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+        Jvm.debug().on(getClass(), "onBatchTransfer " + onBatchTransfer);
+    }
+
     /**
      * Logs a critical JVM-level error event.
      *
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.util;
+
+import net.openhft.chronicle.bytes.Invocation;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.ClosedIORuntimeException;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.MarshallableIn;
+import net.openhft.chronicle.wire.VanillaMethodReaderBuilder;
+import net.openhft.chronicle.wire.Wire;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.api.MetricsOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.dto.AbstractEvent;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the events of a queue on one thread, and writes each to the channels subscribed to its {@code target},
+ * or to every channel if it has none, for the {@link TargetedPipeHandler}s subscribed to the queue in this process.
+ *
+ * <p>Each event is read with a method reader, as its DTO alone knows whether it is self-describing or compact,
+ * and copied as it was written, while its document is still open, to the channels for the target of the DTO.
+ * The DTOs are reused, so this creates no garbage.
+ *
+ * <p>A dispatcher starts at the end of the queue when the first channel subscribes, and stops when the last one
+ * unsubscribes. Finding the channels for a target is a binary search of a sorted array, replaced as a whole when
+ * one subscribes or unsubscribes, so dispatching takes no locks. A channel slow to send its
+ * events holds back the others, as the dispatcher waits to write to it.
+ */
+@SuppressWarnings("deprecation")
+final class TargetDispatcher implements MarshallableIn, Runnable {
+    private static final Map<File, TargetDispatcher> DISPATCHERS = new HashMap<>();
+    // the target of an event without one, which every channel is sent
+    private static final long NO_TARGET = 0;
+
+    private final File file;
+    private final ChronicleQueue queue;
+    private final ExcerptTailer tailer;
+    private final MethodReader reader;
+    private volatile Subscribers subscribers = new Subscribers(new long[0], new net.openhft.chronicle.wire.channel.ChronicleChannel[0]);
+    private volatile boolean closed;
+    // the document being read, and where it starts
+    private Wire wire;
+    private long start;
+
+    private TargetDispatcher(File file) {
+        this.file = file;
+        queue = ChronicleQueue.singleBuilder(file).build();
+        // only the events after the first channel subscribed
+        tailer = queue.createTailer().toEnd();
+        tailer.singleThreadedCheckDisabled(true);
+        reader = methodReader(Mocker.ignored(AccountManagerOut.class, ReplicationOut.class, MetricsOut.class));
+    }
+
+    /**
+     * Subscribes a channel to the events for a target in a queue, starting a dispatcher for the queue if there isn't one.
+     *
+     * @return the dispatcher to {@link #unsubscribe} from
+     */
+    static TargetDispatcher subscribe(File file, long target, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        synchronized (DISPATCHERS) {
+            TargetDispatcher dispatcher = DISPATCHERS.get(file.getAbsoluteFile());
+            if (dispatcher == null) {
+                dispatcher = new TargetDispatcher(file.getAbsoluteFile());
+                DISPATCHERS.put(dispatcher.file, dispatcher);
+                Thread thread = new Thread(dispatcher, "dispatcher~" + file.getName());
+                thread.setDaemon(true);
+                thread.start();
+            }
+            dispatcher.add(target, channel);
+            return dispatcher;
+        }
+    }
+
+    void unsubscribe(long target, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        synchronized (DISPATCHERS) {
+            remove(target, channel);
+            if (subscribers.targets.length == 0) {
+                DISPATCHERS.remove(file);
+                closed = true;
+            }
+        }
+    }
+
+    private void add(long target, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        final long[] targets = subscribers.targets;
+        final net.openhft.chronicle.wire.channel.ChronicleChannel[] channels = subscribers.channels;
+        int i = insertionPoint(targets, target);
+        long[] targets2 = new long[targets.length + 1];
+        net.openhft.chronicle.wire.channel.ChronicleChannel[] channels2 = Arrays.copyOf(channels, channels.length + 1);
+        System.arraycopy(targets, 0, targets2, 0, i);
+        System.arraycopy(targets, i, targets2, i + 1, targets.length - i);
+        System.arraycopy(channels, i, channels2, i + 1, channels.length - i);
+        targets2[i] = target;
+        channels2[i] = channel;
+        subscribers = new Subscribers(targets2, channels2);
+    }
+
+    private void remove(long target, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        final long[] targets = subscribers.targets;
+        final net.openhft.chronicle.wire.channel.ChronicleChannel[] channels = subscribers.channels;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] != target || channels[i] != channel)
+                continue;
+            long[] targets2 = new long[targets.length - 1];
+            net.openhft.chronicle.wire.channel.ChronicleChannel[] channels2 = Arrays.copyOf(channels, channels.length - 1);
+            System.arraycopy(targets, 0, targets2, 0, i);
+            System.arraycopy(targets, i + 1, targets2, i, targets2.length - i);
+            System.arraycopy(channels, i + 1, channels2, i, channels2.length - i);
+            subscribers = new Subscribers(targets2, channels2);
+            return;
+        }
+    }
+
+    // the index of the first target no less than this one
+    private static int insertionPoint(long[] targets, long target) {
+        int low = 0, high = targets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (targets[mid] < target)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    @Override
+    public void run() {
+        Pauser pauser = Pauser.balanced();
+        try {
+            while (!closed) {
+                if (dispatchOne())
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (Throwable t) {
+            Jvm.warn().on(TargetDispatcher.class, "Stopped dispatching " + file, t);
+        } finally {
+            tailer.close();
+            queue.close();
+        }
+    }
+
+    boolean dispatchOne() {
+        return reader.readOne();
+    }
+
+    @Override
+    public DocumentContext readingDocument() {
+        final DocumentContext dc = tailer.readingDocument();
+        if (dc.isPresent()) {
+            wire = dc.wire();
+            start = wire.bytes().readPosition();
+        }
+        return dc;
+    }
+
+    @Override
+    public VanillaMethodReaderBuilder methodReaderBuilder() {
+        return new VanillaMethodReaderBuilder(this)
+                .methodReaderInterceptorReturns(this::dispatch);
+    }
+
+    // called with the event read, instead of the handler, while its document is open
+    private Object dispatch(Method method, Object o, Object[] args, Invocation invocation) {
+        final long target = args.length > 0 && args[0] instanceof AbstractEvent
+                ? ((AbstractEvent<?>) args[0]).target()
+                : NO_TARGET;
+        final Subscribers subscribers = this.subscribers;
+        final long[] targets = subscribers.targets;
+        final net.openhft.chronicle.wire.channel.ChronicleChannel[] channels = subscribers.channels;
+        if (target == NO_TARGET) {
+            for (net.openhft.chronicle.wire.channel.ChronicleChannel channel : channels)
+                copy(wire, start, channel);
+        } else {
+            for (int i = insertionPoint(targets, target); i < targets.length && targets[i] == target; i++)
+                copy(wire, start, channels[i]);
+        }
+        return null;
+    }
+
+    private static void copy(Wire wire, long start, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        wire.bytes().readPosition(start);
+        try (DocumentContext dc = channel.writingDocument()) {
+            wire.copyTo(dc.wire());
+        } catch (ClosedIORuntimeException ignored) {
+            // the client disconnected, and is about to unsubscribe
+        }
+    }
+
+    // the channels subscribed, in order of their targets
+    private static final class Subscribers {
+        final long[] targets;
+        final net.openhft.chronicle.wire.channel.ChronicleChannel[] channels;
+
+        Subscribers(long[] targets, net.openhft.chronicle.wire.channel.ChronicleChannel[] channels) {
+            this.targets = targets;
+            this.channels = channels;
+        }
+    }
+}
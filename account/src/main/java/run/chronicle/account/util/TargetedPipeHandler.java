@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.account.util;
+
+import net.openhft.chronicle.core.io.ClosedIORuntimeException;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.channel.PipeHandler;
+import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import net.openhft.chronicle.wire.channel.AbstractHandler;
+import net.openhft.chronicle.wire.channel.ChronicleChannelCfg;
+import net.openhft.chronicle.wire.channel.ChronicleContext;
+import net.openhft.chronicle.wire.converter.ShortText;
+
+/**
+ * Like a {@link PipeHandler}, publishes the messages of a client to one queue, and sends it the events of another,
+ * but only those addressed to the client's {@code target}, or to no one in particular, e.g. a {@code jvmError}.
+ *
+ * <p>The events are read once in the gateway for all the clients subscribed to a queue, by a {@link TargetDispatcher},
+ * rather than once for each client, so the cost of the fan out is that of the events each client receives rather
+ * than the number of clients times all the events. A client may send many requests before the first is answered,
+ * matching the answers to them by their {@code sendingTime}.
+ *
+ * <p>Unlike a {@link PipeHandler}, a client receives only the events after it connects, rather than the whole queue.
+ * In the same process, with {@code internal://}, there is no gateway, and the client receives every event,
+ * as with a {@link PipeHandler}.
+ */
+@SuppressWarnings("deprecation")
+public class TargetedPipeHandler extends AbstractHandler<TargetedPipeHandler> {
+    private String publish;
+    private String subscribe;
+    @ShortText
+    private long target;
+
+    public String publish() {
+        return publish;
+    }
+
+    public TargetedPipeHandler publish(String publish) {
+        this.publish = publish;
+        return this;
+    }
+
+    public String subscribe() {
+        return subscribe;
+    }
+
+    public TargetedPipeHandler subscribe(String subscribe) {
+        this.subscribe = subscribe;
+        return this;
+    }
+
+    public long target() {
+        return target;
+    }
+
+    /**
+     * @param target the {@code target} of the events to receive, usually the {@code sender} of the client's requests
+     */
+    public TargetedPipeHandler target(long target) {
+        this.target = target;
+        return this;
+    }
+
+    public TargetedPipeHandler target(String target) {
+        return target(ShortTextLongConverter.INSTANCE.parse(target));
+    }
+
+    @Override
+    public void run(ChronicleContext context, net.openhft.chronicle.wire.channel.ChronicleChannel channel) {
+        TargetDispatcher dispatcher = TargetDispatcher.subscribe(context.toFile(subscribe), target, channel);
+        Pauser pauser = Pauser.balanced();
+        try (ChronicleQueue queue = ChronicleQueue.singleBuilder(context.toFile(publish)).build();
+             ExcerptAppender appender = queue.createAppender()) {
+            while (!channel.isClosing()) {
+                if (copyOneMessage(channel, appender))
+                    pauser.reset();
+                else
+                    pauser.pause();
+            }
+        } catch (ClosedIORuntimeException ignored) {
+            // the client disconnected
+        } finally {
+            dispatcher.unsubscribe(target, channel);
+        }
+    }
+
+    private static boolean copyOneMessage(net.openhft.chronicle.wire.channel.ChronicleChannel channel, ExcerptAppender appender) {
+        try (DocumentContext dc = channel.readingDocument()) {
+            if (!dc.isPresent())
+                return false;
+            if (dc.isMetaData())
+                return true;
+            try (DocumentContext dc2 = appender.writingDocument()) {
+                dc.wire().copyTo(dc2.wire());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public net.openhft.chronicle.wire.channel.ChronicleChannel asInternalChannel(ChronicleContext context, ChronicleChannelCfg<?> channelCfg) {
+        return new PipeHandler().publish(publish).subscribe(subscribe).asInternalChannel(context, channelCfg);
+    }
+}
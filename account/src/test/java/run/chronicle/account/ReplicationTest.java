@@ -0,0 +1,325 @@
+package run.chronicle.account;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.channel.PipeHandler;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import net.openhft.chronicle.wire.channel.ChronicleContext;
+import net.openhft.chronicle.wire.channel.impl.internal.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.dto.*;
+import run.chronicle.account.impl.AccountManagerImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("deprecation")
+class ReplicationTest {
+    private static final long LEADER_ID = ShortTextLongConverter.INSTANCE.parse("leader");
+    private static final long FOLLOWER_ID = ShortTextLongConverter.INSTANCE.parse("follower");
+    private static final int ACCOUNTS = 4;
+
+    static {
+        Handler.init();
+    }
+
+    // the failover clock only moves when the test moves it
+    private final SetTimeProvider clock = new SetTimeProvider(SystemTimeProvider.INSTANCE.currentTimeNanos());
+
+    @BeforeEach
+    void setUp() {
+        deleteQueues();
+        SystemTimeProvider.CLOCK = clock;
+    }
+
+    @AfterEach
+    void tearDown() {
+        SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
+        deleteQueues();
+    }
+
+    private static void deleteQueues() {
+        IOTools.deleteDirWithFiles("account-in");
+        IOTools.deleteDirWithFiles("account-out");
+        IOTools.deleteDirWithFiles("account-terms");
+    }
+
+    @Test
+    void followerTakesOverWithoutLosingOrRepeatingTransfers() throws InterruptedException {
+        AccountManagerServiceMain leader = new AccountManagerServiceMain("leader", 200);
+        AccountManagerServiceMain follower = new AccountManagerServiceMain("follower", 200);
+        Thread leaderThread = new Thread(leader, "leader");
+        Thread followerThread = new Thread(follower, "follower");
+        leaderThread.start();
+        followerThread.start();
+
+        Recorder recorder = new Recorder();
+        try (ChronicleContext context = ChronicleContext.newContext("internal://")) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            AccountManagerIn in = channel.methodWriter(AccountManagerIn.class);
+            MethodReader reader = channel.methodReader(recorder);
+
+            long time = 1;
+            for (int i = 1; i <= ACCOUNTS; i++)
+                AccountManagerClientMain.createAccount(in, time++, i, false);
+            Transfer transfer = new Transfer();
+            // includes transfers from an account which doesn't exist, which fail
+            for (int i = 0; i < 100; i++)
+                AccountManagerClientMain.transfer(in, time++, transfer, 1 + i % (ACCOUNTS + 1), 1 + (i + 1) % ACCOUNTS, false);
+            final long caughtUp = time - 1;
+            readUntil(reader, () -> recorder.followerApplied == caughtUp);
+            assertThat(follower.isLeader()).isFalse();
+
+            // the leader stops, and transfers arrive before and after the follower takes over
+            leader.close();
+            leaderThread.join();
+            for (int i = 0; i < 50; i++)
+                AccountManagerClientMain.transfer(in, time++, transfer, 1 + i % (ACCOUNTS + 1), 1 + (i + 1) % ACCOUNTS, false);
+            assertThat(follower.isLeader()).isFalse();
+            clock.advanceMillis(1_000);
+            for (int i = 50; i < 100; i++)
+                AccountManagerClientMain.transfer(in, time++, transfer, 1 + i % (ACCOUNTS + 1), 1 + (i + 1) % ACCOUNTS, false);
+            AccountManagerClientMain.checkPoint(in, time++, new CheckPoint());
+            readUntil(reader, () -> recorder.events.contains("endCheckpoint"));
+            assertThat(follower.isLeader()).isTrue();
+            readUntil(reader, () -> recorder.terms.size() == 2);
+        } finally {
+            leader.close();
+            follower.close();
+            leaderThread.join();
+            followerThread.join();
+        }
+
+        assertAnsweredOnceByEachTerm(recorder);
+    }
+
+    @Test
+    void followerInAnotherProcessTakesOver() throws Exception {
+        // the follower's clock is its own, so the leader's heartbeats run on the real clock too
+        SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
+        AccountManagerServiceMain leader = new AccountManagerServiceMain("leader", 2_000);
+        Thread leaderThread = new Thread(leader, "leader");
+        leaderThread.start();
+        Process follower = startFollower(2_000);
+
+        Recorder recorder = new Recorder();
+        try (ChronicleContext context = ChronicleContext.newContext("internal://")) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            AccountManagerIn in = channel.methodWriter(AccountManagerIn.class);
+            MethodReader reader = channel.methodReader(recorder);
+
+            long time = 1;
+            for (int i = 1; i <= ACCOUNTS; i++)
+                AccountManagerClientMain.createAccount(in, time++, i, false);
+            Transfer transfer = new Transfer();
+            for (int i = 0; i < 100; i++)
+                AccountManagerClientMain.transfer(in, time++, transfer, 1 + i % (ACCOUNTS + 1), 1 + (i + 1) % ACCOUNTS, false);
+            final long caughtUp = time - 1;
+            readUntil(reader, () -> recorder.followerApplied == caughtUp);
+
+            // the leader stops, and the follower takes over in its own time
+            leader.close();
+            leaderThread.join();
+            for (int i = 0; i < 100; i++)
+                AccountManagerClientMain.transfer(in, time++, transfer, 1 + i % (ACCOUNTS + 1), 1 + (i + 1) % ACCOUNTS, false);
+            AccountManagerClientMain.checkPoint(in, time++, new CheckPoint());
+            readUntil(reader, () -> recorder.events.contains("endCheckpoint") && recorder.terms.size() == 2);
+        } finally {
+            leader.close();
+            leaderThread.join();
+            follower.destroy();
+            follower.waitFor();
+        }
+
+        assertAnsweredOnceByEachTerm(recorder);
+    }
+
+    /**
+     * Starts the service as a follower in a JVM of its own, with the classpath and options of this one,
+     * sharing the queues in the working directory.
+     */
+    private static Process startFollower(long failoverMs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Drole=follower");
+        command.add("-DfailoverMs=" + failoverMs);
+        command.add(AccountManagerServiceMain.class.getName());
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(OS.getTarget(), "follower.log"))
+                .start();
+    }
+
+    // every message is answered once, as a single service would, by the leader then the follower in the next term
+    private static void assertAnsweredOnceByEachTerm(Recorder recorder) {
+        Recorder expected = new Recorder();
+        try (ChronicleQueue in = ChronicleQueue.single("account-in")) {
+            MethodReader reader = in.createTailer().methodReader(new AccountManagerImpl(expected)
+                    .id(ShortTextLongConverter.INSTANCE.parse("service")));
+            while (reader.readOne()) {
+                // process all the input
+            }
+        }
+        assertThat(recorder.events).hasSize(2 * ACCOUNTS + 200 + 2);
+        assertThat(recorder.events).isEqualTo(expected.events);
+        assertThat(recorder.terms).containsEntry(LEADER_ID, 1L).containsEntry(FOLLOWER_ID, 2L);
+    }
+
+    @Test
+    void leaderStepsDownWhenALeaderOfALaterTermTakesOver() throws InterruptedException {
+        AccountManagerServiceMain leader = new AccountManagerServiceMain("leader", 200);
+        Thread leaderThread = new Thread(leader, "leader");
+        leaderThread.start();
+
+        Recorder recorder = new Recorder();
+        try (ChronicleContext context = ChronicleContext.newContext("internal://")) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            AccountManagerIn in = channel.methodWriter(AccountManagerIn.class);
+            MethodReader reader = channel.methodReader(recorder);
+            AccountManagerClientMain.createAccount(in, 1, 1, false);
+            readUntil(reader, () -> recorder.terms.containsKey(LEADER_ID));
+            assertThat(recorder.terms).containsEntry(LEADER_ID, 1L);
+
+            // e.g. a follower which took over while this leader was stalled
+            ReplicationOut otherLeader = context.newChannelSupplier(
+                    new PipeHandler().publish("account-terms").subscribe("account-in")).get().methodWriter(ReplicationOut.class);
+            otherLeader.replicaStatus(new ReplicaStatus()
+                    .sender(FOLLOWER_ID)
+                    .target(ShortTextLongConverter.INSTANCE.parse("service"))
+                    .sendingTime(2)
+                    .leader(true)
+                    .term(2));
+            leaderThread.join(60_000);
+            assertThat(leaderThread.isAlive()).isFalse();
+            assertThat(leader.isLeader()).isFalse();
+        } finally {
+            leader.close();
+            leaderThread.join();
+        }
+    }
+
+    @Test
+    void restartedLeaderStartsTheNextTerm() throws InterruptedException {
+        Recorder recorder = new Recorder();
+        try (ChronicleContext context = ChronicleContext.newContext("internal://")) {
+            net.openhft.chronicle.wire.channel.ChronicleChannel channel = context.newChannelSupplier(
+                    new PipeHandler().publish("account-in").subscribe("account-out")).get();
+            AccountManagerIn in = channel.methodWriter(AccountManagerIn.class);
+            MethodReader reader = channel.methodReader(recorder);
+            for (long term = 1; term <= 2; term++) {
+                AccountManagerServiceMain leader = new AccountManagerServiceMain("leader", 200);
+                Thread leaderThread = new Thread(leader, "leader");
+                leaderThread.start();
+                try {
+                    AccountManagerClientMain.createAccount(in, term, (int) term, false);
+                    final long expected = term;
+                    readUntil(reader, () -> recorder.terms.getOrDefault(LEADER_ID, 0L) == expected);
+                } finally {
+                    leader.close();
+                    leaderThread.join();
+                }
+            }
+        }
+    }
+
+    private static void readUntil(MethodReader reader, BooleanSupplier condition) {
+        // allowing for the method readers and writers of three services to be generated and compiled first
+        long end = System.currentTimeMillis() + 60_000;
+        while (!condition.getAsBoolean()) {
+            if (!reader.readOne())
+                Jvm.pause(1);
+            assertThat(System.currentTimeMillis()).isLessThan(end);
+        }
+    }
+
+    // the answers to the messages, identified by their sendingTime, the last message the follower applied,
+    // and the term of each replica which has been the leader
+    static final class Recorder implements AccountManagerOut, ReplicationOut {
+        final List<String> events = new ArrayList<>();
+        final Map<Long, Long> terms = new TreeMap<>();
+        long followerApplied;
+
+        @Override
+        public void startCheckpoint(CheckPoint checkPoint) {
+            events.add("startCheckpoint");
+        }
+
+        @Override
+        public void endCheckpoint(CheckPoint checkPoint) {
+            events.add("endCheckpoint");
+        }
+
+        @Override
+        public void onCreateAccount(OnCreateAccount onCreateAccount) {
+            CreateAccount account = onCreateAccount.createAccount();
+            events.add("onCreateAccount " + account.account() + " " + account.balance());
+        }
+
+        @Override
+        public void createAccountFailed(CreateAccountFailed createAccountFailed) {
+            events.add("createAccountFailed " + createAccountFailed.createAccount().sendingTime());
+        }
+
+        @Override
+        public void onTransfer(OnTransfer onTransfer) {
+            events.add("onTransfer " + onTransfer.transfer().sendingTime());
+        }
+
+        @Override
+        public void transferFailed(TransferFailed transferFailed) {
+            events.add("transferFailed " + transferFailed.transfer().sendingTime());
+        }
+
+        @Override
+        public void onFixedTransfer(OnFixedTransfer onFixedTransfer) {
+            events.add("onFixedTransfer " + onFixedTransfer.transfer().sendingTime());
+        }
+
+        @Override
+        public void fixedTransferFailed(FixedTransferFailed fixedTransferFailed) {
+            events.add("fixedTransferFailed " + fixedTransferFailed.transfer().sendingTime());
+        }
+
+        @Override
+        public void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+            events.add("onBatchTransfer " + onBatchTransfer.batchSendingTime());
+        }
+
+        @Override
+        public void replicaStatus(ReplicaStatus replicaStatus) {
+            if (replicaStatus.sender() == FOLLOWER_ID && !replicaStatus.leader())
+                followerApplied = replicaStatus.appliedSendingTime();
+            if (replicaStatus.leader())
+                terms.put(replicaStatus.sender(), replicaStatus.term());
+        }
+
+        @Override
+        public void jvmError(String msg) {
+            events.add("jvmError " + msg);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.wire.converter.NanoTime;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.Transfer;
+
+import java.io.File;
+import java.io.IOException;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountLedgerTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+
+    private final String path = OS.getTarget() + "/account-ledger-" + System.nanoTime();
+
+    @AfterEach
+    void deleteLedger() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    void resumesFromTheAccountsAndAppliedIndex() {
+        CreateAccount alice = createAccount("Alice", 101013, 100);
+        CreateAccount renee = createAccount("Renée", 101025, 20);
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            assertThat(ledger.appliedIndex()).isEqualTo(AccountLedger.NO_INDEX);
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.tryCreateAccount(alice, VAULT_ID)).isNull();
+            assertThat(service.tryCreateAccount(renee, VAULT_ID)).isNull();
+            assertThat(service.tryTransfer(transfer(101013, 101025, 30), VAULT_ID)).isNull();
+            ledger.appliedIndex(0x1234_0000_0003L);
+        }
+
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            assertThat(ledger.size()).isEqualTo(2);
+            assertThat(ledger.appliedIndex()).isEqualTo(0x1234_0000_0003L);
+            AccountStore store = new AccountStore(ledger);
+            assertThat(store.copyTo(store.find(101013), new CreateAccount())).isEqualTo(alice.balance(70));
+            assertThat(store.copyTo(store.find(101025), new CreateAccount())).isEqualTo(renee.balance(50));
+
+            // later accounts and balances are written through too
+            AccountService service = new AccountService(store);
+            assertThat(service.tryCreateAccount(createAccount("Bob", 101037, 0), VAULT_ID)).isNull();
+            assertThat(service.tryTransfer(transfer(101025, 101037, 5), VAULT_ID)).isNull();
+        }
+
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.accountCount()).isEqualTo(3);
+            assertThat(service.balance(101025)).isEqualTo(45);
+            assertThat(service.balance(101037)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    void rollsBackATransferKilledBetweenTheDebitAndTheCredit() {
+        long[] message = {0};
+        try (AccountLedger ledger = new AccountLedger(path).inputIndex(() -> message[0])) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            message[0] = 1;
+            assertThat(service.tryCreateAccount(createAccount("Alice", 101013, 100), VAULT_ID)).isNull();
+            ledger.appliedIndex(1);
+            message[0] = 2;
+            assertThat(service.tryCreateAccount(createAccount("Renée", 101025, 20), VAULT_ID)).isNull();
+            ledger.appliedIndex(2);
+        }
+
+        // message 3, a transfer of 30, is killed after the debit is written
+        try (AccountLedger ledger = new AccountLedger(path).inputIndex(() -> message[0])) {
+            AccountStore store = new AccountStore(ledger);
+            message[0] = 3;
+            store.balance(store.find(101013), 70);
+        }
+
+        try (AccountLedger ledger = new AccountLedger(path).inputIndex(() -> message[0])) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.balance(101013)).isEqualTo(100);
+            assertThat(service.balance(101025)).isEqualTo(20);
+
+            // replaying it applies it once
+            assertThat(service.tryTransfer(transfer(101013, 101025, 30), VAULT_ID)).isNull();
+            ledger.appliedIndex(3);
+        }
+
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.balance(101013)).isEqualTo(70);
+            assertThat(service.balance(101025)).isEqualTo(50);
+        }
+    }
+
+    @Test
+    void rollsBackEveryWriteOfAMessageNotRecordedAsApplied() {
+        long[] message = {1};
+        try (AccountLedger ledger = new AccountLedger(path).inputIndex(() -> message[0])) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.tryCreateAccount(createAccount("Alice", 101013, 100), VAULT_ID)).isNull();
+            assertThat(service.tryCreateAccount(createAccount("Renée", 101025, 20), VAULT_ID)).isNull();
+            ledger.appliedIndex(1);
+
+            // killed before either is recorded as applied
+            message[0] = 2;
+            assertThat(service.tryTransfer(transfer(101013, 101025, 30), VAULT_ID)).isNull();
+            assertThat(service.tryTransfer(transfer(101025, 101013, 5), VAULT_ID)).isNull();
+            message[0] = 3;
+            assertThat(service.tryCreateAccount(createAccount("Bob", 101037, 0), VAULT_ID)).isNull();
+        }
+
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            assertThat(ledger.size()).isEqualTo(2);
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.accountCount()).isEqualTo(2);
+            assertThat(service.balance(101013)).isEqualTo(100);
+            assertThat(service.balance(101025)).isEqualTo(20);
+        }
+    }
+
+    @Test
+    void rejectsNamesLongerThanASlot() {
+        String name = "Wolfeschlegelsteinhausenbergerdorff Hubert Blaine, of Bergedorf, Hamburg, Germany";
+        try (AccountLedger ledger = new AccountLedger(path)) {
+            AccountService service = new AccountService(new AccountStore(ledger));
+            assertThat(service.tryCreateAccount(createAccount(name, 101013, 100), VAULT_ID)).isEqualTo("name too long");
+            assertThat(ledger.size()).isZero();
+        }
+        // without a ledger, names are not limited
+        assertThat(new AccountService().tryCreateAccount(createAccount(name, 101013, 100), VAULT_ID)).isNull();
+    }
+
+    @Test
+    void rejectsAFileWhichIsNotALedger() throws IOException {
+        IOTools.writeFile(path, "not a ledger, just some text".getBytes());
+        assertThatThrownBy(() -> new AccountLedger(path))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(path + " is not an account ledger");
+        assertThat(new File(path)).exists();
+    }
+
+    private static CreateAccount createAccount(String name, long account, double balance) {
+        return new CreateAccount()
+                .sender(ShortText.INSTANCE.parse("gw1"))
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:00:00"))
+                .name(name)
+                .account(account)
+                .currency(EUR)
+                .balance(balance)
+                .overdraft(10);
+    }
+
+    private static Transfer transfer(long from, long to, double amount) {
+        return new Transfer()
+                .sender(ShortText.INSTANCE.parse("gw2"))
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"))
+                .from(from)
+                .to(to)
+                .currency(EUR)
+                .amount(amount)
+                .reference(from("Payment"));
+    }
+}
@@ -30,7 +30,7 @@ class AccountServiceTest {
         String failureReason = accountService.tryCreateAccount(ca, VAULT_ID);
 
         assertThat(failureReason).isNull();
-        assertThat(accountService.getAllAccounts()).containsKey(101013L);
+        assertThat(accountService.hasAccount(101013L)).isTrue();
     }
 
     @Test
@@ -39,7 +39,7 @@ class AccountServiceTest {
         String failureReason = accountService.tryCreateAccount(ca, ShortText.INSTANCE.parse("other"));
 
         assertThat(failureReason).isEqualTo("target mismatch");
-        assertThat(accountService.getAllAccounts()).doesNotContainKey(101013L);
+        assertThat(accountService.hasAccount(101013L)).isFalse();
     }
 
     @Test
@@ -51,7 +51,7 @@ class AccountServiceTest {
         String failureReason = accountService.tryCreateAccount(ca2, VAULT_ID);
 
         assertThat(failureReason).isEqualTo("account already exists");
-        assertThat(accountService.getAllAccounts()).hasSize(1);
+        assertThat(accountService.accountCount()).isEqualTo(1);
     }
 
     @Test
@@ -66,8 +66,8 @@ class AccountServiceTest {
         String failureReason = accountService.tryTransfer(transfer, VAULT_ID);
 
         assertThat(failureReason).isNull();
-        assertThat(accountService.getAllAccounts().get(101013L).balance()).isEqualTo(70.0);
-        assertThat(accountService.getAllAccounts().get(101025L).balance()).isEqualTo(80.0);
+        assertThat(accountService.balance(101013L)).isEqualTo(70.0);
+        assertThat(accountService.balance(101025L)).isEqualTo(80.0);
     }
 
     @Test
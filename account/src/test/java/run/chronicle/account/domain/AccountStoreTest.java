@@ -0,0 +1,173 @@
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.wire.converter.NanoTime;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.dto.CreateAccount;
+import run.chronicle.account.dto.FixedTransfer;
+import run.chronicle.account.dto.Transfer;
+
+import java.lang.management.ManagementFactory;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountStoreTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+
+    @Test
+    void findsAccountsAfterGrowing() {
+        AccountStore store = new AccountStore(16);
+        for (int i = 1; i <= 10_000; i++)
+            assertThat(store.add(createAccount("n" + i, i * 7919L, i))).isEqualTo(i - 1);
+
+        assertThat(store.size()).isEqualTo(10_000);
+        for (int i = 1; i <= 10_000; i++) {
+            int index = store.find(i * 7919L);
+            assertThat(index).isEqualTo(i - 1);
+            assertThat(store.balance(index)).isEqualTo(i);
+        }
+        assertThat(store.find(1)).isEqualTo(AccountStore.NO_ACCOUNT);
+    }
+
+    @Test
+    void copiesAnAccountBackWithItsCurrentBalance() {
+        AccountStore store = new AccountStore();
+        CreateAccount created = createAccount("Renée", 101013, 100);
+        int index = store.add(created);
+        store.balance(index, 75);
+
+        CreateAccount copy = store.copyTo(index, new CreateAccount());
+
+        assertThat(copy).isEqualTo(created.balance(75));
+    }
+
+    @Test
+    void tracksTheAccountsChangedSinceACheckpointStarted() {
+        AccountStore store = new AccountStore(16);
+        for (int i = 1; i <= 200; i++)
+            store.add(createAccount("n" + i, i, i));
+        store.startCheckpoint();
+        assertThat(store.nextPending(0)).isEqualTo(0);
+        assertThat(store.nextPending(150)).isEqualTo(150);
+
+        store.balance(5, 1);
+        store.balance(70, 1);
+        store.balance(199, 1);
+        store.startCheckpoint();
+        assertThat(store.clearPending(70)).isTrue();
+        assertThat(store.clearPending(70)).isFalse();
+        assertThat(store.nextPending(0)).isEqualTo(5);
+        assertThat(store.nextPending(6)).isEqualTo(199);
+        assertThat(store.nextPending(200)).isEqualTo(AccountStore.NO_ACCOUNT);
+
+        // changed during the checkpoint, so in the next one
+        store.balance(6, 1);
+        store.startCheckpoint();
+        assertThat(store.nextPending(0)).isEqualTo(6);
+        assertThat(store.nextPending(7)).isEqualTo(AccountStore.NO_ACCOUNT);
+    }
+
+    @Test
+    void transfersDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AccountService service = new AccountService();
+        service.tryCreateAccount(createAccount("alice", 101013, 1e9), VAULT_ID);
+        service.tryCreateAccount(createAccount("bob", 101025, 1e9), VAULT_ID);
+        Transfer there = transfer(101013, 101025);
+        Transfer back = transfer(101025, 101013);
+
+        long allocated = Long.MAX_VALUE;
+        // repeat until the code is compiled, and the warm-up no longer allocates
+        for (int round = 0; round < 10 && allocated > 0; round++) {
+            long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < 100_000; i++) {
+                service.tryTransfer(there, VAULT_ID);
+                service.tryTransfer(back, VAULT_ID);
+            }
+            // allow for the measurement itself
+            allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start - 1024;
+        }
+        assertThat(allocated).isLessThanOrEqualTo(0);
+        assertThat(service.balance(101013)).isEqualTo(1e9);
+    }
+
+    @Test
+    void fixedTransfersDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        AccountService service = new AccountService(new AccountStore(16, true));
+        service.tryCreateAccount(createAccount("alice", 101013, 1e9), VAULT_ID);
+        service.tryCreateAccount(createAccount("bob", 101025, 1e9), VAULT_ID);
+        FixedTransfer there = fixedTransfer(101013, 101025, 1050);
+        FixedTransfer back = fixedTransfer(101025, 101013, 1050);
+
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 10 && allocated > 0; round++) {
+            long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < 100_000; i++) {
+                service.tryTransfer(there, VAULT_ID);
+                service.tryTransfer(back, VAULT_ID);
+            }
+            allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start - 1024;
+        }
+        assertThat(allocated).isLessThanOrEqualTo(0);
+        assertThat(service.balance(101013)).isEqualTo(1e9);
+    }
+
+    @Test
+    void fixedPointRejectsFractionsOfUnitsAndOverflow() {
+        AccountService service = new AccountService(new AccountStore(16, true));
+        assertThat(service.tryCreateAccount(createAccount("alice", 101013, 0.001), VAULT_ID)).isEqualTo("not a whole number of units");
+        assertThat(service.tryCreateAccount(createAccount("alice", 101013, 10.25), VAULT_ID)).isNull();
+        // near the largest balance a long can hold
+        assertThat(service.tryCreateAccount(createAccount("bob", 101025, 9e16), VAULT_ID)).isNull();
+
+        assertThat(service.tryTransfer(transfer(101013, 101025).amount(0.005), VAULT_ID)).isEqualTo("not a whole number of units");
+        assertThat(service.tryTransfer(fixedTransfer(101013, 101025, 2026), VAULT_ID)).isEqualTo("insufficient funds");
+        assertThat(service.tryTransfer(fixedTransfer(101013, 101025, 2025), VAULT_ID)).isNull();
+        assertThat(service.balance(101013)).isEqualTo(-10.0);
+
+        assertThat(service.tryTransfer(fixedTransfer(101025, 101013, Long.MAX_VALUE), VAULT_ID)).isEqualTo("insufficient funds");
+        service.tryCreateAccount(createAccount("carol", 101037, 9e16), VAULT_ID);
+        assertThat(service.tryTransfer(fixedTransfer(101037, 101025, 9_000_000_000_000_000_000L), VAULT_ID))
+                .isEqualTo("to account balance would overflow");
+        assertThat(service.balance(101037)).isEqualTo(9e16);
+    }
+
+    private static CreateAccount createAccount(String name, long account, double balance) {
+        return new CreateAccount()
+                .sender(ShortText.INSTANCE.parse("gw1"))
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:00:00"))
+                .name(name)
+                .account(account)
+                .currency(EUR)
+                .balance(balance)
+                .overdraft(10);
+    }
+
+    private static Transfer transfer(long from, long to) {
+        return new Transfer()
+                .sender(ShortText.INSTANCE.parse("gw2"))
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"))
+                .from(from)
+                .to(to)
+                .currency(EUR)
+                .amount(10)
+                .reference(from("Payment"));
+    }
+
+    private static FixedTransfer fixedTransfer(long from, long to, long amount) {
+        return new FixedTransfer()
+                .sender(ShortText.INSTANCE.parse("gw2"))
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"))
+                .from(from)
+                .to(to)
+                .currency(EUR)
+                .amount(amount)
+                .reference(from("Payment"));
+    }
+}
@@ -0,0 +1,45 @@
+package run.chronicle.account.domain;
+
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+    private static final int JPY = (int) ShortText.INSTANCE.parse("JPY");
+    private static final int KWD = (int) ShortText.INSTANCE.parse("KWD");
+
+    @Test
+    void scalesByCurrency() {
+        assertThat(Money.scale(EUR)).isEqualTo(2);
+        assertThat(Money.scale(JPY)).isEqualTo(0);
+        assertThat(Money.scale(KWD)).isEqualTo(3);
+        assertThat(Money.factor(EUR)).isEqualTo(100);
+    }
+
+    @Test
+    void convertsWholeNumbersOfUnits() {
+        assertThat(Money.toUnits(10.5, EUR)).isEqualTo(1050);
+        assertThat(Money.toUnits(0.1, EUR)).isEqualTo(10);
+        assertThat(Money.toUnits(-20, EUR)).isEqualTo(-2000);
+        assertThat(Money.toUnits(1234, JPY)).isEqualTo(1234);
+        assertThat(Money.toUnits(1.234, KWD)).isEqualTo(1234);
+        assertThat(Money.toDouble(1050, EUR)).isEqualTo(10.5);
+        assertThat(Money.toDouble(1234, KWD)).isEqualTo(1.234);
+    }
+
+    @Test
+    void rejectsAmountsWhichAreNotWholeUnits() {
+        assertThat(Money.fits(0.001, EUR)).isFalse();
+        assertThat(Money.fits(0.5, JPY)).isFalse();
+        assertThat(Money.fits(Double.NaN, EUR)).isFalse();
+        assertThat(Money.fits(Double.POSITIVE_INFINITY, EUR)).isFalse();
+        assertThat(Money.fits(1e16, EUR)).isTrue();
+        assertThat(Money.fits(1e16, KWD)).isFalse();
+        assertThatThrownBy(() -> Money.toUnits(0.001, EUR))
+                .isInstanceOf(ArithmeticException.class)
+                .hasMessageContaining("EUR");
+    }
+}
@@ -0,0 +1,83 @@
+package run.chronicle.account.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.converter.NanoTime;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link FixedTransfer} DTO, and its compact binary form.
+ */
+public class FixedTransferTest {
+
+    static FixedTransfer getFixedTransfer() {
+        return new FixedTransfer()
+                .sender(ShortText.INSTANCE.parse("sender"))
+                .target(ShortText.INSTANCE.parse("target"))
+                .sendingTime(NanoTime.INSTANCE.parse("2001/02/03T04:05:06.007008009"))
+                .amount(150)
+                .currency((int) ShortText.INSTANCE.parse("CURR"))
+                .from(12345)
+                .to(67890)
+                .reference(Bytes.from("reference"));
+    }
+
+    @Test
+    public void testToString() {
+        FixedTransfer transfer = getFixedTransfer();
+
+        String expectedToString = "" +
+                "!run.chronicle.account.dto.FixedTransfer {\n" +
+                "  sender: sender,\n" +
+                "  target: target,\n" +
+                "  sendingTime: 2001-02-03T04:05:06.007008009,\n" +
+                "  from: 12345,\n" +
+                "  to: 67890,\n" +
+                "  currency: CURR,\n" +
+                "  amount: 150,\n" +
+                "  reference: reference\n" +
+                "}\n";
+
+        assertEquals(expectedToString, transfer.toString());
+        assertFalse(transfer.usesSelfDescribingMessage());
+    }
+
+    /**
+     * The binary form reads back as the same transfer, in fewer bytes than a {@link Transfer}.
+     */
+    @Test
+    public void testCompactBinary() {
+        FixedTransfer transfer = getFixedTransfer();
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        transfer.writeMarshallable(bytes);
+        final long fixedSize = bytes.readRemaining();
+
+        FixedTransfer copy = new FixedTransfer();
+        copy.readMarshallable(bytes);
+        assertEquals(transfer, copy);
+
+        bytes.clear();
+        TransferTest.getTransfer().writeMarshallable(bytes);
+        assertTrue("FixedTransfer " + fixedSize + " bytes, Transfer " + bytes.readRemaining(),
+                fixedSize < bytes.readRemaining());
+    }
+
+    @Test
+    public void testOnFixedTransfer() {
+        OnFixedTransfer onFixedTransfer = new OnFixedTransfer()
+                .sender(ShortText.INSTANCE.parse("vault"))
+                .target(ShortText.INSTANCE.parse("sender"))
+                .sendingTime(NanoTime.INSTANCE.parse("2001/02/03T04:05:07"))
+                .transfer(getFixedTransfer());
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        onFixedTransfer.writeMarshallable(bytes);
+
+        OnFixedTransfer copy = new OnFixedTransfer();
+        copy.readMarshallable(bytes);
+        assertEquals(onFixedTransfer, copy);
+    }
+}
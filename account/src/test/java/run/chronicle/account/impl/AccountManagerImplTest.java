@@ -10,8 +10,6 @@ import run.chronicle.account.dto.*;
 import net.openhft.chronicle.wire.converter.ShortText;
 import net.openhft.chronicle.wire.converter.NanoTime;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -155,6 +153,29 @@ class AccountManagerImplTest {
         assertThat(event.target()).isEqualTo(invalidTransfer.sender()); // which is 0
     }
 
+    @Test
+    void transfer_SentAgainIsAnsweredWithoutApplyingIt() throws InvalidMarshallableException {
+        manager.dedupWindow(new DedupWindow(10, 1_000));
+        Transfer transfer = validTransfer(101013, 101025, EUR, 50, "Payment");
+        Transfer failed = validTransfer(101013, 101025, EUR, 5000, "HugePayment");
+
+        when(accountService.tryTransfer(transfer, VAULT_ID)).thenReturn(null);
+        when(accountService.tryTransfer(failed, VAULT_ID)).thenReturn("insufficient funds");
+
+        for (int i = 0; i < 3; i++) {
+            manager.transfer(transfer);
+            manager.transfer(failed);
+        }
+
+        // applied once, and answered each time
+        verify(accountService, times(1)).tryTransfer(transfer, VAULT_ID);
+        verify(accountService, times(1)).tryTransfer(failed, VAULT_ID);
+        verify(out, times(3)).onTransfer(any(OnTransfer.class));
+        ArgumentCaptor<TransferFailed> captor = ArgumentCaptor.forClass(TransferFailed.class);
+        verify(out, times(3)).transferFailed(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(event -> assertThat(event.reason()).isEqualTo("insufficient funds"));
+    }
+
     @Test
     void checkPoint_SameTarget() {
         CheckPoint cp = new CheckPoint()
@@ -162,11 +183,10 @@ class AccountManagerImplTest {
                 .target(VAULT_ID)
                 .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T11:00:00"));
 
-        Map<Long, CreateAccount> accounts = new LinkedHashMap<>();
         CreateAccount ca = validCreateAccount("alice", 101013, EUR, 50, 0);
-        accounts.put(101013L, ca);
 
-        when(accountService.getAllAccounts()).thenReturn(accounts);
+        when(accountService.accountCount()).thenReturn(1);
+        when(accountService.account(eq(0), any(CreateAccount.class))).thenReturn(ca);
 
         manager.checkPoint(cp);
 
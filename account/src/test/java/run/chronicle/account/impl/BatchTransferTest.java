@@ -0,0 +1,145 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.wire.converter.NanoTime;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.domain.AccountStore;
+import run.chronicle.account.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchTransferTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+    private static final long SENDER_ID = ShortText.INSTANCE.parse("gw1");
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+
+    private final List<String> events = new ArrayList<>();
+    private final List<OnBatchTransfer> results = new ArrayList<>();
+
+    @Test
+    void reportsWhichTransfersWereApplied() {
+        AccountService service = service(new AccountStore());
+        AccountManagerImpl manager = manager(service);
+
+        manager.batchTransfer(batch(false)
+                .add(101, 102, 5, "one")
+                .add(101, 999, 5, "no such account")
+                .add(102, 103, 50, "too much")
+                .add(103, 101, 15, "four"));
+
+        assertThat(events).containsExactly("batch 2");
+        OnBatchTransfer result = results.get(0);
+        assertThat(result.count()).isEqualTo(4);
+        assertThat(result.reason()).isNull();
+        assertThat(result.batchSendingTime()).isEqualTo(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"));
+        assertThat(new boolean[]{result.transferred(0), result.transferred(1), result.transferred(2), result.transferred(3)})
+                .containsExactly(true, false, false, true);
+        assertThat(service.balance(101)).isEqualTo(20.0);
+        assertThat(service.balance(102)).isEqualTo(25.0);
+        assertThat(service.balance(103)).isEqualTo(15.0);
+    }
+
+    @Test
+    void anAtomicBatchRollsBackWhenATransferFails() {
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            events.clear();
+            results.clear();
+            AccountService service = service(new AccountStore(16, fixedPoint));
+            AccountManagerImpl manager = manager(service);
+
+            // 0.1 + 0.2 is not exact as a double, so the balances are restored, not recalculated
+            manager.batchTransfer(batch(true)
+                    .add(101, 102, 0.1, "one")
+                    .add(101, 102, 0.2, "two")
+                    .add(102, 103, 20, "three")
+                    .add(103, 101, 100, "too much"));
+
+            assertThat(events).containsExactly("batch 0");
+            assertThat(results.get(0).reason()).isEqualTo("transfer 3: insufficient funds");
+            assertThat(results.get(0).transferred(0)).isFalse();
+            assertThat(service.balance(101)).isEqualTo(10.0);
+            assertThat(service.balance(102)).isEqualTo(20.0);
+            assertThat(service.balance(103)).isEqualTo(30.0);
+
+            // and a batch which succeeds is applied as a whole
+            manager.batchTransfer(batch(true)
+                    .add(101, 102, 0.1, "one")
+                    .add(103, 101, 1, "two"));
+            assertThat(events).containsExactly("batch 0", "batch 2");
+            assertThat(service.balance(101)).isEqualTo(10.9);
+        }
+    }
+
+    @Test
+    void failsABatchForAnotherService() {
+        manager(service(new AccountStore())).batchTransfer(batch(false)
+                .target(SENDER_ID)
+                .add(101, 102, 5, "one"));
+        assertThat(results.get(0).reason()).isEqualTo("target mismatch");
+        assertThat(results.get(0).transferred()).isZero();
+    }
+
+    @Test
+    void aBatchIsReadFromAQueue() {
+        String path = OS.getTarget() + "/batch-" + System.nanoTime();
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            AccountManagerIn in = queue.methodWriter(AccountManagerIn.class);
+            BatchTransfer batch = batch(false);
+            for (int i = 0; i < 100; i++)
+                batch.add(101 + i % 3, 101 + (i + 1) % 3, 0.01, "item " + i);
+            in.batchTransfer(batch);
+
+            AccountService service = service(new AccountStore());
+            MethodReader reader = queue.createTailer().methodReader(manager(service));
+            assertThat(reader.readOne()).isTrue();
+            assertThat(events).containsExactly("batch 100");
+            assertThat(service.balance(101) + service.balance(102) + service.balance(103)).isEqualTo(60.0);
+        } finally {
+            IOTools.deleteDirWithFiles(path);
+        }
+    }
+
+    private AccountManagerImpl manager(AccountService service) {
+        return new AccountManagerImpl(new IncrementalCheckpointTest.Recorder(events) {
+            @Override
+            public void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+                super.onBatchTransfer(onBatchTransfer);
+                results.add(onBatchTransfer.deepCopy());
+            }
+        }, service).id(VAULT_ID);
+    }
+
+    private static AccountService service(AccountStore store) {
+        AccountService service = new AccountService(store);
+        for (int i = 1; i <= 3; i++) {
+            service.tryCreateAccount(new CreateAccount()
+                    .sender(SENDER_ID)
+                    .target(VAULT_ID)
+                    .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:00:00"))
+                    .name("account " + i)
+                    .account(100 + i)
+                    .currency(EUR)
+                    .balance(10 * i)
+                    .overdraft(0), VAULT_ID);
+        }
+        return service;
+    }
+
+    private static BatchTransfer batch(boolean atomic) {
+        return new BatchTransfer()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"))
+                .currency(EUR)
+                .atomic(atomic);
+    }
+}
@@ -0,0 +1,66 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DedupWindowTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long SENDER = 1234;
+    private static final long START = 1_700_000_000L * SECOND;
+
+    private final Bytes<?> reference = Bytes.from("Payment");
+
+    @Test
+    void remembersTheOutcomeOfEachTransfer() {
+        DedupWindow window = new DedupWindow(10, 100);
+        assertThat(window.seen(SENDER, START, reference)).isFalse();
+        window.record(null);
+        assertThat(window.seen(SENDER, START + 1, reference)).isFalse();
+        window.record("insufficient funds");
+
+        assertThat(window.seen(SENDER, START, reference)).isTrue();
+        assertThat(window.reason()).isNull();
+        assertThat(window.seen(SENDER, START + 1, reference)).isTrue();
+        assertThat(window.reason()).isEqualTo("insufficient funds");
+        // any part of the key differing is another transfer
+        assertThat(window.seen(SENDER + 1, START, reference)).isFalse();
+        assertThat(window.seen(SENDER, START, Bytes.from("Payment2"))).isFalse();
+    }
+
+    @Test
+    void forgetsTransfersOlderThanTheWindow() {
+        DedupWindow window = new DedupWindow(10, 100);
+        assertThat(window.seen(SENDER, START, reference)).isFalse();
+        window.record(null);
+
+        // still remembered 10 seconds on
+        assertThat(window.seen(SENDER, START + 10 * SECOND, reference)).isFalse();
+        window.record(null);
+        assertThat(window.seen(SENDER, START, reference)).isTrue();
+
+        // a transfer 11 seconds on reuses its table
+        assertThat(window.seen(SENDER, START + 11 * SECOND, reference)).isFalse();
+        assertThat(window.seen(SENDER, START, reference)).isFalse();
+        window.record(null);
+        assertThat(window.seen(SENDER, START, reference)).isFalse();
+        assertThat(window.seen(SENDER, START + 10 * SECOND, reference)).isTrue();
+    }
+
+    @Test
+    void appliesTransfersBeyondTheRateWithoutRememberingThem() {
+        DedupWindow window = new DedupWindow(1, 12);
+        int recorded = 0;
+        for (int i = 0; i < 100; i++) {
+            assertThat(window.seen(SENDER, START + i, reference)).isFalse();
+            window.record(null);
+        }
+        for (int i = 0; i < 100; i++)
+            if (window.seen(SENDER, START + i, reference))
+                recorded++;
+        // a table of 16 slots holds 12
+        assertThat(recorded).isEqualTo(12);
+        assertThat(window.unrecorded()).isEqualTo(88);
+    }
+}
@@ -0,0 +1,172 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.wire.converter.NanoTime;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalCheckpointTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+    private static final long SENDER_ID = ShortText.INSTANCE.parse("gw1");
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+
+    private final List<String> events = new ArrayList<>();
+    private AccountManagerImpl manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new AccountManagerImpl(new Recorder(events))
+                .id(VAULT_ID)
+                .incrementalCheckpoints(true)
+                .checkpointChunk(2);
+        for (int i = 1; i <= 3; i++)
+            manager.createAccount(createAccount(100 + i, 10 * i));
+        events.clear();
+    }
+
+    @Test
+    void writesOnlyTheAccountsChangedSinceTheLastCheckpoint() {
+        manager.checkPoint(checkPoint());
+        while (manager.continueCheckpoint()) {
+            events.add("turn");
+        }
+        assertThat(events).containsExactly("start", "101=10.0", "102=20.0", "turn", "103=30.0", "end", "turn");
+
+        events.clear();
+        manager.transfer(transfer(103, 101, 5));
+        manager.checkPoint(checkPoint());
+        while (manager.continueCheckpoint()) {
+            // write it all
+        }
+        assertThat(events).containsExactly("transfer", "start", "101=15.0", "103=25.0", "end");
+
+        events.clear();
+        manager.checkPoint(checkPoint());
+        assertThat(manager.continueCheckpoint()).isTrue();
+        assertThat(manager.continueCheckpoint()).isFalse();
+        assertThat(events).containsExactly("start", "end");
+    }
+
+    @Test
+    void writesAnAccountBeforeATransferChangesIt() {
+        manager.checkPoint(checkPoint());
+        manager.transfer(transfer(103, 101, 5));
+        while (manager.continueCheckpoint()) {
+            // write the rest
+        }
+        // the checkpoint has the balances as they were when it was requested
+        assertThat(events).containsExactly("start", "103=30.0", "101=10.0", "transfer", "102=20.0", "end");
+
+        events.clear();
+        manager.checkPoint(checkPoint());
+        while (manager.continueCheckpoint()) {
+            // write it all
+        }
+        assertThat(events).containsExactly("start", "101=15.0", "103=25.0", "end");
+    }
+
+    @Test
+    void aCheckpointFinishesTheOneInProgress() {
+        manager.checkPoint(checkPoint());
+        manager.checkPoint(checkPoint());
+        assertThat(manager.continueCheckpoint()).isTrue();
+        assertThat(events).containsExactly("start", "101=10.0", "102=20.0", "103=30.0", "end", "start", "end");
+    }
+
+    private static CreateAccount createAccount(long account, double balance) {
+        return new CreateAccount()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:00:00"))
+                .name("account " + account)
+                .account(account)
+                .currency(EUR)
+                .balance(balance)
+                .overdraft(0);
+    }
+
+    private static Transfer transfer(long from, long to, double amount) {
+        return new Transfer()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T10:01:00"))
+                .from(from)
+                .to(to)
+                .currency(EUR)
+                .amount(amount)
+                .reference(from("Payment"));
+    }
+
+    private static CheckPoint checkPoint() {
+        return new CheckPoint()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .sendingTime(NanoTime.INSTANCE.parse("2023-01-20T11:00:00"));
+    }
+
+    static class Recorder implements AccountManagerOut {
+        private final List<String> events;
+
+        Recorder(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startCheckpoint(CheckPoint checkPoint) {
+            events.add("start");
+        }
+
+        @Override
+        public void endCheckpoint(CheckPoint checkPoint) {
+            events.add("end");
+        }
+
+        @Override
+        public void onCreateAccount(OnCreateAccount onCreateAccount) {
+            events.add(onCreateAccount.createAccount().account() + "=" + onCreateAccount.createAccount().balance());
+        }
+
+        @Override
+        public void createAccountFailed(CreateAccountFailed createAccountFailed) {
+            events.add(createAccountFailed.reason());
+        }
+
+        @Override
+        public void onTransfer(OnTransfer onTransfer) {
+            events.add("transfer");
+        }
+
+        @Override
+        public void transferFailed(TransferFailed transferFailed) {
+            events.add(transferFailed.reason());
+        }
+
+        @Override
+        public void onFixedTransfer(OnFixedTransfer onFixedTransfer) {
+            events.add("transfer");
+        }
+
+        @Override
+        public void fixedTransferFailed(FixedTransferFailed fixedTransferFailed) {
+            events.add(fixedTransferFailed.reason());
+        }
+
+        @Override
+        public void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+            events.add("batch " + onBatchTransfer.transferred());
+        }
+
+        @Override
+        public void jvmError(String msg) {
+            events.add(msg);
+        }
+    }
+}
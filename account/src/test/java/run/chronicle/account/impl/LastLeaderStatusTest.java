@@ -0,0 +1,98 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Marshallable;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.api.ReplicationOut;
+import run.chronicle.account.dto.CheckPoint;
+import run.chronicle.account.dto.ReplicaStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastLeaderStatusTest {
+    private static final long LEADER_ID = ShortText.INSTANCE.parse("leader");
+    private static final long FOLLOWER_ID = ShortText.INSTANCE.parse("follower");
+    private static final long SERVICE_ID = ShortText.INSTANCE.parse("service");
+
+    private final String path = OS.getTarget() + "/last-leader-status-" + System.nanoTime();
+
+    @AfterEach
+    void deleteQueue() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    void startsFromTheLastStatusOfALeader() {
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            ReplicationOut replication = queue.methodWriter(ReplicationOut.class);
+            AccountManagerOut out = queue.methodWriter(AccountManagerOut.class);
+            for (int i = 1; i <= 3; i++) {
+                out.startCheckpoint(checkPoint());
+                replication.replicaStatus(status(true, i));
+            }
+            // a follower's status and results after the leader's last status
+            replication.replicaStatus(status(false, 3));
+            out.endCheckpoint(checkPoint());
+
+            List<Long> applied = new ArrayList<>();
+            ExcerptTailer tailer = queue.createTailer();
+            lastLeaderStatus().accept(tailer);
+            MethodReader reader = tailer.methodReader((ReplicationOut) s -> applied.add(s.appliedIndex()),
+                    Mocker.ignored(AccountManagerOut.class));
+            while (reader.readOne()) {
+                // read from the last status of the leader
+            }
+            assertThat(applied).containsExactly(3L, 3L);
+        }
+    }
+
+    @Test
+    void startsAtTheEndWithoutAStatusOfALeader() {
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            queue.methodWriter(AccountManagerOut.class).startCheckpoint(checkPoint());
+            queue.methodWriter(ReplicationOut.class).replicaStatus(status(false, 0));
+
+            ExcerptTailer tailer = queue.createTailer();
+            lastLeaderStatus().accept(tailer);
+            try (DocumentContext dc = tailer.readingDocument()) {
+                assertThat(dc.isPresent()).isFalse();
+            }
+        }
+    }
+
+    private static ReplicaStatus status(boolean leader, long appliedIndex) {
+        return new ReplicaStatus()
+                .sender(leader ? LEADER_ID : FOLLOWER_ID)
+                .target(SERVICE_ID)
+                .sendingTime(1)
+                .leader(leader)
+                .term(1)
+                .appliedIndex(appliedIndex);
+    }
+
+    private static CheckPoint checkPoint() {
+        return new CheckPoint()
+                .sender(SERVICE_ID)
+                .target(SERVICE_ID)
+                .sendingTime(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<ExcerptTailer> lastLeaderStatus() {
+        // as it is when the subscription is served from another process
+        return Marshallable.fromString(new LastLeaderStatus().toString());
+    }
+}
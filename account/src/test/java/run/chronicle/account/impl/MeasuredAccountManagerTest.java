@@ -0,0 +1,94 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.dto.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.openhft.chronicle.core.time.SystemTimeProvider.CLOCK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MeasuredAccountManagerTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+
+    private final AccountManagerIn accountManager = mock(AccountManagerIn.class);
+    private final List<String> published = new ArrayList<>();
+    private final List<Metrics> metrics = new ArrayList<>();
+    private final MeasuredAccountManager measured = new MeasuredAccountManager(accountManager, m -> {
+        published.add(m.eventType());
+        metrics.add(m.deepCopy());
+    }, 0).id(VAULT_ID);
+
+    @Test
+    void publishesTheDelaysAndHandlerTimesOfEachTypeOfMessage() {
+        Transfer transfer = new Transfer();
+        for (int i = 0; i < 100; i++)
+            measured.transfer(transfer.sendingTime(System.nanoTime() - 1_000_000));
+        CreateAccount createAccount = new CreateAccount();
+        measured.createAccount(createAccount.sendingTime(CLOCK.currentTimeNanos() - 5_000_000));
+        verify(accountManager, times(100)).transfer(transfer);
+        verify(accountManager).createAccount(createAccount);
+
+        assertThat(measured.publishIfDue()).isTrue();
+        assertThat(published).containsExactly("createAccount", "transfer");
+        Metrics created = metrics.get(0);
+        assertThat(created.sender()).isEqualTo(VAULT_ID);
+        assertThat(created.count()).isEqualTo(1);
+        assertThat(created.delay50()).isCloseTo(5_000, within(1_000.0));
+        Metrics transfers = metrics.get(1);
+        assertThat(transfers.count()).isEqualTo(100);
+        assertThat(transfers.delay50()).isCloseTo(1_000, within(500.0));
+        assertThat(transfers.delay50()).isLessThanOrEqualTo(transfers.delay99());
+        assertThat(transfers.delay99()).isLessThanOrEqualTo(transfers.delayMax());
+        assertThat(transfers.handler50()).isGreaterThan(0).isLessThanOrEqualTo(transfers.handlerMax());
+
+        // each interval starts afresh
+        published.clear();
+        assertThat(measured.publishIfDue()).isTrue();
+        assertThat(published).isEmpty();
+    }
+
+    @Test
+    void measuringCreatesNoGarbage() {
+        MeasuredAccountManager quiet = new MeasuredAccountManager(new AccountManagerIn() {
+            @Override
+            public void createAccount(CreateAccount createAccount) {
+            }
+
+            @Override
+            public void transfer(Transfer transfer) {
+            }
+
+            @Override
+            public void fixedTransfer(FixedTransfer fixedTransfer) {
+            }
+
+            @Override
+            public void batchTransfer(BatchTransfer batchTransfer) {
+            }
+
+            @Override
+            public void checkPoint(CheckPoint checkPoint) {
+            }
+        }, m -> {
+        }, 60_000);
+        Transfer transfer = new Transfer();
+        for (int i = 0; i < 20_000; i++)
+            quiet.transfer(transfer.sendingTime(System.nanoTime()));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 20_000; i++)
+            quiet.transfer(transfer.sendingTime(System.nanoTime()));
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        assertThat(allocated).isLessThan(1_000);
+    }
+}
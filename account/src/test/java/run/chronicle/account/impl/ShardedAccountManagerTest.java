@@ -0,0 +1,209 @@
+package run.chronicle.account.impl;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.converter.ShortText;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.api.AccountManagerOut;
+import run.chronicle.account.domain.AccountService;
+import run.chronicle.account.dto.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.openhft.chronicle.bytes.Bytes.from;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedAccountManagerTest {
+    private static final long VAULT_ID = ShortText.INSTANCE.parse("vault");
+    private static final long SENDER_ID = ShortText.INSTANCE.parse("gw1");
+    private static final int EUR = (int) ShortText.INSTANCE.parse("EUR");
+    private static final int USD = (int) ShortText.INSTANCE.parse("USD");
+    private static final int ACCOUNTS = 40;
+    private static final int SHARDS = 3;
+
+    private final String path = OS.getTarget() + "/sharded-" + System.nanoTime();
+
+    @AfterEach
+    void deleteQueues() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    void shardsReachTheSameOutcomesAsOneService() throws InterruptedException {
+        try (ChronicleQueue in = ChronicleQueue.single(path + "/account-in")) {
+            writeInput(in.methodWriter(AccountManagerIn.class));
+
+            AccountService single = new AccountService();
+            Recorder expected = new Recorder();
+            MethodReader reader = in.createTailer().methodReader(new AccountManagerImpl(expected, single).id(VAULT_ID));
+            while (reader.readOne()) {
+                // process all the input
+            }
+
+            AccountService[] shards = new AccountService[SHARDS];
+            // the shards share one output, as they do account-out
+            Recorder sharded = new Recorder();
+            Thread[] threads = new Thread[SHARDS];
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            for (int i = 0; i < SHARDS; i++) {
+                shards[i] = new AccountService();
+            }
+            for (int i = 0; i < SHARDS; i++) {
+                final int shard = i;
+                threads[i] = new Thread(() -> {
+                    try (ShardVotes votes = new ShardVotes(path + "/votes", shard, SHARDS, () -> error.get() != null)) {
+                        ExcerptTailer tailer = in.createTailer();
+                        MethodReader shardReader = tailer.methodReader(
+                                new ShardedAccountManager(shard, shards, sharded, votes, tailer::lastReadIndex).id(VAULT_ID));
+                        while (shardReader.readOne()) {
+                            // process all the input
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads)
+                thread.join(60_000);
+            assertThat(error.get()).isNull();
+
+            assertThat(sharded.results).isEqualTo(expected.results);
+            assertThat(sharded.results.values()).contains("transferred", "insufficient funds", "to account doesn't exist", "to account currency doesn't match");
+            // each shard writes its own accounts into the checkpoint
+            assertThat(sharded.checkpoints).isEqualTo(expected.checkpoints);
+            assertThat(sharded.resultsInCheckpoints).isZero();
+
+            for (long account = 1000; account < 1000 + ACCOUNTS; account++) {
+                AccountService owner = shards[ShardedAccountManager.shardOf(account, SHARDS)];
+                assertThat(owner.balance(account)).isEqualTo(single.balance(account));
+            }
+        }
+    }
+
+    private static void writeInput(AccountManagerIn in) {
+        Random random = new Random(1);
+        long time = 1;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            in.createAccount(new CreateAccount()
+                    .sender(SENDER_ID)
+                    .target(VAULT_ID)
+                    .sendingTime(time++)
+                    .name("account " + i)
+                    .account(1000 + i)
+                    .currency(i % 7 == 0 ? USD : EUR)
+                    .balance(random.nextInt(100))
+                    .overdraft(i % 5));
+        }
+        Transfer transfer = new Transfer()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .reference(from("test"));
+        FixedTransfer fixedTransfer = new FixedTransfer()
+                .sender(SENDER_ID)
+                .target(VAULT_ID)
+                .reference(from("test"));
+        for (int i = 0; i < 3000; i++) {
+            // a few accounts which don't exist
+            final long fromAccount = 1000 + random.nextInt(ACCOUNTS + 2);
+            final long toAccount = 1000 + random.nextInt(ACCOUNTS + 2);
+            final int currency = random.nextInt(10) == 0 ? USD : EUR;
+            final int amount = 1 + random.nextInt(50);
+            if (i % 3 == 0)
+                in.fixedTransfer(fixedTransfer
+                        .sendingTime(time++)
+                        .from(fromAccount)
+                        .to(toAccount)
+                        .currency(currency)
+                        .amount(amount * 100L));
+            else
+                in.transfer(transfer
+                        .sendingTime(time++)
+                        .from(fromAccount)
+                        .to(toAccount)
+                        .currency(currency)
+                        .amount(amount));
+            if (i % 1000 == 999)
+                in.checkPoint(new CheckPoint().sender(SENDER_ID).target(VAULT_ID).sendingTime(time++));
+        }
+    }
+
+    // records the outcome of each input message by its sendingTime, and the accounts in each checkpoint,
+    // from any number of threads
+    static final class Recorder implements AccountManagerOut {
+        final Map<Long, String> results = new TreeMap<>();
+        final Map<Long, Map<Long, Double>> checkpoints = new TreeMap<>();
+        private Map<Long, Double> checkpoint;
+        // results written between the start and end of a checkpoint
+        int resultsInCheckpoints;
+
+        @Override
+        public synchronized void startCheckpoint(CheckPoint checkPoint) {
+            checkpoint = new TreeMap<>();
+        }
+
+        @Override
+        public synchronized void endCheckpoint(CheckPoint checkPoint) {
+            checkpoints.put(checkPoint.sendingTime(), checkpoint);
+            checkpoint = null;
+        }
+
+        @Override
+        public synchronized void onCreateAccount(OnCreateAccount onCreateAccount) {
+            CreateAccount createAccount = onCreateAccount.createAccount();
+            if (checkpoint == null)
+                result(createAccount.sendingTime(), "created");
+            else
+                checkpoint.put(createAccount.account(), createAccount.balance());
+        }
+
+        @Override
+        public synchronized void createAccountFailed(CreateAccountFailed createAccountFailed) {
+            result(createAccountFailed.createAccount().sendingTime(), createAccountFailed.reason());
+        }
+
+        @Override
+        public synchronized void onTransfer(OnTransfer onTransfer) {
+            result(onTransfer.transfer().sendingTime(), "transferred");
+        }
+
+        @Override
+        public synchronized void transferFailed(TransferFailed transferFailed) {
+            result(transferFailed.transfer().sendingTime(), transferFailed.reason());
+        }
+
+        @Override
+        public synchronized void onFixedTransfer(OnFixedTransfer onFixedTransfer) {
+            result(onFixedTransfer.transfer().sendingTime(), "transferred");
+        }
+
+        @Override
+        public synchronized void fixedTransferFailed(FixedTransferFailed fixedTransferFailed) {
+            result(fixedTransferFailed.transfer().sendingTime(), fixedTransferFailed.reason());
+        }
+
+        @Override
+        public synchronized void onBatchTransfer(OnBatchTransfer onBatchTransfer) {
+            result(onBatchTransfer.batchSendingTime(), String.valueOf(onBatchTransfer.reason()));
+        }
+
+        @Override
+        public synchronized void jvmError(String msg) {
+            throw new AssertionError(msg);
+        }
+
+        private void result(long sendingTime, String result) {
+            if (checkpoint != null)
+                resultsInCheckpoints++;
+            results.put(sendingTime, result);
+        }
+    }
+}
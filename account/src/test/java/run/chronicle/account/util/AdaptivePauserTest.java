@@ -0,0 +1,53 @@
+package run.chronicle.account.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePauserTest {
+    private static final long SPIN_NS = 100_000;
+    private static final long PARK_NS = 1_000_000;
+
+    @Test
+    void spinsWhileMessagesArriveOftenThenParks() {
+        AdaptivePauser pauser = new AdaptivePauser(SPIN_NS, PARK_NS);
+        long now = System.nanoTime();
+        // a message every 10 us
+        for (int i = 0; i < 100; i++)
+            pauser.reset(now += 10_000);
+
+        assertThat(pauser.parkNanos(now + 5_000)).isZero();
+        assertThat(pauser.parkNanos(now + 20_000)).isZero();
+        // a quarter of the spin time, at least
+        assertThat(pauser.parkNanos(now + 24_000)).isZero();
+        // having waited for longer than the next message is likely to take
+        assertThat(pauser.parkNanos(now + 30_000)).isEqualTo(AdaptivePauser.MIN_PARK_NS);
+        assertThat(pauser.parkNanos(now + 100_000_000)).isEqualTo(PARK_NS);
+    }
+
+    @Test
+    void parksStraightAwayWhenMessagesAreInfrequent() {
+        AdaptivePauser pauser = new AdaptivePauser(SPIN_NS, PARK_NS);
+        long now = System.nanoTime();
+        // a message every 5 ms
+        for (int i = 0; i < 100; i++)
+            pauser.reset(now += 5_000_000);
+
+        assertThat(pauser.parkNanos(now)).isEqualTo(AdaptivePauser.MIN_PARK_NS);
+        assertThat(pauser.parkNanos(now + 200_000)).isEqualTo(50_000);
+        assertThat(pauser.parkNanos(now + 10_000_000)).isEqualTo(PARK_NS);
+    }
+
+    @Test
+    void movesToSpinningAsTheRateRises() {
+        AdaptivePauser pauser = new AdaptivePauser(SPIN_NS, PARK_NS);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++)
+            pauser.reset(now += 5_000_000);
+        assertThat(pauser.parkNanos(now + 1_000)).isPositive();
+
+        for (int i = 0; i < 100; i++)
+            pauser.reset(now += 20_000);
+        assertThat(pauser.parkNanos(now + 1_000)).isZero();
+    }
+}
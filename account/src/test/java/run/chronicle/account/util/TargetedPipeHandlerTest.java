@@ -0,0 +1,138 @@
+package run.chronicle.account.util;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import net.openhft.chronicle.wire.channel.ChronicleContext;
+import net.openhft.chronicle.wire.channel.impl.internal.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import run.chronicle.account.AccountManagerGatewayMain;
+import run.chronicle.account.AccountManagerServiceMain;
+import run.chronicle.account.api.AccountManagerIn;
+import run.chronicle.account.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SuppressWarnings("deprecation")
+class TargetedPipeHandlerTest {
+    private static final int PORT = 16_248;
+    private static final long SERVICE = ShortTextLongConverter.INSTANCE.parse("service");
+    private static final long ALICE = ShortTextLongConverter.INSTANCE.parse("alice");
+    private static final long BOB = ShortTextLongConverter.INSTANCE.parse("bob");
+    private static final int EUR = (int) ShortTextLongConverter.INSTANCE.parse("EUR");
+
+    static {
+        Handler.init();
+    }
+
+    @BeforeEach
+    @AfterEach
+    void deleteQueues() {
+        IOTools.deleteDirWithFiles("account-in");
+        IOTools.deleteDirWithFiles("account-out");
+    }
+
+    @Test
+    void eachClientReceivesOnlyTheEventsAddressedToIt() throws Exception {
+        AccountManagerServiceMain service = new AccountManagerServiceMain();
+        Thread serviceThread = new Thread(service, "service");
+        serviceThread.start();
+        try (AccountManagerGatewayMain gateway = new AccountManagerGatewayMain("tcp://:" + PORT);
+             ChronicleContext context = ChronicleContext.newContext("tcp://localhost:" + PORT)) {
+            gateway.start();
+            net.openhft.chronicle.wire.channel.ChronicleChannel alice = context.newChannelSupplier(
+                    new TargetedPipeHandler().publish("account-in").subscribe("account-out").target("alice")).get();
+            net.openhft.chronicle.wire.channel.ChronicleChannel bob = context.newChannelSupplier(
+                    new TargetedPipeHandler().publish("account-in").subscribe("account-out").target("bob")).get();
+            AccountManagerIn aliceIn = alice.methodWriter(AccountManagerIn.class);
+            AccountManagerIn bobIn = bob.methodWriter(AccountManagerIn.class);
+
+            Recorder aliceEvents = new Recorder();
+            Recorder bobEvents = new Recorder();
+            MethodReader aliceReader = alice.methodReader(aliceEvents);
+            MethodReader bobReader = bob.methodReader(bobEvents);
+
+            aliceIn.createAccount(createAccount(ALICE, 101));
+            readUntil(aliceReader, aliceEvents, 1);
+            bobIn.createAccount(createAccount(BOB, 102));
+            readUntil(bobReader, bobEvents, 1);
+            // two requests in flight at once
+            bobIn.transfer(transfer(BOB, 102, 101));
+            bobIn.transfer(transfer(BOB, 102, 101));
+            readUntil(bobReader, bobEvents, 3);
+            // each client is sent its events in the order written, so anything sent to Alice for Bob would arrive first
+            aliceIn.transfer(transfer(ALICE, 101, 102));
+            readUntil(aliceReader, aliceEvents, 2);
+
+            assertThat(aliceEvents.events).containsExactly("onCreateAccount alice", "onTransfer alice");
+            assertThat(bobEvents.events).containsExactly("onCreateAccount bob", "onTransfer bob", "onTransfer bob");
+        } finally {
+            service.close();
+            serviceThread.join();
+        }
+    }
+
+    private static CreateAccount createAccount(long sender, long account) {
+        return new CreateAccount()
+                .sender(sender)
+                .target(SERVICE)
+                .sendingTime(System.nanoTime())
+                .name("account" + account)
+                .account(account)
+                .balance(100)
+                .currency(EUR);
+    }
+
+    private static Transfer transfer(long sender, long from, long to) {
+        return new Transfer()
+                .sender(sender)
+                .target(SERVICE)
+                .sendingTime(System.nanoTime())
+                .from(from)
+                .to(to)
+                .amount(1)
+                .currency(EUR)
+                .reference(Bytes.from("test"));
+    }
+
+    private static void readUntil(MethodReader reader, Recorder recorder, int events) {
+        // allowing for the method readers and writers to be generated and compiled first
+        long end = System.currentTimeMillis() + 60_000;
+        while (recorder.events.size() < events) {
+            if (!reader.readOne())
+                Jvm.pause(1);
+            assertThat(System.currentTimeMillis()).isLessThan(end);
+        }
+    }
+
+    static final class Recorder extends LogsAccountManagerOut {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onCreateAccount(OnCreateAccount onCreateAccount) {
+            events.add("onCreateAccount " + ShortTextLongConverter.INSTANCE.asString(onCreateAccount.target()));
+        }
+
+        @Override
+        public void createAccountFailed(CreateAccountFailed createAccountFailed) {
+            events.add("createAccountFailed " + createAccountFailed.reason());
+        }
+
+        @Override
+        public void onTransfer(OnTransfer onTransfer) {
+            events.add("onTransfer " + ShortTextLongConverter.INSTANCE.asString(onTransfer.target()));
+        }
+
+        @Override
+        public void transferFailed(TransferFailed transferFailed) {
+            events.add("transferFailed " + transferFailed.reason());
+        }
+    }
+}
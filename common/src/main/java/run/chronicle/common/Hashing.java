@@ -0,0 +1,29 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.common;
+
+/**
+ * The {@code Hashing} class holds the hash function shared by the open-addressing tables and the sharding of every
+ * module, so keys which are close together, such as sequential account numbers or {@code @ShortText} symbols,
+ * spread evenly over buckets and shards.
+ */
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so every bit of the key affects every bit of the hash.
+     *
+     * @return the key mixed, one to one, into a hash of 64 bits
+     */
+    public static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93e2fe6512bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
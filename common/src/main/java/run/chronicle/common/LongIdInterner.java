@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.common;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code LongIdInterner} class maps {@code long} keys, such as the {@code @ShortText} symbols, accounts and parties
+ * of the events, to dense {@code int} ids in the order they are first seen, so state about them can be held
+ * in primitive arrays indexed by id rather than in a {@code Map<Long, ...>}.
+ *
+ * <p>Keys are held in an open-addressing table with linear probing, sized when it is constructed, so interning
+ * never boxes, allocates or rehashes. A new key claims its bucket with a compare-and-set, then takes the next id,
+ * so any number of threads can intern and look up keys without locking. A thread which finds a key another thread
+ * is still adding waits the few instructions until its id is published. Keys are never removed,
+ * and once {@link #capacity()} keys have been added, {@link #intern(long)} throws an {@link IllegalStateException}
+ * for a new key, and {@link #tryIntern(long)} returns {@link #NO_ID} so the caller can reject or drop what it was for.
+ *
+ * <p>{@link #key(int)} looks an id up in reverse, e.g. for logging, see {@link #toString(int)}.
+ * A single-threaded owner can grow a full table by copying it, see {@link #withCapacity(int)}.
+ *
+ * <p>This class is thread-safe and lock-free.
+ */
+public final class LongIdInterner {
+    // The id returned by find for a key which has not been interned
+    public static final int NO_ID = -1;
+
+    // zeroId while the key 0 is being added
+    private static final int ADDING = -2;
+    // zeroId, or an id + 1, for a key which claimed a bucket as another thread took the last id
+    private static final int FULL = -3;
+
+    private final String name;
+    private final int capacity;
+    private final AtomicLongArray keys;
+    // id + 1 for each key, 0 while the id is not yet published or the bucket is empty, FULL if it never will be
+    private final AtomicIntegerArray ids;
+    // the key of each id
+    private final AtomicLongArray keyOfId;
+    private final AtomicInteger size = new AtomicInteger();
+    // 0 is a valid key, but marks an empty bucket, so its id is held separately
+    private final AtomicInteger zeroId = new AtomicInteger(NO_ID);
+
+    /**
+     * Constructs an interner for up to {@code capacity} keys.
+     *
+     * @param name     the name of the table, used in error messages
+     * @param capacity the most keys which can be interned
+     */
+    public LongIdInterner(String name, int capacity) {
+        if (capacity <= 0 || capacity > 1 << 29)
+            throw new IllegalArgumentException("capacity " + capacity + " is not in (0, 2^29]");
+        this.name = name;
+        this.capacity = capacity;
+        // at most half full, so probes stay short
+        final int buckets = Integer.highestOneBit(Math.max(4, capacity) - 1) << 2;
+        keys = new AtomicLongArray(buckets);
+        ids = new AtomicIntegerArray(buckets);
+        keyOfId = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * @return the id of this key, assigning the next id if it has not been seen before
+     * @throws IllegalStateException if the key is new and the table is full
+     */
+    public int intern(long key) {
+        final int id = tryIntern(key);
+        if (id == NO_ID)
+            throw full();
+        return id;
+    }
+
+    /**
+     * @return the id of this key, assigning the next id if it has not been seen before,
+     * or {@link #NO_ID} if the key is new and the table is full
+     */
+    public int tryIntern(long key) {
+        if (key == 0)
+            return internZero();
+        final int mask = keys.length() - 1;
+        for (int i = bucket(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long k = keys.get(i);
+            if (k == 0) {
+                // once the table is full, a new key doesn't claim a bucket,
+                // so rejected keys can't use up the empty buckets every probe stops at
+                if (size.get() < capacity && keys.compareAndSet(i, 0, key))
+                    return publish(i, key);
+                // another thread claimed the bucket first, maybe for this key, as it took the last id
+                k = keys.get(i);
+                if (k == 0)
+                    return NO_ID;
+            }
+            if (k == key)
+                return awaitId(i);
+        }
+        return NO_ID;
+    }
+
+    /**
+     * @return the id of this key, or {@link #NO_ID} if it has not been interned
+     */
+    public int find(long key) {
+        if (key == 0) {
+            final int id = zeroId.get();
+            return id == ADDING ? internZero() : id == FULL ? NO_ID : id;
+        }
+        final int mask = keys.length() - 1;
+        for (int i = bucket(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            final long k = keys.get(i);
+            if (k == key)
+                return awaitId(i);
+            if (k == 0)
+                return NO_ID;
+        }
+        return NO_ID;
+    }
+
+    /**
+     * Copies this table into a new one with a different capacity, for an owner which grows its table as it fills.
+     * Keys are added in the order of their ids, so each keeps its id. No key may be interned while this is copying.
+     *
+     * @param capacity the most keys the new table can hold, at least {@link #size()}
+     * @return the new table, with the same name
+     */
+    public LongIdInterner withCapacity(int capacity) {
+        final int size = size();
+        if (capacity < size)
+            throw new IllegalArgumentException("capacity " + capacity + " is less than the size " + size);
+        final LongIdInterner copy = new LongIdInterner(name, capacity);
+        for (int id = 0; id < size; id++)
+            copy.intern(keyOfId.get(id));
+        return copy;
+    }
+
+    /**
+     * @return the key with this id
+     * @throws IllegalArgumentException if no key has this id
+     */
+    public long key(int id) {
+        if (id < 0 || id >= size())
+            throw new IllegalArgumentException("No key has id " + id + " in " + name);
+        return keyOfId.get(id);
+    }
+
+    /**
+     * @return the key with this id as {@code @ShortText}, for logging
+     */
+    public String toString(int id) {
+        return ShortTextLongConverter.INSTANCE.asString(key(id));
+    }
+
+    /**
+     * @return the number of keys interned, one more than the highest id
+     */
+    public int size() {
+        return Math.min(size.get(), capacity);
+    }
+
+    /**
+     * @return the most keys which can be interned
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "LongIdInterner{" + name + ", size=" + size() + ", capacity=" + capacity + '}';
+    }
+
+    /**
+     * @return the id of the key 0, or {@link #NO_ID} if it is new and the table is full
+     */
+    private int internZero() {
+        while (true) {
+            final int id = zeroId.get();
+            if (id >= 0)
+                return id;
+            if (id == FULL)
+                return NO_ID;
+            if (id == NO_ID && zeroId.compareAndSet(NO_ID, ADDING)) {
+                final int next = nextId(0);
+                zeroId.set(next < 0 ? FULL : next);
+                return next < 0 ? NO_ID : next;
+            }
+            Jvm.nanoPause();
+        }
+    }
+
+    private int publish(int bucket, long key) {
+        final int id = nextId(key);
+        // publishing FULL stops other threads waiting for an id which will never come
+        ids.set(bucket, id < 0 ? FULL : id + 1);
+        return id < 0 ? NO_ID : id;
+    }
+
+    /**
+     * @return the next id, or -1 if the table is full
+     */
+    private int nextId(long key) {
+        final int id = size.getAndIncrement();
+        if (id >= capacity)
+            return -1;
+        keyOfId.set(id, key);
+        return id;
+    }
+
+    private int awaitId(int bucket) {
+        int id;
+        while ((id = ids.get(bucket)) == 0)
+            Jvm.nanoPause();
+        return id == FULL ? NO_ID : id - 1;
+    }
+
+    private IllegalStateException full() {
+        return new IllegalStateException(name + " is full, its capacity is " + capacity);
+    }
+
+    private static int bucket(long key, int mask) {
+        return (int) Hashing.mix(key) & mask;
+    }
+}
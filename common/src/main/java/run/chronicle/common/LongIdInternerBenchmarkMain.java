@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.common;
+
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The {@code LongIdInternerBenchmarkMain} class compares looking up the ids of {@code @ShortText} keys in a
+ * {@link LongIdInterner} with a {@code HashMap<Long, Integer>}, reporting the time and the bytes allocated per lookup.
+ *
+ * <p>{@code -Dkeys} keys, default 1,000, are looked up in a random order {@code -Dlookups} times, default 10,000,000,
+ * for {@code -Druns} runs, default 5.
+ */
+public class LongIdInternerBenchmarkMain {
+    static final int KEYS = Integer.getInteger("keys", 1_000);
+    static final int LOOKUPS = Integer.getInteger("lookups", 10_000_000);
+    static final int RUNS = Integer.getInteger("runs", 5);
+
+    static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        long[] keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++)
+            keys[i] = ShortTextLongConverter.INSTANCE.parse("SYM" + i);
+        // the order of the lookups, random so the branches and caches are not trained on a pattern
+        int[] order = new int[LOOKUPS];
+        Random random = new Random(1);
+        for (int i = 0; i < LOOKUPS; i++)
+            order[i] = random.nextInt(KEYS);
+
+        LongIdInterner interner = new LongIdInterner("keys", KEYS);
+        Map<Long, Integer> map = new HashMap<>();
+        for (long key : keys) {
+            interner.intern(key);
+            map.put(key, map.size());
+        }
+
+        System.out.printf("%,d keys, %,d lookups%n", KEYS, LOOKUPS);
+        for (int run = 1; run <= RUNS; run++) {
+            report("LongIdInterner", run, interner(interner, keys, order));
+            report("HashMap", run, hashMap(map, keys, order));
+        }
+    }
+
+    static long[] interner(LongIdInterner interner, long[] keys, int[] order) {
+        long allocated = allocated();
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i : order)
+            sum += interner.find(keys[i]);
+        return result(start, allocated, sum);
+    }
+
+    static long[] hashMap(Map<Long, Integer> map, long[] keys, int[] order) {
+        long allocated = allocated();
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i : order)
+            sum += map.get(keys[i]);
+        return result(start, allocated, sum);
+    }
+
+    // the sum of the ids is returned so the lookups are not optimised away
+    private static long[] result(long start, long allocated, long sum) {
+        return new long[]{System.nanoTime() - start, allocated() - allocated, sum};
+    }
+
+    private static void report(String name, int run, long[] result) {
+        System.out.printf("run %d %-14s %6.2f ns/lookup, %6.2f bytes/lookup (checksum %d)%n",
+                run, name, (double) result[0] / LOOKUPS, (double) result[1] / LOOKUPS, result[2]);
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
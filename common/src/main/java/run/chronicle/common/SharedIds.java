@@ -0,0 +1,25 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.common;
+
+/**
+ * The {@code SharedIds} class holds the process-wide {@link LongIdInterner}s for the {@code @ShortText} fields
+ * common to the events of every module, so each service in a process gives a symbol, account or party the same id.
+ *
+ * <p>The capacities can be set with {@code -DinternSymbols}, {@code -DinternAccounts} and {@code -DinternParties}.
+ */
+public final class SharedIds {
+    // Symbols, e.g. EURUSD
+    public static final LongIdInterner SYMBOLS =
+            new LongIdInterner("symbols", Integer.getInteger("internSymbols", 1 << 12));
+    // Accounts
+    public static final LongIdInterner ACCOUNTS =
+            new LongIdInterner("accounts", Integer.getInteger("internAccounts", 1 << 16));
+    // Senders and targets
+    public static final LongIdInterner PARTIES =
+            new LongIdInterner("parties", Integer.getInteger("internParties", 1 << 12));
+
+    private SharedIds() {
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package run.chronicle.common;
+
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LongIdInterner}, covering dense ids, reverse lookup, the key 0,
+ * a full table and interning from several threads at once.
+ */
+public class LongIdInternerTest {
+    @Test
+    public void idsAreDenseInTheOrderKeysAreFirstSeen() {
+        LongIdInterner interner = new LongIdInterner("test", 16);
+        long eurusd = ShortTextLongConverter.INSTANCE.parse("EURUSD");
+        long gbpusd = ShortTextLongConverter.INSTANCE.parse("GBPUSD");
+
+        assertEquals(LongIdInterner.NO_ID, interner.find(eurusd));
+        assertEquals(0, interner.intern(eurusd));
+        assertEquals(1, interner.intern(gbpusd));
+        assertEquals(0, interner.intern(eurusd));
+        assertEquals(1, interner.find(gbpusd));
+        assertEquals(2, interner.size());
+
+        assertEquals(gbpusd, interner.key(1));
+        assertEquals("EURUSD", interner.toString(0));
+    }
+
+    @Test
+    public void zeroIsAKey() {
+        LongIdInterner interner = new LongIdInterner("test", 16);
+        assertEquals(LongIdInterner.NO_ID, interner.find(0));
+        assertEquals(0, interner.intern(42));
+        assertEquals(1, interner.intern(0));
+        assertEquals(1, interner.find(0));
+        assertEquals(0, interner.key(1));
+    }
+
+    @Test
+    public void throwsOnceFull() {
+        LongIdInterner interner = new LongIdInterner("test", 2);
+        interner.intern(1);
+        interner.intern(2);
+        try {
+            interner.intern(3);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("test is full, its capacity is 2", expected.getMessage());
+        }
+        // existing keys are still found
+        assertEquals(1, interner.intern(2));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void tryInternReturnsNoIdOnceFull() {
+        LongIdInterner interner = new LongIdInterner("test", 2);
+        assertEquals(0, interner.tryIntern(1));
+        assertEquals(1, interner.tryIntern(0));
+        assertEquals(LongIdInterner.NO_ID, interner.tryIntern(3));
+        // and every time after
+        assertEquals(LongIdInterner.NO_ID, interner.tryIntern(3));
+        assertEquals(LongIdInterner.NO_ID, interner.find(3));
+        assertEquals(1, interner.tryIntern(0));
+        assertEquals(2, interner.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void manyMoreKeysThanBucketsAreRejectedWithoutFillingTheTable() {
+        // a capacity of 4 has 16 buckets
+        LongIdInterner interner = new LongIdInterner("test", 4);
+        for (long key = 1; key < 1000; key++)
+            assertEquals(key <= 4 ? key - 1 : LongIdInterner.NO_ID, interner.tryIntern(key));
+        assertEquals(LongIdInterner.NO_ID, interner.find(5000));
+        assertEquals(LongIdInterner.NO_ID, interner.tryIntern(5000));
+        assertEquals(3, interner.find(4));
+        assertEquals(4, interner.size());
+    }
+
+    @Test
+    public void keysKeepTheirIdsWhenTheTableGrows() {
+        LongIdInterner interner = new LongIdInterner("test", 2);
+        interner.intern(42);
+        interner.intern(0);
+        assertEquals(LongIdInterner.NO_ID, interner.tryIntern(7));
+
+        LongIdInterner grown = interner.withCapacity(4);
+        assertEquals(4, grown.capacity());
+        assertEquals(0, grown.find(42));
+        assertEquals(1, grown.find(0));
+        // the key the full table could not take is new to the copy
+        assertEquals(LongIdInterner.NO_ID, grown.find(7));
+        assertEquals(2, grown.intern(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noKeyForAnUnusedId() {
+        new LongIdInterner("test", 4).key(0);
+    }
+
+    @Test
+    public void threadsInterningTheSameKeysAgreeOnTheirIds() throws InterruptedException {
+        final int threads = 4;
+        final int keys = 10_000;
+        LongIdInterner interner = new LongIdInterner("test", keys);
+        int[][] ids = new int[threads][keys];
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int[] mine = ids[t];
+            final int offset = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    // each thread starts at a different key, so they race to add most of them
+                    for (int i = 0; i < keys; i++) {
+                        int k = (i + offset * keys / threads) % keys;
+                        mine[k] = interner.intern(k * 1_000_003L);
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        assertNull(error.get());
+
+        assertEquals(keys, interner.size());
+        boolean[] used = new boolean[keys];
+        for (int k = 0; k < keys; k++) {
+            for (int t = 1; t < threads; t++)
+                assertEquals(ids[0][k], ids[t][k]);
+            assertFalse(used[ids[0][k]]);
+            used[ids[0][k]] = true;
+            assertEquals(k * 1_000_003L, interner.key(ids[0][k]));
+        }
+    }
+}
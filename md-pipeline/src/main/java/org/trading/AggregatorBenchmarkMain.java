@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.wire.Base85LongConverter;
+import org.trading.api.AggregatorOut;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+import org.trading.dto.MarketDataSnapshot;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * The {@code AggregatorBenchmarkMain} class measures the throughput of the {@link AggregatorImpl} building
+ * the books of many symbols, calling it directly with increments generated in advance, and counting the snapshots
+ * it publishes rather than writing them, so only the book building is measured.
+ *
+ * <p>The increments are for {@code -Dsymbols} symbols, default 10,000, each with levels up to 20 ticks either side
+ * of a fixed mid, most of them near the top, and a quarter of them deleting a level. First, for {@code -Druns} runs,
+ * default 5, of {@code -DrunTime} seconds, default 10, the increments are applied as fast as possible, reporting
+ * the time, the bytes allocated and the snapshots published per increment. Then they are applied at {@code -Drate}
+ * increments a second, default 5,000,000, for {@code -DrunTime} seconds, reporting how far behind schedule
+ * each batch of increments started.
+ */
+public class AggregatorBenchmarkMain {
+    static final int SYMBOLS = Integer.getInteger("symbols", 10_000);
+    static final int RATE = Integer.getInteger("rate", 5_000_000);
+    static final int RUN_TIME = Integer.getInteger("runTime", 10);
+    static final int RUNS = Integer.getInteger("runs", 5);
+    // the increments generated, applied in a loop
+    static final int INCREMENTS = 1 << 20;
+    // the increments applied between checks of the time when applying them at a rate
+    static final int BATCH = 64;
+
+    static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        // room for the symbols in SharedIds.SYMBOLS
+        if (System.getProperty("internSymbols") == null)
+            System.setProperty("internSymbols", Integer.toString(Math.max(1 << 12, SYMBOLS)));
+    }
+
+    private final long[] symbol = new long[INCREMENTS];
+    private final BuySell[] side = new BuySell[INCREMENTS];
+    private final double[] price = new double[INCREMENTS];
+    private final double[] qty = new double[INCREMENTS];
+    private final MarketDataIncrement mdi = new MarketDataIncrement();
+    private final AggregatorImpl aggregator;
+    private long snapshots;
+
+    AggregatorBenchmarkMain() {
+        Random random = new Random(1);
+        long[] symbols = new long[SYMBOLS];
+        long[] mids = new long[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            symbols[s] = Base85LongConverter.INSTANCE.parse("S" + s);
+            // between 10.00 and 1,000.00
+            mids[s] = 1_000 + random.nextInt(99_000);
+        }
+        for (int i = 0; i < INCREMENTS; i++) {
+            int s = random.nextInt(SYMBOLS);
+            symbol[i] = symbols[s];
+            side[i] = random.nextBoolean() ? BuySell.buy : BuySell.sell;
+            // half within 4 ticks of the top of the book
+            int ticks = 1 + (random.nextBoolean() ? random.nextInt(4) : random.nextInt(20));
+            price[i] = AggregatorImpl.toPrice(mids[s] + side[i].direction * ticks);
+            qty[i] = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(100);
+        }
+        AggregatorOut out = this::count;
+        aggregator = new AggregatorImpl(out);
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("-Dsymbols=%,d -Drate=%,d -DrunTime=%d -Druns=%d -Ddepth=%d%n",
+                SYMBOLS, RATE, RUN_TIME, RUNS, AggregatorImpl.DEPTH);
+        AggregatorBenchmarkMain main = new AggregatorBenchmarkMain();
+        // warm up, and add every symbol
+        for (int i = 0; i < 10; i++)
+            main.apply(0, INCREMENTS);
+
+        for (int run = 1; run <= RUNS; run++)
+            main.unpaced(run);
+        main.paced();
+    }
+
+    private void count(MarketDataSnapshot mds) {
+        snapshots++;
+    }
+
+    private void apply(int from, int to) {
+        for (int i = from; i < to; i++) {
+            aggregator.mdi(mdi.symbol(symbol[i])
+                    .transactTime(i)
+                    .side(side[i])
+                    .price(price[i])
+                    .orderQty(qty[i]));
+        }
+    }
+
+    private void unpaced(int run) {
+        final long end = System.nanoTime() + RUN_TIME * 1_000_000_000L;
+        final long allocated = allocated();
+        final long snapshots0 = snapshots;
+        final long start = System.nanoTime();
+        long count = 0;
+        do {
+            apply(0, INCREMENTS);
+            count += INCREMENTS;
+        } while (System.nanoTime() < end);
+        final long time = System.nanoTime() - start;
+        System.out.printf("run %d %,12.0f increments/s %6.1f ns/increment %6.3f bytes/increment %5.3f snapshots/increment%n",
+                run, count * 1e9 / time, (double) time / count,
+                (double) (allocated() - allocated) / count, (double) (snapshots - snapshots0) / count);
+    }
+
+    private void paced() {
+        final Histogram behind = new Histogram();
+        final long interval = BATCH * 1_000_000_000L / RATE;
+        final long batches = (long) RATE * RUN_TIME / BATCH;
+        final long start = System.nanoTime();
+        long next = start;
+        int i = 0;
+        for (long b = 0; b < batches; b++) {
+            long now;
+            // busy wait, as a pause would be longer than the interval
+            do {
+                now = System.nanoTime();
+            } while (now < next);
+            behind.sampleNanos(now - next);
+            apply(i, i + BATCH);
+            i = (i + BATCH) & (INCREMENTS - 1);
+            next += interval;
+        }
+        final long time = System.nanoTime() - start;
+        System.out.printf("paced at %,d increments/s: %,12.0f increments/s, batches of %d behind schedule by 50%%: %.1f us 99%%: %.1f us 99.9%%: %.1f us worst: %.1f us%n",
+                RATE, batches * BATCH * 1e9 / time, BATCH,
+                behind.percentile(0.5) / 1e3, behind.percentile(0.99) / 1e3,
+                behind.percentile(0.999) / 1e3, behind.percentile(1) / 1e3);
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -3,27 +3,74 @@
  */
 package org.trading;
 
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.wire.Base85LongConverter;
 import org.trading.api.AggregatorIn;
 import org.trading.api.AggregatorOut;
 import org.trading.dto.BuySell;
 import org.trading.dto.MarketDataIncrement;
 import org.trading.dto.MarketDataSnapshot;
+import org.trading.dto.PriceLevels;
+import run.chronicle.common.LongIdInterner;
+import run.chronicle.common.SharedIds;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * This is an implementation of the AggregatorIn interface, known as AggregatorImpl.
- * It maintains a map of market data snapshots and interfaces with an AggregatorOut object
- * to process and handle aggregated market data.
+ * It builds a level 2 {@link OrderBook} for each symbol from the market data increments, and interfaces
+ * with an AggregatorOut object to publish a snapshot of the top of the book when it changes.
+ *
+ * <p>An increment sets the total quantity at its price on its side, inserting the level if it is new,
+ * or deleting it if the quantity is zero. Prices are rounded to {@code -DtickSize}, default 0.01.
+ * A snapshot of the best {@code -Ddepth} levels, default 5, is published when an increment changes one of them,
+ * if there are levels on both sides, or there were before the increment.
+ *
+ * <p>With {@code -Dconflate}, rather than a snapshot for every change, the symbols changed are marked,
+ * and only the latest snapshot of each is published when the {@link Runner} has drained the input queue,
+ * see {@link #onDrained()}, so a strategy doesn't work through stale books during a burst.
+ * With {@code -DconflateUs}, they are also published at least this often while the increments keep coming.
+ *
+ * <p>The books are found by the id of their symbol in {@link SharedIds#SYMBOLS}, and one snapshot is reused,
+ * so once the books have grown to the symbols and depth in use, an increment does not allocate.
+ * Once that table is full, increments for new symbols are dropped, logging a warning for the 1st, 2nd, 4th, 8th, ...
+ * dropped, so a feed of more symbols than {@code -DinternSymbols}, default 4,096, doesn't stop the aggregator.
+ * A dropped symbol doesn't take a place in the table, so any number of them can be dropped.
  */
-public class AggregatorImpl implements AggregatorIn {
+public class AggregatorImpl implements AggregatorIn, DrainListener {
+    // The smallest price increment, prices are rounded to a multiple of this
+    static final double TICK_SIZE = Double.parseDouble(System.getProperty("tickSize", "0.01"));
+    // The number of levels on each side in a snapshot
+    static final int DEPTH = Integer.getInteger("depth", 5);
+    // dividing by this rather than multiplying by TICK_SIZE gives e.g. 1.1 rather than 1.1000000000000001 for 110 ticks
+    private static final double TICKS_PER_UNIT = 1 / TICK_SIZE;
+    // Publish the latest snapshot of each symbol changed when the input is drained, rather than every change
+    static final boolean CONFLATE = Jvm.getBoolean("conflate");
+    // With CONFLATE, the most microseconds between publishing the symbols changed, or 0 for only when drained
+    static final long CONFLATE_US = Long.getLong("conflateUs", 0);
 
-    // A map holding market data snapshots, keyed by a long identifier
-    private final Map<Long, MarketDataSnapshot> md = new HashMap<>();
+    // The books, indexed by the id of their symbol, with the symbol and the time of the last change
+    private OrderBook[] books = new OrderBook[64];
+    private long[] symbols = new long[64];
+    private long[] transactTimes = new long[64];
+
+    // When conflating, the ids of the symbols changed since their snapshots were last published, in order
+    private final boolean conflate;
+    private final long conflateNs;
+    private boolean[] changed = new boolean[64];
+    private int[] changedIds = new int[64];
+    private int changedCount;
+    private long lastPublished;
+    // Increments dropped as their symbol is new and the symbol table is full
+    private long dropped;
+
+    // The snapshot published, reused for every symbol
+    private final MarketDataSnapshot snapshot = new MarketDataSnapshot();
 
     // The output interface for handling aggregated data
     private final AggregatorOut out;
+    // The ids of the symbols, usually SharedIds.SYMBOLS
+    private final LongIdInterner symbolIds;
 
     /**
      * Constructor for the AggregatorImpl class.
@@ -32,7 +79,26 @@ public class AggregatorImpl implements AggregatorIn {
      * @param out An implementation of the AggregatorOut interface for handling aggregated data
      */
     public AggregatorImpl(AggregatorOut out) {
+        this(out, CONFLATE, CONFLATE_US);
+    }
+
+    /**
+     * Constructor for the AggregatorImpl class, conflating the snapshots or not regardless of {@code -Dconflate}.
+     *
+     * @param out        An implementation of the AggregatorOut interface for handling aggregated data
+     * @param conflate   {@code true} to publish only the latest snapshot of each symbol changed when drained
+     * @param conflateUs when conflating, the most microseconds between publishing the symbols changed, or 0 for no limit
+     */
+    public AggregatorImpl(AggregatorOut out, boolean conflate, long conflateUs) {
+        this(out, conflate, conflateUs, SharedIds.SYMBOLS);
+    }
+
+    AggregatorImpl(AggregatorOut out, boolean conflate, long conflateUs, LongIdInterner symbolIds) {
         this.out = out;
+        this.symbolIds = symbolIds;
+        this.conflate = conflate;
+        this.conflateNs = conflateUs * 1_000;
+        lastPublished = System.nanoTime();
     }
 
     /**
@@ -47,14 +113,97 @@ public class AggregatorImpl implements AggregatorIn {
 
     @Override
     public void mdi(MarketDataIncrement mdi) {
-        MarketDataSnapshot aggregated = md.computeIfAbsent(mdi.symbol(), MarketDataSnapshot::new);
-        // trivially simple aggregation and book build
-        if (mdi.side() == BuySell.buy)
-            aggregated.bid(mdi.price());
-        else
-            aggregated.ask(mdi.price());
-        aggregated.transactTime(mdi.transactTime());
-        if (aggregated.valid())
-            out.marketDataSnapshot(aggregated);
+        final BuySell side = mdi.side();
+        // an increment without a side, a price or a quantity can't be applied
+        if (side == null || !(mdi.price() > 0) || Double.isNaN(mdi.orderQty()))
+            return;
+        final int id = id(mdi.symbol());
+        if (id == LongIdInterner.NO_ID) {
+            if (Long.bitCount(++dropped) == 1)
+                Jvm.warn().on(getClass(), "Dropped " + dropped + " increments, the last for "
+                        + Base85LongConverter.INSTANCE.asString(mdi.symbol()) + ", as " + symbolIds + " is full");
+            return;
+        }
+        final OrderBook book = books[id];
+        final boolean wasValid = book.valid();
+        final int position = book.update(side, toTick(mdi.price()), mdi.orderQty());
+        if (position == OrderBook.UNCHANGED || position >= DEPTH || !(wasValid || book.valid()))
+            return;
+        transactTimes[id] = mdi.transactTime();
+        if (!conflate) {
+            out.marketDataSnapshot(snapshot(id));
+            return;
+        }
+        if (!changed[id]) {
+            changed[id] = true;
+            changedIds[changedCount++] = id;
+        }
+        if (conflateNs > 0 && System.nanoTime() - lastPublished >= conflateNs)
+            publishChanged();
+    }
+
+    /**
+     * When conflating, publishes the latest snapshot of each symbol changed since it was last published.
+     */
+    @Override
+    public void onDrained() {
+        if (changedCount > 0)
+            publishChanged();
+    }
+
+    private void publishChanged() {
+        for (int i = 0; i < changedCount; i++) {
+            final int id = changedIds[i];
+            changed[id] = false;
+            out.marketDataSnapshot(snapshot(id));
+        }
+        changedCount = 0;
+        lastPublished = System.nanoTime();
+    }
+
+    // the id of the symbol, adding a book for it if it is new, or NO_ID if it is new and the symbol table is full
+    private int id(long symbol) {
+        final int id = symbolIds.tryIntern(symbol);
+        if (id == LongIdInterner.NO_ID)
+            return id;
+        if (id >= books.length) {
+            final int length = Math.max(id + 1, books.length * 2);
+            books = Arrays.copyOf(books, length);
+            symbols = Arrays.copyOf(symbols, length);
+            transactTimes = Arrays.copyOf(transactTimes, length);
+            changed = Arrays.copyOf(changed, length);
+            changedIds = Arrays.copyOf(changedIds, length);
+        }
+        if (books[id] == null) {
+            books[id] = new OrderBook();
+            symbols[id] = symbol;
+        }
+        return id;
+    }
+
+    private MarketDataSnapshot snapshot(int id) {
+        final OrderBook book = books[id];
+        snapshot.symbol(symbols[id])
+                .transactTime(transactTimes[id])
+                .bid(book.depth(BuySell.buy) > 0 ? toPrice(book.tick(BuySell.buy, 0)) : Double.NaN)
+                .ask(book.depth(BuySell.sell) > 0 ? toPrice(book.tick(BuySell.sell, 0)) : Double.NaN);
+        copyLevels(book, BuySell.buy, snapshot.bids());
+        copyLevels(book, BuySell.sell, snapshot.asks());
+        return snapshot;
+    }
+
+    private static void copyLevels(OrderBook book, BuySell side, PriceLevels levels) {
+        levels.clear();
+        final int depth = Math.min(DEPTH, book.depth(side));
+        for (int i = 0; i < depth; i++)
+            levels.add(toPrice(book.tick(side, i)), book.qty(side, i));
+    }
+
+    static long toTick(double price) {
+        return Math.round(price * TICKS_PER_UNIT);
+    }
+
+    static double toPrice(long tick) {
+        return tick / TICKS_PER_UNIT;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.wire.Base85LongConverter;
+import org.trading.api.AggregatorIn;
+import org.trading.api.AggregatorOut;
+import org.trading.api.OMSIn;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+import org.trading.dto.MarketDataSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The {@code ConflationBenchmarkMain} class replays a burst of market data through the aggregator and the strategy,
+ * each run by a {@link Runner} between queues as they would be in production, with each snapshot published,
+ * and with only the latest snapshot of each symbol changed, see {@link AggregatorImpl#CONFLATE}.
+ *
+ * <p>For each mode in {@code -Dmodes}, default {@code off,drained,100}, meaning not conflating, conflating until the
+ * input is drained, and conflating for at most that many microseconds, {@code -Dburst} increments, default 200,000,
+ * for {@code -Dsymbols} symbols, default 100, are written to {@code agg-in} as fast as possible. It reports the
+ * snapshots written to {@code agg-out}, the age of the market data in each snapshot when the strategy reads it,
+ * and how long the strategy takes to catch up with the end of the burst.
+ */
+public class ConflationBenchmarkMain {
+    static final String MODES = System.getProperty("modes", "off,drained,100");
+    static final int BURST = Integer.getInteger("burst", 200_000);
+    static final int SYMBOLS = Integer.getInteger("symbols", 100);
+    static final String PATH = System.getProperty("path", OS.TMP);
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("-Dmodes=%s -Dburst=%,d -Dsymbols=%,d -Ddepth=%d%n", MODES, BURST, SYMBOLS, AggregatorImpl.DEPTH);
+        List<String> rows = new ArrayList<>();
+        for (String mode : MODES.split(",")) {
+            rows.add(run(mode.trim()));
+            // as each completes, in case it takes a while
+            System.out.println(rows.get(rows.size() - 1));
+        }
+        System.out.println("mode      snapshots  snapshots/increment  age 50% us  age 99% us  age worst us  caught up ms");
+        rows.forEach(System.out::println);
+    }
+
+    private static String run(String mode) throws InterruptedException {
+        final boolean conflate = !mode.equals("off");
+        final long conflateUs = conflate && !mode.equals("drained") ? Long.parseLong(mode) : 0;
+        final String dir = PATH + "/conflation-" + System.nanoTime();
+        final Recorder recorder = new Recorder();
+
+        Thread aggregator = new Thread(() -> Runner.run(dir + "/agg-in", dir + "/agg-out", AggregatorOut.class,
+                out -> new AggregatorImpl(out, conflate, conflateUs)), "aggregator");
+        Thread strategy = new Thread(() -> Runner.run(dir + "/agg-out", dir + "/strat-out", OMSIn.class,
+                oms -> recorder.strategy(new StrategyImpl(oms))), "strategy");
+        aggregator.start();
+        strategy.start();
+        // both start from the end of their input queues
+        Jvm.pause(1_000);
+
+        final long start = System.nanoTime();
+        writeBurst(dir + "/agg-in");
+        // until nothing more has reached the strategy for a second
+        while (System.nanoTime() - recorder.last < 1_000_000_000L || recorder.last < start)
+            Jvm.pause(100);
+
+        aggregator.interrupt();
+        strategy.interrupt();
+        aggregator.join();
+        strategy.join();
+        IOTools.deleteDirWithFiles(dir);
+
+        return String.format("%-8s %10d %20.3f %11.1f %11.1f %13.1f %13.1f",
+                mode, recorder.snapshots, (double) recorder.snapshots / BURST,
+                recorder.age.percentile(0.5) / 1e3, recorder.age.percentile(0.99) / 1e3,
+                recorder.age.percentile(1) / 1e3, (recorder.last - start) / 1e6);
+    }
+
+    // each symbol's levels move around a mid taking a random walk, a quarter of the increments deleting a level
+    private static void writeBurst(String path) {
+        final Random random = new Random(1);
+        final long[] symbols = new long[SYMBOLS];
+        final long[] mids = new long[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            symbols[s] = Base85LongConverter.INSTANCE.parse("S" + s);
+            mids[s] = 10_000 + random.nextInt(90_000);
+        }
+        final MarketDataIncrement mdi = new MarketDataIncrement();
+        try (ChronicleQueue queue = SingleChronicleQueueBuilder.binary(path).build();
+             ExcerptAppender appender = queue.createAppender()) {
+            final AggregatorIn in = appender.methodWriter(AggregatorIn.class);
+            for (int i = 0; i < BURST; i++) {
+                final int s = random.nextInt(SYMBOLS);
+                mids[s] += random.nextInt(3) - 1;
+                final BuySell side = random.nextBoolean() ? BuySell.buy : BuySell.sell;
+                in.mdi(mdi.symbol(symbols[s])
+                        .side(side)
+                        .price(AggregatorImpl.toPrice(mids[s] + side.direction * (1 + random.nextInt(10))))
+                        .orderQty(random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(100))
+                        // when it was written, to measure its age when it reaches the strategy
+                        .transactTime(System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * Records the age of each snapshot as the strategy reads it, before passing it on.
+     */
+    static final class Recorder implements AggregatorOut {
+        final Histogram age = new Histogram();
+        AggregatorOut strategy;
+        volatile long snapshots;
+        volatile long last;
+
+        AggregatorOut strategy(AggregatorOut strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        @Override
+        public void marketDataSnapshot(MarketDataSnapshot mds) {
+            final long now = System.nanoTime();
+            age.sampleNanos(now - mds.transactTime());
+            strategy.marketDataSnapshot(mds);
+            snapshots++;
+            last = now;
+        }
+    }
+}
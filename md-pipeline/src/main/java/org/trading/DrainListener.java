@@ -0,0 +1,16 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+/**
+ * Implemented by a service which needs to know when the {@link Runner} has read every message in its input queue,
+ * e.g. to publish what it has held back while messages were arriving faster than it could handle them.
+ */
+public interface DrainListener {
+
+    /**
+     * Called when there are no more messages to read, for now.
+     */
+    void onDrained();
+}
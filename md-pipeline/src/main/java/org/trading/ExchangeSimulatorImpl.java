@@ -22,8 +22,27 @@ import java.util.Random;
  * This class, ExchangeSimulatorImpl, simulates an exchange by generating market data and sending it to an aggregator.
  * It utilizes the ChronicleQueue to manage data and demonstrates how market data increments are created, processed,
  * and sent through the system. It continues to send market data until the user decides to exit.
+ *
+ * <p>With {@code -Drate}, it instead generates that many increments a second, up to millions, for load testing,
+ * see {@link MarketDataGenerator}, for {@code -Dsymbols} symbols, default 1,000, with {@code -Darrivals} of
+ * {@code uniform}, {@code poisson}, the default, or {@code bursty}, in bursts of {@code -Dburst} increments,
+ * default 1,000, from {@code -Dseed}, default 1, for {@code -DrunTime} seconds, default 60, or 0 to run until stopped.
+ * Each increment's {@code transactTime} is when it was due, so the latency of the pipeline measured from it
+ * includes any time it waited because the generator or the queue fell behind.
  */
 public class ExchangeSimulatorImpl {
+    // The increments a second to generate, or 0 to send one for each blank line
+    static final double RATE = Double.parseDouble(System.getProperty("rate", "0"));
+    // The number of symbols to generate increments for
+    static final int SYMBOLS = Integer.getInteger("symbols", 1_000);
+    // How the generated increments are spaced: uniform, poisson or bursty
+    static final String ARRIVALS = System.getProperty("arrivals", "poisson");
+    // With -Darrivals=bursty, the increments in each burst
+    static final int BURST = Integer.getInteger("burst", 1_000);
+    // The seed of the generator, so a run can be repeated
+    static final long SEED = Long.getLong("seed", 1);
+    // The seconds to generate increments for, or 0 for no limit
+    static final int RUN_TIME = Integer.getInteger("runTime", 60);
 
     /**
      * The main method of ExchangeSimulatorImpl, responsible for setting up the simulation and running it.
@@ -41,38 +60,78 @@ public class ExchangeSimulatorImpl {
             ExcerptAppender appender = q.createAppender()) {
             // Acquiring the method writer for the AggregatorIn interface
             AggregatorIn in = appender.methodWriter(AggregatorIn.class);
+            if (RATE > 0)
+                generate(in);
+            else
+                interactive(in);
+        }
+        System.out.println("Finished");
+    }
 
-            // Initializing market data increment with a starting value
-            double mid = 23418.80;
-            MarketDataIncrement mdi = new MarketDataIncrement()
-                    .orderQty(1)
-                    .symbol("BTCUSD");
+    /**
+     * Sends an increment, moving the price of BTCUSD at random, each time a blank line is read from stdin.
+     *
+     * @param in where to send the increments
+     * @throws IOException If an I/O error occurs reading stdin
+     */
+    static void interactive(AggregatorIn in) throws IOException {
+        // Initializing market data increment with a starting value
+        double mid = 23418.80;
+        MarketDataIncrement mdi = new MarketDataIncrement()
+                .orderQty(1)
+                .symbol("BTCUSD");
 
-            System.out.println("\nHit blank line to send market data, anything else to exit");
-            Random random = new Random();
-            BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        System.out.println("\nHit blank line to send market data, anything else to exit");
+        Random random = new Random();
+        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 
-            // Main loop for the interactive simulation
-            while ("".equals(br.readLine())) {
-                // Simulating a small change in the mid-price
-                mid += random.nextDouble() - 0.5;
+        // Main loop for the interactive simulation
+        while ("".equals(br.readLine())) {
+            // Simulating a small change in the mid-price
+            mid += random.nextDouble() - 0.5;
 
-                // Setting transaction time to the current time in microseconds
-                mdi.transactTime(SystemTimeProvider.INSTANCE.currentTimeMicros())
-                        .side(random.nextBoolean() ? BuySell.buy : BuySell.sell);
-                        // Randomly selecting Buy or Sell
+            // Setting transaction time to the current time in microseconds
+            mdi.transactTime(SystemTimeProvider.INSTANCE.currentTimeMicros())
+                    .side(random.nextBoolean() ? BuySell.buy : BuySell.sell);
+                    // Randomly selecting Buy or Sell
 
-                // Randomly generating a half spread, adjusted based on the side of the trade
-                double halfSpread = random.nextDouble();
-                halfSpread *= mdi.side().direction;
+            // Randomly generating a half spread, adjusted based on the side of the trade
+            double halfSpread = random.nextDouble();
+            halfSpread *= mdi.side().direction;
 
-                // Adjusting the price of the market data increment
-                mdi.price(mid + halfSpread);
+            // Adjusting the price of the market data increment
+            mdi.price(mid + halfSpread);
 
-                // Sending the market data increment to the aggregator
-                in.mdi(mdi);
+            // Sending the market data increment to the aggregator
+            in.mdi(mdi);
+        }
+    }
+
+    /**
+     * Sends increments as they fall due, each stamped with when it was due, reporting every second how far behind it is.
+     *
+     * @param in where to send the increments
+     */
+    static void generate(AggregatorIn in) {
+        System.out.printf("Generating -Drate=%,.0f -Dsymbols=%,d -Darrivals=%s -Dburst=%,d -Dseed=%d -DrunTime=%d%n",
+                RATE, SYMBOLS, ARRIVALS, BURST, SEED, RUN_TIME);
+        final MarketDataGenerator generator = new MarketDataGenerator(SYMBOLS, SEED, ARRIVALS, RATE, BURST);
+        final MarketDataIncrement mdi = new MarketDataIncrement();
+        final long end = RUN_TIME > 0 ? RUN_TIME * 1_000_000_000L : Long.MAX_VALUE;
+        // the schedule is relative to System.nanoTime(), and transactTime is the wall clock time it was due
+        final long startEpochNanos = SystemTimeProvider.INSTANCE.currentTimeNanos();
+        final long start = System.nanoTime();
+        long report = 1_000_000_000L;
+        long sent = 0;
+        for (long due; (due = generator.nextDue()) < end; sent++) {
+            MarketDataGenerator.waitUntil(start + due);
+            in.mdi(generator.next(mdi).transactTime(startEpochNanos + due));
+            if (due >= report) {
+                final long behind = System.nanoTime() - start - due;
+                System.out.printf("%,d increments sent, %,.1f us behind%n", sent + 1, behind / 1e3);
+                report += 1_000_000_000L;
             }
         }
-        System.out.println("Finished");
+        System.out.printf("%,d increments sent%n", sent);
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.trading.api.AggregatorOut;
+import org.trading.api.OMSIn;
+import org.trading.dto.MarketDataSnapshot;
+import org.trading.dto.NewOrderSingle;
+
+/**
+ * The {@code FusedPipeline} class runs the aggregator, the strategy and the OMS as one {@link Runner.Step},
+ * calling each other directly on one thread, rather than through {@code agg-out} and {@code strat-out}.
+ *
+ * <p>The market data is still read from {@code agg-in}, which is the journal to replay them from. With
+ * {@code journal}, what the aggregator and the strategy send to the next stage is also written to {@code agg-out}
+ * and {@code strat-out}, after the next stage has handled it, so the journal adds to the time between orders
+ * but not to the time to send one. Chronicle Queue writes to memory-mapped files, which the OS writes to disk
+ * in the background, so the stages never wait for the disk.
+ */
+public class FusedPipeline implements Runner.Step {
+    private final String aggIn;
+    private final String aggOut;
+    private final String stratOut;
+    private final boolean journal;
+    private final OMSIn oms;
+    private ChronicleQueue in;
+    private ChronicleQueue aggOutQueue;
+    private ChronicleQueue stratOutQueue;
+    private MethodReader mr;
+    private DrainListener drainListener;
+
+    /**
+     * @param aggIn    the queue of market data
+     * @param aggOut   the queue to journal the snapshots of the aggregator to, if {@code journal}
+     * @param stratOut the queue to journal the orders of the strategy to, if {@code journal}
+     * @param journal  {@code true} to journal the output of each stage as well as the market data
+     * @param oms      the OMS to send the orders to
+     */
+    public FusedPipeline(String aggIn, String aggOut, String stratOut, boolean journal, OMSIn oms) {
+        this.aggIn = aggIn;
+        this.aggOut = aggOut;
+        this.stratOut = stratOut;
+        this.journal = journal;
+        this.oms = oms;
+    }
+
+    /**
+     * Wires the aggregator to the strategy, and the strategy to the OMS, each journaling what it sends if given one.
+     *
+     * @param oms              the OMS to send the orders to
+     * @param snapshotJournal  where to journal the snapshots, or {@code null}
+     * @param orderJournal     where to journal the orders, or {@code null}
+     * @return the aggregator, to send the market data to
+     */
+    static AggregatorImpl fuse(OMSIn oms, AggregatorOut snapshotJournal, OMSIn orderJournal) {
+        final OMSIn toOms = orderJournal == null ? oms : new JournaledOMSIn(oms, orderJournal);
+        final StrategyImpl strategy = new StrategyImpl(toOms);
+        final AggregatorOut toStrategy = snapshotJournal == null ? strategy : new JournaledAggregatorOut(strategy, snapshotJournal);
+        return new AggregatorImpl(toStrategy);
+    }
+
+    @Override
+    public void open() {
+        in = SingleChronicleQueueBuilder.binary(aggIn).build();
+        AggregatorOut snapshotJournal = null;
+        OMSIn orderJournal = null;
+        if (journal) {
+            aggOutQueue = SingleChronicleQueueBuilder.binary(aggOut).build();
+            stratOutQueue = SingleChronicleQueueBuilder.binary(stratOut).build();
+            snapshotJournal = aggOutQueue.createAppender().methodWriter(AggregatorOut.class);
+            orderJournal = stratOutQueue.createAppender().methodWriter(OMSIn.class);
+        }
+        final AggregatorImpl aggregator = fuse(oms, snapshotJournal, orderJournal);
+        mr = in.createTailer().toEnd().methodReader(aggregator);
+        drainListener = aggregator;
+    }
+
+    @Override
+    public boolean readOne() {
+        if (mr.readOne())
+            return true;
+        drainListener.onDrained();
+        return false;
+    }
+
+    @Override
+    public void close() {
+        Closeable.closeQuietly(in, aggOutQueue, stratOutQueue);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return in == null || in.isClosed();
+    }
+
+    /**
+     * Sends the snapshots to the strategy, then journals them.
+     */
+    static final class JournaledAggregatorOut implements AggregatorOut {
+        private final AggregatorOut next;
+        private final AggregatorOut journal;
+
+        JournaledAggregatorOut(AggregatorOut next, AggregatorOut journal) {
+            this.next = next;
+            this.journal = journal;
+        }
+
+        @Override
+        public void marketDataSnapshot(MarketDataSnapshot mds) {
+            next.marketDataSnapshot(mds);
+            journal.marketDataSnapshot(mds);
+        }
+    }
+
+    /**
+     * Sends the orders to the OMS, then journals them.
+     */
+    static final class JournaledOMSIn implements OMSIn {
+        private final OMSIn next;
+        private final OMSIn journal;
+
+        JournaledOMSIn(OMSIn next, OMSIn journal) {
+            this.next = next;
+            this.journal = journal;
+        }
+
+        @Override
+        public void newOrderSingle(NewOrderSingle nos) {
+            next.newOrderSingle(nos);
+            journal.newOrderSingle(nos);
+        }
+    }
+}
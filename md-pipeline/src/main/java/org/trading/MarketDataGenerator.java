@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.wire.Base85LongConverter;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code MarketDataGenerator} class generates a reproducible stream of {@link MarketDataIncrement}s for many
+ * symbols, and when each is due, so the pipeline can be driven at a steady, random or bursty rate.
+ *
+ * <p>Each symbol has a mid, in ticks of {@link AggregatorImpl#TICK_SIZE}, taking a random walk. Its bids are always
+ * below the mid and its asks above, so the books never cross: when the mid moves, the increment deletes the level
+ * it has moved onto. Otherwise an increment sets the quantity at one of the levels nearest the mid,
+ * most often the closest, or deletes it.
+ *
+ * <p>The time each increment is due is set by the arrivals, regardless of when the previous ones were sent,
+ * so a sender which falls behind sends the next ones as soon as it can, and when they were due is how late they are.
+ * Stamping each increment with when it was due, rather than when it was sent, avoids coordinated omission
+ * in the latencies measured from it. The arrivals are one of
+ * <ul>
+ *     <li>{@code uniform}, evenly spaced at the rate,</li>
+ *     <li>{@code poisson}, with random gaps averaging the rate, and</li>
+ *     <li>{@code bursty}, bursts of increments at ten times the rate, with gaps between them so the average is the rate.</li>
+ * </ul>
+ *
+ * <p>It uses a {@link SplittableRandom} rather than a {@link java.util.Random}, as it is just as reproducible
+ * from a seed, and several times faster, which matters at millions of increments a second.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+public class MarketDataGenerator {
+    // The increments which move the mid, rather than change a level
+    static final double MOVE_PROBABILITY = 0.1;
+    // The levels either side of the mid which are changed
+    static final int LEVELS = 10;
+    // How many times the rate increments are sent at in a burst
+    static final int BURST_SPEED_UP = 10;
+    private static final int UNIFORM = 0;
+    private static final int POISSON = 1;
+    private static final int BURSTY = 2;
+
+    private final SplittableRandom random;
+    private final long[] symbols;
+    private final long[] mids;
+    private final int arrivals;
+    private final double intervalNs;
+    private final int burst;
+    private double due;
+    private long count;
+
+    /**
+     * @param symbols  the number of symbols, named S0, S1, ...
+     * @param seed     the seed of the {@link SplittableRandom}, so the same increments, due at the same times, are generated each time
+     * @param arrivals how the increments are spaced, one of uniform, poisson or bursty
+     * @param rate     the average increments a second
+     * @param burst    with bursty arrivals, the increments in each burst
+     */
+    public MarketDataGenerator(int symbols, long seed, String arrivals, double rate, int burst) {
+        switch (arrivals) {
+            case "uniform":
+                this.arrivals = UNIFORM;
+                break;
+            case "poisson":
+                this.arrivals = POISSON;
+                break;
+            case "bursty":
+                this.arrivals = BURSTY;
+                break;
+            default:
+                throw new IllegalArgumentException("arrivals must be uniform, poisson or bursty, not " + arrivals);
+        }
+        if (!(rate > 0))
+            throw new IllegalArgumentException("rate must be positive, not " + rate);
+        this.random = new SplittableRandom(seed);
+        this.symbols = new long[symbols];
+        this.mids = new long[symbols];
+        this.intervalNs = 1e9 / rate;
+        this.burst = Math.max(1, burst);
+        for (int s = 0; s < symbols; s++) {
+            this.symbols[s] = Base85LongConverter.INSTANCE.parse("S" + s);
+            // between 10.00 and 1,000.00
+            mids[s] = 1_000 + random.nextInt(99_000);
+        }
+    }
+
+    /**
+     * @return when the next increment is due, in nanoseconds from the start, advancing the schedule
+     */
+    public long nextDue() {
+        final long due = (long) this.due;
+        switch (arrivals) {
+            case UNIFORM:
+                this.due += intervalNs;
+                break;
+            case POISSON:
+                // exponentially distributed gaps, 1 - nextDouble() being in (0, 1]
+                this.due -= Math.log(1 - random.nextDouble()) * intervalNs;
+                break;
+            default:
+                // the burst at ten times the rate, then the rest of the time its increments would take at the rate
+                this.due += intervalNs / BURST_SPEED_UP;
+                if ((count + 1) % burst == 0)
+                    this.due += burst * intervalNs * (BURST_SPEED_UP - 1) / BURST_SPEED_UP;
+                break;
+        }
+        count++;
+        return due;
+    }
+
+    /**
+     * Sets the symbol, side, price and quantity of the next increment, leaving its {@code transactTime} to the caller.
+     *
+     * @param mdi the increment to fill in, which can be reused
+     * @return the increment
+     */
+    public MarketDataIncrement next(MarketDataIncrement mdi) {
+        final int s = random.nextInt(symbols.length);
+        mdi.symbol(symbols[s]);
+        if (random.nextDouble() < MOVE_PROBABILITY) {
+            // move onto the best level of one side, deleting it
+            final BuySell side = random.nextBoolean() ? BuySell.buy : BuySell.sell;
+            mids[s] += side.direction;
+            return mdi.side(side)
+                    .price(AggregatorImpl.toPrice(mids[s]))
+                    .orderQty(0);
+        }
+        final BuySell side = random.nextBoolean() ? BuySell.buy : BuySell.sell;
+        // the nearer levels more often
+        final int level = Math.min(random.nextInt(LEVELS), random.nextInt(LEVELS));
+        return mdi.side(side)
+                .price(AggregatorImpl.toPrice(mids[s] + side.direction * (1 + level)))
+                .orderQty(random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(100));
+    }
+
+    /**
+     * Waits until {@code System.nanoTime()} reaches a time, parking until close to it, then spinning.
+     * Returns at once if it has already passed.
+     */
+    public static void waitUntil(long nanoTime) {
+        long now;
+        while ((now = System.nanoTime()) < nanoTime) {
+            if (nanoTime - now > 50_000)
+                LockSupport.parkNanos(nanoTime - now - 50_000);
+        }
+    }
+}
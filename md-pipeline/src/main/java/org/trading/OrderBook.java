@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import org.trading.dto.BuySell;
+
+import java.util.Arrays;
+
+/**
+ * The {@code OrderBook} class is the level 2 book of one symbol, holding the total quantity at each price
+ * on each side, as sent in {@link org.trading.dto.MarketDataIncrement}s.
+ *
+ * <p>Prices are held as a tick index. Each side keeps its price levels in one primitive array of key and quantity
+ * pairs, sorted so the best level is the last pair, making the common cases of changing, adding or removing a level
+ * near the top of the book cheap. A level's quantity is next to its key, and the book has no other objects,
+ * so with many books, most of which are not in the cache, an update touches as few cache lines as it can.
+ * Once the arrays have grown to the depth in use, updating the book does not allocate.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+class OrderBook {
+    // The position returned by update when the book did not change
+    static final int UNCHANGED = -1;
+
+    // key and Double.doubleToRawLongBits(qty) of each bid level, sorted by ascending key
+    private long[] bids = new long[32];
+    // key and Double.doubleToRawLongBits(qty) of each ask level, sorted by ascending key
+    private long[] asks = new long[32];
+    private int bidCount;
+    private int askCount;
+
+    /**
+     * Sets the quantity at a price level, inserting the level if it is new, or deleting it if the quantity is zero or less.
+     *
+     * @param side the side of the level
+     * @param tick the price of the level as a tick index
+     * @param qty  the total quantity at the level
+     * @return the position of the level changed, where 0 is the best level, or {@link #UNCHANGED}
+     * if the quantity was already this, or a level to delete was not there
+     */
+    int update(BuySell side, long tick, double qty) {
+        final boolean buy = side == BuySell.buy;
+        long[] levels = buy ? bids : asks;
+        final int count = buy ? bidCount : askCount;
+        final long key = buy ? tick : -tick;
+        int level = find(levels, count, key);
+        if (level >= 0) {
+            final int position = count - 1 - level;
+            if (qty > 0) {
+                final long bits = Double.doubleToRawLongBits(qty);
+                if (levels[2 * level + 1] == bits)
+                    return UNCHANGED;
+                levels[2 * level + 1] = bits;
+            } else {
+                System.arraycopy(levels, 2 * level + 2, levels, 2 * level, 2 * position);
+                count(buy, count - 1);
+            }
+            return position;
+        }
+        if (!(qty > 0))
+            return UNCHANGED;
+        level = -level - 1;
+        if (2 * count == levels.length) {
+            levels = Arrays.copyOf(levels, 4 * count);
+            if (buy)
+                bids = levels;
+            else
+                asks = levels;
+        }
+        System.arraycopy(levels, 2 * level, levels, 2 * level + 2, 2 * (count - level));
+        levels[2 * level] = key;
+        levels[2 * level + 1] = Double.doubleToRawLongBits(qty);
+        count(buy, count + 1);
+        return count - level;
+    }
+
+    /**
+     * @return the number of price levels on this side
+     */
+    int depth(BuySell side) {
+        return side == BuySell.buy ? bidCount : askCount;
+    }
+
+    /**
+     * @return the price of the n-th best level on this side as a tick index, where 0 is the best level
+     */
+    long tick(BuySell side, int n) {
+        return side == BuySell.buy
+                ? bids[2 * (bidCount - 1 - n)]
+                : -asks[2 * (askCount - 1 - n)];
+    }
+
+    /**
+     * @return the quantity at the n-th best level on this side, where 0 is the best level
+     */
+    double qty(BuySell side, int n) {
+        return Double.longBitsToDouble(side == BuySell.buy
+                ? bids[2 * (bidCount - 1 - n) + 1]
+                : asks[2 * (askCount - 1 - n) + 1]);
+    }
+
+    /**
+     * @return {@code true} if there is at least one level on both sides
+     */
+    boolean valid() {
+        return bidCount > 0 && askCount > 0;
+    }
+
+    private void count(boolean buy, int count) {
+        if (buy)
+            bidCount = count;
+        else
+            askCount = count;
+    }
+
+    /**
+     * @return the index of the level, or {@code -(insertion point) - 1} if there is none
+     */
+    private static int find(long[] levels, int count, long key) {
+        // most activity is at the top of the book, which is last, and bids sort ascending by tick and asks descending
+        int high = count - 1;
+        if (high >= 0 && levels[2 * high] <= key)
+            return levels[2 * high] == key ? high : -count - 1;
+        int low = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midKey = levels[2 * mid];
+            if (midKey < key)
+                low = mid + 1;
+            else if (midKey > key)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -low - 1;
+    }
+}
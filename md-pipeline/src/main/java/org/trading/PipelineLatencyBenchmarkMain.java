@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Histogram;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import org.trading.api.AggregatorIn;
+import org.trading.api.AggregatorOut;
+import org.trading.api.OMSIn;
+import org.trading.api.OMSOut;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+import org.trading.dto.NewOrderSingle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code PipelineLatencyBenchmarkMain} class measures the latency from market data being written to
+ * {@code agg-in}, as the {@link ExchangeSimulatorImpl} does, to the order the strategy sends for it reaching the OMS,
+ * through the aggregator, {@code agg-out}, the strategy and {@code strat-out}, for each way {@link Runner} can wait.
+ *
+ * <p>For each pauser in {@code -Dpausers}, default {@code busy,balanced,park,sleep}, the three stages are run
+ * on a thread each, together on one thread as an event loop, and fused into one {@link FusedPipeline} calling
+ * each other directly, without and then with journaling their output. Finally, the fused stages are called
+ * directly with each increment, measuring the time in the stages alone. Increments are written at {@code -Drate}
+ * a second, default 10,000, for {@code -DrunTime} seconds, default 5, after a second to warm up, each changing
+ * the quantity at the top of a book with a spread the strategy trades on, so every increment leads to an order.
+ * The latency of each is measured from when it was due to be written, so a late increment is counted as late.
+ * With {@code -Darrivals}, default {@code uniform}, they arrive as {@code poisson} or {@code bursty} instead, and
+ * with {@code -Dsymbols}, they are generated for that many symbols by the {@link MarketDataGenerator}, when only
+ * those changing the top of a book lead to an order.
+ * The OMS stage records the orders in place of the {@link OMSImpl}, which prints them.
+ */
+public class PipelineLatencyBenchmarkMain {
+    static final String PAUSERS = System.getProperty("pausers", "busy,balanced,park,sleep");
+    static final int RATE = Integer.getInteger("rate", 10_000);
+    static final int RUN_TIME = Integer.getInteger("runTime", 5);
+    static final String ARRIVALS = System.getProperty("arrivals", "uniform");
+    // 0 for the one book with every increment leading to an order
+    static final int SYMBOLS = Integer.getInteger("symbols", 0);
+    static final String PATH = System.getProperty("path", OS.TMP);
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("-Dpausers=%s -Drate=%,d -DrunTime=%d -Darrivals=%s -Dsymbols=%,d%n",
+                PAUSERS, RATE, RUN_TIME, ARRIVALS, SYMBOLS);
+        List<String> rows = new ArrayList<>();
+        for (String pauser : PAUSERS.split(",")) {
+            for (String layout : new String[]{"threads", "loop", "fused", "journal"}) {
+                rows.add(run(pauser.trim(), layout));
+                // as each completes, in case it takes a while
+                System.out.println(rows.get(rows.size() - 1));
+            }
+        }
+        rows.add(direct());
+        System.out.println("pauser   layout      orders     50% us     90% us     99% us   99.9% us   worst us");
+        rows.forEach(System.out::println);
+    }
+
+    private static String run(String pauser, String layout) throws InterruptedException {
+        final String dir = PATH + "/pipeline-" + System.nanoTime();
+        final Recorder recorder = new Recorder();
+        final List<Thread> threads = new ArrayList<>();
+        if (layout.equals("fused") || layout.equals("journal")) {
+            final FusedPipeline fused = new FusedPipeline(dir + "/agg-in", dir + "/agg-out", dir + "/strat-out",
+                    layout.equals("journal"), recorder);
+            threads.add(new Thread(() -> Runner.run(pauser, fused), "pipeline"));
+        } else {
+            final Runner.Stage<?>[] stages = {
+                    new Runner.Stage<>(dir + "/agg-in", dir + "/agg-out", AggregatorOut.class, AggregatorImpl::new),
+                    new Runner.Stage<>(dir + "/agg-out", dir + "/strat-out", OMSIn.class, StrategyImpl::new),
+                    new Runner.Stage<>(dir + "/strat-out", dir + "/oms-out", OMSOut.class, out -> recorder)};
+            if (layout.equals("loop")) {
+                threads.add(new Thread(() -> Runner.run(pauser, stages), "pipeline"));
+            } else {
+                for (Runner.Stage<?> stage : stages)
+                    threads.add(new Thread(() -> Runner.run(pauser, stage), "stage-" + threads.size()));
+            }
+        }
+        threads.forEach(Thread::start);
+        // the stages start from the end of their input queues
+        Jvm.pause(1_000);
+
+        writeIncrements(dir + "/agg-in", recorder);
+        // allow the last orders to arrive
+        Jvm.pause(100);
+
+        for (Thread thread : threads)
+            thread.interrupt();
+        for (Thread thread : threads)
+            thread.join();
+        IOTools.deleteDirWithFiles(dir);
+
+        final Histogram latency = recorder.latency;
+        return String.format("%-8s %-8s %9d %10.1f %10.1f %10.1f %10.1f %10.1f",
+                pauser, layout, latency.totalCount(),
+                latency.percentile(0.5) / 1e3, latency.percentile(0.9) / 1e3, latency.percentile(0.99) / 1e3,
+                latency.percentile(0.999) / 1e3, latency.percentile(1) / 1e3);
+    }
+
+    // the fused stages called with each increment, without the queue in front of them
+    private static String direct() {
+        final Recorder recorder = new Recorder();
+        final AggregatorImpl aggregator = FusedPipeline.fuse(recorder, null, null);
+        final MarketDataGenerator generator = new MarketDataGenerator(Math.max(1, SYMBOLS), 1, ARRIVALS, RATE, 1_000);
+        final MarketDataIncrement mdi = new MarketDataIncrement().symbol("BTCUSD");
+        final long count = RATE * (1L + RUN_TIME);
+        final long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            if (i == RATE)
+                recorder.measuring = true;
+            MarketDataGenerator.waitUntil(start + generator.nextDue());
+            // from the call, as it is the time in the stages, rather than how late this thread woke, being measured
+            aggregator.mdi(increment(generator, mdi, i, System.nanoTime()));
+        }
+        final Histogram latency = recorder.latency;
+        return String.format("%-8s %-8s %9d %10.3f %10.3f %10.3f %10.3f %10.1f",
+                "-", "direct", latency.totalCount(),
+                latency.percentile(0.5) / 1e3, latency.percentile(0.9) / 1e3, latency.percentile(0.99) / 1e3,
+                latency.percentile(0.999) / 1e3, latency.percentile(1) / 1e3);
+    }
+
+    private static MarketDataIncrement increment(MarketDataGenerator generator, MarketDataIncrement mdi, long i, long due) {
+        if (SYMBOLS > 0)
+            return generator.next(mdi).transactTime(due);
+        final boolean buy = (i & 1) == 0;
+        return mdi.side(buy ? BuySell.buy : BuySell.sell)
+                .price(buy ? 23418.5 : 23419)
+                .orderQty(1 + (i >> 1) % 100)
+                // when it was due, so a late increment is measured as late
+                .transactTime(due);
+    }
+
+    // alternately changes the quantity of the best bid and ask, half a point apart, so the strategy sells at the ask,
+    // or with -Dsymbols, generated increments
+    private static void writeIncrements(String path, Recorder recorder) {
+        final MarketDataGenerator generator = new MarketDataGenerator(Math.max(1, SYMBOLS), 1, ARRIVALS, RATE, 1_000);
+        final MarketDataIncrement mdi = new MarketDataIncrement().symbol("BTCUSD");
+        final long warmUp = RATE;
+        final long count = warmUp + (long) RATE * RUN_TIME;
+        try (ChronicleQueue queue = SingleChronicleQueueBuilder.binary(path).build();
+             ExcerptAppender appender = queue.createAppender()) {
+            final AggregatorIn in = appender.methodWriter(AggregatorIn.class);
+            final long start = System.nanoTime();
+            for (long i = 0; i < count; i++) {
+                if (i == warmUp)
+                    recorder.measuring = true;
+                // park until close to when it is due, leaving the CPU to the stages, then spin
+                final long due = start + generator.nextDue();
+                MarketDataGenerator.waitUntil(due);
+                in.mdi(increment(generator, mdi, i, due));
+            }
+        }
+    }
+
+    /**
+     * The OMS stage, recording the time from each increment being due to the order it led to reaching the OMS.
+     */
+    static final class Recorder implements OMSIn {
+        final Histogram latency = new Histogram();
+        volatile boolean measuring;
+
+        @Override
+        public void newOrderSingle(NewOrderSingle nos) {
+            if (measuring)
+                latency.sampleNanos(System.nanoTime() - nos.transactTime());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.util.Mocker;
+import org.trading.api.AggregatorOut;
+import org.trading.api.OMSIn;
+import org.trading.api.OMSOut;
+
+/**
+ * The {@code PipelineMain} class runs the aggregator, the strategy and the OMS on one thread, as an event loop
+ * reading a message for each in turn from {@code agg-in}, {@code agg-out} and {@code strat-out}, rather than as
+ * three processes. With {@code -Dpauser=busy}, the thread spins on a CPU of its own, see {@link Runner}.
+ *
+ * <p>With {@code -Dfused}, they call each other directly instead, reading only {@code agg-in},
+ * and with {@code -Djournal} as well, still write to {@code agg-out} and {@code strat-out}, see {@link FusedPipeline}.
+ */
+public class PipelineMain {
+    // Call each stage directly rather than through a queue
+    static final boolean FUSED = Jvm.getBoolean("fused");
+    // When fused, journal the output of each stage to its queue as well
+    static final boolean JOURNAL = Jvm.getBoolean("journal");
+
+    /**
+     * The main method to start the pipeline.
+     *
+     * @param args Command-line arguments (not used in this implementation)
+     */
+    public static void main(String[] args) {
+        if (FUSED) {
+            Runner.run(Runner.PAUSER,
+                    new FusedPipeline("agg-in", "agg-out", "strat-out", JOURNAL, new OMSImpl(Mocker.ignored(OMSOut.class))));
+        } else {
+            Runner.run(Runner.PAUSER,
+                    new Runner.Stage<>("agg-in", "agg-out", AggregatorOut.class, AggregatorImpl::new),
+                    new Runner.Stage<>("agg-out", "strat-out", OMSIn.class, StrategyImpl::new),
+                    new Runner.Stage<>("strat-out", "oms-out", OMSOut.class, OMSImpl::new));
+        }
+    }
+}
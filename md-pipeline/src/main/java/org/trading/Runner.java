@@ -1,23 +1,125 @@
 package org.trading;
 
+import net.openhft.affinity.AffinityLock;
 import net.openhft.chronicle.bytes.MethodReader;
-import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.queue.ChronicleQueue;
 import net.openhft.chronicle.queue.impl.single.SingleChronicleQueueBuilder;
+import net.openhft.chronicle.threads.BusyPauser;
+import net.openhft.chronicle.threads.LongPauser;
+import net.openhft.chronicle.threads.Pauser;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * This is the Runner class, responsible for setting up and running a microservice that listens and outputs to specific queues.
+ *
+ * <p>How it waits for the next message is set with {@code -Dpauser}: {@code busy} spins on a CPU of its own
+ * if one is available, {@code balanced}, the default, backs off from spinning to sleeping, {@code park} parks for
+ * {@code -DparkUs} microseconds, default 50, and {@code sleep} sleeps for 10 ms, adding up to 10 ms to each hop.
+ *
+ * <p>Several {@link Step}s can be run on one thread, which reads a message for each in turn, waiting only when
+ * none of them had a message, see {@link #run(String, Step[])}.
  */
 public class Runner {
+    // How a thread running stages waits for messages: busy, balanced, park or sleep
+    static final String PAUSER = System.getProperty("pauser", "balanced");
+    // With -Dpauser=park, the microseconds to park each time there are no messages
+    static final int PARK_US = Integer.getInteger("parkUs", 50);
 
     /**
      * Start up and run a microservice listening to a specified input queue {@code inq} and outputting to a specified output queue {@code outq}
      */
     static <T> void run(String inq, String outq, Class<T> mwClass, Function<T, Object> serviceVendor) {
-        try (ChronicleQueue in = SingleChronicleQueueBuilder.binary(inq).build();
-             ChronicleQueue out = SingleChronicleQueueBuilder.binary(outq).build()) {
+        run(PAUSER, new Stage<>(inq, outq, mwClass, serviceVendor));
+    }
+
+    /**
+     * Runs steps on this thread until it is interrupted, as an event loop reading a message for each step in turn.
+     *
+     * @param pauser how to wait when none of the steps has a message, one of busy, balanced, park or sleep
+     * @param steps  the steps to run
+     */
+    @SuppressWarnings("try")
+    static void run(String pauser, Step... steps) {
+        final Pauser pauser0 = newPauser(pauser);
+        try (AffinityLock lock = pauser.equals("busy") ? AffinityLock.acquireLock() : null) {
+            for (Step step : steps)
+                step.open();
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean busy = false;
+                for (Step step : steps)
+                    busy |= step.readOne();
+                if (busy)
+                    pauser0.reset();
+                else
+                    pauser0.pause();
+            }
+        } finally {
+            Closeable.closeQuietly((Object[]) steps);
+        }
+    }
+
+    static Pauser newPauser(String pauser) {
+        switch (pauser) {
+            case "busy":
+                // rather than Pauser.busy(), which doesn't spin on a machine with few CPUs
+                return BusyPauser.INSTANCE;
+            case "balanced":
+                return Pauser.balanced();
+            case "park":
+                return new LongPauser(0, 0, PARK_US, PARK_US, TimeUnit.MICROSECONDS);
+            case "sleep":
+                return Pauser.millis(10);
+            default:
+                throw new IllegalArgumentException("-Dpauser must be busy, balanced, park or sleep, not " + pauser);
+        }
+    }
+
+    /**
+     * Something run by an event loop, which reads its messages from a queue.
+     */
+    interface Step extends Closeable {
+
+        /**
+         * Opens the queues, on the thread of the event loop, which then reads from the end of the input.
+         */
+        void open();
+
+        /**
+         * @return {@code true} if a message was read, and dispatched
+         */
+        boolean readOne();
+    }
+
+    /**
+     * A microservice reading messages from an input queue and writing its output to another.
+     *
+     * @param <T> the interface of the messages it writes
+     */
+    static final class Stage<T> implements Step {
+        private final String inq;
+        private final String outq;
+        private final Class<T> mwClass;
+        private final Function<T, Object> serviceVendor;
+        private ChronicleQueue in;
+        private ChronicleQueue out;
+        private MethodReader mr;
+        // a service to tell when it has read every message so far
+        private DrainListener drainListener;
+
+        Stage(String inq, String outq, Class<T> mwClass, Function<T, Object> serviceVendor) {
+            this.inq = inq;
+            this.outq = outq;
+            this.mwClass = mwClass;
+            this.serviceVendor = serviceVendor;
+        }
+
+        @Override
+        public void open() {
+            in = SingleChronicleQueueBuilder.binary(inq).build();
+            out = SingleChronicleQueueBuilder.binary(outq).build();
 
             // Create a Chronicle Wire method writer such that when the service calls a method on
             // the "out" method writer, the method call is serialised and written to the out queue
@@ -25,12 +127,27 @@ public class Runner {
             Object service = serviceVendor.apply(mw);
 
             // Create a method reader to read in the in queue for any and all methods implemented by the service
-            MethodReader mr = in.createTailer().toEnd().methodReader(service);
-            while (!Thread.currentThread().isInterrupted()) {
-                // and dispatch these events to the service
-                if (!mr.readOne())
-                    Jvm.pause(10);
-            }
+            mr = in.createTailer().toEnd().methodReader(service);
+            drainListener = service instanceof DrainListener ? (DrainListener) service : null;
+        }
+
+        @Override
+        public boolean readOne() {
+            if (mr.readOne())
+                return true;
+            if (drainListener != null)
+                drainListener.onDrained();
+            return false;
+        }
+
+        @Override
+        public void close() {
+            Closeable.closeQuietly(in, out);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return in == null || in.isClosed();
         }
     }
 }
@@ -10,7 +10,7 @@ import net.openhft.chronicle.wire.converter.NanoTime;
 /**
  * This is a MarketDataSnapshot class extending SelfDescribingMarshallable.
  * It represents a snapshot of market data for a given symbol, encapsulating information
- * such as the symbol, transaction time, bid and ask prices.
+ * such as the symbol, transaction time, bid and ask prices, and the best price levels on each side.
  */
 public class MarketDataSnapshot extends SelfDescribingMarshallable {
     @Base85
@@ -25,6 +25,12 @@ public class MarketDataSnapshot extends SelfDescribingMarshallable {
     // The ask price for the asset
     private double ask;
 
+    // The best bid levels, best first, the first being the bid
+    private final PriceLevels bids = new PriceLevels();
+
+    // The best ask levels, best first, the first being the ask
+    private final PriceLevels asks = new PriceLevels();
+
     /**
      * Default constructor for MarketDataSnapshot.
      */
@@ -122,6 +128,24 @@ public class MarketDataSnapshot extends SelfDescribingMarshallable {
         return this;
     }
 
+    /**
+     * Retrieves the best bid levels.
+     *
+     * @return The PriceLevels of the bids, best first
+     */
+    public PriceLevels bids() {
+        return bids;
+    }
+
+    /**
+     * Retrieves the best ask levels.
+     *
+     * @return The PriceLevels of the asks, best first
+     */
+    public PriceLevels asks() {
+        return asks;
+    }
+
     /**
      * Calculates and returns the spread between ask and bid prices.
      *
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading.dto;
+
+import net.openhft.chronicle.wire.SelfDescribingMarshallable;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+
+import java.util.Arrays;
+
+/**
+ * This is a PriceLevels class extending SelfDescribingMarshallable.
+ * It represents the best price levels of one side of a book, best first, as a list of prices
+ * and a list of the quantities at them.
+ *
+ * <p>The levels are held in arrays which grow as needed and are reused, so only the levels in use are written,
+ * and a PriceLevels can be cleared and refilled, or read again, without allocating.
+ */
+public class PriceLevels extends SelfDescribingMarshallable {
+    // The prices of the levels, of which the first count are in use
+    private double[] price = new double[8];
+
+    // The quantity at each price
+    private double[] qty = new double[8];
+
+    // The number of levels
+    private int count;
+
+    /**
+     * Retrieves the number of levels.
+     *
+     * @return An int value representing the number of levels
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Retrieves the price of a level.
+     *
+     * @param level The level, where 0 is the best
+     * @return A double value representing the price of the level
+     */
+    public double price(int level) {
+        return price[level];
+    }
+
+    /**
+     * Retrieves the quantity at a level.
+     *
+     * @param level The level, where 0 is the best
+     * @return A double value representing the quantity at the level
+     */
+    public double qty(int level) {
+        return qty[level];
+    }
+
+    /**
+     * Removes all the levels.
+     *
+     * @return This instance of PriceLevels
+     */
+    public PriceLevels clear() {
+        count = 0;
+        return this;
+    }
+
+    /**
+     * Adds a level after those already added.
+     *
+     * @param price A double value representing the price of the level
+     * @param qty   A double value representing the quantity at the level
+     * @return This instance of PriceLevels
+     */
+    public PriceLevels add(double price, double qty) {
+        ensureCapacity(count + 1);
+        this.price[count] = price;
+        this.qty[count] = qty;
+        count++;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > price.length) {
+            price = Arrays.copyOf(price, Math.max(capacity, price.length * 2));
+            qty = Arrays.copyOf(qty, price.length);
+        }
+    }
+
+    @Override
+    public void writeMarshallable(WireOut wire) {
+        wire.write("price").sequence(this, (l, out) -> {
+            for (int i = 0; i < l.count; i++)
+                out.float64(l.price[i]);
+        });
+        wire.write("qty").sequence(this, (l, out) -> {
+            for (int i = 0; i < l.count; i++)
+                out.float64(l.qty[i]);
+        });
+    }
+
+    @Override
+    public void readMarshallable(WireIn wire) {
+        count = 0;
+        wire.read("price").sequence(this, (l, in) -> {
+            while (in.hasNextSequenceItem())
+                l.add(in.float64(), Double.NaN);
+        });
+        wire.read("qty").sequence(this, (l, in) -> {
+            for (int i = 0; i < l.count && in.hasNextSequenceItem(); i++)
+                l.qty[i] = in.float64();
+        });
+    }
+}
@@ -3,7 +3,16 @@
  */
 package org.trading;
 
+import net.openhft.chronicle.wire.Base85LongConverter;
+import net.openhft.chronicle.wire.Marshallable;
 import org.junit.Test;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+import org.trading.dto.MarketDataSnapshot;
+import run.chronicle.common.LongIdInterner;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -21,4 +30,97 @@ public class AggregatorTest {
         // Running the test case defined in the "aggregator" YAML file
         runTest("aggregator");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void snapshotLevelsReadBack() {
+        MarketDataSnapshot mds = new MarketDataSnapshot().symbol(Base85LongConverter.INSTANCE.parse("BTCUSD")).bid(23418.5).ask(23419);
+        mds.bids().add(23418.5, 2).add(23418, 3);
+        mds.asks().add(23419, 0.5);
+
+        MarketDataSnapshot copy = Marshallable.fromString(mds.toString());
+        assertEquals(mds.toString(), copy.toString());
+        assertEquals(2, copy.bids().count());
+        assertEquals(23418, copy.bids().price(1), 0.0);
+        assertEquals(3, copy.bids().qty(1), 0.0);
+        assertEquals(1, copy.asks().count());
+    }
+
+    @Test
+    public void newSymbolsAreDroppedOnceTheSymbolTableIsFull() {
+        List<String> published = new ArrayList<>();
+        AggregatorImpl aggregator = new AggregatorImpl(mds -> published.add(Base85LongConverter.INSTANCE.asString(mds.symbol())),
+                false, 0, new LongIdInterner("symbols", 2));
+        String[] symbols = {"A", "B", "C", "A"};
+        for (int i = 0; i < symbols.length; i++) {
+            aggregator.mdi(new MarketDataIncrement().symbol(symbols[i]).side(BuySell.buy).price(1).orderQty(1 + i));
+            aggregator.mdi(new MarketDataIncrement().symbol(symbols[i]).side(BuySell.sell).price(2).orderQty(1 + i));
+        }
+        // C is dropped, and A and B carry on
+        assertEquals("[A, B, A, A]", published.toString());
+    }
+
+    @Test(timeout = 10_000)
+    public void manyMoreNewSymbolsThanTheTableHasBucketsAreDropped() {
+        List<String> published = new ArrayList<>();
+        // a capacity of 2 has 8 buckets
+        AggregatorImpl aggregator = new AggregatorImpl(mds -> published.add(Base85LongConverter.INSTANCE.asString(mds.symbol())),
+                false, 0, new LongIdInterner("symbols", 2));
+        for (int i = 0; i < 1000; i++) {
+            String symbol = i == 0 ? "A" : i == 1 ? "B" : "S" + i;
+            aggregator.mdi(new MarketDataIncrement().symbol(symbol).side(BuySell.buy).price(1).orderQty(1));
+            aggregator.mdi(new MarketDataIncrement().symbol(symbol).side(BuySell.sell).price(2).orderQty(1));
+        }
+        // the known symbols are still published
+        aggregator.mdi(new MarketDataIncrement().symbol("A").side(BuySell.buy).price(1).orderQty(2));
+        aggregator.mdi(new MarketDataIncrement().symbol("B").side(BuySell.buy).price(1).orderQty(2));
+        assertEquals("[A, B, A, B]", published.toString());
+    }
+
+    @Test
+    public void conflatedSnapshotsArePublishedWhenDrained() {
+        List<String> published = new ArrayList<>();
+        AggregatorImpl aggregator = new AggregatorImpl(mds -> published.add(mds.symbol() + " " + mds.transactTime()
+                + " " + mds.bid() + " " + mds.bids().count() + " " + mds.ask()), true, 0);
+        aggregator.mdi(mdi("BTCUSD", 1, BuySell.buy, 100));
+        aggregator.mdi(mdi("BTCUSD", 2, BuySell.sell, 101));
+        aggregator.mdi(mdi("ETHUSD", 3, BuySell.buy, 10));
+        aggregator.mdi(mdi("ETHUSD", 4, BuySell.sell, 11));
+        aggregator.mdi(mdi("BTCUSD", 5, BuySell.buy, 100.5));
+        aggregator.mdi(mdi("BTCUSD", 6, BuySell.sell, 100.75));
+        assertEquals(0, published.size());
+
+        aggregator.onDrained();
+        long btc = Base85LongConverter.INSTANCE.parse("BTCUSD");
+        long eth = Base85LongConverter.INSTANCE.parse("ETHUSD");
+        // in the order they first changed, each once, with its latest book
+        assertEquals("[" + btc + " 6 100.5 2 100.75, " + eth + " 4 10.0 1 11.0]", published.toString());
+
+        aggregator.onDrained();
+        assertEquals(2, published.size());
+        aggregator.mdi(mdi("ETHUSD", 7, BuySell.buy, 10.5));
+        aggregator.onDrained();
+        assertEquals(eth + " 7 10.5 2 11.0", published.get(2));
+    }
+
+    @Test
+    public void conflatedSnapshotsArePublishedOnATick() {
+        List<Long> published = new ArrayList<>();
+        AggregatorImpl aggregator = new AggregatorImpl(mds -> published.add(mds.transactTime()), true, 1);
+        aggregator.mdi(mdi("BTCUSD", 1, BuySell.buy, 100));
+        aggregator.mdi(mdi("BTCUSD", 2, BuySell.sell, 101));
+        long end = System.nanoTime() + 1_000_000;
+        // published while the increments keep coming, at most one a microsecond, without being drained
+        for (int i = 3; published.isEmpty() && System.nanoTime() < end; i++)
+            aggregator.mdi(mdi("BTCUSD", i, BuySell.buy, 100).orderQty(i));
+        assertEquals(1, published.size());
+    }
+
+    private static MarketDataIncrement mdi(String symbol, long transactTime, BuySell side, double price) {
+        return new MarketDataIncrement()
+                .symbol(symbol)
+                .transactTime(transactTime)
+                .side(side)
+                .price(price)
+                .orderQty(1);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import org.junit.Test;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FusedPipelineTest {
+
+    @Test
+    public void marketDataReachesTheOmsAsAnOrderAndIsJournaled() {
+        List<String> orders = new ArrayList<>();
+        List<String> snapshotJournal = new ArrayList<>();
+        List<String> orderJournal = new ArrayList<>();
+        AggregatorImpl aggregator = FusedPipeline.fuse(
+                nos -> orders.add(nos.side() + " " + nos.price()),
+                mds -> snapshotJournal.add(mds.bid() + "/" + mds.ask()),
+                nos -> orderJournal.add(nos.side() + " " + nos.price()));
+
+        MarketDataIncrement mdi = new MarketDataIncrement().symbol("BTCUSD").orderQty(1);
+        aggregator.mdi(mdi.side(BuySell.buy).price(23418.5));
+        aggregator.mdi(mdi.side(BuySell.sell).price(23419));
+        // too wide for the strategy
+        aggregator.mdi(mdi.side(BuySell.sell).price(23419).orderQty(0));
+        aggregator.mdi(mdi.side(BuySell.sell).price(23420).orderQty(1));
+
+        assertEquals("[sell 23419.0]", orders.toString());
+        assertEquals(orders, orderJournal);
+        assertEquals("[23418.5/23419.0, 23418.5/NaN, 23418.5/23420.0]", snapshotJournal.toString());
+    }
+}
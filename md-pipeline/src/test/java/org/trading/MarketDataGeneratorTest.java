@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import org.junit.Test;
+import org.trading.dto.BuySell;
+import org.trading.dto.MarketDataIncrement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link MarketDataGenerator}, covering reproducibility, the arrivals, and books which never cross.
+ */
+public class MarketDataGeneratorTest {
+
+    @Test
+    public void sameSeedSameIncrements() {
+        final MarketDataGenerator a = new MarketDataGenerator(100, 42, "poisson", 1e6, 1_000);
+        final MarketDataGenerator b = new MarketDataGenerator(100, 42, "poisson", 1e6, 1_000);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(a.nextDue(), b.nextDue());
+            assertEquals(a.next(new MarketDataIncrement()), b.next(new MarketDataIncrement()));
+        }
+    }
+
+    @Test
+    public void uniformArrivalsAreEvenlySpaced() {
+        final MarketDataGenerator generator = new MarketDataGenerator(1, 1, "uniform", 1e6, 1_000);
+        for (int i = 0; i < 1_000; i++)
+            assertEquals(i * 1_000L, generator.nextDue());
+    }
+
+    @Test
+    public void poissonAndBurstyArrivalsAverageTheRate() {
+        for (String arrivals : new String[]{"poisson", "bursty"}) {
+            final MarketDataGenerator generator = new MarketDataGenerator(1, 1, arrivals, 1e6, 1_000);
+            long last = 0;
+            long shortest = Long.MAX_VALUE;
+            for (int i = 0; i <= 100_000; i++) {
+                final long due = generator.nextDue();
+                assertTrue(due >= last);
+                if (i > 0)
+                    shortest = Math.min(shortest, due - last);
+                last = due;
+            }
+            // 100,000 at a million a second is 100 ms
+            assertEquals(arrivals, 100e6, last, 2e6);
+            // bunched together at times
+            assertTrue(arrivals, shortest <= 100);
+        }
+    }
+
+    @Test
+    public void booksNeverCross() {
+        final MarketDataGenerator generator = new MarketDataGenerator(10, 1, "uniform", 1e6, 1_000);
+        final MarketDataIncrement mdi = new MarketDataIncrement();
+        final AggregatorImpl books = new AggregatorImpl(mds -> assertFalse(mds.toString(), mds.bid() >= mds.ask()));
+        for (int i = 0; i < 100_000; i++) {
+            generator.next(mdi);
+            assertTrue(mdi.side() == BuySell.buy || mdi.side() == BuySell.sell);
+            books.mdi(mdi);
+        }
+    }
+}
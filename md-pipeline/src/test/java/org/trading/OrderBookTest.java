@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package org.trading;
+
+import org.junit.Test;
+import org.trading.dto.BuySell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link OrderBook}, covering level ordering, and inserting, updating and deleting levels.
+ */
+public class OrderBookTest {
+    private final OrderBook book = new OrderBook();
+
+    @Test
+    public void levelsAreSortedBestFirst() {
+        assertEquals(0, book.update(BuySell.buy, 100, 1));
+        assertEquals(0, book.update(BuySell.buy, 102, 2));
+        assertEquals(2, book.update(BuySell.buy, 98, 3));
+        assertEquals(0, book.update(BuySell.sell, 110, 4));
+        assertEquals(0, book.update(BuySell.sell, 105, 5));
+
+        assertEquals(3, book.depth(BuySell.buy));
+        assertEquals(102, book.tick(BuySell.buy, 0));
+        assertEquals(100, book.tick(BuySell.buy, 1));
+        assertEquals(98, book.tick(BuySell.buy, 2));
+        assertEquals(3, book.qty(BuySell.buy, 2), 0.0);
+        assertEquals(2, book.depth(BuySell.sell));
+        assertEquals(105, book.tick(BuySell.sell, 0));
+        assertEquals(110, book.tick(BuySell.sell, 1));
+        assertEquals(4, book.qty(BuySell.sell, 1), 0.0);
+    }
+
+    @Test
+    public void updatesAndDeletesByPrice() {
+        book.update(BuySell.sell, 105, 5);
+        book.update(BuySell.sell, 106, 6);
+        book.update(BuySell.sell, 107, 7);
+
+        assertEquals(1, book.update(BuySell.sell, 106, 60));
+        assertEquals(60, book.qty(BuySell.sell, 1), 0.0);
+        assertEquals(OrderBook.UNCHANGED, book.update(BuySell.sell, 106, 60));
+
+        assertEquals(0, book.update(BuySell.sell, 105, 0));
+        assertEquals(2, book.depth(BuySell.sell));
+        assertEquals(106, book.tick(BuySell.sell, 0));
+        assertEquals(OrderBook.UNCHANGED, book.update(BuySell.sell, 105, 0));
+        assertEquals(OrderBook.UNCHANGED, book.update(BuySell.buy, 105, 0));
+    }
+
+    @Test
+    public void validWithLevelsOnBothSides() {
+        assertFalse(book.valid());
+        book.update(BuySell.buy, 100, 1);
+        assertFalse(book.valid());
+        book.update(BuySell.sell, 101, 1);
+        assertTrue(book.valid());
+        book.update(BuySell.buy, 100, 0);
+        assertFalse(book.valid());
+    }
+
+    @Test
+    public void growsBeyondItsInitialDepth() {
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, book.update(BuySell.buy, 1000 - i, i + 1));
+        assertEquals(100, book.depth(BuySell.buy));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1000 - i, book.tick(BuySell.buy, i));
+            assertEquals(i + 1, book.qty(BuySell.buy, i), 0.0);
+        }
+    }
+}
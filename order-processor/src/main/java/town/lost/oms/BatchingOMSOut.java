@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.wire.DocumentContext;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.ExecutionReport;
+import town.lost.oms.dto.OrderCancelReject;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The {@code BatchingOMSOut} class writes all the responses to one request to an output queue in a single document,
+ * rather than a document per response.
+ *
+ * <p>The first response opens a document on the appender, and the method writer's own documents nest inside it,
+ * so each response is still written as a separate method call. {@link #flush()} commits the document,
+ * and is called after each request is read, see {@link #readOne(BooleanSupplier)}.
+ * A {@code MethodReader} on the output calls its handler once per response, as before, but a burst such as
+ * a {@code cancelAll} of many orders costs one header, one index entry and one write lock rather than one per order.
+ * Nothing is written for a request without a response.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe, use it from the thread processing the requests.
+ */
+public class BatchingOMSOut implements OMSOut {
+    private final ExcerptAppender appender;
+    private final OMSOut writer;
+    // The open document, or null between requests
+    private DocumentContext batch;
+
+    /**
+     * Constructs a batching writer to the appender's queue.
+     *
+     * @param appender an appender used only by this writer
+     */
+    public BatchingOMSOut(ExcerptAppender appender) {
+        this.appender = appender;
+        this.writer = appender.methodWriterBuilder(OMSOut.class)
+                .marshallableOut(appender)
+                .build();
+    }
+
+    /**
+     * Reads one request and then commits its responses.
+     *
+     * @param reader reads one request, e.g. {@code MethodReader::readOne}
+     * @return the result of the reader
+     */
+    public boolean readOne(BooleanSupplier reader) {
+        try {
+            return reader.getAsBoolean();
+        } finally {
+            flush();
+        }
+    }
+
+    /**
+     * Commits the responses written since the last flush as one document.
+     *
+     * @return {@code true} if there were any
+     */
+    public boolean flush() {
+        if (batch == null)
+            return false;
+        final DocumentContext dc = batch;
+        batch = null;
+        dc.close();
+        return true;
+    }
+
+    @Override
+    public void executionReport(ExecutionReport er) {
+        writer().executionReport(er);
+    }
+
+    @Override
+    public void orderCancelReject(OrderCancelReject ocr) {
+        writer().orderCancelReject(ocr);
+    }
+
+    @Override
+    public void jvmError(String msg) {
+        writer().jvmError(msg);
+    }
+
+    private OMSOut writer() {
+        if (batch == null)
+            batch = appender.writingDocument();
+        return writer;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.BinaryWireCode;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.dto.AbstractEvent;
+
+/**
+ * The {@code EventHeader} class reads which {@link OMSIn} method a document in the binary wire calls,
+ * and where the bytes of its event are, without deserializing the event.
+ *
+ * <p>A document written by a method writer starts with the method id, or the method name if it has no
+ * {@code @MethodId}, followed by the event written as bytes with a 32-bit length.
+ */
+final class EventHeader {
+    // The events are only at fixed offsets with the pregenerated binary encoding
+    static final boolean FIXED_LAYOUT = AbstractEvent.BYTES_IN_BINARY && AbstractEvent.PREGENERATED_MARSHALLABLE;
+
+    static final int UNKNOWN = 0;
+    static final int NEW_ORDER_SINGLE = 1;
+    static final int CANCEL_ORDER_REQUEST = 2;
+    static final int CANCEL_ALL = 3;
+
+    // The @MethodId of the OMSIn methods
+    private static final int NEW_ORDER_SINGLE_ID = 'D';
+    private static final int CANCEL_ORDER_REQUEST_ID = 'F';
+
+    // The OMSIn method called, one of the constants above
+    int method;
+    // The position of the first byte of the event, and the position after the last one
+    long start;
+    long end;
+
+    /**
+     * Reads the header of the document at the read position of these bytes, without moving it.
+     *
+     * @return {@code true} if this is a call to an {@link OMSIn} method with its event as bytes
+     */
+    boolean parse(Bytes<?> bytes) {
+        method = UNKNOWN;
+        long pos = bytes.readPosition();
+        final long limit = bytes.readLimit();
+        if (pos >= limit)
+            return false;
+        final int code = bytes.readUnsignedByte(pos++);
+        int method;
+        if (code == BinaryWireCode.FIELD_NUMBER) {
+            if (pos >= limit)
+                return false;
+            // the method ids used are single byte stop bit values
+            final int id = bytes.readUnsignedByte(pos++);
+            method = id == NEW_ORDER_SINGLE_ID ? NEW_ORDER_SINGLE
+                    : id == CANCEL_ORDER_REQUEST_ID ? CANCEL_ORDER_REQUEST
+                    : UNKNOWN;
+        } else {
+            final int len;
+            if (code == BinaryWireCode.EVENT_NAME || code == BinaryWireCode.FIELD_NAME_ANY) {
+                if (pos >= limit)
+                    return false;
+                len = bytes.readUnsignedByte(pos++);
+                if (len >= 0x80)
+                    return false;
+            } else if (code >= BinaryWireCode.FIELD_NAME0 && code <= BinaryWireCode.FIELD_NAME31) {
+                len = code - BinaryWireCode.FIELD_NAME0;
+            } else {
+                return false;
+            }
+            method = nameEquals(bytes, pos, len, "cancelAll") ? CANCEL_ALL
+                    : nameEquals(bytes, pos, len, "newOrderSingle") ? NEW_ORDER_SINGLE
+                    : nameEquals(bytes, pos, len, "cancelOrderRequest") ? CANCEL_ORDER_REQUEST
+                    : UNKNOWN;
+            pos += len;
+        }
+        if (method == UNKNOWN || pos + 5 > limit || bytes.readUnsignedByte(pos) != BinaryWireCode.BYTES_LENGTH32)
+            return false;
+        final int length = bytes.readInt(pos + 1);
+        start = pos + 5;
+        end = start + length;
+        if (length < 0 || end > limit)
+            return false;
+        this.method = method;
+        return true;
+    }
+
+    private static boolean nameEquals(Bytes<?> bytes, long pos, int len, String name) {
+        if (len != name.length() || pos + len > bytes.readLimit())
+            return false;
+        for (int i = 0; i < len; i++)
+            if (bytes.readUnsignedByte(pos + i) != name.charAt(i))
+                return false;
+        return true;
+    }
+}
@@ -8,17 +8,23 @@ import net.openhft.chronicle.bytes.MethodReader;
 import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.OS;
 import net.openhft.chronicle.core.io.BackgroundResourceReleaser;
+import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.NanoSampler;
 import net.openhft.chronicle.jlbh.JLBH;
 import net.openhft.chronicle.jlbh.JLBHOptions;
 import net.openhft.chronicle.jlbh.JLBHTask;
 import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
 import net.openhft.chronicle.threads.DiskSpaceMonitor;
 import net.openhft.chronicle.wire.ShortTextLongConverter;
 import town.lost.oms.api.OMSIn;
 import town.lost.oms.api.OMSOut;
 import town.lost.oms.dto.*;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
 import static town.lost.oms.OrderAdderMain.now;
 // isolcpus=5,6,7 set in grub.cfg
 // sudo cpupower frequency-set -g performance -d 4.5g
@@ -66,30 +72,42 @@ public class OMSBenchmarkMain {
     public static final ShortTextLongConverter ShortText = ShortTextLongConverter.INSTANCE;
     public static final String PATH = System.getProperty("path", OS.TMP);
     public static final boolean ACCOUNT_FOR_COORDINATED_OMISSION = Jvm.getBoolean("accountForCoordinatedOmission");
+    // Orders loaded into the order store before the run, which stay resting throughout
+    public static final int RESTING_ORDERS = Integer.getInteger("restingOrders", 0);
+    // Each iteration sends an order which is then fully filled by a crossing order, rather than a new order or a cancel
+    public static final boolean CROSSING = Jvm.getBoolean("crossing");
+    // Processor threads, each owning the symbols which map to it, see OMSShard.shardOf
+    public static final int SHARDS = Integer.getInteger("shards", 1);
+    // Symbols the benchmark trades, spread evenly across the shards
+    public static final int SYMBOL_COUNT = Integer.getInteger("symbols", SHARDS);
+    // Read the requests as flyweight views of the queue, rather than deserializing them, see OMSFlyweightReader
+    public static final boolean FLYWEIGHT = Jvm.getBoolean("flyweight");
+    // Check each new order in a RiskCheck in front of the OMS, with limits the benchmark's orders pass
+    public static final boolean RISK = Jvm.getBoolean("risk");
+    // Each iteration sends this many orders and then a cancelAll for them, rather than a new order or a cancel
+    public static final int CANCEL_ALL = Integer.getInteger("cancelAll", 0);
+    // Write the responses to each request in one document, see BatchingOMSOut
+    public static final boolean BATCH = Jvm.getBoolean("batch");
+    static final long CLIENT = ShortText.parse("client");
+    static final long[] SYMBOLS = symbols(SYMBOL_COUNT, SHARDS);
+    // Orders the benchmark adds and then cancels, so the number of live orders stays bounded
+    static final int ORDERS_IN_FLIGHT = 1024;
 
     @SuppressWarnings("try")
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         printProperties();
 
         String tmpDir = PATH + "/bench-" + System.nanoTime();
-        try (ChronicleQueue input = single(tmpDir, "/input");
-             ChronicleQueue output = single(tmpDir, "/output")) {
+        ChronicleQueue[] outputs = new ChronicleQueue[SHARDS];
+        try (ChronicleQueue input = single(tmpDir, "/input")) {
+            for (int s = 0; s < SHARDS; s++)
+                outputs[s] = single(tmpDir, "/output" + s);
 
-            // processing thread
-            Thread processor = new Thread(() -> {
-                try (AffinityLock ignored = AffinityLock.acquireCore()) {
-                    OMSOut out = output.createAppender().methodWriter(OMSOut.class);
-                    OMSImpl oms = new OMSImpl(out);
-                    MethodReader in = input.createTailer("test").methodReader(oms);
-                    while (!Thread.currentThread().isInterrupted()) {
-                        in.readOne();
-                    }
-                }
-            }, "processor");
-            processor.start();
+            CountDownLatch ready = new CountDownLatch(SHARDS);
 
             JLBH jlbh = new JLBH(new JLBHOptions()
-                    .warmUpIterations(300_000)
+                    // a cancelAll iteration is CANCEL_ALL + 1 requests, so warm up with about the same number of requests
+                    .warmUpIterations(300_000 / Math.max(1, CANCEL_ALL))
                     .pauseAfterWarmupMS(500)
                     .throughput(THROUGHPUT)
                     .iterations(THROUGHPUT * RUN_TIME)
@@ -97,26 +115,52 @@ public class OMSBenchmarkMain {
                     .recordOSJitter(false)
                     .accountForCoordinatedOmission(ACCOUNT_FOR_COORDINATED_OMISSION)
                     .acquireLock(AffinityLock::acquireCore)
-                    .jlbhTask(new MyJLBHTask(input)));
+                    .jlbhTask(CROSSING ? new CrossingJLBHTask(input)
+                            : CANCEL_ALL > 0 ? new CancelAllJLBHTask(input)
+                            : new MyJLBHTask(input)));
 
-            Thread last = new Thread(() -> {
-                try (AffinityLock ignored = AffinityLock.acquireCore()) {
-                    final MethodReader reader = output.createTailer().methodReader(new OMSOut() {
-                        @Override
-                        public void executionReport(ExecutionReport er) {
-                            jlbh.sampleNanos(System.nanoTime() - er.sendingTime());
+            // processing threads, one per shard
+            Thread[] processors = new Thread[SHARDS];
+            for (int s = 0; s < SHARDS; s++) {
+                final int shard = s;
+                // the time taken by the risk checks alone, on the processor thread
+                final NanoSampler riskProbe = RISK ? jlbh.addProbe("risk " + shard) : null;
+                processors[s] = new Thread(() -> {
+                    try (AffinityLock ignored = AffinityLock.acquireCore()) {
+                        BatchingOMSOut batching = BATCH ? new BatchingOMSOut(outputs[shard].createAppender()) : null;
+                        OMSOut out = BATCH ? batching : outputs[shard].createAppender().methodWriter(OMSOut.class);
+                        OMSImpl oms = new OMSImpl(out, new OrderStore(RESTING_ORDERS + Math.max(ORDERS_IN_FLIGHT, CANCEL_ALL)));
+                        addRestingOrders(oms, shard);
+                        ready.countDown();
+                        ExcerptTailer tailer = input.createTailer("shard" + shard);
+                        OMSShard sharded = new OMSShard(tailer, RISK ? riskCheck(oms, out, riskProbe) : oms, shard, SHARDS);
+                        BooleanSupplier in = FLYWEIGHT
+                                ? new OMSFlyweightReader(tailer, sharded)::readOne
+                                : sharded::readOne;
+                        while (!Thread.currentThread().isInterrupted()) {
+                            if (BATCH)
+                                batching.readOne(in);
+                            else
+                                in.getAsBoolean();
                         }
+                    }
+                }, "processor-" + shard);
+                processors[s].start();
+            }
+            ready.await();
 
-                        @Override
-                        public void orderCancelReject(OrderCancelReject ocr) {
-                        }
+            // with more than one shard, the latency of each is reported separately as well as end to end
+            MethodReader[] readers = new MethodReader[SHARDS];
+            for (int s = 0; s < SHARDS; s++)
+                readers[s] = outputs[s].createTailer().methodReader(
+                        new Sampler(jlbh, SHARDS > 1 ? jlbh.addProbe("shard " + s) : null,
+                                CANCEL_ALL > 0 ? 2 * CANCEL_ALL : 1));
 
-                        @Override
-                        public void jvmError(String msg) {
-                        }
-                    });
+            Thread last = new Thread(() -> {
+                try (AffinityLock ignored = AffinityLock.acquireCore()) {
                     while (!Thread.currentThread().isInterrupted())
-                        reader.readOne();
+                        for (MethodReader reader : readers)
+                            reader.readOne();
 
                 } catch (Throwable t) {
                     t.printStackTrace();
@@ -126,8 +170,15 @@ public class OMSBenchmarkMain {
 
             jlbh.start();
 
-            processor.interrupt();
+            for (Thread processor : processors)
+                processor.interrupt();
             last.interrupt();
+            // the queues are unmapped on close, so a thread still reading them would crash the JVM
+            for (Thread processor : processors)
+                processor.join();
+            last.join();
+        } finally {
+            Closeable.closeQuietly((Object[]) outputs);
         }
         printProperties();
         Jvm.pause(1000);
@@ -143,6 +194,66 @@ public class OMSBenchmarkMain {
                 .build();
     }
 
+    /**
+     * Picks symbols so that each shard owns the same number, give or take one.
+     * With a single shard and symbol, this is AUDUSD.
+     */
+    static long[] symbols(int count, int shards) {
+        String[] pairs = {"AUDUSD", "EURUSD", "GBPUSD", "USDJPY", "USDCHF", "USDCAD", "NZDUSD", "EURGBP"};
+        long[] symbols = new long[count];
+        for (int i = 0; i < count; i++) {
+            // take the first unused candidate which maps to shard i % shards
+            for (int k = 0; ; k++) {
+                long symbol = ShortText.parse(k < pairs.length ? pairs[k] : "SYM" + k);
+                if (OMSShard.shardOf(symbol, shards) == i % shards && !contains(symbols, i, symbol)) {
+                    symbols[i] = symbol;
+                    break;
+                }
+            }
+        }
+        return symbols;
+    }
+
+    private static boolean contains(long[] symbols, int count, long symbol) {
+        for (int i = 0; i < count; i++)
+            if (symbols[i] == symbol)
+                return true;
+        return false;
+    }
+
+    /**
+     * Adds {@code restingOrders} orders from another sender to the OMS, away from the prices the benchmark trades at.
+     * Only the orders for symbols owned by the shard are added.
+     */
+    static void addRestingOrders(OMSImpl oms, int shard) {
+        OrderStore orders = oms.orders();
+        long sender = ShortText.parse("resting");
+        for (int i = 0; i < RESTING_ORDERS; i++) {
+            long symbol = SYMBOLS[i % SYMBOLS.length];
+            if (OMSShard.shardOf(symbol, SHARDS) != shard)
+                continue;
+            boolean buy = (i & 1) == 0;
+            int slot = orders.add(sender, "resting" + i, symbol, sender, buy ? Side.BUY : Side.SELL, OrderType.LIMIT,
+                    1e6, buy ? 1.5 - (i % 100) * 1e-4 : 1.7 + (i % 100) * 1e-4, i + 1);
+            oms.book(symbol).add(slot);
+        }
+    }
+
+    /**
+     * Puts a {@link RiskCheck} in front of the OMS with every check enabled, but with limits the benchmark's orders pass.
+     */
+    static RiskCheck riskCheck(OMSIn oms, OMSOut out, NanoSampler probe) {
+        RiskCheck risk = new RiskCheck(oms, out)
+                .maxOrderQty(1e7)
+                .maxNotional(1e18)
+                .priceCollar(0.1)
+                .maxOrdersPerSecond(THROUGHPUT * 2)
+                .checkLatency(probe);
+        for (long symbol : SYMBOLS)
+            risk.lastPrice(symbol, 1.6);
+        return risk;
+    }
+
     private static void printProperties() {
         long estimatedMemory = Math.round(Runtime.getRuntime().totalMemory() / 1e6);
         System.out.println("-Xmx" + estimatedMemory + "m " +
@@ -151,23 +262,88 @@ public class OMSBenchmarkMain {
                 "-Dthroughput=" + THROUGHPUT + " " +
                 "-DrunTime=" + RUN_TIME + " " +
                 "-Dpath=" + PATH + " " +
-                "-DaccountForCoordinatedOmission=" + ACCOUNT_FOR_COORDINATED_OMISSION);
+                "-DaccountForCoordinatedOmission=" + ACCOUNT_FOR_COORDINATED_OMISSION + " " +
+                "-DrestingOrders=" + RESTING_ORDERS + " " +
+                "-Dcrossing=" + CROSSING + " " +
+                "-Dshards=" + SHARDS + " " +
+                "-Dsymbols=" + SYMBOL_COUNT + " " +
+                "-Dflyweight=" + FLYWEIGHT + " " +
+                "-Drisk=" + RISK + " " +
+                "-DcancelAll=" + CANCEL_ALL + " " +
+                "-Dbatch=" + BATCH);
     }
 
+    /**
+     * Samples the latency of the execution reports for the client's orders from one shard's output.
+     * When an iteration produces more than one, only the last is sampled.
+     */
+    private static class Sampler implements OMSOut {
+        private final NanoSampler endToEnd;
+        private final NanoSampler shard;
+        private final int perIteration;
+        private int count;
+
+        Sampler(NanoSampler endToEnd, NanoSampler shard, int perIteration) {
+            this.endToEnd = endToEnd;
+            this.shard = shard;
+            this.perIteration = perIteration;
+        }
+
+        @Override
+        public void executionReport(ExecutionReport er) {
+            // only the execution reports for the client's orders complete an iteration
+            if (er.target() != CLIENT || ++count < perIteration)
+                return;
+            count = 0;
+            long latency = System.nanoTime() - er.sendingTime();
+            endToEnd.sampleNanos(latency);
+            if (shard != null)
+                shard.sampleNanos(latency);
+        }
+
+        @Override
+        public void orderCancelReject(OrderCancelReject ocr) {
+        }
+
+        @Override
+        public void jvmError(String msg) {
+        }
+    }
+
+    /**
+     * Sends {@link #ORDERS_IN_FLIGHT} new orders, then cancels them, and repeats,
+     * so every iteration produces one execution report.
+     */
     private static class MyJLBHTask implements JLBHTask {
+        private final String[] clOrdIDs = new String[ORDERS_IN_FLIGHT];
+        private final String[] cancelIDs = new String[ORDERS_IN_FLIGHT];
         private JLBH jlbh;
         private NewOrderSingle nos;
+        private CancelOrderRequest cor;
         private OMSIn in;
+        private long count;
 
         public MyJLBHTask(ChronicleQueue input) {
+            for (int i = 0; i < ORDERS_IN_FLIGHT; i++) {
+                clOrdIDs[i] = "clOrdID" + i;
+                cancelIDs[i] = "cancel" + i;
+            }
             nos = new NewOrderSingle()
-                    .sender(ShortText.parse("client"))
+                    .sender(CLIENT)
                     .target(ShortText.parse("OMS"))
-                    .clOrdID("clOrdID")
+                    .account(ShortText.parse("ACC-1"))
                     .orderQty(1e6)
                     .price(1.6)
                     .symbol(ShortText.parse("AUDUSD"))
                     .ordType(OrderType.LIMIT)
+                    .timeInForce(TimeInForce.GTC)
+                    .currency(Ccy.AUD)
+                    .side(Side.SELL);
+            cor = new CancelOrderRequest()
+                    .sender(CLIENT)
+                    .target(ShortText.parse("OMS"))
+                    .symbol(ShortText.parse("AUDUSD"))
+                    .account(ShortText.parse("ACC-1"))
                     .side(Side.SELL);
             in = input.createAppender().methodWriter(OMSIn.class);
         }
@@ -179,8 +355,116 @@ public class OMSBenchmarkMain {
 
         @Override
         public void run(long startTimeNS) {
-            nos.sendingTime(startTimeNS).transactTime(now());
-            in.newOrderSingle(nos);
+            final int i = (int) (count % ORDERS_IN_FLIGHT);
+            final boolean cancel = ((count++ / ORDERS_IN_FLIGHT) & 1) != 0;
+            final long symbol = SYMBOLS[i % SYMBOLS.length];
+            if (cancel) {
+                cor.clOrdID(cancelIDs[i]).origClOrdID(clOrdIDs[i]).symbol(symbol).sendingTime(startTimeNS);
+                in.cancelOrderRequest(cor);
+            } else {
+                nos.clOrdID(clOrdIDs[i]).symbol(symbol).sendingTime(startTimeNS).transactTime(now());
+                in.newOrderSingle(nos);
+            }
+        }
+    }
+
+    /**
+     * Sends {@link #CANCEL_ALL} new orders for one symbol, then a {@code cancelAll} for that symbol,
+     * so every iteration produces a burst of {@code CANCEL_ALL} execution reports for the one request.
+     * The latency is to the last execution report of the burst.
+     */
+    private static class CancelAllJLBHTask implements JLBHTask {
+        private final String[] clOrdIDs = new String[CANCEL_ALL];
+        private NewOrderSingle nos;
+        private CancelAll cancelAll;
+        private OMSIn in;
+        private long count;
+
+        public CancelAllJLBHTask(ChronicleQueue input) {
+            for (int i = 0; i < CANCEL_ALL; i++)
+                clOrdIDs[i] = "clOrdID" + i;
+            nos = new NewOrderSingle()
+                    .sender(CLIENT)
+                    .target(ShortText.parse("OMS"))
+                    .account(ShortText.parse("ACC-1"))
+                    .orderQty(1e6)
+                    .price(1.6)
+                    .ordType(OrderType.LIMIT)
+                    .timeInForce(TimeInForce.GTC)
+                    .currency(Ccy.AUD)
+                    .side(Side.SELL);
+            cancelAll = new CancelAll()
+                    .sender(CLIENT)
+                    .target(ShortText.parse("OMS"))
+                    .clOrdID("cancelAll");
+            in = input.createAppender().methodWriter(OMSIn.class);
+        }
+
+        @Override
+        public void init(JLBH jlbh) {
+        }
+
+        @Override
+        public void run(long startTimeNS) {
+            final long symbol = SYMBOLS[(int) (count++ % SYMBOLS.length)];
+            for (String clOrdID : clOrdIDs) {
+                nos.clOrdID(clOrdID).symbol(symbol).sendingTime(startTimeNS).transactTime(now());
+                in.newOrderSingle(nos);
+            }
+            cancelAll.symbol(symbol).sendingTime(startTimeNS);
+            in.cancelAll(cancelAll);
+        }
+    }
+
+    /**
+     * Sends a resting sell order from a market maker, then a buy order from the client which fills it in full,
+     * so every iteration exercises the matching engine and produces one execution report for the client.
+     */
+    private static class CrossingJLBHTask implements JLBHTask {
+        private NewOrderSingle sell;
+        private NewOrderSingle buy;
+        private OMSIn in;
+        private long count;
+
+        public CrossingJLBHTask(ChronicleQueue input) {
+            sell = new NewOrderSingle()
+                    .sender(ShortText.parse("maker"))
+                    .target(ShortText.parse("OMS"))
+                    .account(ShortText.parse("ACC-2"))
+                    .clOrdID("maker")
+                    .orderQty(1e6)
+                    .price(1.6)
+                    .symbol(ShortText.parse("AUDUSD"))
+                    .ordType(OrderType.LIMIT)
+                    .timeInForce(TimeInForce.GTC)
+                    .currency(Ccy.AUD)
+                    .side(Side.SELL);
+            buy = new NewOrderSingle()
+                    .sender(CLIENT)
+                    .target(ShortText.parse("OMS"))
+                    .account(ShortText.parse("ACC-1"))
+                    .clOrdID("taker")
+                    .orderQty(1e6)
+                    .price(1.6)
+                    .symbol(ShortText.parse("AUDUSD"))
+                    .ordType(OrderType.LIMIT)
+                    .timeInForce(TimeInForce.IOC)
+                    .currency(Ccy.AUD)
+                    .side(Side.BUY);
+            in = input.createAppender().methodWriter(OMSIn.class);
+        }
+
+        @Override
+        public void init(JLBH jlbh) {
+        }
+
+        @Override
+        public void run(long startTimeNS) {
+            final long symbol = SYMBOLS[(int) (count++ % SYMBOLS.length)];
+            sell.symbol(symbol).sendingTime(startTimeNS).transactTime(now());
+            in.newOrderSingle(sell);
+            buy.symbol(symbol).sendingTime(startTimeNS).transactTime(now());
+            in.newOrderSingle(buy);
         }
     }
 }
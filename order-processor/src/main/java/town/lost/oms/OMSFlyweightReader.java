@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.dto.CancelAllView;
+import town.lost.oms.dto.CancelOrderRequestView;
+import town.lost.oms.dto.NewOrderSingleView;
+
+/**
+ * The {@code OMSFlyweightReader} class reads requests from the input queue and passes them to an {@link OMSIn}
+ * as flyweight views over the queue's memory, instead of deserializing them into DTOs as a {@link MethodReader} does.
+ *
+ * <p>Each view reads a field only when its getter is called, so the handler only touches the fields it uses.
+ * Nothing is copied and nothing is allocated.
+ * The views are only valid during the call to the handler.
+ *
+ * <p>The requests are not validated as a {@link MethodReader} would, as that reads every field. The handler checks
+ * the fields it reads, as {@link OMSImpl} does.
+ *
+ * <p>Documents which are not in the pregenerated binary encoding, or are not {@link OMSIn} requests,
+ * are read by a {@link MethodReader} instead.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+public class OMSFlyweightReader {
+    private final ExcerptTailer tailer;
+    private final OMSIn oms;
+    private final MethodReader reader;
+    private final EventHeader header = new EventHeader();
+    private final NewOrderSingleView nos = new NewOrderSingleView();
+    private final CancelOrderRequestView cor = new CancelOrderRequestView();
+    private final CancelAllView cancelAll = new CancelAllView();
+
+    /**
+     * Constructs a reader of the requests from this tailer.
+     *
+     * @param tailer the tailer of the input queue, used by this reader alone
+     * @param oms    the handler for the requests
+     */
+    public OMSFlyweightReader(ExcerptTailer tailer, OMSIn oms) {
+        this.tailer = tailer;
+        this.oms = oms;
+        this.reader = tailer.methodReader(oms);
+    }
+
+    /**
+     * Reads one request from the input and passes it to the handler.
+     *
+     * @return {@code true} if a request was read
+     */
+    public boolean readOne() {
+        boolean handled;
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (!dc.isPresent())
+                return false;
+            handled = EventHeader.FIXED_LAYOUT && dispatch(dc.wire().bytes());
+            // leave anything not recognised to the method reader
+            if (!handled)
+                dc.rollbackOnClose();
+        }
+        return handled || reader.readOne();
+    }
+
+    /**
+     * Passes the request in these bytes to the handler as a view.
+     *
+     * @return {@code true} if the bytes were a request in the expected layout
+     */
+    boolean dispatch(Bytes<?> bytes) {
+        if (!header.parse(bytes))
+            return false;
+        switch (header.method) {
+            case EventHeader.NEW_ORDER_SINGLE:
+                if (!nos.wrap(bytes, header.start, header.end))
+                    return false;
+                oms.newOrderSingle(nos);
+                return true;
+            case EventHeader.CANCEL_ORDER_REQUEST:
+                if (!cor.wrap(bytes, header.start, header.end))
+                    return false;
+                oms.cancelOrderRequest(cor);
+                return true;
+            case EventHeader.CANCEL_ALL:
+                if (!cancelAll.wrap(bytes, header.start, header.end))
+                    return false;
+                oms.cancelAll(cancelAll);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
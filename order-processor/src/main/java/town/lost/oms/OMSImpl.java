@@ -3,6 +3,7 @@
  */
 package town.lost.oms;
 
+import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.time.SystemTimeProvider;
 import town.lost.oms.api.OMSIn;
 import town.lost.oms.api.OMSOut;
@@ -13,9 +14,15 @@ import town.lost.oms.dto.*;
  * acting as an intermediary between client requests and the {@link OMSOut} interface.
  *
  * <p>This class processes requests for order creation, order cancellation, and cancelling all orders.
- * It generates appropriate responses using {@link ExecutionReport} and {@link OrderCancelReject}
+ * Live orders are kept in an {@link OrderStore}, so cancels and cancel-alls find and remove the orders
+ * previously accepted. It generates appropriate responses using {@link ExecutionReport} and {@link OrderCancelReject}
  * and sends them through the {@link OMSOut} interface.
  *
+ * <p>New orders are matched in price-time priority against the {@link OrderBook} for their symbol.
+ * Each fill produces an execution report for both the resting and the incoming order. Market orders, and orders
+ * with a time in force of IOC or FOK, never rest; whatever they do not fill immediately is cancelled.
+ * FOK orders are cancelled outright unless they can be filled in full.
+ *
  * <p><strong>Note:</strong> This class is not thread-safe. If multiple threads are expected to use
  * the same instance of {@code OMSImpl}, synchronization or separate instances per thread should be used.
  *
@@ -40,9 +47,23 @@ import town.lost.oms.dto.*;
  * }</pre>
  */
 public class OMSImpl implements OMSIn {
+    // Initial capacity of the order store, pre-size it to the expected number of resting orders
+    static final int ORDER_CAPACITY = Integer.getInteger("orderCapacity", 1 << 10);
+
+    // The smallest price increment, prices of resting orders are grouped into levels of this size
+    static final double TICK_SIZE = Jvm.getDouble("tickSize", 1e-6);
+
     // The outbound interface for sending execution reports and order cancel rejections
     private final OMSOut out;
 
+    // Live orders, keyed by (sender, clOrdID) and grouped by symbol
+    private final OrderStore orders;
+
+    // Order books by symbol, in an open-addressing map, a symbol of 0 marks an empty bucket
+    private long[] bookSymbols = new long[64];
+    private OrderBook[] books = new OrderBook[64];
+    private int bookCount;
+
     // Reusable instance of ExecutionReport for creating new orders
     private final ExecutionReport er = new ExecutionReport();
 
@@ -55,69 +76,140 @@ public class OMSImpl implements OMSIn {
      * @param out the outbound interface to be used for sending responses
      */
     public OMSImpl(OMSOut out) {
+        this(out, new OrderStore(ORDER_CAPACITY));
+    }
+
+    /**
+     * Constructs a new {@code OMSImpl} with a given outbound interface and order store.
+     *
+     * @param out    the outbound interface to be used for sending responses
+     * @param orders the store holding the live orders, which must be empty or have none resting in a book
+     */
+    public OMSImpl(OMSOut out, OrderStore orders) {
         this.out = out;
+        this.orders = orders;
     }
 
     /**
-     * Processes a new single order request. The request's details are populated into an execution report and sent out.
+     * @return the store holding the live orders
+     */
+    public OrderStore orders() {
+        return orders;
+    }
+
+    /**
+     * Processes a new single order request. A valid order is matched against the order book for its symbol,
+     * and any quantity left rests in the book unless the order is immediate. Invalid orders are rejected with
+     * an execution report carrying the reason.
      *
      * @param nos the {@link NewOrderSingle} request to process
      */
     @Override
     public void newOrderSingle(NewOrderSingle nos) {
-        // Reset the execution report DTO
-        er.reset();
         final long orderID = SystemTimeProvider.CLOCK.currentTimeNanos(); // Generate unique order ID
 
-        // Populate the ExecutionReport with request details
-        er.sender(nos.target())
-                .target(nos.sender())
-                .symbol(nos.symbol())
-                .clOrdID(nos.clOrdID())
-                .ordType(nos.ordType())
-                .orderQty(nos.orderQty())
-                .price(nos.price())
-                .side(nos.side())
-                .sendingTime(nos.sendingTime())
-                .transactTime(nos.transactTime())
-                .leavesQty(0)
-                .cumQty(0)
-                .avgPx(0)
-                .orderID(orderID)
-                .text("Not ready");
+        String reason = rejectReason(nos);
+        final int slot = reason == null
+                ? orders.add(nos.sender(), nos.clOrdID(), nos.symbol(), nos.account(), nos.side(), nos.ordType(),
+                nos.orderQty(), nos.price(), orderID)
+                : OrderStore.NO_SLOT;
+        if (reason == null && slot == OrderStore.NO_SLOT)
+            reason = "Duplicate clOrdID";
+        if (reason != null) {
+            rejected(nos, orderID, reason);
+            return;
+        }
 
-        // Send execution report
-        out.executionReport(er);
+        final OrderBook book = book(nos.symbol());
+        final Side side = nos.side();
+        final boolean market = nos.ordType() == OrderType.MARKET;
+        final long limitTick = market ? 0 : book.toTick(nos.price());
+        final boolean fillOrKill = nos.timeInForce() == TimeInForce.FOK || nos.ordType() == OrderType.FILL_OR_KILL;
+        final boolean immediate = market || fillOrKill
+                || nos.timeInForce() == TimeInForce.IOC || nos.ordType() == OrderType.IMMEDIATE_OR_CANCEL;
+
+        if (!fillOrKill || book.available(side, market, limitTick, nos.orderQty()) >= nos.orderQty()) {
+            int resting;
+            while (orders.leavesQty(slot) > 0 && (resting = book.match(side, market, limitTick)) != OrderStore.NO_SLOT) {
+                final double qty = Math.min(orders.leavesQty(slot), orders.leavesQty(resting));
+                final double px = orders.price(resting);
+                book.fill(resting, qty, px);
+                orders.fill(slot, qty, px);
+
+                report(resting, nos.target(), orders.sender(resting), orders.clOrdID(resting),
+                        nos.sendingTime(), nos.transactTime(), px, orders.leavesQty(resting), fillText(resting));
+                if (orders.leavesQty(resting) == 0)
+                    orders.remove(resting);
+                report(slot, nos.target(), nos.sender(), nos.clOrdID(),
+                        nos.sendingTime(), nos.transactTime(), px, orders.leavesQty(slot), fillText(slot));
+            }
+        }
+
+        if (orders.leavesQty(slot) == 0) {
+            orders.remove(slot);
+        } else if (immediate) {
+            report(slot, nos.target(), nos.sender(), nos.clOrdID(),
+                    nos.sendingTime(), nos.transactTime(), 0, 0, "Canceled");
+            orders.remove(slot);
+        } else {
+            book.add(slot);
+            if (orders.cumQty(slot) == 0)
+                report(slot, nos.target(), nos.sender(), nos.clOrdID(),
+                        nos.sendingTime(), nos.transactTime(), 0, orders.leavesQty(slot), "New");
+        }
     }
 
     /**
-     * Processes a cancel order request. The request's details are populated into an order cancel rejection and sent out.
+     * Processes a cancel order request. If the original order is live it is removed and an execution report
+     * is sent, otherwise an order cancel rejection is sent.
      *
      * @param cor the {@link CancelOrderRequest} request to process
      */
     @Override
     public void cancelOrderRequest(CancelOrderRequest cor) {
-        // Reset the reusable OrderCancelReject instance
-        ocr.reset();
-        // Populate OrderCancelReject with request details
-        ocr.sender(cor.target())
-                .target(cor.sender())
-                .symbol(cor.symbol())
-                .clOrdID(cor.clOrdID())
-                .sendingTime(cor.sendingTime())
-                .reason("No such order");
+        // checked here, as validation may be disabled on the inbound queue
+        final CharSequence origClOrdID = cor.origClOrdID();
+        final int slot = origClOrdID == null ? OrderStore.NO_SLOT : orders.find(cor.sender(), origClOrdID);
+        if (slot == OrderStore.NO_SLOT || orders.symbol(slot) != cor.symbol()) {
+            // Reset the reusable OrderCancelReject instance
+            ocr.reset();
+            // Populate OrderCancelReject with request details
+            ocr.sender(cor.target())
+                    .target(cor.sender())
+                    .symbol(cor.symbol())
+                    .clOrdID(cor.clOrdID())
+                    .sendingTime(cor.sendingTime())
+                    .reason("No such order");
 
-        // Send order cancellation rejection
-        out.orderCancelReject(ocr);
+            // Send order cancellation rejection
+            out.orderCancelReject(ocr);
+            return;
+        }
+        canceled(book(cor.symbol()), slot, cor.target(), cor.sender(), cor.clOrdID(), cor.sendingTime());
     }
 
     /**
-     * Processes a cancel all orders request. The request's details are populated into an order cancel rejection and sent out.
+     * Processes a cancel all orders request. Every live order of the sender for the symbol is removed and
+     * reported as canceled. If there are none, an order cancel rejection is sent.
      *
      * @param cancelAll the {@link CancelAll} request to process
      */
     @Override
     public void cancelAll(CancelAll cancelAll) {
+        boolean found = false;
+        for (int slot = orders.firstForSymbol(cancelAll.symbol()); slot != OrderStore.NO_SLOT; ) {
+            // read the next slot before this one is removed
+            final int next = orders.nextForSymbol(slot);
+            if (orders.sender(slot) == cancelAll.sender()) {
+                canceled(book(cancelAll.symbol()), slot, cancelAll.target(), cancelAll.sender(), orders.clOrdID(slot),
+                        cancelAll.sendingTime());
+                found = true;
+            }
+            slot = next;
+        }
+        if (found)
+            return;
+
         // Reset the reusable OrderCancelReject instance
         ocr.reset();
         // Populate OrderCancelReject with request details
@@ -131,4 +223,141 @@ public class OMSImpl implements OMSIn {
         // Send order cancellation rejection
         out.orderCancelReject(ocr);
     }
+
+    /**
+     * @return the order book for the symbol, creating it the first time the symbol is seen
+     */
+    public OrderBook book(long symbol) {
+        int bucket = bookBucket(symbol);
+        if (bookSymbols[bucket] == symbol)
+            return books[bucket];
+        if (++bookCount * 2 > bookSymbols.length) {
+            final long[] oldSymbols = bookSymbols;
+            final OrderBook[] oldBooks = books;
+            bookSymbols = new long[oldSymbols.length * 2];
+            books = new OrderBook[oldSymbols.length * 2];
+            for (int i = 0; i < oldSymbols.length; i++) {
+                if (oldSymbols[i] == 0)
+                    continue;
+                int b = bookBucket(oldSymbols[i]);
+                bookSymbols[b] = oldSymbols[i];
+                books[b] = oldBooks[i];
+            }
+            bucket = bookBucket(symbol);
+        }
+        bookSymbols[bucket] = symbol;
+        return books[bucket] = new OrderBook(orders, TICK_SIZE);
+    }
+
+    /**
+     * @return the number of buckets in the map of order books, for iterating with {@link #bookAt(int)}
+     */
+    int bookBuckets() {
+        return books.length;
+    }
+
+    /**
+     * @return the order book in this bucket, or {@code null} if it is empty
+     */
+    OrderBook bookAt(int bucket) {
+        return books[bucket];
+    }
+
+    private int bookBucket(long symbol) {
+        final int mask = bookSymbols.length - 1;
+        int i = (int) (symbol ^ (symbol >>> 32)) * 0x9E3779B9 & mask;
+        while (bookSymbols[i] != symbol && bookSymbols[i] != 0)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Reports the order in this slot as canceled and removes it from the order book and store.
+     */
+    private void canceled(OrderBook book, int slot, long sender, long target, CharSequence clOrdID, long sendingTime) {
+        book.remove(slot);
+        report(slot, sender, target, clOrdID, sendingTime, SystemTimeProvider.CLOCK.currentTimeNanos(), 0, 0, "Canceled");
+        orders.remove(slot);
+    }
+
+    /**
+     * Sends an execution report with the state of the order in this slot.
+     */
+    private void report(int slot, long sender, long target, CharSequence clOrdID, long sendingTime, long transactTime,
+                        double lastPx, double leavesQty, String text) {
+        er.reset();
+        er.sender(sender)
+                .target(target)
+                .symbol(orders.symbol(slot))
+                .clOrdID(clOrdID)
+                .ordType(orders.ordType(slot))
+                .orderQty(orders.orderQty(slot))
+                .price(orders.price(slot))
+                .side(orders.side(slot))
+                .sendingTime(sendingTime)
+                .transactTime(transactTime)
+                .lastPx(lastPx)
+                .leavesQty(leavesQty)
+                .cumQty(orders.cumQty(slot))
+                .avgPx(orders.avgPx(slot))
+                .orderID(orders.orderID(slot))
+                .text(text);
+
+        out.executionReport(er);
+    }
+
+    /**
+     * Sends an execution report for an order which was not accepted.
+     */
+    private void rejected(NewOrderSingle nos, long orderID, String reason) {
+        // Reset the execution report DTO
+        er.reset();
+
+        // Populate the ExecutionReport with request details
+        er.sender(nos.target())
+                .target(nos.sender())
+                .symbol(nos.symbol())
+                .clOrdID(nos.clOrdID())
+                .ordType(nos.ordType())
+                .orderQty(nos.orderQty())
+                .price(nos.price())
+                .side(nos.side())
+                .sendingTime(nos.sendingTime())
+                .transactTime(nos.transactTime())
+                .leavesQty(0)
+                .cumQty(0)
+                .avgPx(0)
+                .orderID(orderID)
+                .text(reason);
+
+        // Send execution report
+        out.executionReport(er);
+    }
+
+    private String fillText(int slot) {
+        return orders.leavesQty(slot) > 0 ? "Partially filled" : "Filled";
+    }
+
+    /**
+     * Checks the fields the order store relies on, as validation may be disabled on the inbound queue.
+     *
+     * @return the reason to reject the order, or {@code null} if it can be accepted
+     */
+    private static String rejectReason(NewOrderSingle nos) {
+        if (nos.symbol() == 0)
+            return "symbol is required";
+        if (nos.side() == null)
+            return "side is required";
+        if (nos.ordType() == null)
+            return "ordType is required";
+        if (nos.ordType() == OrderType.PEGGED)
+            return "ordType is not supported";
+        if (nos.orderQty() <= 0 || ValidateUtil.invalidQuantity(nos.orderQty()))
+            return "orderQty is invalid";
+        if (nos.ordType() != OrderType.MARKET && ValidateUtil.invalidPrice(nos.price()))
+            return "price is invalid";
+        if (nos.clOrdID() == null || nos.clOrdID().length() == 0)
+            return "clOrdID is required";
+        return null;
+    }
 }
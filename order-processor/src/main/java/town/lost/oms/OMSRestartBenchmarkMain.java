@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import static town.lost.oms.OMSBenchmarkMain.ShortText;
+import static town.lost.oms.OrderAdderMain.now;
+
+/**
+ * The {@code OMSRestartBenchmarkMain} class measures how long an OMS takes to recover its orders on startup,
+ * by replaying the whole input queue, and by restoring the latest {@link OMSSnapshot} and replaying only the tail.
+ *
+ * <p>It writes {@code -Dmessages} requests, default 10,000,000, alternating new orders with cancels of the order sent
+ * {@code -DliveOrders} orders earlier, so that many orders stay live. The OMS then processes them once, writing
+ * a snapshot every {@code -DsnapshotInterval} messages, before both ways of restarting are timed.
+ * The responses are discarded, as they were published before the restart.
+ */
+public class OMSRestartBenchmarkMain {
+    static final int MESSAGES = Integer.getInteger("messages", 10_000_000);
+    static final int LIVE_ORDERS = Integer.getInteger("liveOrders", 100_000);
+
+    public static void main(String[] args) {
+        String tmpDir = OMSBenchmarkMain.PATH + "/restart-" + System.nanoTime();
+        try (ChronicleQueue input = OMSBenchmarkMain.single(tmpDir, "/input");
+             ChronicleQueue snapshots = OMSBenchmarkMain.single(tmpDir, "/snapshots")) {
+            long start = System.nanoTime();
+            writeInput(input);
+            System.out.printf("Wrote %,d messages in %.3f s%n", MESSAGES, (System.nanoTime() - start) / 1e9);
+
+            // the run before the restart, writing the snapshots
+            OMSSnapshot snapshot = new OMSSnapshot(snapshots);
+            start = System.nanoTime();
+            OMSImpl before = new OMSImpl(Mocker.ignored(OMSOut.class), new OrderStore(LIVE_ORDERS * 2));
+            ExcerptTailer tailer = input.createTailer();
+            MethodReader reader = tailer.methodReader(before);
+            while (reader.readOne())
+                snapshot.onMessage(before, tailer.lastReadIndex());
+            System.out.printf("Processed with snapshots every %,d messages in %.3f s, %,d live orders%n",
+                    OMSSnapshot.SNAPSHOT_INTERVAL, (System.nanoTime() - start) / 1e9, before.orders().size());
+
+            for (int run = 1; run <= 3; run++) {
+                System.out.println("Run " + run);
+                restart(input, null, before);
+                restart(input, snapshot, before);
+            }
+        } finally {
+            IOTools.deleteDirWithFiles(tmpDir);
+        }
+    }
+
+    /**
+     * Recovers the orders into a new OMS, from a snapshot if there is one, and reports the time taken.
+     */
+    static void restart(ChronicleQueue input, OMSSnapshot snapshot, OMSImpl expected) {
+        long start = System.nanoTime();
+        OMSImpl oms = new OMSImpl(Mocker.ignored(OMSOut.class), new OrderStore(LIVE_ORDERS * 2));
+        ExcerptTailer tailer = input.createTailer();
+        long restored = OMSSnapshot.NO_INDEX;
+        if (snapshot != null) {
+            restored = snapshot.restore(oms);
+            OMSSnapshot.skipTo(tailer, restored);
+        }
+        long loaded = System.nanoTime();
+        MethodReader reader = tailer.methodReader(oms);
+        long replayed = 0;
+        while (reader.readOne())
+            replayed++;
+        long end = System.nanoTime();
+
+        if (oms.orders().size() != expected.orders().size())
+            throw new AssertionError("Restored " + oms.orders().size() + " orders, expected " + expected.orders().size());
+        System.out.printf("  %-16s startup %.3f s, snapshot %.3f s, replayed %,d messages%n",
+                snapshot == null ? "full replay" : "from snapshot",
+                (end - start) / 1e9, (loaded - start) / 1e9, replayed);
+    }
+
+    /**
+     * Writes new orders, each followed by a cancel of the order {@link #LIVE_ORDERS} earlier.
+     * The buys and sells are priced apart so they never trade.
+     */
+    static void writeInput(ChronicleQueue input) {
+        OMSIn in = input.createAppender().methodWriter(OMSIn.class);
+        StringBuilder clOrdID = new StringBuilder();
+        StringBuilder origClOrdID = new StringBuilder();
+        long client = ShortText.parse("client");
+        long target = ShortText.parse("OMS");
+        long account = ShortText.parse("ACC-1");
+        long symbol = ShortText.parse("EURUSD");
+        NewOrderSingle nos = new NewOrderSingle()
+                .sender(client)
+                .target(target)
+                .account(account)
+                .symbol(symbol)
+                .ordType(OrderType.LIMIT)
+                .timeInForce(TimeInForce.GTC)
+                .currency(Ccy.EUR)
+                .orderQty(1e6);
+        CancelOrderRequest cor = new CancelOrderRequest()
+                .sender(client)
+                .target(target)
+                .account(account)
+                .symbol(symbol);
+        for (int i = 0, n = 0; n < MESSAGES; i++) {
+            final boolean buy = (i & 1) == 0;
+            clOrdID.setLength(0);
+            clOrdID.append('o').append(i);
+            nos.clOrdID(clOrdID)
+                    .side(buy ? Side.BUY : Side.SELL)
+                    .price(buy ? 1.1 - (i % 100) * 1e-4 : 1.2 + (i % 100) * 1e-4)
+                    .sendingTime(now())
+                    .transactTime(now());
+            in.newOrderSingle(nos);
+            if (++n >= MESSAGES || i < LIVE_ORDERS)
+                continue;
+            final int old = i - LIVE_ORDERS;
+            clOrdID.setLength(0);
+            clOrdID.append('c').append(old);
+            origClOrdID.setLength(0);
+            origClOrdID.append('o').append(old);
+            cor.clOrdID(clOrdID)
+                    .origClOrdID(origClOrdID)
+                    .side((old & 1) == 0 ? Side.BUY : Side.SELL)
+                    .sendingTime(now());
+            in.cancelOrderRequest(cor);
+            n++;
+        }
+    }
+}
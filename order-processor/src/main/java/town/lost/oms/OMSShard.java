@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import run.chronicle.common.Hashing;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.dto.CancelAll;
+import town.lost.oms.dto.CancelOrderRequest;
+import town.lost.oms.dto.NewOrderSingle;
+
+/**
+ * The {@code OMSShard} class reads the requests for one shard of the symbols from a shared input queue.
+ *
+ * <p>Every shard tails the whole input queue, and each symbol belongs to exactly one shard, see {@link #shardOf(long, int)}.
+ * When the events are written in binary with the pregenerated marshalling, the symbol is at a fixed offset,
+ * so a shard peeks at it and skips a request for another shard without deserializing it. A request for this shard
+ * is rolled back and read again by a {@link MethodReader}, which passes it to the shard's own {@link OMSIn},
+ * typically an {@link OMSImpl} with its own {@link OrderStore}. No state is shared between shards,
+ * so each can run on its own pinned thread.
+ *
+ * <p>For other encodings, every request is deserialized and those for other shards are dropped after reading.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe, each shard should be read by one thread.
+ */
+public class OMSShard implements OMSIn {
+    // stop bit version, sender, target and sendingTime of the AbstractEvent, then the stop bit version of the subclass
+    private static final int SYMBOL_OFFSET = 1 + 3 * Long.BYTES + 1;
+
+    private final int shard;
+    private final int shards;
+    private final OMSIn oms;
+    private final ExcerptTailer tailer;
+    private final MethodReader reader;
+    private final EventHeader header = new EventHeader();
+
+    /**
+     * Constructs a shard reading from the given tailer.
+     *
+     * @param tailer the tailer of the input queue, used by this shard alone
+     * @param oms    the handler for the requests of this shard
+     * @param shard  the index of this shard, from 0 to {@code shards - 1}
+     * @param shards the total number of shards
+     */
+    public OMSShard(ExcerptTailer tailer, OMSIn oms, int shard, int shards) {
+        if (shard < 0 || shard >= shards)
+            throw new IllegalArgumentException("shard " + shard + " is not in [0, " + shards + ")");
+        this.shard = shard;
+        this.shards = shards;
+        this.oms = oms;
+        this.tailer = tailer;
+        this.reader = tailer.methodReader(this);
+    }
+
+    /**
+     * Maps a symbol to the shard which owns it.
+     *
+     * @return a shard index from 0 to {@code shards - 1}
+     */
+    public static int shardOf(long symbol, int shards) {
+        return (int) ((Hashing.mix(symbol) >>> 1) % shards);
+    }
+
+    /**
+     * Reads one request from the input, processing it only if its symbol belongs to this shard.
+     *
+     * @return {@code true} if a request was read, whether it was processed or skipped
+     */
+    public boolean readOne() {
+        if (!EventHeader.FIXED_LAYOUT || shards == 1)
+            return reader.readOne();
+
+        boolean owned;
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (!dc.isPresent())
+                return false;
+            long symbol = peekSymbol(dc.wire().bytes());
+            // a symbol of 0 means the layout was not recognised, leave the check to the method reader
+            owned = symbol == 0 || owns(symbol);
+            if (owned)
+                dc.rollbackOnClose();
+        }
+        return !owned || reader.readOne();
+    }
+
+    /**
+     * @return {@code true} if the symbol belongs to this shard
+     */
+    public boolean owns(long symbol) {
+        return shardOf(symbol, shards) == shard;
+    }
+
+    @Override
+    public void newOrderSingle(NewOrderSingle nos) {
+        if (owns(nos.symbol()))
+            oms.newOrderSingle(nos);
+    }
+
+    @Override
+    public void cancelOrderRequest(CancelOrderRequest cor) {
+        if (owns(cor.symbol()))
+            oms.cancelOrderRequest(cor);
+    }
+
+    @Override
+    public void cancelAll(CancelAll cancelAll) {
+        if (owns(cancelAll.symbol()))
+            oms.cancelAll(cancelAll);
+    }
+
+    /**
+     * Reads the symbol of a request in the pregenerated binary encoding, without moving the read position.
+     *
+     * @return the symbol, or 0 if the document is not a request in the expected layout
+     */
+    long peekSymbol(Bytes<?> bytes) {
+        return header.parse(bytes) && header.start + SYMBOL_OFFSET + Long.BYTES <= header.end
+                ? bytes.readLong(header.start + SYMBOL_OFFSET)
+                : 0;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptAppender;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.queue.TailerDirection;
+import net.openhft.chronicle.wire.DocumentContext;
+import town.lost.oms.dto.OrderType;
+import town.lost.oms.dto.Side;
+
+/**
+ * The {@code OMSSnapshot} class writes the live orders of an {@link OMSImpl} to a queue of snapshots, with the index
+ * of the last input message they include, and restores the latest one so only the input after it has to be replayed.
+ *
+ * <p>Each snapshot is one document of raw bytes: a version, the last input index, the number of orders,
+ * then every order. The orders are written book by book, each side from the best level, and each level
+ * in time priority, so adding them back to the books in the same order restores price-time priority.
+ *
+ * <p>A snapshot is written every {@code -DsnapshotInterval} messages passed to {@link #onMessage(OMSImpl, long)},
+ * default 1,000,000. The snapshot queue's block size must be larger than a snapshot.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe, use it from the thread processing the OMS.
+ */
+public class OMSSnapshot {
+    // Messages processed between snapshots
+    static final long SNAPSHOT_INTERVAL = Long.getLong("snapshotInterval", 1_000_000);
+
+    // The index returned by restore when there is no snapshot
+    public static final long NO_INDEX = -1;
+
+    private static final int VERSION = 1;
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORD_TYPES = OrderType.values();
+
+    private final ChronicleQueue snapshots;
+    private final long interval;
+    private final StringBuilder clOrdID = new StringBuilder();
+    private ExcerptAppender appender;
+    private long messages;
+
+    /**
+     * Constructs a snapshotter writing to and restoring from this queue, every {@code -DsnapshotInterval} messages.
+     */
+    public OMSSnapshot(ChronicleQueue snapshots) {
+        this(snapshots, SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Constructs a snapshotter writing to and restoring from this queue.
+     *
+     * @param interval the number of messages between snapshots
+     */
+    public OMSSnapshot(ChronicleQueue snapshots, long interval) {
+        this.snapshots = snapshots;
+        this.interval = interval;
+    }
+
+    /**
+     * Counts a message processed by the OMS, writing a snapshot every {@code interval} messages.
+     *
+     * @param lastIndex the index of the input message just processed
+     * @return {@code true} if a snapshot was written
+     */
+    public boolean onMessage(OMSImpl oms, long lastIndex) {
+        if (++messages < interval)
+            return false;
+        messages = 0;
+        write(oms, lastIndex);
+        return true;
+    }
+
+    /**
+     * Writes a snapshot of the live orders.
+     *
+     * @param lastIndex the index of the last input message processed by the OMS
+     */
+    public void write(OMSImpl oms, long lastIndex) {
+        if (appender == null)
+            appender = snapshots.createAppender();
+        try (DocumentContext dc = appender.writingDocument()) {
+            write(oms, lastIndex, dc.wire().bytes());
+        }
+    }
+
+    /**
+     * Restores the latest snapshot into an OMS with no orders.
+     *
+     * @return the index of the last input message in the snapshot, or {@link #NO_INDEX} if there is none
+     */
+    public long restore(OMSImpl oms) {
+        final ExcerptTailer tailer = snapshots.createTailer().direction(TailerDirection.BACKWARD).toEnd();
+        try (DocumentContext dc = tailer.readingDocument()) {
+            if (!dc.isPresent())
+                return NO_INDEX;
+            return read(dc.wire().bytes(), oms);
+        }
+    }
+
+    /**
+     * Moves a tailer of the input queue to the first message after a snapshot.
+     *
+     * @param lastIndex the index returned by {@link #restore(OMSImpl)}
+     */
+    @SuppressWarnings("try")
+    public static void skipTo(ExcerptTailer input, long lastIndex) {
+        if (lastIndex == NO_INDEX) {
+            input.toStart();
+            return;
+        }
+        if (!input.moveToIndex(lastIndex))
+            throw new IllegalStateException("Input index " + Long.toHexString(lastIndex) + " of the snapshot not found");
+        // skip the last message processed
+        try (DocumentContext ignored = input.readingDocument()) {
+            // only moves past it
+        }
+    }
+
+    void write(OMSImpl oms, long lastIndex, Bytes<?> out) {
+        final OrderStore orders = oms.orders();
+        out.writeStopBit(VERSION);
+        out.writeLong(lastIndex);
+        // only the orders resting in a book are written, which should be all of them
+        final long countAt = out.writePosition();
+        out.writeInt(0);
+        int count = 0;
+        for (int bucket = 0; bucket < oms.bookBuckets(); bucket++) {
+            final OrderBook book = oms.bookAt(bucket);
+            if (book == null)
+                continue;
+            for (Side side : SIDES)
+                for (int n = 0; n < book.depth(side); n++)
+                    for (int slot = book.head(side, n); slot != OrderStore.NO_SLOT; slot = orders.levelNext(slot)) {
+                        writeOrder(orders, slot, out);
+                        count++;
+                    }
+        }
+        out.writeInt(countAt, count);
+    }
+
+    long read(Bytes<?> in, OMSImpl oms) {
+        final int version = (int) in.readStopBit();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported snapshot version " + version);
+        final long lastIndex = in.readLong();
+        final int count = in.readInt();
+        final OrderStore orders = oms.orders();
+        if (orders.size() != 0)
+            throw new IllegalStateException("Orders can only be restored into an empty OMS");
+        for (int i = 0; i < count; i++) {
+            final long symbol = in.readLong();
+            final long sender = in.readLong();
+            final long account = in.readLong();
+            final long orderID = in.readLong();
+            final double orderQty = in.readDouble();
+            final double price = in.readDouble();
+            final double leavesQty = in.readDouble();
+            final double cumQty = in.readDouble();
+            final double avgPx = in.readDouble();
+            final Side side = SIDES[in.readUnsignedByte()];
+            final OrderType ordType = ORD_TYPES[in.readUnsignedByte()];
+            in.readUtf8(clOrdID);
+            final int slot = orders.add(sender, clOrdID, symbol, account, side, ordType, orderQty, price, orderID);
+            orders.restore(slot, leavesQty, cumQty, avgPx);
+            oms.book(symbol).add(slot);
+        }
+        return lastIndex;
+    }
+
+    private static void writeOrder(OrderStore orders, int slot, Bytes<?> out) {
+        out.writeLong(orders.symbol(slot));
+        out.writeLong(orders.sender(slot));
+        out.writeLong(orders.account(slot));
+        out.writeLong(orders.orderID(slot));
+        out.writeDouble(orders.orderQty(slot));
+        out.writeDouble(orders.price(slot));
+        out.writeDouble(orders.leavesQty(slot));
+        out.writeDouble(orders.cumQty(slot));
+        out.writeDouble(orders.avgPx(slot));
+        out.writeUnsignedByte(orders.side(slot).ordinal());
+        out.writeUnsignedByte(orders.ordType(slot).ordinal());
+        out.writeUtf8(orders.clOrdID(slot));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import town.lost.oms.dto.Side;
+
+import java.util.Arrays;
+
+/**
+ * The {@code OrderBook} class is the limit order book for one symbol, holding resting orders in price-time priority.
+ *
+ * <p>Prices are converted to a tick index with the book's tick size. Each side keeps its price levels in primitive
+ * arrays sorted so the best level is the last element, making the common cases of trading at, adding to or removing
+ * the top of the book cheap. The orders at a level form a FIFO, linked intrusively through the {@link OrderStore} slots,
+ * so the book does not allocate once its level arrays have grown to the depth in use.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+public class OrderBook {
+    private final OrderStore orders;
+    private final double tickSize;
+    private final Levels bids = new Levels();
+    private final Levels asks = new Levels();
+
+    /**
+     * Constructs an empty {@code OrderBook} for orders held in the given store.
+     *
+     * @param orders   the store holding the orders
+     * @param tickSize the smallest price increment, prices are rounded to a multiple of this
+     */
+    public OrderBook(OrderStore orders, double tickSize) {
+        this.orders = orders;
+        this.tickSize = tickSize;
+    }
+
+    /**
+     * @return the tick index of the price
+     */
+    public long toTick(double price) {
+        return Math.round(price / tickSize);
+    }
+
+    /**
+     * Finds the oldest resting order at the best opposite price, if it can trade with an incoming order.
+     *
+     * @param side      the side of the incoming order
+     * @param market    {@code true} if the incoming order trades at any price
+     * @param limitTick the limit price of the incoming order as a tick index, ignored for market orders
+     * @return the slot of the resting order, or {@link OrderStore#NO_SLOT} if nothing crosses
+     */
+    public int match(Side side, boolean market, long limitTick) {
+        final Levels opposite = side == Side.BUY ? asks : bids;
+        if (opposite.count == 0)
+            return OrderStore.NO_SLOT;
+        final int best = opposite.count - 1;
+        // the key of a level is -tick for asks and +tick for bids, so crossing is key >= -limit for a buy
+        if (!market && opposite.key[best] < -key(side, limitTick))
+            return OrderStore.NO_SLOT;
+        return opposite.head[best];
+    }
+
+    /**
+     * Sums the quantity an incoming order could trade immediately, stopping once {@code required} is reached.
+     *
+     * @return the quantity available, capped at no less than {@code required} when there is enough
+     */
+    public double available(Side side, boolean market, long limitTick, double required) {
+        final Levels opposite = side == Side.BUY ? asks : bids;
+        final long minKey = market ? Long.MIN_VALUE : -key(side, limitTick);
+        double total = 0;
+        for (int i = opposite.count - 1; i >= 0 && total < required && opposite.key[i] >= minKey; i--)
+            total += opposite.qty[i];
+        return total;
+    }
+
+    /**
+     * Adds a resting order to the back of the queue at its price level.
+     */
+    public void add(int slot) {
+        final Side side = orders.side(slot);
+        final Levels levels = levels(side);
+        final long key = key(side, toTick(orders.price(slot)));
+        int level = levels.find(key);
+        if (level < 0)
+            level = levels.insert(-level - 1, key);
+
+        final int tail = levels.tail[level];
+        orders.levelPrev(slot, tail);
+        orders.levelNext(slot, OrderStore.NO_SLOT);
+        if (tail == OrderStore.NO_SLOT)
+            levels.head[level] = slot;
+        else
+            orders.levelNext(tail, slot);
+        levels.tail[level] = slot;
+        levels.qty[level] += orders.leavesQty(slot);
+    }
+
+    /**
+     * Records a fill against a resting order. An order with no quantity left is removed from the book,
+     * but stays in the order store.
+     */
+    public void fill(int slot, double qty, double px) {
+        orders.fill(slot, qty, px);
+        if (orders.leavesQty(slot) > 0) {
+            final Side side = orders.side(slot);
+            final Levels levels = levels(side);
+            levels.qty[levels.find(key(side, toTick(orders.price(slot))))] -= qty;
+        } else {
+            unlink(slot, qty);
+        }
+    }
+
+    /**
+     * Removes a resting order from its price level, removing the level if it is now empty.
+     */
+    public void remove(int slot) {
+        unlink(slot, orders.leavesQty(slot));
+    }
+
+    /**
+     * @return the number of price levels on this side
+     */
+    public int depth(Side side) {
+        return levels(side).count;
+    }
+
+    /**
+     * @return the quantity resting at the n-th best level on this side, where 0 is the best level
+     */
+    public double quantity(Side side, int n) {
+        final Levels levels = levels(side);
+        return levels.qty[levels.count - 1 - n];
+    }
+
+    /**
+     * @return the price of the n-th best level on this side, where 0 is the best level
+     */
+    public double price(Side side, int n) {
+        final Levels levels = levels(side);
+        return side.direction * levels.key[levels.count - 1 - n] * tickSize;
+    }
+
+    /**
+     * @return the slot of the oldest order at the n-th best level on this side, where 0 is the best level.
+     * The rest of the level follows in time priority through {@link OrderStore#levelNext(int)}.
+     */
+    public int head(Side side, int n) {
+        final Levels levels = levels(side);
+        return levels.head[levels.count - 1 - n];
+    }
+
+    private void unlink(int slot, double qty) {
+        final Side side = orders.side(slot);
+        final Levels levels = levels(side);
+        final int level = levels.find(key(side, toTick(orders.price(slot))));
+        final int prev = orders.levelPrev(slot);
+        final int next = orders.levelNext(slot);
+        if (prev == OrderStore.NO_SLOT)
+            levels.head[level] = next;
+        else
+            orders.levelNext(prev, next);
+        if (next == OrderStore.NO_SLOT)
+            levels.tail[level] = prev;
+        else
+            orders.levelPrev(next, prev);
+
+        if (levels.head[level] == OrderStore.NO_SLOT)
+            levels.delete(level);
+        else
+            levels.qty[level] -= qty;
+    }
+
+    private Levels levels(Side side) {
+        return side == Side.BUY ? bids : asks;
+    }
+
+    // bids sort ascending by tick and asks descending, so the best level of either side is last
+    private static long key(Side side, long tick) {
+        return side == Side.BUY ? tick : -tick;
+    }
+
+    /**
+     * The price levels of one side, as parallel arrays sorted by ascending key.
+     */
+    static final class Levels {
+        long[] key = new long[16];
+        int[] head = new int[16];
+        int[] tail = new int[16];
+        double[] qty = new double[16];
+        int count;
+
+        /**
+         * @return the index of the level, or {@code -(insertion point) - 1} if there is none
+         */
+        int find(long key) {
+            // most activity is at the top of the book
+            if (count > 0 && this.key[count - 1] == key)
+                return count - 1;
+            return Arrays.binarySearch(this.key, 0, count, key);
+        }
+
+        int insert(int index, long key) {
+            if (count == this.key.length) {
+                this.key = Arrays.copyOf(this.key, count * 2);
+                head = Arrays.copyOf(head, count * 2);
+                tail = Arrays.copyOf(tail, count * 2);
+                qty = Arrays.copyOf(qty, count * 2);
+            }
+            final int moved = count - index;
+            System.arraycopy(this.key, index, this.key, index + 1, moved);
+            System.arraycopy(head, index, head, index + 1, moved);
+            System.arraycopy(tail, index, tail, index + 1, moved);
+            System.arraycopy(qty, index, qty, index + 1, moved);
+            this.key[index] = key;
+            head[index] = OrderStore.NO_SLOT;
+            tail[index] = OrderStore.NO_SLOT;
+            qty[index] = 0;
+            count++;
+            return index;
+        }
+
+        void delete(int index) {
+            final int moved = count - 1 - index;
+            System.arraycopy(key, index + 1, key, index, moved);
+            System.arraycopy(head, index + 1, head, index, moved);
+            System.arraycopy(tail, index + 1, tail, index, moved);
+            System.arraycopy(qty, index + 1, qty, index, moved);
+            count--;
+        }
+    }
+}
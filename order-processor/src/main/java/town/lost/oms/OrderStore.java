@@ -0,0 +1,469 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import run.chronicle.common.Hashing;
+import town.lost.oms.dto.OrderType;
+import town.lost.oms.dto.Side;
+
+import java.util.Arrays;
+
+/**
+ * The {@code OrderStore} class holds the live orders of an {@link OMSImpl} in pooled, parallel primitive arrays.
+ *
+ * <p>Each order occupies a slot, an {@code int} index into the column arrays. Slots are recycled through a free list,
+ * so adding and removing orders does not allocate once the store has been sized. Orders can be found
+ * <ul>
+ *     <li>by {@code (sender, clOrdID)} through an open-addressing index with linear probing, and</li>
+ *     <li>by {@code symbol} through an intrusive doubly linked list threaded through the slots.</li>
+ * </ul>
+ *
+ * <p>The client order IDs are copied into a {@code char[]} slab with a fixed width per slot, set with
+ * {@code -DclOrdIDWidth}, so storing and comparing them does not allocate. Longer IDs are kept as a String instead.
+ *
+ * <p>The store grows by doubling when it is full. Size it with the expected number of resting orders
+ * to keep resizing off the hot path.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe.
+ */
+public class OrderStore {
+    static final int NO_SLOT = -1;
+
+    // Client order IDs up to this many chars are stored without allocating
+    private static final int CL_ORD_ID_WIDTH = Integer.getInteger("clOrdIDWidth", 32);
+
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORD_TYPES = OrderType.values();
+
+    // Number of live orders
+    private int size;
+
+    // Stack of free slots, freeSlots[0 .. freeCount) are available
+    private int[] freeSlots;
+    private int freeCount;
+
+    // Order columns, indexed by slot
+    private long[] keyHash;
+    private long[] orderID;
+    private long[] sender;
+    private long[] symbol;
+    private long[] account;
+    private double[] orderQty;
+    private double[] price;
+    private double[] leavesQty;
+    private double[] cumQty;
+    private double[] avgPx;
+    private byte[] side;
+    private byte[] ordType;
+    // clOrdIDChars[slot * CL_ORD_ID_WIDTH ..] holds the client order ID unless it is too long for the slab
+    private char[] clOrdIDChars;
+    private int[] clOrdIDLength;
+    private String[] longClOrdID;
+
+    // Intrusive per-symbol doubly linked list, indexed by slot
+    private int[] symbolNext;
+    private int[] symbolPrev;
+
+    // Intrusive per-price-level doubly linked list in time priority, maintained by the OrderBook
+    private int[] levelNext;
+    private int[] levelPrev;
+
+    // Open-addressing index of (sender, clOrdID) -> slot + 1, 0 marks an empty bucket
+    private int[] index;
+    private int indexMask;
+
+    // Reused view of a stored client order ID
+    private final ClOrdID clOrdIDView = new ClOrdID();
+
+    // Open-addressing map of symbol -> first slot + 1 for that symbol, 0 marks an empty list
+    private long[] symbolKeys;
+    private int[] symbolHeads;
+    private int symbolCount;
+
+    /**
+     * Constructs an {@code OrderStore} with room for {@code capacity} orders before it needs to grow.
+     *
+     * @param capacity the initial number of order slots
+     */
+    public OrderStore(int capacity) {
+        allocate(Math.max(16, capacity));
+        symbolKeys = new long[64];
+        symbolHeads = new int[64];
+    }
+
+    /**
+     * Adds a new order to the store. The symbol must not be 0, which marks an empty bucket.
+     *
+     * @return the slot of the order, or {@link #NO_SLOT} if the sender already has a live order with this clOrdID
+     */
+    public int add(long sender, CharSequence clOrdID, long symbol, long account, Side side, OrderType ordType,
+                   double orderQty, double price, long orderID) {
+        final long hash = hash(sender, clOrdID);
+        if (find(hash, sender, clOrdID) != NO_SLOT)
+            return NO_SLOT;
+        if (freeCount == 0)
+            grow();
+
+        final int slot = freeSlots[--freeCount];
+        this.keyHash[slot] = hash;
+        this.orderID[slot] = orderID;
+        this.sender[slot] = sender;
+        this.symbol[slot] = symbol;
+        this.account[slot] = account;
+        this.orderQty[slot] = orderQty;
+        this.price[slot] = price;
+        this.leavesQty[slot] = orderQty;
+        this.cumQty[slot] = 0;
+        this.avgPx[slot] = 0;
+        this.side[slot] = (byte) side.ordinal();
+        this.ordType[slot] = (byte) ordType.ordinal();
+        storeClOrdID(slot, clOrdID);
+
+        insertIndex(hash, slot);
+        linkSymbol(slot);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Finds a live order by the sender and the clOrdID it was submitted with.
+     *
+     * @return the slot of the order, or {@link #NO_SLOT} if there is no such order
+     */
+    public int find(long sender, CharSequence clOrdID) {
+        return find(hash(sender, clOrdID), sender, clOrdID);
+    }
+
+    /**
+     * Removes the order in the given slot and returns the slot to the free list.
+     *
+     * @param slot a slot returned by {@link #add} or {@link #find} which has not been removed yet
+     */
+    public void remove(int slot) {
+        removeIndex(slot);
+        unlinkSymbol(slot);
+        longClOrdID[slot] = null;
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Records a fill of {@code qty} at {@code px}, reducing the leaves quantity and updating the average price.
+     */
+    public void fill(int slot, double qty, double px) {
+        final double cum = cumQty[slot] + qty;
+        avgPx[slot] = (avgPx[slot] * cumQty[slot] + px * qty) / cum;
+        cumQty[slot] = cum;
+        leavesQty[slot] -= qty;
+    }
+
+    /**
+     * Sets the fill state of an order restored from a snapshot, which {@link #add} sets as unfilled.
+     */
+    void restore(int slot, double leavesQty, double cumQty, double avgPx) {
+        this.leavesQty[slot] = leavesQty;
+        this.cumQty[slot] = cumQty;
+        this.avgPx[slot] = avgPx;
+    }
+
+    /**
+     * @return the slot of the first live order for this symbol, or {@link #NO_SLOT} if there are none
+     */
+    public int firstForSymbol(long symbol) {
+        if (symbol == 0)
+            return NO_SLOT;
+        int bucket = symbolBucket(symbol);
+        return symbolKeys[bucket] == symbol ? symbolHeads[bucket] - 1 : NO_SLOT;
+    }
+
+    /**
+     * @return the slot of the next live order with the same symbol, or {@link #NO_SLOT} at the end of the list
+     */
+    public int nextForSymbol(int slot) {
+        return symbolNext[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long orderID(int slot) {
+        return orderID[slot];
+    }
+
+    public long sender(int slot) {
+        return sender[slot];
+    }
+
+    public long symbol(int slot) {
+        return symbol[slot];
+    }
+
+    public long account(int slot) {
+        return account[slot];
+    }
+
+    public double orderQty(int slot) {
+        return orderQty[slot];
+    }
+
+    public double price(int slot) {
+        return price[slot];
+    }
+
+    public double leavesQty(int slot) {
+        return leavesQty[slot];
+    }
+
+    public double cumQty(int slot) {
+        return cumQty[slot];
+    }
+
+    public double avgPx(int slot) {
+        return avgPx[slot];
+    }
+
+    public Side side(int slot) {
+        return SIDES[side[slot]];
+    }
+
+    public OrderType ordType(int slot) {
+        return ORD_TYPES[ordType[slot]];
+    }
+
+    /**
+     * Returns the client order ID of the order in this slot, as a view reused by every call,
+     * so it is only valid until the next call or until the order is removed.
+     */
+    public CharSequence clOrdID(int slot) {
+        return longClOrdID[slot] != null ? longClOrdID[slot] : clOrdIDView.slot(slot);
+    }
+
+    int levelNext(int slot) {
+        return levelNext[slot];
+    }
+
+    void levelNext(int slot, int next) {
+        levelNext[slot] = next;
+    }
+
+    int levelPrev(int slot) {
+        return levelPrev[slot];
+    }
+
+    void levelPrev(int slot, int prev) {
+        levelPrev[slot] = prev;
+    }
+
+    private int find(long hash, long sender, CharSequence clOrdID) {
+        for (int i = (int) hash & indexMask; ; i = (i + 1) & indexMask) {
+            int slot = index[i] - 1;
+            if (slot == NO_SLOT)
+                return NO_SLOT;
+            if (keyHash[slot] == hash && this.sender[slot] == sender && clOrdIDEquals(slot, clOrdID))
+                return slot;
+        }
+    }
+
+    private boolean clOrdIDEquals(int slot, CharSequence clOrdID) {
+        if (longClOrdID[slot] != null)
+            return longClOrdID[slot].contentEquals(clOrdID);
+        final int length = clOrdIDLength[slot];
+        if (length != clOrdID.length())
+            return false;
+        final int offset = slot * CL_ORD_ID_WIDTH;
+        for (int i = 0; i < length; i++)
+            if (clOrdIDChars[offset + i] != clOrdID.charAt(i))
+                return false;
+        return true;
+    }
+
+    private void storeClOrdID(int slot, CharSequence clOrdID) {
+        final int length = clOrdID.length();
+        clOrdIDLength[slot] = length;
+        if (length > CL_ORD_ID_WIDTH) {
+            longClOrdID[slot] = clOrdID.toString();
+            return;
+        }
+        final int offset = slot * CL_ORD_ID_WIDTH;
+        for (int i = 0; i < length; i++)
+            clOrdIDChars[offset + i] = clOrdID.charAt(i);
+    }
+
+    private void insertIndex(long hash, int slot) {
+        int i = (int) hash & indexMask;
+        while (index[i] != 0)
+            i = (i + 1) & indexMask;
+        index[i] = slot + 1;
+    }
+
+    // backward shift deletion keeps probe sequences intact without tombstones
+    private void removeIndex(int slot) {
+        int i = (int) keyHash[slot] & indexMask;
+        while (index[i] != slot + 1)
+            i = (i + 1) & indexMask;
+        for (int j = (i + 1) & indexMask; index[j] != 0; j = (j + 1) & indexMask) {
+            int home = (int) keyHash[index[j] - 1] & indexMask;
+            // move the entry at j into the hole at i if its home bucket is not in (i, j]
+            if (((j - home) & indexMask) >= ((j - i) & indexMask)) {
+                index[i] = index[j];
+                i = j;
+            }
+        }
+        index[i] = 0;
+    }
+
+    private void linkSymbol(int slot) {
+        int bucket = symbolBucket(symbol[slot]);
+        if (symbolKeys[bucket] != symbol[slot]) {
+            symbolKeys[bucket] = symbol[slot];
+            if (++symbolCount * 2 > symbolKeys.length) {
+                growSymbols();
+                bucket = symbolBucket(symbol[slot]);
+            }
+        }
+        int head = symbolHeads[bucket] - 1;
+        symbolPrev[slot] = NO_SLOT;
+        symbolNext[slot] = head;
+        if (head != NO_SLOT)
+            symbolPrev[head] = slot;
+        symbolHeads[bucket] = slot + 1;
+    }
+
+    private void unlinkSymbol(int slot) {
+        int prev = symbolPrev[slot];
+        int next = symbolNext[slot];
+        if (prev == NO_SLOT)
+            symbolHeads[symbolBucket(symbol[slot])] = next + 1;
+        else
+            symbolNext[prev] = next;
+        if (next != NO_SLOT)
+            symbolPrev[next] = prev;
+    }
+
+    // symbols are never removed, so an empty list simply keeps its bucket
+    private int symbolBucket(long symbol) {
+        int mask = symbolKeys.length - 1;
+        int i = (int) Hashing.mix(symbol) & mask;
+        while (symbolKeys[i] != symbol && symbolKeys[i] != 0)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private void growSymbols() {
+        long[] oldKeys = symbolKeys;
+        int[] oldHeads = symbolHeads;
+        symbolKeys = new long[oldKeys.length * 2];
+        symbolHeads = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0)
+                continue;
+            int bucket = symbolBucket(oldKeys[i]);
+            symbolKeys[bucket] = oldKeys[i];
+            symbolHeads[bucket] = oldHeads[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keyHash = new long[capacity];
+        orderID = new long[capacity];
+        sender = new long[capacity];
+        symbol = new long[capacity];
+        account = new long[capacity];
+        orderQty = new double[capacity];
+        price = new double[capacity];
+        leavesQty = new double[capacity];
+        cumQty = new double[capacity];
+        avgPx = new double[capacity];
+        side = new byte[capacity];
+        ordType = new byte[capacity];
+        clOrdIDChars = new char[capacity * CL_ORD_ID_WIDTH];
+        clOrdIDLength = new int[capacity];
+        longClOrdID = new String[capacity];
+        symbolNext = new int[capacity];
+        symbolPrev = new int[capacity];
+        levelNext = new int[capacity];
+        levelPrev = new int[capacity];
+        freeSlots = new int[capacity];
+        // hand out the lowest slots first
+        for (int i = 0; i < capacity; i++)
+            freeSlots[i] = capacity - 1 - i;
+        freeCount = capacity;
+        index = new int[Integer.highestOneBit(capacity - 1) << 2];
+        indexMask = index.length - 1;
+    }
+
+    private void grow() {
+        final int oldCapacity = orderID.length;
+        final int capacity = oldCapacity * 2;
+        keyHash = Arrays.copyOf(keyHash, capacity);
+        orderID = Arrays.copyOf(orderID, capacity);
+        sender = Arrays.copyOf(sender, capacity);
+        symbol = Arrays.copyOf(symbol, capacity);
+        account = Arrays.copyOf(account, capacity);
+        orderQty = Arrays.copyOf(orderQty, capacity);
+        price = Arrays.copyOf(price, capacity);
+        leavesQty = Arrays.copyOf(leavesQty, capacity);
+        cumQty = Arrays.copyOf(cumQty, capacity);
+        avgPx = Arrays.copyOf(avgPx, capacity);
+        side = Arrays.copyOf(side, capacity);
+        ordType = Arrays.copyOf(ordType, capacity);
+        clOrdIDChars = Arrays.copyOf(clOrdIDChars, capacity * CL_ORD_ID_WIDTH);
+        clOrdIDLength = Arrays.copyOf(clOrdIDLength, capacity);
+        longClOrdID = Arrays.copyOf(longClOrdID, capacity);
+        symbolNext = Arrays.copyOf(symbolNext, capacity);
+        symbolPrev = Arrays.copyOf(symbolPrev, capacity);
+        levelNext = Arrays.copyOf(levelNext, capacity);
+        levelPrev = Arrays.copyOf(levelPrev, capacity);
+        // only called when every existing slot is in use
+        freeSlots = new int[capacity];
+        for (int i = oldCapacity; i < capacity; i++)
+            freeSlots[freeCount++] = capacity - 1 - (i - oldCapacity);
+        index = new int[index.length * 2];
+        indexMask = index.length - 1;
+        for (int slot = 0; slot < oldCapacity; slot++)
+            insertIndex(keyHash[slot], slot);
+    }
+
+    static long hash(long sender, CharSequence clOrdID) {
+        long h = sender;
+        for (int i = 0; i < clOrdID.length(); i++)
+            h = h * 31 + clOrdID.charAt(i);
+        return Hashing.mix(h);
+    }
+
+    /**
+     * A view of the client order ID stored in the slab for one slot.
+     */
+    private final class ClOrdID implements CharSequence {
+        private int slot;
+
+        ClOrdID slot(int slot) {
+            this.slot = slot;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return clOrdIDLength[slot];
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= clOrdIDLength[slot])
+                throw new IndexOutOfBoundsException("index: " + index);
+            return clOrdIDChars[slot * CL_ORD_ID_WIDTH + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(clOrdIDChars, slot * CL_ORD_ID_WIDTH, clOrdIDLength[slot]);
+        }
+    }
+}
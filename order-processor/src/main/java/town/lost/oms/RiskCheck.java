@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.core.util.NanoSampler;
+import run.chronicle.common.LongIdInterner;
+import run.chronicle.common.SharedIds;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.util.Arrays;
+
+/**
+ * The {@code RiskCheck} class is a pre-trade risk stage which sits in front of an {@link OMSIn}, usually an
+ * {@link OMSImpl}, and checks each {@link NewOrderSingle} against limits before passing it on.
+ *
+ * <p>An order is rejected with an {@link ExecutionReport} carrying the reason if
+ * <ul>
+ *     <li>its sender has sent more than {@code maxOrdersPerSecond} new orders in the current one second window,</li>
+ *     <li>its quantity is more than {@code maxOrderQty},</li>
+ *     <li>its price is further than {@code priceCollar}, as a fraction, from the last price of the symbol, or</li>
+ *     <li>it would take the notional of the orders accepted for its symbol and account past {@code maxNotional}.</li>
+ * </ul>
+ * Market orders are valued at the last price. A symbol without a last price, see {@link #lastPrice(long, double)},
+ * is not collared. The notional accumulates until {@link #resetNotional()} is called, e.g. at the start of a session.
+ * Cancels are always passed on.
+ *
+ * <p>Symbols, accounts and senders are interned to dense ids in the process-wide {@link SharedIds}, and the limits
+ * and exposures are held in primitive arrays indexed by them, so a check does not box or allocate. An order whose
+ * symbol, account or sender is new once one of those tables is full is rejected, as it cannot be checked.
+ * The pairs of symbol and account, of which there can be many more, have a table of their own, which starts with
+ * room for {@code -DriskSymbolAccounts} pairs, default 65,536, and doubles when it is full.
+ * The limits default to none, and can be set with {@code -DriskMaxOrderQty}, {@code -DriskMaxNotional},
+ * {@code -DriskPriceCollar} and {@code -DriskMaxOrdersPerSecond}.
+ *
+ * <p><strong>Note:</strong> This class is not thread-safe, use one per shard.
+ */
+public class RiskCheck implements OMSIn {
+    static final double MAX_ORDER_QTY = Jvm.getDouble("riskMaxOrderQty", Double.POSITIVE_INFINITY);
+    static final double MAX_NOTIONAL = Jvm.getDouble("riskMaxNotional", Double.POSITIVE_INFINITY);
+    static final double PRICE_COLLAR = Jvm.getDouble("riskPriceCollar", Double.POSITIVE_INFINITY);
+    static final int MAX_ORDERS_PER_SECOND = Integer.getInteger("riskMaxOrdersPerSecond", Integer.MAX_VALUE);
+
+    static final int SYMBOL_ACCOUNTS = Integer.getInteger("riskSymbolAccounts", 1 << 16);
+
+    private static final long WINDOW_NS = 1_000_000_000L;
+    // the largest capacity of a LongIdInterner
+    private static final int MAX_SYMBOL_ACCOUNTS = 1 << 29;
+
+    private final OMSIn next;
+    private final OMSOut out;
+    // Ids of the senders, symbols and accounts, usually those in SharedIds
+    private final LongIdInterner parties;
+    private final LongIdInterner symbols;
+    private final LongIdInterner accounts;
+
+    private double maxOrderQty = MAX_ORDER_QTY;
+    private double maxNotional = MAX_NOTIONAL;
+    private double priceCollar = PRICE_COLLAR;
+    private int maxOrdersPerSecond = MAX_ORDERS_PER_SECOND;
+
+    // Pairs of symbol and account id, which are only used by this stage, so it can be replaced with a larger one
+    private LongIdInterner symbolAccounts = new LongIdInterner("symbolAccounts", SYMBOL_ACCOUNTS);
+
+    // Last price by symbol id, NaN if there is none
+    private double[] lastPrice = nans(64);
+    // Notional of the orders accepted by symbol and account id
+    private double[] notional = new double[256];
+    // Start of the current window, and the orders in it, by sender id
+    private long[] windowStart = new long[64];
+    private int[] windowOrders = new int[64];
+
+    // Reusable instance of ExecutionReport for rejecting orders
+    private final ExecutionReport er = new ExecutionReport();
+
+    // Optional sampler of the time taken by each check
+    private NanoSampler checkLatency;
+
+    /**
+     * Constructs a risk check passing the orders which pass to {@code next}.
+     *
+     * @param next the handler for the requests which pass the checks
+     * @param out  the outbound interface rejections are sent to
+     */
+    public RiskCheck(OMSIn next, OMSOut out) {
+        this(next, out, SharedIds.PARTIES, SharedIds.SYMBOLS, SharedIds.ACCOUNTS);
+    }
+
+    RiskCheck(OMSIn next, OMSOut out, LongIdInterner parties, LongIdInterner symbols, LongIdInterner accounts) {
+        this.next = next;
+        this.out = out;
+        this.parties = parties;
+        this.symbols = symbols;
+        this.accounts = accounts;
+    }
+
+    /**
+     * Sets the largest quantity of a single order.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck maxOrderQty(double maxOrderQty) {
+        this.maxOrderQty = maxOrderQty;
+        return this;
+    }
+
+    /**
+     * Sets the largest notional of the orders accepted for a symbol and account.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck maxNotional(double maxNotional) {
+        this.maxNotional = maxNotional;
+        return this;
+    }
+
+    /**
+     * Sets how far a limit price can be from the last price, as a fraction of the last price, e.g. 0.05 for 5%.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck priceCollar(double priceCollar) {
+        this.priceCollar = priceCollar;
+        return this;
+    }
+
+    /**
+     * Sets the most new orders a sender can send in each one second window.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck maxOrdersPerSecond(int maxOrdersPerSecond) {
+        this.maxOrdersPerSecond = maxOrdersPerSecond;
+        return this;
+    }
+
+    /**
+     * Sets a sampler for the time each check takes, excluding the handler the order is passed to.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck checkLatency(NanoSampler checkLatency) {
+        this.checkLatency = checkLatency;
+        return this;
+    }
+
+    /**
+     * Sets the last price of a symbol, which orders are collared around and market orders are valued at.
+     *
+     * @return this {@code RiskCheck} for method chaining
+     */
+    public RiskCheck lastPrice(long symbol, double price) {
+        final int id = symbols.intern(symbol);
+        growLastPrice(id);
+        lastPrice[id] = price;
+        return this;
+    }
+
+    /**
+     * Clears the notional accumulated for every symbol and account.
+     */
+    public void resetNotional() {
+        Arrays.fill(notional, 0);
+    }
+
+    /**
+     * Checks a new order and passes it on, or rejects it with an execution report.
+     *
+     * @param nos the {@link NewOrderSingle} request to check
+     */
+    @Override
+    public void newOrderSingle(NewOrderSingle nos) {
+        final String reason;
+        if (checkLatency == null) {
+            reason = check(nos);
+        } else {
+            final long start = System.nanoTime();
+            reason = check(nos);
+            checkLatency.sampleNanos(System.nanoTime() - start);
+        }
+        if (reason == null)
+            next.newOrderSingle(nos);
+        else
+            rejected(nos, reason);
+    }
+
+    @Override
+    public void cancelOrderRequest(CancelOrderRequest cor) {
+        next.cancelOrderRequest(cor);
+    }
+
+    @Override
+    public void cancelAll(CancelAll cancelAll) {
+        next.cancelAll(cancelAll);
+    }
+
+    /**
+     * Checks a new order against the limits, adding its notional to the exposure of its symbol and account if it passes.
+     *
+     * @return the reason to reject the order, or {@code null} if it passes
+     */
+    public String check(NewOrderSingle nos) {
+        final int sender = parties.tryIntern(nos.sender());
+        if (sender == LongIdInterner.NO_ID)
+            return "too many senders to check";
+        // every order counts towards the throttle, even if it is rejected for another reason
+        if (throttled(sender))
+            return "Order rate exceeds limit";
+
+        // an invalid quantity or price is left for the OMS to reject
+        final double qty = nos.orderQty();
+        if (qty > maxOrderQty)
+            return "orderQty exceeds limit";
+
+        final int symbol = symbols.tryIntern(nos.symbol());
+        if (symbol == LongIdInterner.NO_ID)
+            return "too many symbols to check";
+        growLastPrice(symbol);
+        final double last = lastPrice[symbol];
+        final boolean market = nos.ordType() == OrderType.MARKET;
+        // comparisons with a NaN last price are false, so a symbol without one is not collared
+        if (!market && Math.abs(nos.price() - last) > priceCollar * last)
+            return "price outside collar";
+
+        final int symbolAccount = symbolAccountId(symbol, nos.account());
+        if (symbolAccount == LongIdInterner.NO_ID)
+            return "too many accounts to check";
+        final double total = notional[symbolAccount] + qty * (market ? last : nos.price());
+        if (total > maxNotional)
+            return "notional exceeds limit";
+        // a market order without a last price has an unknown notional, so adds nothing
+        if (total == total)
+            notional[symbolAccount] = total;
+        return null;
+    }
+
+    private boolean throttled(int id) {
+        while (id >= windowStart.length) {
+            windowStart = Arrays.copyOf(windowStart, windowStart.length * 2);
+            windowOrders = Arrays.copyOf(windowOrders, windowOrders.length * 2);
+        }
+        final long now = SystemTimeProvider.CLOCK.currentTimeNanos();
+        if (now - windowStart[id] >= WINDOW_NS) {
+            windowStart[id] = now;
+            windowOrders[id] = 0;
+        }
+        return ++windowOrders[id] > maxOrdersPerSecond;
+    }
+
+    private void growLastPrice(int symbol) {
+        while (symbol >= lastPrice.length) {
+            final int length = lastPrice.length;
+            lastPrice = Arrays.copyOf(lastPrice, length * 2);
+            Arrays.fill(lastPrice, length, lastPrice.length, Double.NaN);
+        }
+    }
+
+    /**
+     * @return the id of the pair of symbol and account, or {@link LongIdInterner#NO_ID} if the account table is full
+     */
+    private int symbolAccountId(int symbol, long account) {
+        final int accountId = accounts.tryIntern(account);
+        if (accountId == LongIdInterner.NO_ID)
+            return LongIdInterner.NO_ID;
+        final long key = (long) symbol << 32 | accountId;
+        int id = symbolAccounts.tryIntern(key);
+        if (id == LongIdInterner.NO_ID && symbolAccounts.capacity() < MAX_SYMBOL_ACCOUNTS) {
+            // the pairs keep their ids, so their notionals stay where they are
+            symbolAccounts = symbolAccounts.withCapacity(
+                    (int) Math.min(MAX_SYMBOL_ACCOUNTS, 2L * symbolAccounts.capacity()));
+            id = symbolAccounts.intern(key);
+        }
+        while (id >= notional.length)
+            notional = Arrays.copyOf(notional, notional.length * 2);
+        return id;
+    }
+
+    /**
+     * Sends an execution report for an order which failed a check.
+     */
+    private void rejected(NewOrderSingle nos, String reason) {
+        er.reset();
+        er.sender(nos.target())
+                .target(nos.sender())
+                .symbol(nos.symbol())
+                .clOrdID(nos.clOrdID())
+                .ordType(nos.ordType())
+                .orderQty(nos.orderQty())
+                .price(nos.price())
+                .side(nos.side())
+                .sendingTime(nos.sendingTime())
+                .transactTime(nos.transactTime())
+                .leavesQty(0)
+                .cumQty(0)
+                .avgPx(0)
+                .orderID(SystemTimeProvider.CLOCK.currentTimeNanos())
+                .text(reason);
+        out.executionReport(er);
+    }
+
+    private static double[] nans(int length) {
+        final double[] nans = new double[length];
+        Arrays.fill(nans, Double.NaN);
+        return nans;
+    }
+}
@@ -29,7 +29,7 @@ public class AbstractEvent<E extends AbstractEvent<E>> extends SelfDescribingMar
 
     // Used to control the benchmark
     public static final boolean PREGENERATED_MARSHALLABLE = Jvm.getBoolean("pregeneratedMarshallable", true);
-    private static final int MARSHALLABLE_VERSION = 1;
+    static final int MARSHALLABLE_VERSION = 1;
 
     // The sender of the event
     @ShortText
@@ -161,13 +161,28 @@ public class AbstractEvent<E extends AbstractEvent<E>> extends SelfDescribingMar
         }
     }
 
+    /**
+     * Copies the text into a reusable text field, so setting it does not allocate once the field has grown.
+     *
+     * @param field the field to set
+     * @param text  the text to copy, {@code null} clears the field
+     */
+    protected static void setText(StringBuilder field, CharSequence text) {
+        // copying a field into itself would clear it
+        if (field == text)
+            return;
+        field.setLength(0);
+        if (text != null)
+            field.append(text);
+    }
+
     @Override
     public void validate() throws InvalidMarshallableException {
-        if (sender == 0)
+        if (sender() == 0)
             throw new InvalidMarshallableException("sender is required");
-        if (target == 0)
+        if (target() == 0)
             throw new InvalidMarshallableException("target is required");
-        if (sendingTime == 0)
+        if (sendingTime() == 0)
             throw new InvalidMarshallableException("sendingTime is required");
     }
 }
@@ -50,13 +50,15 @@ import net.openhft.chronicle.wire.converter.ShortText;
  * <p>Note that the {@code symbol} field is encoded using {@link ShortTextLongConverter} to minimize storage and transmission size.
  */
 public class CancelAll extends AbstractEvent<CancelAll> {
-    private static final int MASHALLABLE_VERSION = 1;
+    static final int MASHALLABLE_VERSION = 1;
     // Symbol for which all orders are to be canceled.
     @ShortText
     private long symbol;
 
     // Client order ID.
-    private String clOrdID = "";
+    private StringBuilder clOrdID = new StringBuilder();
+    // Whether clOrdID is null, rather than the text in clOrdID.
+    private boolean clOrdIDNull;
 
     /**
      * Get the symbol for which all orders are to be canceled.
@@ -81,10 +83,10 @@ public class CancelAll extends AbstractEvent<CancelAll> {
     /**
      * Retrieves the client order ID.
      *
-     * @return The client order ID as a {@code String}.
+     * @return The client order ID as text.
      */
-    public String clOrdID() {
-        return clOrdID;
+    public CharSequence clOrdID() {
+        return clOrdIDNull ? null : clOrdID;
     }
 
     /**
@@ -93,8 +95,9 @@ public class CancelAll extends AbstractEvent<CancelAll> {
      * @param clOrdID The client order ID.
      * @return The {@code CancelAll} object with the client order ID set.
      */
-    public CancelAll clOrdID(String clOrdID) {
-        this.clOrdID = clOrdID;
+    public CancelAll clOrdID(CharSequence clOrdID) {
+        this.clOrdIDNull = clOrdID == null;
+        setText(this.clOrdID, clOrdID);
         return this;
     }
 
@@ -103,7 +106,7 @@ public class CancelAll extends AbstractEvent<CancelAll> {
         super.writeMarshallable(out);
         if (PREGENERATED_MARSHALLABLE) {
             out.write("symbol").writeLong(ShortTextLongConverter.INSTANCE, symbol);
-            out.write("clOrdID").object(String.class, clOrdID);
+            out.write("clOrdID").text(clOrdID());
         }
     }
 
@@ -112,7 +115,7 @@ public class CancelAll extends AbstractEvent<CancelAll> {
         super.readMarshallable(in);
         if (PREGENERATED_MARSHALLABLE) {
             symbol = in.read("symbol").readLong(ShortTextLongConverter.INSTANCE);
-            clOrdID = in.read("clOrdID").object(clOrdID, String.class);
+            clOrdIDNull = in.read("clOrdID").textTo(clOrdID) == null;
         }
     }
 
@@ -122,7 +125,7 @@ public class CancelAll extends AbstractEvent<CancelAll> {
         if (PREGENERATED_MARSHALLABLE) {
             out.writeStopBit(MASHALLABLE_VERSION);
             out.writeLong(symbol);
-            out.writeObject(String.class, clOrdID);
+            out.writeUtf8(clOrdID());
         }
     }
 
@@ -133,7 +136,7 @@ public class CancelAll extends AbstractEvent<CancelAll> {
             int version = (int) in.readStopBit();
             if (version == MASHALLABLE_VERSION) {
                 symbol = in.readLong();
-                clOrdID = in.readObject(String.class);
+                clOrdIDNull = !in.readUtf8(clOrdID);
             } else {
                 throw new IllegalStateException("Unknown version " + version);
             }
@@ -148,10 +151,10 @@ public class CancelAll extends AbstractEvent<CancelAll> {
     @Override
     public void validate() throws InvalidMarshallableException {
         super.validate();
-        if (symbol == 0) {
+        if (symbol() == 0) {
             throw new InvalidMarshallableException("symbol is required");
         }
-        if (clOrdID == null || clOrdID.isEmpty()) {
+        if (clOrdID() == null || clOrdID().length() == 0) {
             throw new InvalidMarshallableException("clOrdID is required");
         }
     }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import static town.lost.oms.dto.FlyweightUtil.*;
+
+/**
+ * The {@code CancelAllView} class is a flyweight {@link CancelAll}, reading each field from the bytes
+ * of the event when it is called rather than copying them into the object.
+ *
+ * <p>See {@link NewOrderSingleView} for how the view is wrapped and how long it is valid for.
+ * The view is read only, the setters inherited from {@link CancelAll} throw an {@link UnsupportedOperationException}.
+ */
+public class CancelAllView extends CancelAll {
+    // Offset of the first variable length field, from the start of the event
+    private static final int FIXED_LENGTH = SYMBOL + Long.BYTES;
+
+    private static final int CL_ORD_ID = 0;
+
+    private final long[] at = new long[1];
+    private final int[] length = new int[1];
+    private Bytes<?> bytes;
+    private long start;
+    private final StringBuilder clOrdIDText = new StringBuilder();
+    private boolean clOrdIDRead;
+
+    /**
+     * Wraps the view around the event between {@code start} and {@code end}.
+     *
+     * @return {@code true} if the event has the expected layout, otherwise the view must not be used
+     */
+    public boolean wrap(Bytes<?> bytes, long start, long end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.clOrdIDRead = false;
+        return hasVersions(bytes, start, end, MASHALLABLE_VERSION, FIXED_LENGTH)
+                && text(bytes, start + FIXED_LENGTH, end, at, length, CL_ORD_ID) >= 0;
+    }
+
+    @Override
+    public long sender() {
+        return bytes.readLong(start + SENDER);
+    }
+
+    @Override
+    public long target() {
+        return bytes.readLong(start + TARGET);
+    }
+
+    @Override
+    public long sendingTime() {
+        return bytes.readLong(start + SENDING_TIME);
+    }
+
+    @Override
+    public long symbol() {
+        return bytes.readLong(start + SYMBOL);
+    }
+
+    @Override
+    public CharSequence clOrdID() {
+        if (!clOrdIDRead) {
+            textTo(bytes, at[CL_ORD_ID], length[CL_ORD_ID], clOrdIDText);
+            clOrdIDRead = true;
+        }
+        return length[CL_ORD_ID] < 0 ? null : clOrdIDText;
+    }
+
+    @Override
+    public CancelAll sender(long sender) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelAll target(long target) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelAll sendingTime(long sendingTime) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelAll symbol(long symbol) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelAll clOrdID(CharSequence clOrdID) {
+        throw readOnly();
+    }
+
+    /**
+     * Copies every field of the event into a {@link CancelAll}.
+     *
+     * @return {@code cancelAll}
+     */
+    public CancelAll copyTo(CancelAll cancelAll) {
+        return cancelAll.sender(sender())
+                .target(target())
+                .sendingTime(sendingTime())
+                .symbol(symbol())
+                .clOrdID(clOrdID());
+    }
+
+    @Override
+    public String toString() {
+        return copyTo(new CancelAll()).toString();
+    }
+}
@@ -39,7 +39,7 @@ import net.openhft.chronicle.wire.converter.ShortText;
  * to save space, while the client order IDs are strings for identification purposes.
  */
 public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
-    private static final int MASHALLABLE_VERSION = 1;
+    static final int MASHALLABLE_VERSION = 1;
     // Symbol of the financial instrument for the order.
     @ShortText
     private long symbol;
@@ -47,10 +47,14 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
     private long account;
 
     // Client order ID.
-    private String clOrdID = "";
+    private StringBuilder clOrdID = new StringBuilder();
+    // Whether clOrdID is null, rather than the text in clOrdID.
+    private boolean clOrdIDNull;
 
     // Original client order ID.
-    private String origClOrdID = "";
+    private StringBuilder origClOrdID = new StringBuilder();
+    // Whether origClOrdID is null, rather than the text in origClOrdID.
+    private boolean origClOrdIDNull;
 
     // Side of the order (e.g., buy or sell).
     private Side side;
@@ -100,10 +104,10 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
     /**
      * Retrieves the client order ID.
      *
-     * @return The client order ID as a {@code String}.
+     * @return The client order ID as text.
      */
-    public String clOrdID() {
-        return clOrdID;
+    public CharSequence clOrdID() {
+        return clOrdIDNull ? null : clOrdID;
     }
 
     /**
@@ -112,18 +116,19 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
      * @param clOrdID The client order ID.
      * @return The {@code CancelOrderRequest} object with the client order ID set.
      */
-    public CancelOrderRequest clOrdID(String clOrdID) {
-        this.clOrdID = clOrdID;
+    public CancelOrderRequest clOrdID(CharSequence clOrdID) {
+        this.clOrdIDNull = clOrdID == null;
+        setText(this.clOrdID, clOrdID);
         return this;
     }
 
     /**
      * Retrieves the original client order ID.
      *
-     * @return The original client order ID as a {@code String}.
+     * @return The original client order ID as text.
      */
-    public String origClOrdID() {
-        return origClOrdID;
+    public CharSequence origClOrdID() {
+        return origClOrdIDNull ? null : origClOrdID;
     }
 
     /**
@@ -132,8 +137,9 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
      * @param origClOrdID The original client order ID to set.
      * @return This {@code CancelOrderRequest} instance for method chaining.
      */
-    public CancelOrderRequest origClOrdID(String origClOrdID) {
-        this.origClOrdID = origClOrdID;
+    public CancelOrderRequest origClOrdID(CharSequence origClOrdID) {
+        this.origClOrdIDNull = origClOrdID == null;
+        setText(this.origClOrdID, origClOrdID);
         return this;
     }
 
@@ -163,8 +169,8 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
         if (PREGENERATED_MARSHALLABLE) {
             out.write("symbol").writeLong(ShortTextLongConverter.INSTANCE, symbol);
             out.write("account").writeLong(ShortTextLongConverter.INSTANCE, account);
-            out.write("clOrdID").object(String.class, clOrdID);
-            out.write("origClOrdID").object(String.class, origClOrdID);
+            out.write("clOrdID").text(clOrdID());
+            out.write("origClOrdID").text(origClOrdID());
             out.write("side").object(Side.class, side);
         }
     }
@@ -175,8 +181,8 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
         if (PREGENERATED_MARSHALLABLE) {
             symbol = in.read("symbol").readLong(ShortTextLongConverter.INSTANCE);
             account = in.read("account").readLong(ShortTextLongConverter.INSTANCE);
-            clOrdID = in.read("clOrdID").object(clOrdID, String.class);
-            origClOrdID = in.read("origClOrdID").object(origClOrdID, String.class);
+            clOrdIDNull = in.read("clOrdID").textTo(clOrdID) == null;
+            origClOrdIDNull = in.read("origClOrdID").textTo(origClOrdID) == null;
             side = in.read("side").object(Side.class);
         }
     }
@@ -188,8 +194,8 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
             out.writeStopBit(MASHALLABLE_VERSION);
             out.writeLong(symbol);
             out.writeLong(account);
-            out.writeObject(String.class, clOrdID);
-            out.writeObject(String.class, origClOrdID);
+            out.writeUtf8(clOrdID());
+            out.writeUtf8(origClOrdID());
             out.writeObject(Side.class, side);
         }
     }
@@ -203,8 +209,8 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
             if (version == MASHALLABLE_VERSION) {
                 symbol = in.readLong();
                 account = in.readLong();
-                clOrdID = in.readObject(String.class);
-                origClOrdID = in.readObject(String.class);
+                clOrdIDNull = !in.readUtf8(clOrdID);
+                origClOrdIDNull = !in.readUtf8(origClOrdID);
                 side = in.readObject(Side.class);
             } else {
                 throw new IllegalStateException("Unknown version " + version);
@@ -219,19 +225,19 @@ public class CancelOrderRequest extends AbstractEvent<CancelOrderRequest> {
      */
     @Override
     public void validate() throws InvalidMarshallableException {
-        if (symbol == 0) {
+        if (symbol() == 0) {
             throw new InvalidMarshallableException("symbol is required");
         }
-        if (account == 0) {
+        if (account() == 0) {
             throw new InvalidMarshallableException("account is required");
         }
-        if (clOrdID == null || clOrdID.isEmpty()) {
+        if (clOrdID() == null || clOrdID().length() == 0) {
             throw new InvalidMarshallableException("clOrdID is required");
         }
-        if (origClOrdID == null || origClOrdID.isEmpty()) {
+        if (origClOrdID() == null || origClOrdID().length() == 0) {
             throw new InvalidMarshallableException("origClOrdID is required");
         }
-        if (side == null) {
+        if (side() == null) {
             throw new InvalidMarshallableException("side is required");
         }
     }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import static town.lost.oms.dto.FlyweightUtil.*;
+
+/**
+ * The {@code CancelOrderRequestView} class is a flyweight {@link CancelOrderRequest}, reading each field from the bytes
+ * of the event when it is called rather than copying them into the object.
+ *
+ * <p>See {@link NewOrderSingleView} for how the view is wrapped and how long it is valid for.
+ * The view is read only, the setters inherited from {@link CancelOrderRequest} throw an {@link UnsupportedOperationException}.
+ */
+public class CancelOrderRequestView extends CancelOrderRequest {
+    private static final Side[] SIDES = Side.values();
+
+    // Offsets of the fixed length fields, from the start of the event
+    private static final int ACCOUNT = SYMBOL + Long.BYTES;
+    private static final int FIXED_LENGTH = ACCOUNT + Long.BYTES;
+
+    // Indexes of the variable length fields, in the order they are written
+    private static final int CL_ORD_ID = 0;
+    private static final int ORIG_CL_ORD_ID = 1;
+    private static final int SIDE = 2;
+
+    private final long[] at = new long[3];
+    private final int[] length = new int[3];
+    private Bytes<?> bytes;
+    private long start;
+    private final StringBuilder clOrdIDText = new StringBuilder();
+    private boolean clOrdIDRead;
+    private final StringBuilder origClOrdIDText = new StringBuilder();
+    private boolean origClOrdIDRead;
+
+    /**
+     * Wraps the view around the event between {@code start} and {@code end}.
+     *
+     * @return {@code true} if the event has the expected layout, otherwise the view must not be used
+     */
+    public boolean wrap(Bytes<?> bytes, long start, long end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.clOrdIDRead = false;
+        this.origClOrdIDRead = false;
+        if (!hasVersions(bytes, start, end, MASHALLABLE_VERSION, FIXED_LENGTH))
+            return false;
+        long pos = start + FIXED_LENGTH;
+        for (int field = CL_ORD_ID; field <= SIDE && pos >= 0; field++)
+            pos = text(bytes, pos, end, at, length, field);
+        return pos >= 0;
+    }
+
+    @Override
+    public long sender() {
+        return bytes.readLong(start + SENDER);
+    }
+
+    @Override
+    public long target() {
+        return bytes.readLong(start + TARGET);
+    }
+
+    @Override
+    public long sendingTime() {
+        return bytes.readLong(start + SENDING_TIME);
+    }
+
+    @Override
+    public long symbol() {
+        return bytes.readLong(start + SYMBOL);
+    }
+
+    @Override
+    public long account() {
+        return bytes.readLong(start + ACCOUNT);
+    }
+
+    @Override
+    public CharSequence clOrdID() {
+        if (!clOrdIDRead) {
+            textTo(bytes, at[CL_ORD_ID], length[CL_ORD_ID], clOrdIDText);
+            clOrdIDRead = true;
+        }
+        return length[CL_ORD_ID] < 0 ? null : clOrdIDText;
+    }
+
+    @Override
+    public CharSequence origClOrdID() {
+        if (!origClOrdIDRead) {
+            textTo(bytes, at[ORIG_CL_ORD_ID], length[ORIG_CL_ORD_ID], origClOrdIDText);
+            origClOrdIDRead = true;
+        }
+        return length[ORIG_CL_ORD_ID] < 0 ? null : origClOrdIDText;
+    }
+
+    @Override
+    public Side side() {
+        return toEnum(bytes, at[SIDE], length[SIDE], SIDES);
+    }
+
+    @Override
+    public CancelOrderRequest sender(long sender) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest target(long target) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest sendingTime(long sendingTime) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest symbol(long symbol) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest account(long account) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest clOrdID(CharSequence clOrdID) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest origClOrdID(CharSequence origClOrdID) {
+        throw readOnly();
+    }
+
+    @Override
+    public CancelOrderRequest side(Side side) {
+        throw readOnly();
+    }
+
+    /**
+     * Copies every field of the event into a {@link CancelOrderRequest}.
+     *
+     * @return {@code cor}
+     */
+    public CancelOrderRequest copyTo(CancelOrderRequest cor) {
+        return cor.sender(sender())
+                .target(target())
+                .sendingTime(sendingTime())
+                .symbol(symbol())
+                .account(account())
+                .clOrdID(clOrdID())
+                .origClOrdID(origClOrdID())
+                .side(side());
+    }
+
+    @Override
+    public String toString() {
+        return copyTo(new CancelOrderRequest()).toString();
+    }
+}
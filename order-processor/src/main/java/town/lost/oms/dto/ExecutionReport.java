@@ -87,7 +87,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
     private OrderType ordType;
 
     // Client order ID.
-    private String clOrdID = "";
+    private StringBuilder clOrdID = new StringBuilder();
 
     // Optional text message about the order execution.
     private String text = null;
@@ -95,9 +95,9 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
     /**
      * Retrieves the client order ID.
      *
-     * @return the client order ID as a {@code String}
+     * @return the client order ID as text
      */
-    public String clOrdID() {
+    public CharSequence clOrdID() {
         return clOrdID;
     }
 
@@ -107,8 +107,8 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
      * @param clOrdID the client order ID to set
      * @return this {@code ExecutionReport} instance for method chaining
      */
-    public ExecutionReport clOrdID(String clOrdID) {
-        this.clOrdID = clOrdID;
+    public ExecutionReport clOrdID(CharSequence clOrdID) {
+        setText(this.clOrdID, clOrdID);
         return this;
     }
 
@@ -366,7 +366,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
             out.writeDouble(avgPx);
             out.writeObject(Side.class, side);
             out.writeObject(OrderType.class, ordType);
-            out.writeObject(String.class, clOrdID);
+            out.writeUtf8(clOrdID);
             out.writeObject(String.class, text);
         }
     }
@@ -388,7 +388,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
                 avgPx = in.readDouble();
                 side = in.readObject(Side.class);
                 ordType = in.readObject(OrderType.class);
-                clOrdID = in.readObject(String.class);
+                in.readUtf8(clOrdID);
                 text = in.readObject(String.class);
             } else {
                 throw new IllegalStateException("Unknown version " + version);
@@ -411,7 +411,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
             out.write("avgPx").writeDouble(avgPx);
             out.write("side").object(Side.class, side);
             out.write("ordType").object(OrderType.class, ordType);
-            out.write("clOrdID").object(String.class, clOrdID);
+            out.write("clOrdID").text(clOrdID);
             out.write("text").object(String.class, text);
         }
     }
@@ -431,7 +431,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
             avgPx = in.read("avgPx").readDouble();
             side = in.read("side").object(side, Side.class);
             ordType = in.read("ordType").object(ordType, OrderType.class);
-            clOrdID = in.read("clOrdID").object(clOrdID, String.class);
+            in.read("clOrdID").textTo(clOrdID);
             text = in.read("text").object(text, String.class);
         }
     }
@@ -466,7 +466,7 @@ public class ExecutionReport extends AbstractEvent<ExecutionReport> {
             throw new InvalidMarshallableException("side is required");
         if (ordType == null)
             throw new InvalidMarshallableException("ordType is required");
-        if (clOrdID == null || clOrdID.isEmpty())
+        if (clOrdID.length() == 0)
             throw new InvalidMarshallableException("clOrdID is required");
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+/**
+ * The {@code FlyweightUtil} class holds the layout of the events written with the pregenerated marshalling
+ * and the methods the flyweight views use to read them in place.
+ *
+ * <p>Every event starts with the fields of {@link AbstractEvent}, then the version of the subclass and its symbol,
+ * so these are at the same offsets for every event. The text and enum fields, written with {@code writeObject},
+ * are a stop bit encoded length followed by the UTF-8 bytes, or a length of -1 for {@code null}.
+ *
+ * <p>The views extend the events they read, so they can be passed to the same {@link town.lost.oms.api.OMSIn},
+ * but are read only: every setter throws {@link #readOnly()}.
+ */
+final class FlyweightUtil {
+    // Offsets from the start of an event
+    static final int SENDER = 1;
+    static final int TARGET = SENDER + Long.BYTES;
+    static final int SENDING_TIME = TARGET + Long.BYTES;
+    static final int VERSION = SENDING_TIME + Long.BYTES;
+    static final int SYMBOL = VERSION + 1;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private FlyweightUtil() {
+    }
+
+    /**
+     * Checks the versions of both the {@link AbstractEvent} and the subclass, each a one byte stop bit.
+     *
+     * @return {@code true} if the event has the expected versions and at least {@code fixedLength} bytes
+     */
+    static boolean hasVersions(Bytes<?> bytes, long start, long end, int version, int fixedLength) {
+        return start + fixedLength <= end
+                && bytes.readUnsignedByte(start) == AbstractEvent.MARSHALLABLE_VERSION
+                && bytes.readUnsignedByte(start + VERSION) == version;
+    }
+
+    /**
+     * @return the exception thrown by the setters of a view
+     */
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("A flyweight view is read only, use copyTo to change a copy");
+    }
+
+    /**
+     * Reads the length of the text field at {@code pos}, storing where its bytes start and how many there are,
+     * with a length of -1 if it is {@code null}.
+     *
+     * @return the position after the field, or -1 if it does not end before {@code end}
+     */
+    static long text(Bytes<?> bytes, long pos, long end, long[] at, int[] length, int field) {
+        int len = 0;
+        int shift = 0;
+        int b;
+        for (; ; shift += 7) {
+            if (pos >= end || shift > 28)
+                return -1;
+            b = bytes.readUnsignedByte(pos++);
+            len |= (b & 0x7F) << shift;
+            if (b < 0x80)
+                break;
+        }
+        // a negative length is written as its complement followed by a zero byte, and the only one used is -1
+        if (b == 0 && shift > 0) {
+            if (len != 0)
+                return -1;
+            at[field] = pos;
+            length[field] = -1;
+            return pos;
+        }
+        at[field] = pos;
+        length[field] = len;
+        return pos + len <= end ? pos + len : -1;
+    }
+
+    /**
+     * Finds the enum constant with the name in these bytes, without creating a String.
+     *
+     * @return the constant, or {@code null} if there is none with this name
+     */
+    static <E extends Enum<E>> E toEnum(Bytes<?> bytes, long at, int length, E[] values) {
+        for (E e : values) {
+            final String name = e.name();
+            if (name.length() == length && equalsAscii(bytes, at, name))
+                return e;
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the UTF-8 text of {@code length} bytes at {@code at} into a reusable buffer, without allocating.
+     *
+     * @return {@code text}, or {@code null} if the length is -1
+     */
+    static StringBuilder textTo(Bytes<?> bytes, long at, int length, StringBuilder text) {
+        text.setLength(0);
+        if (length < 0)
+            return null;
+        if (length == 0)
+            return text;
+        final long pos = bytes.readPosition();
+        try {
+            bytes.readPosition(at);
+            bytes.parseUtf8(text, length);
+            return text;
+        } finally {
+            bytes.readPosition(pos);
+        }
+    }
+
+    private static boolean equalsAscii(Bytes<?> bytes, long at, String name) {
+        for (int i = 0; i < name.length(); i++)
+            if (bytes.readUnsignedByte(at + i) != name.charAt(i))
+                return false;
+        return true;
+    }
+}
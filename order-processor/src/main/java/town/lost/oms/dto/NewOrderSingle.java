@@ -45,7 +45,7 @@ import static town.lost.oms.dto.ValidateUtil.invalidQuantity;
  * and the order type indicates whether the order is a market order or a limit order.
  */
 public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
-    private static final int MASHALLABLE_VERSION = 1;
+    static final int MASHALLABLE_VERSION = 1;
     // Symbol of the financial instrument.
     @ShortText
     private long symbol;
@@ -64,8 +64,10 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
     // Side of the order (buy or sell).
     private Side side;
 
-    // Client order ID.
-    private String clOrdID = "";
+    // Client order ID, reused so reading it does not allocate.
+    private StringBuilder clOrdID = new StringBuilder();
+    // Whether clOrdID is null, rather than the text in clOrdID.
+    private boolean clOrdIDNull;
 
     // Type of the order (market or limit).
     private OrderType ordType;
@@ -79,20 +81,23 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
     /**
      * Get the client order ID.
      *
-     * @return The client order ID as a string.
+     * <p>The text is only valid until this event is next changed or read into.
+     *
+     * @return The client order ID as text.
      */
-    public String clOrdID() {
-        return clOrdID;
+    public CharSequence clOrdID() {
+        return clOrdIDNull ? null : clOrdID;
     }
 
     /**
      * Sets the client order ID.
      *
-     * @param clOrdID The client order ID to set, as a string.
+     * @param clOrdID The client order ID to set, which is copied.
      * @return This {@code NewOrderSingle} instance, to facilitate method chaining.
      */
-    public NewOrderSingle clOrdID(String clOrdID) {
-        this.clOrdID = clOrdID;
+    public NewOrderSingle clOrdID(CharSequence clOrdID) {
+        this.clOrdIDNull = clOrdID == null;
+        setText(this.clOrdID, clOrdID);
         return this;
     }
 
@@ -288,7 +293,7 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
             out.writeDouble(price);
             out.writeObject(Side.class, side);
             out.writeObject(OrderType.class, ordType);
-            out.writeObject(String.class, clOrdID);
+            out.writeUtf8(clOrdID());
             out.writeObject(TimeInForce.class, timeInForce);
             out.writeObject(Ccy.class, currency);
         }
@@ -307,7 +312,7 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
                 price = in.readDouble();
                 side = in.readObject(Side.class);
                 ordType = in.readObject(OrderType.class);
-                clOrdID = in.readObject(String.class);
+                clOrdIDNull = !in.readUtf8(clOrdID);
                 timeInForce = in.readObject(TimeInForce.class);
                 currency = in.readObject(Ccy.class);
             }
@@ -325,7 +330,7 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
             out.write("price").writeDouble(price);
             out.write("side").object(Side.class, side);
             out.write("ordType").object(OrderType.class, ordType);
-            out.write("clOrdID").object(String.class, clOrdID);
+            out.write("clOrdID").text(clOrdID());
             out.write("timeInForce").object(TimeInForce.class, timeInForce);
             out.write("currency").object(Ccy.class, currency);
         }
@@ -342,7 +347,7 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
             price = in.read("price").readDouble();
             side = in.read("side").object(side, Side.class);
             ordType = in.read("ordType").object(OrderType.class);
-            clOrdID = in.read("clOrdID").object(clOrdID, String.class);
+            clOrdIDNull = in.read("clOrdID").textTo(clOrdID) == null;
             timeInForce = in.read("timeInForce").object(TimeInForce.class);
             currency = in.read("currency").object(Ccy.class);
         }
@@ -356,27 +361,27 @@ public class NewOrderSingle extends AbstractEvent<NewOrderSingle> {
     @Override
     public void validate() throws InvalidMarshallableException {
         super.validate();
-        if (symbol == 0)
+        if (symbol() == 0)
             throw new InvalidMarshallableException("symbol is required");
-        if (transactTime == 0)
+        if (transactTime() == 0)
             throw new InvalidMarshallableException("transactTime is required");
-        if (account == 0)
+        if (account() == 0)
             throw new InvalidMarshallableException("account is required");
-        if (orderQty == 0)
+        if (orderQty() == 0)
             throw new InvalidMarshallableException("orderQty is required");
-        if (invalidQuantity(orderQty))
+        if (invalidQuantity(orderQty()))
             throw new InvalidMarshallableException("orderQty is invalid");
-        if (invalidPrice(price))
+        if (invalidPrice(price()))
             throw new InvalidMarshallableException("price is invalid");
-        if (side == null)
+        if (side() == null)
             throw new InvalidMarshallableException("side is required");
-        if (ordType == null)
+        if (ordType() == null)
             throw new InvalidMarshallableException("ordType is required");
-        if (clOrdID == null || clOrdID.isEmpty())
+        if (clOrdID() == null || clOrdID().length() == 0)
             throw new InvalidMarshallableException("clOrdID is required");
-        if (timeInForce == null)
+        if (timeInForce() == null)
             throw new InvalidMarshallableException("timeInForce is required");
-        if (currency == null)
+        if (currency() == null)
             throw new InvalidMarshallableException("currency is required");
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms.dto;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+import static town.lost.oms.dto.FlyweightUtil.*;
+
+/**
+ * The {@code NewOrderSingleView} class is a flyweight {@link NewOrderSingle}, reading each field from the bytes
+ * of the event when it is called rather than copying them into the object.
+ *
+ * <p>The view is wrapped around an event written with the pregenerated binary marshalling, usually in place in the
+ * memory mapped queue, and is only valid until the document is closed. The numeric fields are at fixed offsets.
+ * Enum fields are matched by name and the {@code clOrdID} is decoded into a reused buffer, so neither creates
+ * an object.
+ *
+ * <p>The view is read only, the setters inherited from {@link NewOrderSingle} throw an
+ * {@link UnsupportedOperationException}. Use {@link #copyTo(NewOrderSingle)} to keep or change the event.
+ */
+public class NewOrderSingleView extends NewOrderSingle {
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORD_TYPES = OrderType.values();
+    private static final TimeInForce[] TIME_IN_FORCES = TimeInForce.values();
+    private static final Ccy[] CCYS = Ccy.values();
+
+    // Offsets of the fixed length fields, from the start of the event
+    private static final int TRANSACT_TIME = SYMBOL + Long.BYTES;
+    private static final int ACCOUNT = TRANSACT_TIME + Long.BYTES;
+    private static final int ORDER_QTY = ACCOUNT + Long.BYTES;
+    private static final int PRICE = ORDER_QTY + Long.BYTES;
+    private static final int FIXED_LENGTH = PRICE + Double.BYTES;
+
+    // Indexes of the variable length fields, in the order they are written
+    private static final int SIDE = 0;
+    private static final int ORD_TYPE = 1;
+    private static final int CL_ORD_ID = 2;
+    private static final int TIME_IN_FORCE = 3;
+    private static final int CURRENCY = 4;
+
+    private final long[] at = new long[5];
+    private final int[] length = new int[5];
+    private Bytes<?> bytes;
+    private long start;
+    private final StringBuilder clOrdIDText = new StringBuilder();
+    private boolean clOrdIDRead;
+
+    /**
+     * Wraps the view around the event between {@code start} and {@code end}.
+     *
+     * @return {@code true} if the event has the expected layout, otherwise the view must not be used
+     */
+    public boolean wrap(Bytes<?> bytes, long start, long end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.clOrdIDRead = false;
+        if (!hasVersions(bytes, start, end, MASHALLABLE_VERSION, FIXED_LENGTH))
+            return false;
+        long pos = start + FIXED_LENGTH;
+        for (int field = SIDE; field <= CURRENCY && pos >= 0; field++)
+            pos = text(bytes, pos, end, at, length, field);
+        return pos >= 0;
+    }
+
+    @Override
+    public long sender() {
+        return bytes.readLong(start + SENDER);
+    }
+
+    @Override
+    public long target() {
+        return bytes.readLong(start + TARGET);
+    }
+
+    @Override
+    public long sendingTime() {
+        return bytes.readLong(start + SENDING_TIME);
+    }
+
+    @Override
+    public long symbol() {
+        return bytes.readLong(start + SYMBOL);
+    }
+
+    @Override
+    public long transactTime() {
+        return bytes.readLong(start + TRANSACT_TIME);
+    }
+
+    @Override
+    public long account() {
+        return bytes.readLong(start + ACCOUNT);
+    }
+
+    @Override
+    public double orderQty() {
+        return bytes.readDouble(start + ORDER_QTY);
+    }
+
+    @Override
+    public double price() {
+        return bytes.readDouble(start + PRICE);
+    }
+
+    @Override
+    public Side side() {
+        return toEnum(bytes, at[SIDE], length[SIDE], SIDES);
+    }
+
+    @Override
+    public OrderType ordType() {
+        return toEnum(bytes, at[ORD_TYPE], length[ORD_TYPE], ORD_TYPES);
+    }
+
+    @Override
+    public CharSequence clOrdID() {
+        if (!clOrdIDRead) {
+            textTo(bytes, at[CL_ORD_ID], length[CL_ORD_ID], clOrdIDText);
+            clOrdIDRead = true;
+        }
+        return length[CL_ORD_ID] < 0 ? null : clOrdIDText;
+    }
+
+    @Override
+    public TimeInForce timeInForce() {
+        return toEnum(bytes, at[TIME_IN_FORCE], length[TIME_IN_FORCE], TIME_IN_FORCES);
+    }
+
+    @Override
+    public Ccy currency() {
+        return toEnum(bytes, at[CURRENCY], length[CURRENCY], CCYS);
+    }
+
+    @Override
+    public NewOrderSingle sender(long sender) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle target(long target) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle sendingTime(long sendingTime) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle symbol(long symbol) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle transactTime(long transactTime) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle account(long account) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle orderQty(double orderQty) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle price(double price) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle side(Side side) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle ordType(OrderType ordType) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle clOrdID(CharSequence clOrdID) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle timeInForce(TimeInForce timeInForce) {
+        throw readOnly();
+    }
+
+    @Override
+    public NewOrderSingle currency(Ccy currency) {
+        throw readOnly();
+    }
+
+    /**
+     * Copies every field of the event into a {@link NewOrderSingle}.
+     *
+     * @return {@code nos}
+     */
+    public NewOrderSingle copyTo(NewOrderSingle nos) {
+        return nos.sender(sender())
+                .target(target())
+                .sendingTime(sendingTime())
+                .symbol(symbol())
+                .transactTime(transactTime())
+                .account(account())
+                .orderQty(orderQty())
+                .price(price())
+                .side(side())
+                .ordType(ordType())
+                .clOrdID(clOrdID())
+                .timeInForce(timeInForce())
+                .currency(currency());
+    }
+
+    @Override
+    public String toString() {
+        return copyTo(new NewOrderSingle()).toString();
+    }
+}
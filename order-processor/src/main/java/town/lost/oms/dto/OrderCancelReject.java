@@ -39,7 +39,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
     private long symbol;
 
     // Client order ID of the order that was requested to be canceled.
-    private String clOrdID = "";
+    private StringBuilder clOrdID = new StringBuilder();
 
     // Reason for the rejection of the order cancellation request.
     private String reason = "";
@@ -47,20 +47,20 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
     /**
      * Get the client order ID of the order that was requested to be canceled.
      *
-     * @return The client order ID as a string.
+     * @return The client order ID as text.
      */
-    public String clOrdID() {
+    public CharSequence clOrdID() {
         return clOrdID;
     }
 
     /**
      * Set the client order ID of the order that was requested to be canceled.
      *
-     * @param clOrdID The client order ID to set, as a string.
+     * @param clOrdID The client order ID to set, which is copied.
      * @return This OrderCancelReject instance, to facilitate method chaining.
      */
-    public OrderCancelReject clOrdID(String clOrdID) {
-        this.clOrdID = clOrdID;
+    public OrderCancelReject clOrdID(CharSequence clOrdID) {
+        setText(this.clOrdID, clOrdID);
         return this;
     }
 
@@ -110,7 +110,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
         super.writeMarshallable(out);
         if (PREGENERATED_MARSHALLABLE) {
             out.write("symbol").writeLong(ShortTextLongConverter.INSTANCE, symbol);
-            out.write("clOrdID").object(String.class, clOrdID);
+            out.write("clOrdID").text(clOrdID);
             out.write("reason").object(String.class, reason);
         }
     }
@@ -120,7 +120,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
         super.readMarshallable(in);
         if (PREGENERATED_MARSHALLABLE) {
             symbol = in.read("symbol").readLong(ShortTextLongConverter.INSTANCE);
-            clOrdID = in.read("clOrdID").object(clOrdID, String.class);
+            in.read("clOrdID").textTo(clOrdID);
             reason = in.read("reason").object(reason, String.class);
         }
     }
@@ -132,7 +132,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
         if (PREGENERATED_MARSHALLABLE) {
             out.writeStopBit(MASHALLABLE_VERSION);
             out.writeLong(symbol);
-            out.writeObject(String.class, clOrdID);
+            out.writeUtf8(clOrdID);
             out.writeObject(String.class, reason);
         }
     }
@@ -144,7 +144,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
             int version = (int) in.readStopBit();
             if (version == MASHALLABLE_VERSION) {
                 symbol = in.readLong();
-                clOrdID = in.readObject(String.class);
+                in.readUtf8(clOrdID);
                 reason = in.readObject(String.class);
             } else {
                 throw new IllegalStateException("Unknown version " + version);
@@ -162,7 +162,7 @@ public class OrderCancelReject extends AbstractEvent<OrderCancelReject> {
         super.validate();
         if (symbol == 0)
             throw new InvalidMarshallableException("symbol is required");
-        if (clOrdID == null || clOrdID.isEmpty())
+        if (clOrdID.length() == 0)
             throw new InvalidMarshallableException("clOrdID is required");
         if (reason == null || reason.isEmpty())
             throw new InvalidMarshallableException("reason is required");
@@ -22,6 +22,9 @@
  *             <li>{@link town.lost.oms.dto.Ccy}: Represents currency codes as per ISO 4217.</li>
  *         </ul>
  *     </li>
+ *     <li><strong>Flyweight views</strong> of the inbound events, which read each field from the queue's memory when it is called:
+ *         {@link town.lost.oms.dto.NewOrderSingleView}, {@link town.lost.oms.dto.CancelOrderRequestView} and {@link town.lost.oms.dto.CancelAllView}.
+ *     </li>
  *     <li><strong>Utility Classes</strong>:
  *         <ul>
  *             <li>{@link town.lost.oms.dto.ValidateUtil}: Provides utility methods for validating order parameters such as price and quantity.</li>
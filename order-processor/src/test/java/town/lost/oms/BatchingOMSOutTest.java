@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import org.junit.After;
+import org.junit.Test;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link BatchingOMSOut}, checking the responses to each request share one document,
+ * and are still read back as separate calls.
+ */
+public class BatchingOMSOutTest {
+    private final String path = OS.getTarget() + "/BatchingOMSOutTest-" + System.nanoTime();
+
+    @After
+    public void tearDown() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    public void responsesToOneRequestAreWrittenAsOneDocument() {
+        try (ChronicleQueue output = ChronicleQueue.single(path)) {
+            BatchingOMSOut out = new BatchingOMSOut(output.createAppender());
+            OMSImpl oms = new OMSImpl(out);
+            assertFalse(out.flush());
+
+            for (String clOrdID : new String[]{"A1", "A2", "A3"}) {
+                oms.newOrderSingle(nos(clOrdID));
+                assertTrue(out.flush());
+            }
+            oms.cancelAll(new CancelAll()
+                    .sender(1001L).target(2002L).sendingTime(3L).symbol(3003L).clOrdID("CA"));
+            assertTrue(out.flush());
+            assertFalse(out.flush());
+
+            List<String> calls = new ArrayList<>();
+            ExcerptTailer tailer = output.createTailer();
+            MethodReader reader = tailer.methodReader(recorder(calls));
+            List<Integer> perDocument = new ArrayList<>();
+            while (reader.readOne()) {
+                perDocument.add(calls.size());
+                calls.clear();
+            }
+            assertEquals("[1, 1, 1, 3]", perDocument.toString());
+        }
+    }
+
+    @Test
+    public void readOneFlushesAfterTheRequest() {
+        try (ChronicleQueue output = ChronicleQueue.single(path)) {
+            BatchingOMSOut out = new BatchingOMSOut(output.createAppender());
+            OMSImpl oms = new OMSImpl(out);
+
+            assertTrue(out.readOne(() -> {
+                oms.newOrderSingle(nos("A1"));
+                oms.cancelAll(new CancelAll()
+                        .sender(1001L).target(2002L).sendingTime(3L).symbol(3003L).clOrdID("CA"));
+                return true;
+            }));
+            assertFalse(out.flush());
+
+            List<String> calls = new ArrayList<>();
+            MethodReader reader = output.createTailer().methodReader(recorder(calls));
+            assertTrue(reader.readOne());
+            assertEquals("[A1 New, A1 Canceled]", calls.toString());
+            assertFalse(reader.readOne());
+        }
+    }
+
+    private static NewOrderSingle nos(String clOrdID) {
+        return new NewOrderSingle()
+                .sender(1001L).target(2002L).sendingTime(1L).transactTime(2L).account(42L)
+                .symbol(3003L).clOrdID(clOrdID)
+                .side(Side.BUY).ordType(OrderType.LIMIT).orderQty(100).price(1.0)
+                .timeInForce(TimeInForce.GTC).currency(Ccy.USD);
+    }
+
+    private static OMSOut recorder(List<String> calls) {
+        return new OMSOut() {
+            @Override
+            public void executionReport(ExecutionReport er) {
+                calls.add(er.clOrdID() + " " + er.text());
+            }
+
+            @Override
+            public void orderCancelReject(OrderCancelReject ocr) {
+                calls.add(ocr.clOrdID() + " " + ocr.reason());
+            }
+
+            @Override
+            public void jvmError(String msg) {
+                calls.add(msg);
+            }
+        };
+    }
+}
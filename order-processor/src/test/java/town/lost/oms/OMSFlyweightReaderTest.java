@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.BytesMarshallable;
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.io.ValidatableUtil;
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link OMSFlyweightReader}, checking the OMS produces the same output from the flyweight views
+ * as from the DTOs read by a {@link MethodReader}.
+ */
+public class OMSFlyweightReaderTest {
+    private static final long SYMBOL = 3003L;
+
+    private final String path = OS.getTarget() + "/OMSFlyweightReaderTest-" + System.nanoTime();
+
+    @Before
+    public void setUp() {
+        SystemTimeProvider.CLOCK = new SetTimeProvider("2025-01-01T00:00:00").autoIncrement(1, TimeUnit.MICROSECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    private static NewOrderSingle nos(long sender, String clOrdID, Side side, double qty, double price, TimeInForce tif) {
+        return new NewOrderSingle()
+                .sender(sender).target(2002L).sendingTime(1L).transactTime(2L).account(42L)
+                .symbol(SYMBOL).clOrdID(clOrdID)
+                .side(side).ordType(OrderType.LIMIT).orderQty(qty).price(price)
+                .timeInForce(tif).currency(Ccy.USD);
+    }
+
+    @Test
+    public void viewsProduceTheSameOutputAsTheMethodReader() {
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            OMSIn in = queue.createAppender().methodWriter(OMSIn.class);
+            in.newOrderSingle(nos(1001L, "B1", Side.BUY, 100, 1.25, TimeInForce.GTC));
+            in.newOrderSingle(nos(1001L, "B2", Side.BUY, 200, 1.24, TimeInForce.GTC));
+            in.newOrderSingle(nos(1002L, "S1", Side.SELL, 150, 1.24, TimeInForce.IOC));
+            // a duplicate is rejected
+            in.newOrderSingle(nos(1001L, "B2", Side.BUY, 200, 1.24, TimeInForce.GTC));
+            in.cancelOrderRequest(new CancelOrderRequest()
+                    .sender(1001L).target(2002L).sendingTime(3L).account(42L)
+                    .symbol(SYMBOL).clOrdID("C1").origClOrdID("B9").side(Side.BUY));
+            in.cancelAll(new CancelAll()
+                    .sender(1001L).target(2002L).sendingTime(4L)
+                    .symbol(SYMBOL).clOrdID("A1"));
+
+            MethodReader reader = queue.createTailer().methodReader(new OMSImpl(recorder(expected)));
+            while (reader.readOne()) {
+                // read all
+            }
+            setUp();
+            OMSFlyweightReader flyweight = new OMSFlyweightReader(queue.createTailer(), new OMSImpl(recorder(actual)));
+            while (flyweight.readOne()) {
+                // read all
+            }
+        }
+        assertEquals(9, expected.size());
+        assertEquals(String.join("\n", expected), String.join("\n", actual));
+    }
+
+    @Test
+    public void theHandlerChecksOnlyTheFieldsItReads() {
+        List<String> actual = new ArrayList<>();
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            OMSIn in = queue.createAppender().methodWriter(OMSIn.class);
+            // neither would pass validation, but the OMS doesn't check the account or transactTime of an order,
+            // and rejects a cancel without an origClOrdID
+            ValidatableUtil.startValidateDisabled();
+            try {
+                in.newOrderSingle(nos(1001L, "B1", Side.BUY, 100, 1.25, TimeInForce.GTC).account(0).transactTime(0));
+                in.cancelOrderRequest(new CancelOrderRequest()
+                        .sender(1001L).target(2002L).sendingTime(3L).account(42L)
+                        .symbol(SYMBOL).clOrdID("C1").origClOrdID(null).side(Side.BUY));
+            } finally {
+                ValidatableUtil.endValidateDisabled();
+            }
+
+            OMSFlyweightReader flyweight = new OMSFlyweightReader(queue.createTailer(), new OMSImpl(recorder(actual)));
+            while (flyweight.readOne()) {
+                // read all
+            }
+        }
+        assertEquals(2, actual.size());
+        assertTrue(actual.get(0), actual.get(0).contains("text: New"));
+        assertTrue(actual.get(1), actual.get(1).contains("reason: No such order"));
+    }
+
+    @Test
+    public void viewsReadEveryField() {
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            NewOrderSingle nos = nos(1001L, "B1", Side.SELL, 100, 1.25, TimeInForce.FOK);
+            queue.createAppender().methodWriter(OMSIn.class).newOrderSingle(nos);
+
+            List<NewOrderSingle> read = new ArrayList<>();
+            OMSFlyweightReader flyweight = new OMSFlyweightReader(queue.createTailer(), new OMSIn() {
+                @Override
+                public void newOrderSingle(NewOrderSingle view) {
+                    read.add(((NewOrderSingleView) view).copyTo(new NewOrderSingle()));
+                }
+
+                @Override
+                public void cancelOrderRequest(CancelOrderRequest cor) {
+                }
+
+                @Override
+                public void cancelAll(CancelAll cancelAll) {
+                }
+            });
+            assertTrue(flyweight.readOne());
+            assertEquals(1, read.size());
+            assertEquals(nos, read.get(0));
+        }
+    }
+
+    @Test
+    public void nullClOrdIDsRoundTrip() {
+        NewOrderSingle nos = nos(1001L, null, Side.BUY, 100, 1.25, TimeInForce.GTC);
+        NewOrderSingleView nosView = new NewOrderSingleView();
+        Bytes<?> nosBytes = marshalled(nos);
+        assertTrue(nosView.wrap(nosBytes, 0, nosBytes.writePosition()));
+        assertNull(nosView.clOrdID());
+        assertEquals(nos, nosView.copyTo(new NewOrderSingle()));
+        assertEquals(nos, readBack(nos, new NewOrderSingle()));
+
+        CancelOrderRequest cor = new CancelOrderRequest()
+                .sender(1001L).target(2002L).sendingTime(3L).account(42L)
+                .symbol(SYMBOL).clOrdID(null).origClOrdID(null).side(Side.BUY);
+        CancelOrderRequestView corView = new CancelOrderRequestView();
+        Bytes<?> corBytes = marshalled(cor);
+        assertTrue(corView.wrap(corBytes, 0, corBytes.writePosition()));
+        assertNull(corView.clOrdID());
+        assertNull(corView.origClOrdID());
+        assertEquals(cor, corView.copyTo(new CancelOrderRequest()));
+        assertEquals(cor, readBack(cor, new CancelOrderRequest()));
+
+        CancelAll cancelAll = new CancelAll()
+                .sender(1001L).target(2002L).sendingTime(4L)
+                .symbol(SYMBOL).clOrdID(null);
+        CancelAllView cancelAllView = new CancelAllView();
+        Bytes<?> cancelAllBytes = marshalled(cancelAll);
+        assertTrue(cancelAllView.wrap(cancelAllBytes, 0, cancelAllBytes.writePosition()));
+        assertNull(cancelAllView.clOrdID());
+        assertEquals(cancelAll, cancelAllView.copyTo(new CancelAll()));
+        assertEquals(cancelAll, readBack(cancelAll, new CancelAll()));
+    }
+
+    @Test
+    public void viewsAreReadOnly() {
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            queue.createAppender().methodWriter(OMSIn.class)
+                    .newOrderSingle(nos(1001L, "B1", Side.BUY, 100, 1.25, TimeInForce.GTC));
+
+            List<RuntimeException> thrown = new ArrayList<>();
+            OMSFlyweightReader flyweight = new OMSFlyweightReader(queue.createTailer(), new OMSIn() {
+                @Override
+                public void newOrderSingle(NewOrderSingle view) {
+                    try {
+                        view.orderQty(200);
+                    } catch (UnsupportedOperationException e) {
+                        thrown.add(e);
+                    }
+                    assertEquals(100, view.orderQty(), 0.0);
+                }
+
+                @Override
+                public void cancelOrderRequest(CancelOrderRequest cor) {
+                }
+
+                @Override
+                public void cancelAll(CancelAll cancelAll) {
+                }
+            });
+            assertTrue(flyweight.readOne());
+            assertEquals(1, thrown.size());
+        }
+    }
+
+    private static Bytes<?> marshalled(BytesMarshallable event) {
+        Bytes<?> bytes = Bytes.allocateElasticOnHeap();
+        event.writeMarshallable(bytes);
+        return bytes;
+    }
+
+    private static <T extends BytesMarshallable> T readBack(BytesMarshallable event, T copy) {
+        copy.readMarshallable(marshalled(event));
+        return copy;
+    }
+
+    private static OMSOut recorder(List<String> events) {
+        return new OMSOut() {
+            @Override
+            public void executionReport(ExecutionReport er) {
+                events.add(er.toString());
+            }
+
+            @Override
+            public void orderCancelReject(OrderCancelReject ocr) {
+                events.add(ocr.toString());
+            }
+
+            @Override
+            public void jvmError(String msg) {
+                events.add(msg);
+            }
+        };
+    }
+}
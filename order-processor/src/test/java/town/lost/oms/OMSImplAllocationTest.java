@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the {@link OMSImpl} does not allocate per message once it has warmed up, counting the bytes
+ * allocated by the test thread while orders are added, filled, canceled and rejected.
+ * The code is run in rounds until the JIT has compiled it, as interpreted code can allocate where compiled code does not.
+ */
+public class OMSImplAllocationTest {
+    private static final long SYMBOL = 3003L;
+    private static final int ORDERS = 64;
+    private static final int RUNS = 100_000;
+    // rounds of RUNS allowed for the JIT to finish compiling the code before it is expected not to allocate
+    private static final int MAX_ROUNDS = 10;
+    // a few allocations outside the loop, e.g. by the counter itself, are tolerated
+    private static final long SLACK = 1024;
+
+    private final String[] clOrdIDs = new String[ORDERS];
+    private final String[] cancelIDs = new String[ORDERS];
+    private final NewOrderSingle nos = new NewOrderSingle();
+    private final CancelOrderRequest cor = new CancelOrderRequest();
+    private final CancelAll cancelAll = new CancelAll();
+    private final Counter out = new Counter();
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < ORDERS; i++) {
+            clOrdIDs[i] = "clOrdID" + i;
+            cancelIDs[i] = "cancel" + i;
+        }
+        nos.sender(1001L).target(2002L).sendingTime(1L).transactTime(2L).account(42L)
+                .symbol(SYMBOL).ordType(OrderType.LIMIT).orderQty(100).timeInForce(TimeInForce.GTC).currency(Ccy.USD);
+        cor.sender(1001L).target(2002L).sendingTime(3L).account(42L).symbol(SYMBOL).side(Side.BUY);
+        cancelAll.sender(1001L).target(2002L).sendingTime(4L).symbol(SYMBOL).clOrdID("all");
+    }
+
+    @Test
+    public void processingDoesNotAllocate() {
+        OMSImpl oms = new OMSImpl(out);
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < MAX_ROUNDS && allocated >= SLACK; round++) {
+            out.count = 0;
+            long before = allocatedBytes();
+            for (int i = 0; i < RUNS; i++)
+                process(oms, i);
+            allocated = allocatedBytes() - before;
+        }
+
+        // new and canceled, new and a fill of each side of a cross, then a cancelAll with nothing left to cancel
+        assertEquals(RUNS * 6L, out.count);
+        assertTrue(allocated + " bytes allocated for " + out.count + " messages", allocated < SLACK);
+    }
+
+    @Test
+    public void readingAndProcessingDoesNotAllocate() {
+        OMSImpl oms = new OMSImpl(out);
+        Bytes<?> bytes = Bytes.allocateElasticDirect(256);
+        try {
+            NewOrderSingle order = new NewOrderSingle();
+            nos.clOrdID(clOrdIDs[0]).side(Side.BUY).price(1.25).timeInForce(TimeInForce.IOC);
+            nos.writeMarshallable(bytes);
+            long allocated = Long.MAX_VALUE;
+            for (int round = 0; round < MAX_ROUNDS && allocated >= SLACK; round++) {
+                out.count = 0;
+                long before = allocatedBytes();
+                for (int i = 0; i < RUNS; i++)
+                    readAndProcess(oms, bytes, order);
+                allocated = allocatedBytes() - before;
+            }
+
+            // each order is canceled as there is nothing to match
+            assertEquals(RUNS, out.count);
+            assertTrue(allocated + " bytes allocated for " + out.count + " messages", allocated < SLACK);
+        } finally {
+            bytes.releaseLast();
+        }
+    }
+
+    private void process(OMSImpl oms, int i) {
+        final int id = i % ORDERS;
+        nos.clOrdID(clOrdIDs[id]).side(Side.BUY).price(1.25).timeInForce(TimeInForce.GTC);
+        oms.newOrderSingle(nos);
+        cor.clOrdID(cancelIDs[id]).origClOrdID(clOrdIDs[id]);
+        oms.cancelOrderRequest(cor);
+
+        nos.clOrdID(clOrdIDs[id]).side(Side.SELL).price(1.30);
+        oms.newOrderSingle(nos);
+        nos.clOrdID(cancelIDs[id]).side(Side.BUY).price(1.30);
+        oms.newOrderSingle(nos);
+        oms.cancelAll(cancelAll);
+    }
+
+    private static void readAndProcess(OMSImpl oms, Bytes<?> bytes, NewOrderSingle order) {
+        bytes.readPosition(0);
+        order.readMarshallable(bytes);
+        oms.newOrderSingle(order);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Counts the messages sent, without keeping them.
+     */
+    static final class Counter implements OMSOut {
+        long count;
+
+        @Override
+        public void executionReport(ExecutionReport er) {
+            count++;
+        }
+
+        @Override
+        public void orderCancelReject(OrderCancelReject ocr) {
+            count++;
+        }
+
+        @Override
+        public void jvmError(String msg) {
+            count++;
+        }
+    }
+}
@@ -76,7 +76,7 @@ public class OMSImplEdgeCaseTest {
         verifyNoMoreInteractions(mockOut);
 
         ExecutionReport er = erCaptor.getValue();
-        assertEquals("NEGQTY", er.clOrdID());
+        assertEquals("NEGQTY", er.clOrdID().toString());
         assertEquals(3003L, er.symbol());
         // Leaves/cumQty are set to 0 by default in OMSImpl
         assertEquals(0.0, er.leavesQty(), 0.0001);
@@ -110,7 +110,7 @@ public class OMSImplEdgeCaseTest {
         verifyNoMoreInteractions(mockOut);
 
         ExecutionReport er = erCaptor.getValue();
-        assertEquals("ZEROPRICE", er.clOrdID());
+        assertEquals("ZEROPRICE", er.clOrdID().toString());
         assertEquals(0.0, er.price(), 0.0001);
     }
 
@@ -164,7 +164,7 @@ public class OMSImplEdgeCaseTest {
         verifyNoMoreInteractions(mockOut);
 
         OrderCancelReject ocr = ocrCaptor.getValue();
-        assertEquals("NON_EXISTENT", ocr.clOrdID());
+        assertEquals("NON_EXISTENT", ocr.clOrdID().toString());
         assertEquals("No such order", ocr.reason());
     }
 
@@ -189,7 +189,7 @@ public class OMSImplEdgeCaseTest {
         verifyNoMoreInteractions(mockOut);
 
         OrderCancelReject ocr = ocrCaptor.getValue();
-        assertEquals("", ocr.clOrdID());
+        assertEquals("", ocr.clOrdID().toString());
         assertEquals("No orders to cancel", ocr.reason());
     }
 
@@ -30,7 +30,9 @@ public class OMSImplTest {
             "newOrderSingle",
             "newOrderSingleEquity",
             "cancelOrderRequest",
-            "cancelAll"
+            "cancelAll",
+            "orderLifecycle",
+            "matching"
     });
 
     // The name of the test, and the tester that will run the test.
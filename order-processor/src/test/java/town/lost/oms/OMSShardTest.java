@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import org.junit.After;
+import org.junit.Test;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.dto.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the {@link OMSShard}, checking every request read from a shared queue
+ * is processed by exactly one shard, the one owning its symbol.
+ */
+public class OMSShardTest {
+    private static final int SHARDS = 3;
+    private static final String[] SYMBOLS = {"AUDUSD", "EURUSD", "GBPUSD", "USDJPY", "USDCHF", "USDCAD", "NZDUSD", "EURGBP"};
+
+    private final String path = OS.getTarget() + "/OMSShardTest-" + System.nanoTime();
+
+    @After
+    public void tearDown() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    public void shardOfIsInRange() {
+        for (String symbol : SYMBOLS) {
+            long s = ShortTextLongConverter.INSTANCE.parse(symbol);
+            int shard = OMSShard.shardOf(s, SHARDS);
+            assertTrue(shard >= 0 && shard < SHARDS);
+            assertEquals(0, OMSShard.shardOf(s, 1));
+        }
+    }
+
+    @Test
+    public void eachRequestIsProcessedByTheShardOwningItsSymbol() {
+        Counting[] handlers = new Counting[SHARDS];
+        int[] expected = new int[SHARDS];
+        try (ChronicleQueue queue = ChronicleQueue.single(path)) {
+            OMSIn in = queue.createAppender().methodWriter(OMSIn.class);
+            for (String name : SYMBOLS) {
+                long symbol = ShortTextLongConverter.INSTANCE.parse(name);
+                in.newOrderSingle(new NewOrderSingle()
+                        .sender(1001L).target(2002L).sendingTime(1L).transactTime(1L).account(42L)
+                        .symbol(symbol).clOrdID("N" + name)
+                        .side(Side.BUY).ordType(OrderType.LIMIT).orderQty(100).price(1.25)
+                        .timeInForce(TimeInForce.GTC).currency(Ccy.USD));
+                in.cancelOrderRequest(new CancelOrderRequest()
+                        .sender(1001L).target(2002L).sendingTime(2L)
+                        .symbol(symbol).account(42L).clOrdID("C" + name).origClOrdID("N" + name).side(Side.BUY));
+                in.cancelAll(new CancelAll()
+                        .sender(1001L).target(2002L).sendingTime(3L)
+                        .symbol(symbol).clOrdID("A" + name));
+                expected[OMSShard.shardOf(symbol, SHARDS)]++;
+            }
+
+            // the symbol of every request type is found without deserializing it
+            ExcerptTailer tailer = queue.createTailer();
+            OMSShard peeker = new OMSShard(queue.createTailer(), new Counting(0), 0, SHARDS);
+            for (int i = 0; i < 3 * SYMBOLS.length; i++)
+                try (DocumentContext dc = tailer.readingDocument()) {
+                    long symbol = ShortTextLongConverter.INSTANCE.parse(SYMBOLS[i / 3]);
+                    assertEquals(symbol, peeker.peekSymbol(dc.wire().bytes()));
+                }
+
+            for (int s = 0; s < SHARDS; s++) {
+                handlers[s] = new Counting(s);
+                OMSShard shard = new OMSShard(queue.createTailer(), handlers[s], s, SHARDS);
+                int read = 0;
+                while (shard.readOne())
+                    read++;
+                assertEquals(3 * SYMBOLS.length, read);
+            }
+        }
+
+        for (int s = 0; s < SHARDS; s++)
+            assertEquals(3 * expected[s], handlers[s].count);
+    }
+
+    /**
+     * Counts the requests passed to a shard, failing on any for a symbol it does not own.
+     */
+    static final class Counting implements OMSIn {
+        final int shard;
+        int count;
+
+        Counting(int shard) {
+            this.shard = shard;
+        }
+
+        private void accept(long symbol) {
+            assertEquals(shard, OMSShard.shardOf(symbol, SHARDS));
+            count++;
+        }
+
+        @Override
+        public void newOrderSingle(NewOrderSingle nos) {
+            accept(nos.symbol());
+        }
+
+        @Override
+        public void cancelOrderRequest(CancelOrderRequest cor) {
+            accept(cor.symbol());
+        }
+
+        @Override
+        public void cancelAll(CancelAll cancelAll) {
+            accept(cancelAll.symbol());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.bytes.MethodReader;
+import net.openhft.chronicle.core.OS;
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.core.util.Mocker;
+import net.openhft.chronicle.queue.ChronicleQueue;
+import net.openhft.chronicle.queue.ExcerptTailer;
+import org.junit.After;
+import org.junit.Test;
+import town.lost.oms.api.OMSIn;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link OMSSnapshot}, checking an OMS restored from a snapshot and the tail of its input
+ * holds the same orders, in the same price-time priority, as the OMS which processed all of it.
+ */
+public class OMSSnapshotTest {
+    private static final long SYMBOL = 3003L;
+
+    private final String path = OS.getTarget() + "/OMSSnapshotTest-" + System.nanoTime();
+
+    @After
+    public void tearDown() {
+        IOTools.deleteDirWithFiles(path);
+    }
+
+    @Test
+    public void restoresTheLatestSnapshotAndReplaysTheTail() {
+        try (ChronicleQueue input = ChronicleQueue.single(path + "/input");
+             ChronicleQueue snapshots = ChronicleQueue.single(path + "/snapshots")) {
+            OMSIn in = input.createAppender().methodWriter(OMSIn.class);
+            in.newOrderSingle(nos("B1", Side.BUY, OrderType.LIMIT, 100, 1.2120));
+            in.newOrderSingle(nos("A1", Side.SELL, OrderType.LIMIT, 400, 1.2130));
+            in.newOrderSingle(nos("B2", Side.BUY, OrderType.LIMIT, 300, 1.2122));
+            in.newOrderSingle(nos("B3", Side.BUY, OrderType.LIMIT, 200, 1.2120));
+            // partially fills B2
+            in.newOrderSingle(nos("S1", Side.SELL, OrderType.LIMIT, 50, 1.2122));
+            in.newOrderSingle(nos("A2", Side.SELL, OrderType.LIMIT, 100, 1.2130));
+            // after the last snapshot
+            in.newOrderSingle(nos("B4", Side.BUY, OrderType.LIMIT, 100, 1.2120));
+
+            List<String> before = new ArrayList<>();
+            OMSImpl processed = new OMSImpl(recorder(before));
+            OMSSnapshot snapshot = new OMSSnapshot(snapshots, 3);
+            ExcerptTailer tailer = input.createTailer();
+            MethodReader reader = tailer.methodReader(processed);
+            int written = 0;
+            while (reader.readOne())
+                if (snapshot.onMessage(processed, tailer.lastReadIndex()))
+                    written++;
+            assertEquals(2, written);
+
+            List<String> after = new ArrayList<>();
+            OMSImpl restored = new OMSImpl(recorder(after));
+            ExcerptTailer restart = input.createTailer();
+            OMSSnapshot.skipTo(restart, new OMSSnapshot(snapshots).restore(restored));
+            MethodReader replay = restart.methodReader(restored);
+            int replayed = 0;
+            while (replay.readOne())
+                replayed++;
+            assertEquals(1, replayed);
+            assertEquals(processed.orders().size(), restored.orders().size());
+
+            // sweeping both sides of both books trades every order in priority order
+            before.clear();
+            after.clear();
+            for (OMSImpl oms : new OMSImpl[]{processed, restored}) {
+                oms.newOrderSingle(nos("S2", Side.SELL, OrderType.MARKET, 1000, 0));
+                oms.newOrderSingle(nos("B5", Side.BUY, OrderType.MARKET, 1000, 0));
+            }
+            assertEquals(before.toString(), after.toString());
+            assertEquals("[B2 300.0, B1 100.0, B3 200.0, B4 100.0, S2 650.0, A1 400.0, A2 100.0, B5 500.0]",
+                    after.toString());
+        }
+    }
+
+    @Test
+    public void noSnapshotReplaysEverything() {
+        try (ChronicleQueue input = ChronicleQueue.single(path + "/input");
+             ChronicleQueue snapshots = ChronicleQueue.single(path + "/snapshots")) {
+            OMSIn in = input.createAppender().methodWriter(OMSIn.class);
+            in.newOrderSingle(nos("B1", Side.BUY, OrderType.LIMIT, 100, 1.2120));
+
+            OMSImpl oms = new OMSImpl(Mocker.ignored(OMSOut.class));
+            long lastIndex = new OMSSnapshot(snapshots).restore(oms);
+            assertEquals(OMSSnapshot.NO_INDEX, lastIndex);
+
+            ExcerptTailer tailer = input.createTailer();
+            OMSSnapshot.skipTo(tailer, lastIndex);
+            MethodReader reader = tailer.methodReader(oms);
+            while (reader.readOne()) {
+                // replay
+            }
+            assertEquals(1, oms.orders().size());
+        }
+    }
+
+    private static NewOrderSingle nos(String clOrdID, Side side, OrderType ordType, double qty, double price) {
+        return new NewOrderSingle()
+                .sender(1001L).target(2002L).sendingTime(1L).transactTime(2L).account(42L)
+                .symbol(SYMBOL).clOrdID(clOrdID)
+                .side(side).ordType(ordType).orderQty(qty).price(price)
+                .timeInForce(TimeInForce.GTC).currency(Ccy.USD);
+    }
+
+    // records the orders as they complete, with the quantity filled
+    private static OMSOut recorder(List<String> texts) {
+        return new OMSOut() {
+            @Override
+            public void executionReport(ExecutionReport er) {
+                if (er.cumQty() > 0 && er.leavesQty() == 0)
+                    texts.add(er.clOrdID() + " " + er.cumQty());
+            }
+
+            @Override
+            public void orderCancelReject(OrderCancelReject ocr) {
+                texts.add(ocr.clOrdID() + " " + ocr.reason());
+            }
+
+            @Override
+            public void jvmError(String msg) {
+                texts.add(msg);
+            }
+        };
+    }
+}
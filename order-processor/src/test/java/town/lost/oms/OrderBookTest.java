@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import org.junit.Test;
+import town.lost.oms.dto.OrderType;
+import town.lost.oms.dto.Side;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link OrderBook}, covering level ordering, time priority within a level,
+ * crossing checks and level removal.
+ */
+public class OrderBookTest {
+    private static final long SYMBOL = 3003L;
+
+    private final OrderStore orders = new OrderStore(16);
+    private final OrderBook book = new OrderBook(orders, 1e-4);
+
+    private int rest(String clOrdID, Side side, double qty, double price) {
+        int slot = orders.add(1001L, clOrdID, SYMBOL, 42L, side, OrderType.LIMIT, qty, price, 7L);
+        book.add(slot);
+        return slot;
+    }
+
+    @Test
+    public void levelsAreSortedBestFirst() {
+        rest("B1", Side.BUY, 100, 1.2120);
+        rest("B2", Side.BUY, 200, 1.2122);
+        rest("B3", Side.BUY, 300, 1.2118);
+        rest("A1", Side.SELL, 400, 1.2130);
+        rest("A2", Side.SELL, 500, 1.2126);
+
+        assertEquals(3, book.depth(Side.BUY));
+        assertEquals(1.2122, book.price(Side.BUY, 0), 1e-9);
+        assertEquals(1.2120, book.price(Side.BUY, 1), 1e-9);
+        assertEquals(1.2118, book.price(Side.BUY, 2), 1e-9);
+        assertEquals(2, book.depth(Side.SELL));
+        assertEquals(1.2126, book.price(Side.SELL, 0), 1e-9);
+        assertEquals(500, book.quantity(Side.SELL, 0), 0.0);
+    }
+
+    @Test
+    public void matchesOnlyWhenPricesCross() {
+        int ask = rest("A1", Side.SELL, 400, 1.2126);
+
+        assertEquals(OrderStore.NO_SLOT, book.match(Side.BUY, false, book.toTick(1.2125)));
+        assertEquals(ask, book.match(Side.BUY, false, book.toTick(1.2126)));
+        assertEquals(ask, book.match(Side.BUY, true, 0));
+        assertEquals(OrderStore.NO_SLOT, book.match(Side.SELL, true, 0));
+    }
+
+    @Test
+    public void oldestOrderAtALevelMatchesFirst() {
+        int first = rest("B1", Side.BUY, 100, 1.2120);
+        int second = rest("B2", Side.BUY, 200, 1.2120);
+
+        assertEquals(1, book.depth(Side.BUY));
+        assertEquals(300, book.quantity(Side.BUY, 0), 0.0);
+        assertEquals(first, book.match(Side.SELL, true, 0));
+
+        book.fill(first, 100, 1.2120);
+        assertEquals(second, book.match(Side.SELL, true, 0));
+        assertEquals(200, book.quantity(Side.BUY, 0), 0.0);
+
+        book.fill(second, 50, 1.2120);
+        assertEquals(150, book.quantity(Side.BUY, 0), 0.0);
+        assertEquals(50, orders.cumQty(second), 0.0);
+    }
+
+    @Test
+    public void availableStopsAtTheLimitPrice() {
+        rest("A1", Side.SELL, 100, 1.2126);
+        rest("A2", Side.SELL, 200, 1.2127);
+        rest("A3", Side.SELL, 300, 1.2128);
+
+        assertEquals(300, book.available(Side.BUY, false, book.toTick(1.2127), 1000), 0.0);
+        assertEquals(600, book.available(Side.BUY, true, 0, 1000), 0.0);
+        assertEquals(100, book.available(Side.BUY, true, 0, 50), 0.0);
+    }
+
+    @Test
+    public void removingTheLastOrderRemovesTheLevel() {
+        int b1 = rest("B1", Side.BUY, 100, 1.2120);
+        int b2 = rest("B2", Side.BUY, 200, 1.2122);
+
+        book.remove(b2);
+        assertEquals(1, book.depth(Side.BUY));
+        assertEquals(1.2120, book.price(Side.BUY, 0), 1e-9);
+
+        book.remove(b1);
+        assertEquals(0, book.depth(Side.BUY));
+        assertEquals(OrderStore.NO_SLOT, book.match(Side.SELL, true, 0));
+    }
+}
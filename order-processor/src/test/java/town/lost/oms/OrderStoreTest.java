@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import org.junit.Test;
+import town.lost.oms.dto.OrderType;
+import town.lost.oms.dto.Side;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link OrderStore}, covering lookup by clOrdID, the per-symbol lists,
+ * slot reuse and growing past the initial capacity.
+ */
+public class OrderStoreTest {
+    private static final long CLIENT1 = 1001L;
+    private static final long CLIENT2 = 1002L;
+    private static final long EURUSD = 3003L;
+    private static final long GBPUSD = 3004L;
+
+    private static int add(OrderStore store, long sender, String clOrdID, long symbol) {
+        return store.add(sender, clOrdID, symbol, 42L, Side.BUY, OrderType.LIMIT, 100, 1.25, 7L);
+    }
+
+    @Test
+    public void addAndFind() {
+        OrderStore store = new OrderStore(16);
+        int slot = add(store, CLIENT1, "A", EURUSD);
+
+        assertEquals(1, store.size());
+        assertEquals(slot, store.find(CLIENT1, "A"));
+        assertEquals(OrderStore.NO_SLOT, store.find(CLIENT2, "A"));
+        assertEquals(OrderStore.NO_SLOT, store.find(CLIENT1, "B"));
+        assertEquals("A", store.clOrdID(slot).toString());
+        assertEquals(EURUSD, store.symbol(slot));
+        assertEquals(Side.BUY, store.side(slot));
+        assertEquals(OrderType.LIMIT, store.ordType(slot));
+        assertEquals(100, store.leavesQty(slot), 0.0);
+    }
+
+    @Test
+    public void duplicateClOrdIDIsRejectedPerSender() {
+        OrderStore store = new OrderStore(16);
+        add(store, CLIENT1, "A", EURUSD);
+
+        assertEquals(OrderStore.NO_SLOT, add(store, CLIENT1, "A", GBPUSD));
+        assertNotEquals(OrderStore.NO_SLOT, add(store, CLIENT2, "A", EURUSD));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void removeFreesTheSlotAndTheClOrdID() {
+        OrderStore store = new OrderStore(16);
+        int a = add(store, CLIENT1, "A", EURUSD);
+        store.remove(a);
+
+        assertEquals(0, store.size());
+        assertEquals(OrderStore.NO_SLOT, store.find(CLIENT1, "A"));
+        assertEquals(OrderStore.NO_SLOT, store.firstForSymbol(EURUSD));
+        assertEquals(a, add(store, CLIENT1, "A", EURUSD));
+    }
+
+    @Test
+    public void symbolListsSurviveRemovalFromTheMiddle() {
+        OrderStore store = new OrderStore(16);
+        int a = add(store, CLIENT1, "A", EURUSD);
+        int b = add(store, CLIENT1, "B", EURUSD);
+        int c = add(store, CLIENT1, "C", EURUSD);
+        add(store, CLIENT1, "D", GBPUSD);
+        store.remove(b);
+
+        Set<Integer> slots = new HashSet<>();
+        for (int s = store.firstForSymbol(EURUSD); s != OrderStore.NO_SLOT; s = store.nextForSymbol(s))
+            slots.add(s);
+        assertEquals(new HashSet<>(Arrays.asList(a, c)), slots);
+        assertEquals(OrderStore.NO_SLOT, store.firstForSymbol(0));
+    }
+
+    @Test
+    public void clOrdIDsOfAnyLengthAreFoundByContent() {
+        OrderStore store = new OrderStore(16);
+        String longID = "a-client-order-id-longer-than-the-slab-width-0123456789";
+        int a = add(store, CLIENT1, "A", EURUSD);
+        int b = add(store, CLIENT1, longID, EURUSD);
+
+        assertEquals(a, store.find(CLIENT1, new StringBuilder("A")));
+        assertEquals(b, store.find(CLIENT1, new StringBuilder(longID)));
+        assertEquals(OrderStore.NO_SLOT, store.find(CLIENT1, longID + "X"));
+        assertEquals(longID, store.clOrdID(b).toString());
+        store.remove(b);
+        assertEquals(OrderStore.NO_SLOT, store.find(CLIENT1, longID));
+        assertEquals("A", store.clOrdID(a).toString());
+    }
+
+    @Test
+    public void growsAndKeepsEveryOrderFindable() {
+        OrderStore store = new OrderStore(16);
+        int count = 10_000;
+        for (int i = 0; i < count; i++)
+            assertNotEquals(OrderStore.NO_SLOT, add(store, CLIENT1, "id" + i, EURUSD + (i & 63)));
+        // remove every other order so the index has to shift entries back
+        for (int i = 0; i < count; i += 2)
+            store.remove(store.find(CLIENT1, "id" + i));
+
+        assertEquals(count / 2, store.size());
+        for (int i = 0; i < count; i++)
+            assertEquals("id" + i, i % 2 == 1, store.find(CLIENT1, "id" + i) != OrderStore.NO_SLOT);
+    }
+}
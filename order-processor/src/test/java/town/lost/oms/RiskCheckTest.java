@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-2025 chronicle.software
+ */
+package town.lost.oms;
+
+import net.openhft.chronicle.core.time.SetTimeProvider;
+import net.openhft.chronicle.core.time.SystemTimeProvider;
+import net.openhft.chronicle.wire.ShortTextLongConverter;
+import org.junit.After;
+import org.junit.Test;
+import run.chronicle.common.LongIdInterner;
+import town.lost.oms.api.OMSOut;
+import town.lost.oms.dto.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the {@link RiskCheck} in front of an {@link OMSImpl}, covering each of the limits.
+ */
+@SuppressWarnings("deprecation")
+public class RiskCheckTest {
+    private static final long EURUSD = ShortTextLongConverter.INSTANCE.parse("EURUSD");
+
+    @After
+    public void tearDown() {
+        SystemTimeProvider.CLOCK = SystemTimeProvider.INSTANCE;
+    }
+
+    @Test
+    public void limits() {
+        SystemTimeProvider.CLOCK = new SetTimeProvider("2019-12-03T09:54:37.345679")
+                .autoIncrement(1, TimeUnit.SECONDS);
+        net.openhft.chronicle.wire.utils.YamlTester yt = net.openhft.chronicle.wire.utils.YamlTester.runTest(
+                out -> new RiskCheck(new OMSImpl(out), out)
+                        .maxOrderQty(1e6)
+                        .maxNotional(2e6)
+                        .priceCollar(0.05)
+                        .lastPrice(EURUSD, 1.2),
+                OMSOut.class, "riskCheck");
+        assertEquals(yt.expected(), yt.actual());
+    }
+
+    @Test
+    public void throttlePerSenderPerSecond() {
+        SetTimeProvider clock = new SetTimeProvider("2019-12-03T09:54:37");
+        SystemTimeProvider.CLOCK = clock;
+        List<String> texts = new ArrayList<>();
+        RiskCheck risk = new RiskCheck(new OMSImpl(recorder(texts)), recorder(texts))
+                .maxOrdersPerSecond(2);
+
+        risk.newOrderSingle(nos(1001L, "A1"));
+        risk.newOrderSingle(nos(1001L, "A2"));
+        risk.newOrderSingle(nos(1001L, "A3"));
+        // another sender has its own window
+        risk.newOrderSingle(nos(1002L, "B1"));
+        clock.advanceMillis(1000);
+        risk.newOrderSingle(nos(1001L, "A4"));
+
+        assertEquals("[A1 New, A2 New, A3 Order rate exceeds limit, B1 New, A4 New]", texts.toString());
+    }
+
+    @Test
+    public void resetNotionalClearsTheExposure() {
+        List<String> texts = new ArrayList<>();
+        RiskCheck risk = new RiskCheck(new OMSImpl(recorder(texts)), recorder(texts))
+                .maxNotional(150);
+
+        risk.newOrderSingle(nos(1001L, "A1"));
+        risk.newOrderSingle(nos(1001L, "A2"));
+        risk.resetNotional();
+        risk.newOrderSingle(nos(1001L, "A3"));
+
+        assertEquals("[A1 New, A2 notional exceeds limit, A3 New]", texts.toString());
+    }
+
+    @Test
+    public void morePairsOfSymbolAndAccountThanTheTableStartsWith() {
+        RiskCheck risk = new RiskCheck(null, null)
+                .maxNotional(150);
+        NewOrderSingle nos = nos(1001L, "A1");
+        final int symbols = 4;
+        final int accounts = RiskCheck.SYMBOL_ACCOUNTS / symbols + 100;
+        for (int round = 0; round < 2; round++) {
+            for (int s = 0; s < symbols; s++) {
+                nos.symbol(EURUSD + s);
+                for (int a = 0; a < accounts; a++) {
+                    // each pair keeps its own notional as the table grows, so only the second round exceeds it
+                    assertEquals(round == 0 ? null : "notional exceeds limit", risk.check(nos.account(1_000_000L + a)));
+                }
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void manyMoreNewSendersSymbolsAndAccountsThanTheTablesHoldAreRejected() {
+        // each table has room for 2, in 8 buckets
+        RiskCheck risk = new RiskCheck(null, null,
+                new LongIdInterner("parties", 2), new LongIdInterner("symbols", 2), new LongIdInterner("accounts", 2));
+        NewOrderSingle nos = nos(1001L, "A1");
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i < 2 ? null : "too many senders to check", risk.check(nos.sender(1001L + i)));
+        nos.sender(1001L);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i < 2 ? null : "too many symbols to check", risk.check(nos.symbol(EURUSD + i)));
+        nos.symbol(EURUSD);
+        // starting with the account of the orders so far
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i < 2 ? null : "too many accounts to check", risk.check(nos.account(42L + i)));
+        // the senders, symbols and accounts it has room for are still checked
+        assertEquals(null, risk.check(nos.sender(1002L).symbol(EURUSD + 1).account(43L)));
+    }
+
+    private static NewOrderSingle nos(long sender, String clOrdID) {
+        return new NewOrderSingle()
+                .sender(sender).target(2002L).sendingTime(1L).transactTime(2L).account(42L)
+                .symbol(EURUSD).clOrdID(clOrdID)
+                .side(Side.BUY).ordType(OrderType.LIMIT).orderQty(100).price(1.0)
+                .timeInForce(TimeInForce.GTC).currency(Ccy.USD);
+    }
+
+    private static OMSOut recorder(List<String> texts) {
+        return new OMSOut() {
+            @Override
+            public void executionReport(ExecutionReport er) {
+                texts.add(er.clOrdID() + " " + er.text());
+            }
+
+            @Override
+            public void orderCancelReject(OrderCancelReject ocr) {
+                texts.add(ocr.clOrdID() + " " + ocr.reason());
+            }
+
+            @Override
+            public void jvmError(String msg) {
+                texts.add(msg);
+            }
+        };
+    }
+}